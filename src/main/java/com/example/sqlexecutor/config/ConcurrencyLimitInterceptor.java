@@ -0,0 +1,196 @@
+package com.example.sqlexecutor.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.example.sqlexecutor.dto.ApiResponse;
+import com.example.sqlexecutor.service.QueryContext;
+import com.example.sqlexecutor.service.QueryMetricsService;
+import com.example.sqlexecutor.util.AdaptiveConcurrencyLimiter;
+import com.example.sqlexecutor.util.OverloadSignals;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 查询接口并发限制拦截器
+ *
+ * 每个查询接口一个自适应并发限制器，超过当前上限的请求立即返回429（或配置的状态码）并带 Retry-After，
+ * 而不是在连接池上排队等待 connection-timeout。请求按路径模式匹配限制器；只有过载信号（503/429响应、
+ * 连接获取或准入超时、全局内存预算用尽，包括多数据源查询中单个数据源的此类失败）才视为丢弃，
+ * SQL错误等与负载无关的失败按正常样本计入耗时。
+ *
+ * 流式接口（NDJSON、响应式查询）在异步处理结束时才释放许可，耗时按整个输出过程计算；
+ * 异步分派回到拦截器时沿用首次分派获取的许可，不重复计数。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * 受限的接口路径模式
+     */
+    public static final String[] LIMITED_PATHS = { "/api/execute-sql", "/api/datasource/multi-query",
+            "/api/datasource/multi-query/stream", "/api/reactive/query" };
+
+    private static final String START_TIME_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".startTime";
+    private static final String LIMITER_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+
+    private final ObjectMapper objectMapper;
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.concurrency-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql-executor.concurrency-limit.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${sql-executor.concurrency-limit.min-limit:2}")
+    private int minLimit;
+
+    @Value("${sql-executor.concurrency-limit.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${sql-executor.concurrency-limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${sql-executor.concurrency-limit.tolerance:2.0}")
+    private double tolerance;
+
+    @Value("${sql-executor.concurrency-limit.window-size:20}")
+    private int windowSize;
+
+    @Value("${sql-executor.concurrency-limit.retry-after:1}")
+    private int retryAfter;
+
+    @Value("${sql-executor.concurrency-limit.reject-status:429}")
+    private int rejectStatus;
+
+    private final Map<PathPattern, AdaptiveConcurrencyLimiter> limiters = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String path : LIMITED_PATHS) {
+            String name = endpointName(path);
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(name, initialLimit, minLimit,
+                    maxLimit, backoffRatio, tolerance, windowSize);
+            limiters.put(PathPatternParser.defaultInstance.parse(path), limiter);
+            queryMetricsService.monitorConcurrencyLimiter(limiter);
+        }
+        log.info("查询接口并发限制: {}，初始上限: {}，范围: {}~{}，耗时容忍倍数: {}",
+                enabled ? "启用" : "停用", initialLimit, minLimit, maxLimit, tolerance);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!enabled || !"POST".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                && request.getAttribute(LIMITER_ATTRIBUTE) != null) {
+            // 流式接口的异步分派，许可已在首次分派时获取
+            return true;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = findLimiter(request);
+        if (limiter == null) {
+            return true;
+        }
+
+        if (!limiter.tryAcquire()) {
+            log.warn("接口 {} 并发已达上限 {}，拒绝请求", limiter.getName(), limiter.getLimit());
+            reject(response);
+            return false;
+        }
+
+        request.setAttribute(LIMITER_ATTRIBUTE, limiter);
+        request.setAttribute(START_TIME_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object limiter = request.getAttribute(LIMITER_ATTRIBUTE);
+        if (!(limiter instanceof AdaptiveConcurrencyLimiter)) {
+            return;
+        }
+        request.removeAttribute(LIMITER_ATTRIBUTE);
+
+        long latencyNanos = System.nanoTime() - (Long) request.getAttribute(START_TIME_ATTRIBUTE);
+        ((AdaptiveConcurrencyLimiter) limiter).release(latencyNanos, isOverloaded(request, response, ex));
+    }
+
+    /**
+     * 限制器名称（日志和指标的 endpoint 标签）：去掉 /api/ 和 datasource/ 前缀，其余的 / 换成 -
+     */
+    static String endpointName(String path) {
+        String name = path.startsWith("/api/") ? path.substring("/api/".length()) : path;
+        if (name.startsWith("datasource/")) {
+            name = name.substring("datasource/".length());
+        }
+        return name.replace('/', '-');
+    }
+
+    private AdaptiveConcurrencyLimiter findLimiter(HttpServletRequest request) {
+        RequestPath requestPath = ServletRequestPathUtils.hasParsedRequestPath(request)
+                ? ServletRequestPathUtils.getParsedRequestPath(request)
+                : RequestPath.parse(request.getRequestURI(), request.getContextPath());
+        PathContainer path = requestPath.pathWithinApplication();
+        for (Map.Entry<PathPattern, AdaptiveConcurrencyLimiter> entry : limiters.entrySet()) {
+            if (entry.getKey().matches(path)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 请求是否因过载失败
+     *
+     * 由 @ExceptionHandler 处理的异常不会传入 afterCompletion，从 DispatcherServlet 暴露的请求属性中读取
+     */
+    static boolean isOverloaded(HttpServletRequest request, HttpServletResponse response, Exception ex) {
+        int status = response.getStatus();
+        if (status == 503 || status == 429) {
+            return true;
+        }
+        Object handled = request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+        if (OverloadSignals.isOverload(ex)
+                || (handled instanceof Throwable && OverloadSignals.isOverload((Throwable) handled))) {
+            return true;
+        }
+        Object context = request.getAttribute(QueryContext.ATTRIBUTE);
+        return context instanceof QueryContext && ((QueryContext) context).isOverloaded();
+    }
+
+    private void reject(HttpServletResponse response) throws Exception {
+        response.setStatus(rejectStatus);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ApiResponse<Object> body = ApiResponse.error(HttpErrorMessages.getErrorMessage(rejectStatus));
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
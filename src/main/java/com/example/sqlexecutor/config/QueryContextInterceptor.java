@@ -0,0 +1,46 @@
+package com.example.sqlexecutor.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.example.sqlexecutor.service.MemoryGovernor;
+import com.example.sqlexecutor.service.QueryContext;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 查询上下文拦截器
+ *
+ * 请求开始时创建 {@link QueryContext}，请求结束（包括异步请求完成）时关闭，归还结果内存预留。
+ * 预留必须保持到响应序列化完成，因此不能在服务方法返回时释放。
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryContextInterceptor implements AsyncHandlerInterceptor {
+
+    private final MemoryGovernor memoryGovernor;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求再次分派时沿用已有的上下文
+        if (request.getAttribute(QueryContext.ATTRIBUTE) == null) {
+            QueryContext context = memoryGovernor.newContext();
+            if (context != null) {
+                request.setAttribute(QueryContext.ATTRIBUTE, context);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object context = request.getAttribute(QueryContext.ATTRIBUTE);
+        if (context instanceof QueryContext) {
+            ((QueryContext) context).close();
+            request.removeAttribute(QueryContext.ATTRIBUTE);
+        }
+    }
+}
@@ -2,14 +2,21 @@ package com.example.sqlexecutor.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import lombok.RequiredArgsConstructor;
+
 /**
  * Web配置
  */
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final QueryContextInterceptor queryContextInterceptor;
+
     /**
      * 配置跨域
      */
@@ -22,4 +29,16 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowCredentials(true)
                 .maxAge(3600);
     }
-}
\ No newline at end of file
+
+    /**
+     * 注册拦截器
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 查询上下文先创建、后关闭：并发限制器结束请求时还要读取其中的过载信号
+        registry.addInterceptor(queryContextInterceptor)
+                .addPathPatterns("/api/**");
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns(ConcurrencyLimitInterceptor.LIMITED_PATHS);
+    }
+}
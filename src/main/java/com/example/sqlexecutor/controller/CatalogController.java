@@ -0,0 +1,91 @@
+package com.example.sqlexecutor.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.sqlexecutor.dto.CatalogColumn;
+import com.example.sqlexecutor.dto.CatalogTable;
+import com.example.sqlexecutor.service.SchemaCatalogService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 模式目录控制器（浏览和自动补全）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/catalog/{datasourceCode}")
+@RequiredArgsConstructor
+public class CatalogController {
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    /**
+     * 获取目录概况
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getSummary(@PathVariable String datasourceCode) {
+        return ResponseEntity.ok(schemaCatalogService.getSummary(datasourceCode));
+    }
+
+    /**
+     * 立即重新加载目录
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@PathVariable String datasourceCode) {
+        log.info("收到重新加载模式目录请求 - 数据源: {}", datasourceCode);
+
+        return ResponseEntity.ok(schemaCatalogService.refresh(datasourceCode));
+    }
+
+    /**
+     * 按前缀搜索表
+     */
+    @GetMapping("/tables")
+    public ResponseEntity<List<CatalogTable>> searchTables(
+            @PathVariable String datasourceCode,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(required = false) String schema,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(schemaCatalogService.searchTables(datasourceCode, prefix, schema, limit));
+    }
+
+    /**
+     * 获取表的列和索引
+     */
+    @GetMapping("/tables/{schema}/{table}")
+    public ResponseEntity<?> getTable(
+            @PathVariable String datasourceCode,
+            @PathVariable String schema,
+            @PathVariable String table) {
+        CatalogTable catalogTable = schemaCatalogService.getTable(datasourceCode, schema, table);
+        if (catalogTable == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "表不存在: " + schema + "." + table));
+        }
+        return ResponseEntity.ok(catalogTable);
+    }
+
+    /**
+     * 按前缀搜索列
+     */
+    @GetMapping("/columns")
+    public ResponseEntity<List<CatalogColumn>> searchColumns(
+            @PathVariable String datasourceCode,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(required = false) String schema,
+            @RequestParam(required = false) String table,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(schemaCatalogService.searchColumns(datasourceCode, prefix, schema, table, limit));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.sqlexecutor.controller;
 
 import java.util.List;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,12 +13,14 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.sqlexecutor.dto.DatasourceTreeNode;
 import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
 import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.dto.MultiDatasourceStreamEvent;
 import com.example.sqlexecutor.service.DatasourceService;
 import com.example.sqlexecutor.service.MultiDatasourceQueryService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 
 /**
  * 数据源管理控制器
@@ -78,4 +81,22 @@ public class DatasourceController {
             throw e;
         }
     }
+
+    /**
+     * 流式执行多数据源并行查询
+     *
+     * 每个数据源完成后立即输出一条 result 事件，全部完成后输出一条 summary 事件；
+     * 按 Accept 以NDJSON或Server-Sent Events返回。
+     */
+    @PostMapping(value = "/multi-query/stream",
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<MultiDatasourceStreamEvent> streamMultiQuery(
+            @Valid @RequestBody MultiDatasourceQueryRequest request) {
+
+        log.info("收到多数据源流式查询请求 - 数据源数量: {}, SQL: {}",
+                request.getDatasourceCodes().size(),
+                request.getQuery().substring(0, Math.min(50, request.getQuery().length())));
+
+        return multiDatasourceQueryService.streamMultiDatasourceQuery(request);
+    }
 }
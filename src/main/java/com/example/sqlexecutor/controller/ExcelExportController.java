@@ -1,8 +1,9 @@
 package com.example.sqlexecutor.controller;
 
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,16 +13,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.example.sqlexecutor.dto.ApiResponse;
 import com.example.sqlexecutor.dto.ExecuteSqlRequest;
 import com.example.sqlexecutor.dto.ExportExcelRequest;
 import com.example.sqlexecutor.dto.MultiDatasourceExportRequest;
-import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
-import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
-import com.example.sqlexecutor.service.ExcelExportService;
-import com.example.sqlexecutor.service.MultiDatasourceQueryService;
-import com.example.sqlexecutor.service.SqlExecutionService;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.exception.QueryCostExceededException;
+import com.example.sqlexecutor.service.StreamingExportService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -37,18 +37,30 @@ import lombok.extern.slf4j.Slf4j;
 @Validated
 public class ExcelExportController {
 
-    private final SqlExecutionService sqlExecutionService;
-    private final ExcelExportService excelExportService;
-    private final MultiDatasourceQueryService multiDatasourceQueryService;
+    /**
+     * 结果被截断时附加的响应头
+     */
+    private static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
+    /**
+     * 导出请求的异步超时（不大于0表示不超时），导出耗时只受查询超时限制，不受 spring.mvc.async.request-timeout 限制
+     */
+    private static final long EXPORT_ASYNC_TIMEOUT = 0L;
+
+    private final StreamingExportService streamingExportService;
 
     /**
      * 导出Excel文件
+     *
+     * SQL验证和代价检查失败时直接返回错误响应；查询在导出线程池中执行，文件生成完成后才写出响应，
+     * 查询失败时由全局异常处理器返回错误响应，结果超出工作表行数上限时附加 X-Result-Truncated 响应头。
      */
     @PostMapping("/export-excel")
-    public ResponseEntity<?> exportExcel(@Valid @RequestBody ExportExcelRequest request) {
+    public DeferredResult<ResponseEntity<?>> exportExcel(@Valid @RequestBody ExportExcelRequest request) {
         log.info("收到Excel导出请求 - 数据库: {}, 文件名: {}", request.getDatabase(), request.getFilename());
 
         long startTime = System.currentTimeMillis();
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(EXPORT_ASYNC_TIMEOUT);
 
         try {
             // 构建SQL执行请求
@@ -57,130 +69,120 @@ public class ExcelExportController {
                     request.getDatabase(),
                     convertToExecuteSqlOptions(request.getOptions()));
 
-            // 执行SQL查询
-            ApiResponse<List<Map<String, Object>>> sqlResponse = sqlExecutionService.executeSql(sqlRequest);
-
-            if (!sqlResponse.isSuccess()) {
-                // 如果SQL执行失败，返回错误响应
-                long executionTime = System.currentTimeMillis() - startTime;
-                ApiResponse<Object> errorResponse = ApiResponse.<Object>builder()
-                        .success(false)
-                        .data(null)
-                        .rowCount(0)
-                        .rowsAffected(0)
-                        .message(sqlResponse.getMessage())
-                        .executionTime(executionTime)
-                        .metadata(null)
-                        .build();
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-
-            // 生成Excel文件
-            byte[] excelData = excelExportService.exportToExcel(sqlResponse.getData(), "查询结果");
-
-            // 设置响应头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(
-                    MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-            headers.setContentDispositionFormData("attachment", request.getFilename() + ".xlsx");
-            headers.setContentLength(excelData.length);
-
-            log.info("Excel导出成功 - 文件大小: {} bytes, 执行时间: {}ms",
-                    excelData.length, System.currentTimeMillis() - startTime);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(excelData);
-
+            CompletableFuture<StreamingExportService.ExportFile> export = streamingExportService
+                    .exportQuery(sqlRequest, "查询结果");
+            respondWithFile(result, export,
+                    MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+                    request.getFilename() + ".xlsx");
+
+        } catch (InvalidSqlException e) {
+            log.warn("SQL验证失败: {}", e.getMessage());
+            result.setResult(ResponseEntity.badRequest().body(errorResponse("SQL验证失败: " + e.getMessage(),
+                    startTime)));
+        } catch (QueryCostExceededException e) {
+            // 直接重新抛出，让全局异常处理器处理
+            throw e;
         } catch (Exception e) {
             log.error("Excel导出失败", e);
-            long executionTime = System.currentTimeMillis() - startTime;
-            ApiResponse<Object> errorResponse = ApiResponse.<Object>builder()
-                    .success(false)
-                    .data(null)
-                    .rowCount(0)
-                    .rowsAffected(0)
-                    .message("导出失败: " + e.getMessage())
-                    .executionTime(executionTime)
-                    .metadata(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(errorResponse("导出失败: " + e.getMessage(), startTime)));
         }
+        return result;
+    }
+
+    /**
+     * 导出文件生成后写出响应（设置Content-Length，结果被截断时附加响应头），生成失败时交给全局异常处理器
+     *
+     * 临时文件在响应完成后删除。客户端断开或异步请求超时时取消导出：尚未开始的查询不再执行，
+     * 已生成的部分文件随即删除。
+     */
+    private static void respondWithFile(DeferredResult<ResponseEntity<?>> result,
+            CompletableFuture<StreamingExportService.ExportFile> export, MediaType contentType, String filename) {
+        result.onError(e -> {
+            log.warn("导出请求异常结束，取消导出: {}", e.getMessage());
+            export.cancel(false);
+        });
+        result.onTimeout(() -> {
+            log.warn("导出请求超时，取消导出");
+            export.cancel(false);
+        });
+        result.onCompletion(() -> export.thenAccept(StreamingExportService.ExportFile::close));
+        export.whenComplete((file, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("导出失败: {}", cause.getMessage());
+                result.setErrorResult(cause);
+                return;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(contentType);
+            headers.setContentDispositionFormData("attachment", filename);
+            if (file.isTruncated()) {
+                // 结果（多数据源导出中任一工作簿）超出工作表行数上限被截断，文件只包含部分数据
+                headers.set(TRUNCATED_HEADER, "true");
+            }
+            result.setResult(ResponseEntity.ok()
+                    .headers(headers)
+                    .body(new FileSystemResource(file.getPath())));
+        });
     }
 
     /**
      * 导出多数据源查询结果为ZIP文件
+     *
+     * 每个数据源的结果从游标直接写入各自的工作簿，在导出线程池中追加到ZIP临时文件，ZIP完成后才写出响应，
+     * 与单数据源导出一样不受异步请求超时限制。
      */
     @PostMapping("/export-multi-datasource-excel")
-    public ResponseEntity<?> exportMultiDatasourceExcel(@Valid @RequestBody MultiDatasourceExportRequest request) {
+    public DeferredResult<ResponseEntity<?>> exportMultiDatasourceExcel(
+            @Valid @RequestBody MultiDatasourceExportRequest request) {
         log.info("收到多数据源Excel导出请求 - 数据源数量: {}, 文件名前缀: {}", 
                 request.getDatasourceCodes().size(), request.getFilenamePrefix());
 
         long startTime = System.currentTimeMillis();
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(EXPORT_ASYNC_TIMEOUT);
 
         try {
-            // 构建多数据源查询请求
-            MultiDatasourceQueryRequest queryRequest = new MultiDatasourceQueryRequest();
-            queryRequest.setQuery(request.getQuery());
-            queryRequest.setDatasourceCodes(request.getDatasourceCodes());
-            queryRequest.setOptions(convertToExecuteSqlOptions(request.getOptions()));
-
-            // 执行多数据源查询
-            MultiDatasourceQueryResponse queryResponse = multiDatasourceQueryService
-                    .executeMultiDatasourceQuery(queryRequest);
-
-            if (queryResponse.getResults() == null || queryResponse.getResults().isEmpty()) {
-                long executionTime = System.currentTimeMillis() - startTime;
-                ApiResponse<Object> errorResponse = ApiResponse.<Object>builder()
-                        .success(false)
-                        .data(null)
-                        .rowCount(0)
-                        .rowsAffected(0)
-                        .message("没有可导出的查询结果")
-                        .executionTime(executionTime)
-                        .metadata(null)
-                        .build();
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-
-            // 生成ZIP文件
-            byte[] zipData = excelExportService.exportMultiDatasourcesToZip(queryResponse.getResults());
+            CompletableFuture<StreamingExportService.ExportFile> export = streamingExportService
+                    .exportMultiDatasourceQuery(request.getQuery(), request.getDatasourceCodes(),
+                            convertToExecuteSqlOptions(request.getOptions()));
 
-            // 设置响应头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/zip"));
-            
             // 生成文件名
             String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
             String filenamePrefix = request.getFilenamePrefix() != null && !request.getFilenamePrefix().isEmpty() 
                     ? request.getFilenamePrefix() 
                     : "multi_datasource_query";
             String filename = String.format("%s_%s.zip", filenamePrefix, timestamp);
-            
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(zipData.length);
 
-            log.info("多数据源Excel导出成功 - 文件大小: {} bytes, 包含 {} 个数据源, 执行时间: {}ms",
-                    zipData.length, queryResponse.getResults().size(), System.currentTimeMillis() - startTime);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(zipData);
+            respondWithFile(result, export, MediaType.parseMediaType("application/zip"), filename);
 
+        } catch (InvalidSqlException e) {
+            log.warn("SQL验证失败: {}", e.getMessage());
+            result.setResult(ResponseEntity.badRequest().body(errorResponse("SQL验证失败: " + e.getMessage(),
+                    startTime)));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().body(errorResponse(e.getMessage(), startTime)));
         } catch (Exception e) {
             log.error("多数据源Excel导出失败", e);
-            long executionTime = System.currentTimeMillis() - startTime;
-            ApiResponse<Object> errorResponse = ApiResponse.<Object>builder()
-                    .success(false)
-                    .data(null)
-                    .rowCount(0)
-                    .rowsAffected(0)
-                    .message("导出失败: " + e.getMessage())
-                    .executionTime(executionTime)
-                    .metadata(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(errorResponse("导出失败: " + e.getMessage(), startTime)));
         }
+        return result;
+    }
+
+    /**
+     * 构建导出失败的响应
+     */
+    private ApiResponse<Object> errorResponse(String message, long startTime) {
+        return ApiResponse.<Object>builder()
+                .success(false)
+                .data(null)
+                .rowCount(0)
+                .rowsAffected(0)
+                .message(message)
+                .executionTime(System.currentTimeMillis() - startTime)
+                .metadata(null)
+                .build();
     }
 
     /**
@@ -0,0 +1,64 @@
+package com.example.sqlexecutor.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.sqlexecutor.dto.QueryStatistics;
+import com.example.sqlexecutor.service.QueryStatisticsService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 查询统计控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/query-stats")
+@RequiredArgsConstructor
+public class QueryStatisticsController {
+
+    private final QueryStatisticsService queryStatisticsService;
+
+    /**
+     * 获取Top-N查询指纹统计
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<QueryStatistics>> getTopStatistics(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "totalTime") String orderBy) {
+        log.debug("获取查询统计 - limit: {}, orderBy: {}", limit, orderBy);
+
+        return ResponseEntity.ok(queryStatisticsService.getTopStatistics(Math.min(limit, 500), orderBy));
+    }
+
+    /**
+     * 获取统计概况
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, Object>> getSummary() {
+        Map<String, Object> summary = Map.of(
+                "fingerprintCount", queryStatisticsService.getFingerprintCount(),
+                "droppedRecords", queryStatisticsService.getDroppedRecords());
+
+        return ResponseEntity.ok(summary);
+    }
+
+    /**
+     * 清空查询统计
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> reset() {
+        log.info("收到清空查询统计请求");
+        queryStatisticsService.reset();
+
+        return ResponseEntity.ok(Map.of("success", true, "message", "查询统计已清空"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.sqlexecutor.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.sqlexecutor.dto.DatasourceRowEvent;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.service.ReactiveQueryService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * 响应式查询控制器
+ *
+ * 以NDJSON（每行一个JSON）流式返回数据行，写出一行后才向上游请求下一行，
+ * 客户端读取变慢时数据库拉取也随之放缓。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/reactive")
+@RequiredArgsConstructor
+public class ReactiveQueryController {
+
+    private final ReactiveQueryService reactiveQueryService;
+
+    /**
+     * 在一个或多个数据源上执行流式查询
+     */
+    @PostMapping(value = "/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DatasourceRowEvent> streamQuery(@Valid @RequestBody MultiDatasourceQueryRequest request) {
+        log.info("收到响应式查询请求 - 数据源数量: {}, SQL: {}",
+                request.getDatasourceCodes().size(),
+                request.getQuery().substring(0, Math.min(50, request.getQuery().length())));
+
+        return reactiveQueryService.streamQuery(request);
+    }
+}
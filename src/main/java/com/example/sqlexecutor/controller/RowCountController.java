@@ -0,0 +1,55 @@
+package com.example.sqlexecutor.controller;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.sqlexecutor.dto.RowCountStatus;
+import com.example.sqlexecutor.service.RowCountService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 精确行数统计控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/row-count")
+@RequiredArgsConstructor
+public class RowCountController {
+
+    private final RowCountService rowCountService;
+
+    /**
+     * 查询统计状态
+     */
+    @GetMapping("/{token}")
+    public ResponseEntity<?> getStatus(@PathVariable String token) {
+        RowCountStatus status = rowCountService.getStatus(token);
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "统计任务不存在或已过期"));
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * 取消统计
+     */
+    @DeleteMapping("/{token}")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable String token) {
+        log.info("收到取消行数统计请求: {}", token);
+        if (!rowCountService.cancel(token)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "统计任务不存在或已过期"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "已取消行数统计"));
+    }
+}
@@ -52,11 +52,61 @@ public class ApiResponse<T> {
     @JsonProperty("executionTime")
     private long executionTime;
 
+    /**
+     * 结果是否因超出内存预算被截断
+     */
+    private boolean truncated;
+
+    /**
+     * 截断原因
+     */
+    private String truncationReason;
+
+    /**
+     * 是否为预览结果（抽样或只读取了前若干行）
+     */
+    private boolean sampled;
+
+    /**
+     * 抽样方法：SYSTEM、BERNOULLI 或 PREFIX
+     */
+    private String samplingMethod;
+
+    /**
+     * 抽样比例（0~1，PREFIX时为null）
+     */
+    private Double samplingRatio;
+
+    /**
+     * 执行计划估算的结果总行数（未请求或估算失败时为null）
+     */
+    private Long estimatedRowCount;
+
+    /**
+     * 后台精确行数统计的任务标识（未请求时为null）
+     */
+    private String rowCountToken;
+
     /**
      * 元数据信息（可选）
      */
     private Metadata metadata;
 
+    /**
+     * 各阶段耗时明细（可选，须保持为最后一个字段以便统计序列化耗时）
+     */
+    private QueryTimings timings;
+
+    /**
+     * 返回的数据（输出数据时标记序列化开始）
+     */
+    public T getData() {
+        if (timings != null) {
+            timings.markSerializationStart();
+        }
+        return data;
+    }
+
     /**
      * 创建成功响应
      */
@@ -0,0 +1,51 @@
+package com.example.sqlexecutor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模式目录中的列DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogColumn {
+
+    /**
+     * 所属模式
+     */
+    private String schema;
+
+    /**
+     * 所属表名
+     */
+    private String table;
+
+    /**
+     * 列名
+     */
+    private String name;
+
+    /**
+     * 列类型（含长度、精度，如 character varying(64)）
+     */
+    private String dataType;
+
+    /**
+     * 是否可空
+     */
+    private boolean nullable;
+
+    /**
+     * 列序号（从1开始）
+     */
+    private int position;
+
+    /**
+     * 默认值表达式
+     */
+    private String defaultValue;
+}
@@ -0,0 +1,36 @@
+package com.example.sqlexecutor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模式目录中的索引DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogIndex {
+
+    /**
+     * 索引名
+     */
+    private String name;
+
+    /**
+     * 是否唯一索引
+     */
+    private boolean unique;
+
+    /**
+     * 是否主键
+     */
+    private boolean primary;
+
+    /**
+     * 索引定义（CREATE INDEX 语句）
+     */
+    private String definition;
+}
@@ -0,0 +1,53 @@
+package com.example.sqlexecutor.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模式目录中的表DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogTable {
+
+    /**
+     * 模式名
+     */
+    private String schema;
+
+    /**
+     * 表名
+     */
+    private String name;
+
+    /**
+     * 类型：TABLE、PARTITIONED_TABLE、VIEW、MATERIALIZED_VIEW、FOREIGN_TABLE
+     */
+    private String type;
+
+    /**
+     * 统计信息中的估算行数（从未分析过时为null）
+     */
+    private Long estimatedRows;
+
+    /**
+     * 表注释
+     */
+    private String description;
+
+    /**
+     * 列（前缀搜索的结果中为null）
+     */
+    private List<CatalogColumn> columns;
+
+    /**
+     * 索引（前缀搜索的结果中为null）
+     */
+    private List<CatalogIndex> indexes;
+}
@@ -0,0 +1,63 @@
+package com.example.sqlexecutor.dto;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式查询事件DTO（NDJSON中的一行）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasourceRowEvent {
+
+    /**
+     * 事件类型：row（数据行）、error（该数据源查询失败）
+     */
+    private String type;
+
+    /**
+     * 数据源编码
+     */
+    @JsonProperty("datasourceCode")
+    private String datasourceCode;
+
+    /**
+     * 数据行（type为row时）
+     */
+    private Map<String, Object> row;
+
+    /**
+     * 错误信息（type为error时）
+     */
+    private String error;
+
+    /**
+     * 创建数据行事件
+     */
+    public static DatasourceRowEvent row(String datasourceCode, Map<String, Object> row) {
+        return DatasourceRowEvent.builder()
+                .type("row")
+                .datasourceCode(datasourceCode)
+                .row(row)
+                .build();
+    }
+
+    /**
+     * 创建错误事件
+     */
+    public static DatasourceRowEvent error(String datasourceCode, String error) {
+        return DatasourceRowEvent.builder()
+                .type("error")
+                .datasourceCode(datasourceCode)
+                .error(error)
+                .build();
+    }
+}
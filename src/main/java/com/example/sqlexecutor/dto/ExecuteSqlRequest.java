@@ -63,5 +63,44 @@ public class ExecuteSqlRequest {
          */
         @JsonProperty("maxRows")
         private Integer maxRows = 10000;
+
+        /**
+         * 是否返回执行计划（EXPLAIN FORMAT JSON）
+         */
+        private Boolean explain = false;
+
+        /**
+         * 执行计划是否包含实际执行数据（EXPLAIN ANALYZE, BUFFERS，仅限查询语句，会在只读事务中额外执行一次）
+         */
+        @JsonProperty("explainAnalyze")
+        private Boolean explainAnalyze = false;
+
+        /**
+         * 是否返回各阶段耗时明细（验证、获取连接、执行、读取、映射、序列化）
+         */
+        private Boolean timings = false;
+
+        /**
+         * 是否为预览模式（简单单表查询改写为TABLESAMPLE抽样，其他查询只读取前若干行）
+         */
+        private Boolean preview = false;
+
+        /**
+         * 预览返回的目标行数（为空时使用服务端默认值）
+         */
+        @JsonProperty("previewRows")
+        private Integer previewRows;
+
+        /**
+         * 是否随结果返回执行计划估算的总行数
+         */
+        @JsonProperty("estimateRowCount")
+        private Boolean estimateRowCount = false;
+
+        /**
+         * 是否在后台异步统计精确行数（通过返回的rowCountToken查询结果）
+         */
+        @JsonProperty("exactRowCount")
+        private Boolean exactRowCount = false;
     }
 }
\ No newline at end of file
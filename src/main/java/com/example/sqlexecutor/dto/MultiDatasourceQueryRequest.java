@@ -37,4 +37,139 @@ public class MultiDatasourceQueryRequest {
      * 查询选项
      */
     private ExecuteSqlRequest.QueryOptions options;
+
+    /**
+     * 整体截止时间（毫秒），覆盖线程池排队、获取连接和语句执行；为空时使用默认值。
+     * 到期后取消仍在执行的语句，返回已完成的数据源结果，其余数据源标记为超时
+     */
+    private Integer deadline;
+
+    /**
+     * 比对选项（为空时返回各数据源的数据行；设置后只返回行数、校验和及差异键范围）
+     */
+    private CompareOptions compare;
+
+    /**
+     * 合并选项（为空时分别返回各数据源的结果；设置后在服务端合并为一个结果）
+     */
+    private MergeOptions merge;
+
+    /**
+     * 跨数据源结果比对选项
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CompareOptions {
+
+        /**
+         * 键列（为空时只比较与行顺序无关的整体校验和；设置后按键排序分块，定位差异键范围）
+         */
+        @JsonProperty("keyColumns")
+        private List<String> keyColumns;
+
+        /**
+         * 每块的平均行数（为空时使用服务端默认值）
+         */
+        @JsonProperty("blockSize")
+        private Integer blockSize;
+
+        /**
+         * 每个数据源最多返回的差异键范围数（为空时使用服务端默认值）
+         */
+        @JsonProperty("maxDiffRanges")
+        private Integer maxDiffRanges;
+    }
+
+    /**
+     * 多数据源结果合并选项
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class MergeOptions {
+
+        /**
+         * 合并方式：UNION_ALL（依次拼接）、ORDER_BY（按排序键归并）、AGGREGATE（合并分组部分聚合）
+         */
+        private String mode;
+
+        /**
+         * 排序键（ORDER_BY必填；AGGREGATE时用于对合并后的分组排序）
+         */
+        @JsonProperty("orderBy")
+        private List<SortKey> orderBy;
+
+        /**
+         * 合并结果的行数上限（为空时使用服务端的最大行数）
+         */
+        private Integer limit;
+
+        /**
+         * 分组列（AGGREGATE，为空时合并为一行）
+         */
+        @JsonProperty("groupBy")
+        private List<String> groupBy;
+
+        /**
+         * 部分聚合列及其合并函数（AGGREGATE必填）
+         */
+        private List<AggregateSpec> aggregates;
+    }
+
+    /**
+     * 排序键
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class SortKey {
+
+        /**
+         * 列名
+         */
+        private String column;
+
+        /**
+         * 是否降序
+         */
+        private boolean descending;
+    }
+
+    /**
+     * 部分聚合列
+     *
+     * 各数据源的查询自行完成分组聚合，这里声明每个聚合列的合并方式：COUNT和SUM相加，MIN和MAX取最值，
+     * AVG由各数据源的部分和（column）与部分计数（countColumn）相除得到。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AggregateSpec {
+
+        /**
+         * 合并函数：COUNT、SUM、MIN、MAX、AVG
+         */
+        private String function;
+
+        /**
+         * 各数据源结果中的部分聚合列（AVG为部分和）
+         */
+        private String column;
+
+        /**
+         * AVG的部分计数列
+         */
+        @JsonProperty("countColumn")
+        private String countColumn;
+
+        /**
+         * 合并结果中的列名（为空时使用column）
+         */
+        private String alias;
+    }
 }
@@ -40,6 +40,21 @@ public class MultiDatasourceQueryResponse {
     @JsonProperty("totalExecutionTime")
     private long totalExecutionTime;
 
+    /**
+     * 是否有数据源因超过整体截止时间未能完成
+     */
+    private boolean deadlineExceeded;
+
+    /**
+     * 比对结论（仅比对模式）
+     */
+    private Comparison comparison;
+
+    /**
+     * 合并后的结果（仅合并模式）
+     */
+    private MergedResult merged;
+
     /**
      * 单个数据源查询结果
      */
@@ -99,9 +114,214 @@ public class MultiDatasourceQueryResponse {
         @JsonProperty("executionTime")
         private long executionTime;
 
+        /**
+         * 是否因超过整体截止时间未能完成（已取消或未开始执行）
+         */
+        private boolean timedOut;
+
+        /**
+         * 结果是否因超出内存预算被截断
+         */
+        private boolean truncated;
+
+        /**
+         * 截断原因
+         */
+        private String truncationReason;
+
+        /**
+         * 是否为预览结果（抽样或只读取了前若干行）
+         */
+        private boolean sampled;
+
+        /**
+         * 抽样方法：SYSTEM、BERNOULLI 或 PREFIX
+         */
+        private String samplingMethod;
+
+        /**
+         * 抽样比例（0~1，PREFIX时为null）
+         */
+        private Double samplingRatio;
+
+        /**
+         * 执行计划估算的结果总行数（未请求或估算失败时为null）
+         */
+        private Long estimatedRowCount;
+
+        /**
+         * 后台精确行数统计的任务标识（未请求时为null）
+         */
+        private String rowCountToken;
+
+        /**
+         * 比对模式下所有行的校验和（与行顺序无关）
+         */
+        private String checksum;
+
+        /**
+         * 比对模式下按键分块的块数（未指定键列时为null）
+         */
+        private Integer blockCount;
+
+        /**
+         * 比对模式下各块校验和构成的Merkle树根（未指定键列时为null）
+         */
+        private String merkleRoot;
+
         /**
          * 元数据信息
          */
         private ApiResponse.Metadata metadata;
+
+        /**
+         * 各阶段耗时明细（可选，须保持为最后一个字段以便统计序列化耗时）
+         */
+        private QueryTimings timings;
+
+        /**
+         * 查询结果数据（输出数据时标记序列化开始）
+         */
+        public List<Map<String, Object>> getData() {
+            if (timings != null) {
+                timings.markSerializationStart();
+            }
+            return data;
+        }
+    }
+
+    /**
+     * 多数据源合并结果
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class MergedResult {
+
+        /**
+         * 合并方式
+         */
+        private String mode;
+
+        /**
+         * 合并后的数据
+         */
+        private List<Map<String, Object>> data;
+
+        /**
+         * 合并后的行数
+         */
+        @JsonProperty("rowCount")
+        private int rowCount;
+
+        /**
+         * 是否因达到行数上限而提前停止（还有未返回的行）
+         */
+        @JsonProperty("limitReached")
+        private boolean limitReached;
+    }
+
+    /**
+     * 跨数据源比对结论
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Comparison {
+
+        /**
+         * 所有成功的数据源结果是否一致
+         */
+        private boolean identical;
+
+        /**
+         * 作为基准的数据源编码（第一个成功的数据源）
+         */
+        @JsonProperty("referenceDatasource")
+        private String referenceDatasource;
+
+        /**
+         * 其他数据源与基准的差异
+         */
+        private List<DatasourceDifference> differences;
+    }
+
+    /**
+     * 单个数据源与基准的差异
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class DatasourceDifference {
+
+        /**
+         * 数据源编码
+         */
+        @JsonProperty("datasourceCode")
+        private String datasourceCode;
+
+        /**
+         * 是否与基准一致
+         */
+        private boolean identical;
+
+        /**
+         * 行数差（该数据源减基准）
+         */
+        @JsonProperty("rowCountDifference")
+        private long rowCountDifference;
+
+        /**
+         * 整体校验和是否一致
+         */
+        @JsonProperty("checksumMatch")
+        private boolean checksumMatch;
+
+        /**
+         * 差异键范围（按基准的键顺序，只返回前若干个）
+         */
+        private List<DiffRange> ranges;
+
+        /**
+         * 差异键范围是否多于返回的数量
+         */
+        @JsonProperty("rangesTruncated")
+        private boolean rangesTruncated;
+    }
+
+    /**
+     * 一个存在差异的键范围（闭区间）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class DiffRange {
+
+        /**
+         * 范围起始键
+         */
+        @JsonProperty("fromKey")
+        private List<String> fromKey;
+
+        /**
+         * 范围结束键（为null表示直到结果末尾）
+         */
+        @JsonProperty("toKey")
+        private List<String> toKey;
+
+        /**
+         * 基准数据源在该范围内的行数（基准中不存在该范围时为null）
+         */
+        @JsonProperty("referenceRows")
+        private Long referenceRows;
+
+        /**
+         * 该数据源在该范围内的行数（该数据源中不存在该范围时为null）
+         */
+        private Long rows;
     }
 }
@@ -0,0 +1,51 @@
+package com.example.sqlexecutor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 多数据源流式查询事件DTO（NDJSON中的一行或SSE中的一条消息）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MultiDatasourceStreamEvent {
+
+    /**
+     * 事件类型：result（某个数据源已完成）、summary（全部数据源完成后的汇总，最后一条）
+     */
+    private String type;
+
+    /**
+     * 单个数据源的查询结果（type为result时）
+     */
+    private MultiDatasourceQueryResponse.DatasourceQueryResult result;
+
+    /**
+     * 汇总信息（type为summary时，不含各数据源结果，比对模式下包含比对结果）
+     */
+    private MultiDatasourceQueryResponse summary;
+
+    /**
+     * 创建单个数据源结果事件
+     */
+    public static MultiDatasourceStreamEvent result(MultiDatasourceQueryResponse.DatasourceQueryResult result) {
+        return MultiDatasourceStreamEvent.builder()
+                .type("result")
+                .result(result)
+                .build();
+    }
+
+    /**
+     * 创建汇总事件
+     */
+    public static MultiDatasourceStreamEvent summary(MultiDatasourceQueryResponse summary) {
+        return MultiDatasourceStreamEvent.builder()
+                .type("summary")
+                .summary(summary)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sqlexecutor.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 查询指纹统计DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueryStatistics {
+
+    /**
+     * 指纹ID
+     */
+    @JsonProperty("fingerprintId")
+    private String fingerprintId;
+
+    /**
+     * 归一化后的SQL（字面量已替换为 ?）
+     */
+    private String fingerprint;
+
+    /**
+     * 数据源编码
+     */
+    @JsonProperty("datasourceCode")
+    private String datasourceCode;
+
+    /**
+     * 出现过的执行路径（query、multi-query、export、multi-export）
+     */
+    private Set<String> sources;
+
+    /**
+     * 执行次数
+     */
+    private long count;
+
+    /**
+     * 失败次数
+     */
+    @JsonProperty("errorCount")
+    private long errorCount;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    @JsonProperty("totalTime")
+    private long totalTime;
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    @JsonProperty("avgTime")
+    private double avgTime;
+
+    /**
+     * 最近样本的P50耗时（毫秒）
+     */
+    private long p50;
+
+    /**
+     * 最近样本的P95耗时（毫秒）
+     */
+    private long p95;
+
+    /**
+     * 最近样本的P99耗时（毫秒）
+     */
+    private long p99;
+
+    /**
+     * 最大耗时（毫秒）
+     */
+    @JsonProperty("maxTime")
+    private long maxTime;
+
+    /**
+     * 返回行数合计
+     */
+    @JsonProperty("totalRows")
+    private long totalRows;
+
+    /**
+     * 返回数据字节数合计（估算）
+     */
+    @JsonProperty("totalBytes")
+    private long totalBytes;
+
+    /**
+     * 最近一次执行时间
+     */
+    @JsonProperty("lastExecutedAt")
+    private LocalDateTime lastExecutedAt;
+}
@@ -0,0 +1,113 @@
+package com.example.sqlexecutor.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 请求各阶段耗时明细（毫秒），通过查询选项 timings 开启
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueryTimings {
+
+    /**
+     * SQL验证耗时
+     */
+    private Double validation;
+
+    /**
+     * 在并行查询线程池中排队的时间（仅多数据源查询）
+     */
+    @JsonProperty("queueWait")
+    private Double queueWait;
+
+    /**
+     * 获取数据库连接的等待时间
+     */
+    @JsonProperty("connectionAcquire")
+    private Double connectionAcquire;
+
+    /**
+     * 获取执行计划耗时（仅开启 explain 时）
+     */
+    private Double explain;
+
+    /**
+     * 服务端执行耗时（发送语句到返回结果集）
+     */
+    private Double execution;
+
+    /**
+     * 从结果集读取行的耗时
+     */
+    private Double fetch;
+
+    /**
+     * 将行映射为Map的耗时
+     */
+    private Double mapping;
+
+    /**
+     * 服务端总耗时（不含序列化）
+     */
+    private Double total;
+
+    /**
+     * 按历史耗时预计的总耗时（仅多数据源查询，该语句在该数据源上有历史记录时）
+     */
+    private Double predicted;
+
+    /**
+     * 从多数据源查询开始调度到该数据源完成的时间（仅多数据源查询）
+     */
+    private Double completion;
+
+    /**
+     * 每秒处理行数（按执行、读取和映射耗时计算）
+     */
+    @JsonProperty("rowsPerSecond")
+    private Double rowsPerSecond;
+
+    /**
+     * 执行线程分配的内存字节数（JVM不支持时为null）
+     */
+    @JsonProperty("allocatedBytes")
+    private Long allocatedBytes;
+
+    /**
+     * 响应开始序列化的时间点（System.nanoTime），由所在响应对象在输出数据时标记
+     */
+    @JsonIgnore
+    private long serializationStartNanos;
+
+    /**
+     * 响应序列化耗时：从开始输出数据到输出本对象为止（本对象须位于响应的最后）
+     */
+    public Double getSerialization() {
+        if (serializationStartNanos == 0) {
+            return null;
+        }
+        return toMillis(System.nanoTime() - serializationStartNanos);
+    }
+
+    /**
+     * 标记响应开始序列化
+     */
+    public void markSerializationStart() {
+        serializationStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 纳秒转换为毫秒（保留三位小数）
+     */
+    public static Double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+}
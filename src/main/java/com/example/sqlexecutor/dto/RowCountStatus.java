@@ -0,0 +1,53 @@
+package com.example.sqlexecutor.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 后台精确行数统计状态DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RowCountStatus {
+
+    /**
+     * 统计任务标识
+     */
+    private String token;
+
+    /**
+     * 数据源编码
+     */
+    private String datasourceCode;
+
+    /**
+     * 状态：RUNNING、DONE、FAILED、TIMED_OUT、CANCELLED
+     */
+    private String status;
+
+    /**
+     * 精确行数（完成后才有值）
+     */
+    private Long count;
+
+    /**
+     * 已耗时（毫秒）
+     */
+    private long elapsedTime;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startedAt;
+}
@@ -96,6 +96,31 @@ public class DatasourceConfig {
      */
     private Integer connectionTimeout;
 
+    /**
+     * 最大估算查询代价（代价守卫阈值，为空时使用全局默认值）
+     */
+    private Double maxQueryCost;
+
+    /**
+     * 最大估算行数（代价守卫阈值）
+     */
+    private Long maxEstimatedRows;
+
+    /**
+     * 最大估算数据量（字节，代价守卫阈值）
+     */
+    private Long maxEstimatedBytes;
+
+    /**
+     * 超过代价阈值时的动作：ALLOW、QUEUE、REJECT
+     */
+    private String costGuardAction;
+
+    /**
+     * 所属集群（多数据源查询按集群限制并发，为空时只按主机限制）
+     */
+    private String clusterName;
+
     /**
      * 数据源描述
      */
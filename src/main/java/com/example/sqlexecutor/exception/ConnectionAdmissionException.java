@@ -0,0 +1,13 @@
+package com.example.sqlexecutor.exception;
+
+/**
+ * 连接准入超时异常（工作负载的连接份额已用尽，排队超过准入超时或截止时间）
+ *
+ * 属于过载信号：并发限制器据此缩减上限，接口返回503。
+ */
+public class ConnectionAdmissionException extends SqlExecutionException {
+
+    public ConnectionAdmissionException(String message) {
+        super(message);
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -46,6 +47,22 @@ public class GlobalExceptionHandler {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
 
+        /**
+         * 处理连接准入超时异常（连接份额已用尽，返回503并提示客户端稍后重试）
+         */
+        @ExceptionHandler(ConnectionAdmissionException.class)
+        public ResponseEntity<ApiResponse<Object>> handleConnectionAdmissionException(
+                        ConnectionAdmissionException ex, WebRequest request) {
+
+                log.warn("连接准入超时: {}", ex.getMessage());
+
+                ApiResponse<Object> response = ApiResponse.error(ex.getMessage());
+
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(response);
+        }
+
         /**
          * 处理无效SQL异常
          */
@@ -78,6 +95,42 @@ public class GlobalExceptionHandler {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
 
+        /**
+         * 处理结果超出内存预算异常
+         *
+         * 单个请求超出预算时返回413；全局预算已用尽时返回503并提示客户端稍后重试
+         */
+        @ExceptionHandler(ResultMemoryExceededException.class)
+        public ResponseEntity<ApiResponse<Object>> handleResultMemoryExceededException(
+                        ResultMemoryExceededException ex, WebRequest request) {
+
+                log.warn("查询结果超出内存预算: {}", ex.getMessage());
+
+                ApiResponse<Object> response = ApiResponse.error(ex.getMessage());
+
+                if (ex.isGlobal()) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                        .header(HttpHeaders.RETRY_AFTER, "1")
+                                        .body(response);
+                }
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        }
+
+        /**
+         * 处理查询估算代价超过阈值异常（返回执行计划摘要）
+         */
+        @ExceptionHandler(QueryCostExceededException.class)
+        public ResponseEntity<ApiResponse<Object>> handleQueryCostExceededException(
+                        QueryCostExceededException ex, WebRequest request) {
+
+                log.warn("查询估算代价超过阈值: {}", ex.getMessage());
+
+                ApiResponse<Object> response = ApiResponse.error(ex.getMessage());
+                response.setData(ex.getPlanSummary());
+
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+        }
+
         /**
          * 处理SQL超时异常
          */
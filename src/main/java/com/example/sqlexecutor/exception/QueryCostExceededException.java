@@ -0,0 +1,23 @@
+package com.example.sqlexecutor.exception;
+
+import java.util.Map;
+
+/**
+ * 查询估算代价超过阈值被拒绝异常
+ */
+public class QueryCostExceededException extends RuntimeException {
+
+    /**
+     * 执行计划摘要（估算代价、行数、宽度等）
+     */
+    private final Map<String, Object> planSummary;
+
+    public QueryCostExceededException(String message, Map<String, Object> planSummary) {
+        super(message);
+        this.planSummary = planSummary;
+    }
+
+    public Map<String, Object> getPlanSummary() {
+        return planSummary;
+    }
+}
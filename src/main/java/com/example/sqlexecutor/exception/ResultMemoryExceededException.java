@@ -0,0 +1,21 @@
+package com.example.sqlexecutor.exception;
+
+/**
+ * 查询结果超出内存预算异常
+ */
+public class ResultMemoryExceededException extends RuntimeException {
+
+    /**
+     * 是否为全局预算不足（否则为单个请求的预算不足）
+     */
+    private final boolean global;
+
+    public ResultMemoryExceededException(String message, boolean global) {
+        super(message);
+        this.global = global;
+    }
+
+    public boolean isGlobal() {
+        return global;
+    }
+}
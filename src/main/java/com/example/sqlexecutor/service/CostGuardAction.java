@@ -0,0 +1,22 @@
+package com.example.sqlexecutor.service;
+
+/**
+ * 查询估算代价超过阈值时的处理动作
+ */
+public enum CostGuardAction {
+
+    /**
+     * 照常执行（只记录日志和指标）
+     */
+    ALLOW,
+
+    /**
+     * 转入后台工作负载通道，按后台连接份额排队执行
+     */
+    QUEUE,
+
+    /**
+     * 拒绝执行并返回执行计划摘要
+     */
+    REJECT
+}
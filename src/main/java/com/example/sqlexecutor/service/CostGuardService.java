@@ -0,0 +1,215 @@
+package com.example.sqlexecutor.service;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.exception.QueryCostExceededException;
+import com.example.sqlexecutor.util.PhaseTimer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 查询代价守卫服务
+ *
+ * 执行前在目标数据源上运行 EXPLAIN (FORMAT JSON)，将估算总代价、估算行数和估算数据量（行数 × 行宽）
+ * 与阈值比较。阈值优先取 datasource_config 中的配置，未配置的项使用全局默认值；超过任一阈值时
+ * 按配置的动作照常执行、转入后台通道排队或拒绝执行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CostGuardService {
+
+    private final ExecutionPlanService executionPlanService;
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.cost-guard.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 默认最大估算总代价（0表示不限制）
+     */
+    @Value("${sql-executor.cost-guard.max-cost:0}")
+    private double defaultMaxCost;
+
+    /**
+     * 默认最大估算行数（0表示不限制）
+     */
+    @Value("${sql-executor.cost-guard.max-rows:0}")
+    private long defaultMaxRows;
+
+    /**
+     * 默认最大估算数据量（字节，0表示不限制）
+     */
+    @Value("${sql-executor.cost-guard.max-bytes:0}")
+    private long defaultMaxBytes;
+
+    @Value("${sql-executor.cost-guard.action:REJECT}")
+    private CostGuardAction defaultAction;
+
+    /**
+     * EXPLAIN超时时间（秒）
+     */
+    @Value("${sql-executor.cost-guard.explain-timeout:5}")
+    private int explainTimeout;
+
+    @PostConstruct
+    public void init() {
+        log.info("查询代价守卫: {}，默认阈值 代价: {}，行数: {}，数据量: {}字节，动作: {}",
+                enabled ? "启用" : "停用", defaultMaxCost, defaultMaxRows, defaultMaxBytes, defaultAction);
+    }
+
+    /**
+     * 检查语句的估算代价，决定执行所用的工作负载类别
+     *
+     * EXPLAIN失败（如语法错误）时放行，由真正的执行返回错误。
+     *
+     * @param template       目标数据源的JdbcTemplate
+     * @param config         数据源配置（主数据源为null，使用全局默认阈值）
+     * @param datasourceCode 数据源编码
+     * @param sql            待执行的SQL
+     * @param requested      请求本来的工作负载类别
+     * @param phaseTimer     阶段计时器（为null时不计时）
+     * @return 执行所用的工作负载类别（排队时为后台类别）
+     * @throws QueryCostExceededException 超过阈值且动作为拒绝
+     */
+    public WorkloadClass admit(JdbcTemplate template, DatasourceConfig config, String datasourceCode, String sql,
+            WorkloadClass requested, PhaseTimer phaseTimer) {
+        if (!enabled) {
+            return requested;
+        }
+        Thresholds thresholds = thresholdsFor(config);
+        if (thresholds.isUnlimited()) {
+            return requested;
+        }
+
+        Map<String, Object> summary = explainSummary(template, datasourceCode, sql, phaseTimer);
+        if (summary == null) {
+            return requested;
+        }
+
+        String violation = thresholds.check(summary);
+        if (violation == null) {
+            queryMetricsService.recordCostGuard(datasourceCode, CostGuardAction.ALLOW, false);
+            return requested;
+        }
+
+        queryMetricsService.recordCostGuard(datasourceCode, thresholds.action, true);
+        switch (thresholds.action) {
+            case REJECT:
+                log.warn("数据源 {} 上的查询估算代价超过阈值（{}），拒绝执行", datasourceCode, violation);
+                throw new QueryCostExceededException(
+                        String.format("查询估算代价超过数据源 %s 的阈值（%s），已拒绝执行", datasourceCode, violation),
+                        summary);
+            case QUEUE:
+                log.info("数据源 {} 上的查询估算代价超过阈值（{}），转入后台通道排队执行", datasourceCode, violation);
+                return WorkloadClass.BACKGROUND;
+            default:
+                log.warn("数据源 {} 上的查询估算代价超过阈值（{}）", datasourceCode, violation);
+                return requested;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> explainSummary(JdbcTemplate template, String datasourceCode, String sql,
+            PhaseTimer phaseTimer) {
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> plan = template.execute((ConnectionCallback<Map<String, Object>>) connection ->
+                    executionPlanService.explain(connection, sql, false, explainTimeout));
+            Object summary = plan != null ? plan.get("summary") : null;
+            return summary instanceof Map ? (Map<String, Object>) summary : null;
+        } catch (DataAccessException e) {
+            log.debug("数据源 {} 代价检查的EXPLAIN失败，跳过检查: {}", datasourceCode, e.getMessage());
+            return null;
+        } finally {
+            if (phaseTimer != null) {
+                phaseTimer.addExplainNanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private Thresholds thresholdsFor(DatasourceConfig config) {
+        if (config == null) {
+            return new Thresholds(defaultMaxCost, defaultMaxRows, defaultMaxBytes, defaultAction);
+        }
+        return new Thresholds(
+                config.getMaxQueryCost() != null ? config.getMaxQueryCost() : defaultMaxCost,
+                config.getMaxEstimatedRows() != null ? config.getMaxEstimatedRows() : defaultMaxRows,
+                config.getMaxEstimatedBytes() != null ? config.getMaxEstimatedBytes() : defaultMaxBytes,
+                actionOf(config));
+    }
+
+    /**
+     * 数据源配置的超限动作，未配置或无法识别时使用默认动作
+     */
+    private CostGuardAction actionOf(DatasourceConfig config) {
+        String action = config.getCostGuardAction();
+        if (action == null || action.isBlank()) {
+            return defaultAction;
+        }
+        try {
+            return CostGuardAction.valueOf(action.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("数据源 {} 的超限动作 {} 无法识别，使用默认动作 {}", config.getDatasourceCode(), action,
+                    defaultAction);
+            return defaultAction;
+        }
+    }
+
+    /**
+     * 一个数据源的代价阈值
+     */
+    private static final class Thresholds {
+
+        private final double maxCost;
+        private final long maxRows;
+        private final long maxBytes;
+        private final CostGuardAction action;
+
+        private Thresholds(double maxCost, long maxRows, long maxBytes, CostGuardAction action) {
+            this.maxCost = maxCost;
+            this.maxRows = maxRows;
+            this.maxBytes = maxBytes;
+            this.action = action;
+        }
+
+        private boolean isUnlimited() {
+            return maxCost <= 0 && maxRows <= 0 && maxBytes <= 0;
+        }
+
+        /**
+         * 检查执行计划摘要
+         *
+         * @return 超过的阈值说明，未超过时返回null
+         */
+        private String check(Map<String, Object> summary) {
+            double cost = toDouble(summary.get("totalCost"));
+            double rows = toDouble(summary.get("estimatedRows"));
+            double bytes = rows * toDouble(summary.get("estimatedWidth"));
+            if (maxCost > 0 && cost > maxCost) {
+                return String.format("估算代价 %.0f > %.0f", cost, maxCost);
+            }
+            if (maxRows > 0 && rows > maxRows) {
+                return String.format("估算行数 %.0f > %d", rows, maxRows);
+            }
+            if (maxBytes > 0 && bytes > maxBytes) {
+                return String.format("估算数据量 %.0f 字节 > %d 字节", bytes, maxBytes);
+            }
+            return null;
+        }
+
+        private static double toDouble(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+    }
+}
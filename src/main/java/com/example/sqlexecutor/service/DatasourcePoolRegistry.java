@@ -0,0 +1,292 @@
+package com.example.sqlexecutor.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 数据源连接池注册表
+ *
+ * 为每个业务数据源维护一个按 datasource_config 中 max_pool_size、min_idle、connection_timeout 配置的
+ * Hikari连接池，密码只在建池时解密一次。数据源配置变化（URL、用户名、密码、池参数或 updated_at）时重建连接池，
+ * 长时间未使用的连接池由后台任务关闭。并行查询的实际并发由各数据源连接池容量决定。
+ *
+ * 调用方通过 {@link #lease} 取得租约并在用完后关闭：被替换或驱逐的连接池在最后一个租约释放后才真正关闭，
+ * 正在执行的查询不会因配置变化或空闲驱逐而失去连接池。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DatasourcePoolRegistry {
+
+    private final PasswordEncryptor passwordEncryptor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sql-executor.datasource-pool.idle-timeout:300000}")
+    private long idleTimeout;
+
+    @Value("${sql-executor.datasource-pool.max-lifetime:1800000}")
+    private long maxLifetime;
+
+    @Value("${sql-executor.datasource-pool.evict-after:1800000}")
+    private long evictAfter;
+
+    /**
+     * 每批从数据库读取的行数（查询时以游标分批读取，配合结果内存预算使用）
+     */
+    @Value("${sql-executor.datasource-pool.fetch-size:1000}")
+    private int fetchSize;
+
+    private final Map<String, PoolHolder> pools = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictionExecutor;
+
+    @PostConstruct
+    public void init() {
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datasource-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(60000, evictAfter / 4);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdlePools, period, period, TimeUnit.MILLISECONDS);
+        log.info("数据源连接池注册表初始化，空闲连接池 {}ms 后关闭", evictAfter);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+        }
+        pools.values().forEach(holder -> holder.close());
+        pools.clear();
+        log.info("数据源连接池已全部关闭");
+    }
+
+    /**
+     * 租用数据源对应的连接池（首次使用或配置变化时创建连接池），用完后必须关闭租约
+     */
+    public Lease lease(DatasourceConfig config) {
+        String signature = signature(config);
+        PoolHolder holder = pools.compute(config.getDatasourceCode(), (code, existing) -> {
+            PoolHolder current = existing;
+            if (existing != null && !existing.signature.equals(signature)) {
+                log.info("数据源 {} 配置已变化，重建连接池", code);
+                existing.retire();
+                current = null;
+            }
+            if (current == null) {
+                current = new PoolHolder(code, signature, createDataSource(config), fetchSize);
+            }
+            // 在compute内登记租约，驱逐任务同样在compute内判断，二者不会交错
+            current.leases.incrementAndGet();
+            current.lastUsedAt = System.currentTimeMillis();
+            return current;
+        });
+        return new Lease(holder);
+    }
+
+    /**
+     * 移除指定数据源的连接池，仍有租约时在最后一个租约释放后关闭
+     */
+    public void evict(String datasourceCode) {
+        PoolHolder holder = pools.remove(datasourceCode);
+        if (holder != null) {
+            holder.retire();
+        }
+    }
+
+    /**
+     * 当前已创建的连接池数量
+     */
+    public int getPoolCount() {
+        return pools.size();
+    }
+
+    /**
+     * 所有连接池的最大连接数之和
+     */
+    public int getTotalCapacity() {
+        return pools.values().stream().mapToInt(holder -> holder.dataSource.getMaximumPoolSize()).sum();
+    }
+
+    private HikariDataSource createDataSource(DatasourceConfig config) {
+        String password = config.getPassword();
+        if (passwordEncryptor.isEncrypted(password)) {
+            password = passwordEncryptor.decrypt(password);
+        }
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("ds-" + config.getDatasourceCode());
+        hikariConfig.setJdbcUrl(config.getJdbcUrl());
+        hikariConfig.setUsername(config.getUsername());
+        hikariConfig.setPassword(password);
+        if (config.getDriverClass() != null && !config.getDriverClass().isEmpty()) {
+            hikariConfig.setDriverClassName(config.getDriverClass());
+        }
+
+        // 连接池配置（取自 datasource_config，未配置时使用表的默认值）
+        int maxPoolSize = maxPoolSize(config);
+        int minIdle = config.getMinIdle() != null && config.getMinIdle() >= 0 ? config.getMinIdle() : 2;
+        hikariConfig.setMaximumPoolSize(maxPoolSize);
+        hikariConfig.setMinimumIdle(Math.min(minIdle, maxPoolSize));
+        hikariConfig.setConnectionTimeout(
+                config.getConnectionTimeout() != null && config.getConnectionTimeout() > 0
+                        ? config.getConnectionTimeout()
+                        : 30000);
+        hikariConfig.setIdleTimeout(idleTimeout);
+        hikariConfig.setMaxLifetime(maxLifetime);
+        hikariConfig.setAutoCommit(true);
+        hikariConfig.setValidationTimeout(5000);
+
+        // 连接池指标（hikaricp_connections_*，pool=ds-<编码>）
+        hikariConfig.setMetricRegistry(meterRegistry);
+
+        log.info("创建数据源连接池: {}，最大连接数: {}", hikariConfig.getPoolName(), maxPoolSize);
+        return new HikariDataSource(hikariConfig);
+    }
+
+    void evictIdlePools() {
+        long threshold = System.currentTimeMillis() - evictAfter;
+        for (String code : pools.keySet()) {
+            PoolHolder[] evicted = new PoolHolder[1];
+            pools.computeIfPresent(code, (key, holder) -> {
+                if (holder.leases.get() > 0 || holder.lastUsedAt >= threshold) {
+                    return holder;
+                }
+                evicted[0] = holder;
+                return null;
+            });
+            if (evicted[0] != null) {
+                evicted[0].retire();
+                log.info("数据源 {} 的连接池长时间未使用，已移除", code);
+            }
+        }
+    }
+
+    /**
+     * 数据源连接池的最大连接数（未配置时为表的默认值10）
+     */
+    public static int maxPoolSize(DatasourceConfig config) {
+        return config.getMaxPoolSize() != null && config.getMaxPoolSize() > 0 ? config.getMaxPoolSize() : 10;
+    }
+
+    /**
+     * 连接相关配置的签名，任一项变化即需要重建连接池
+     */
+    static String signature(DatasourceConfig config) {
+        return String.join("|",
+                Objects.toString(config.getJdbcUrl()),
+                Objects.toString(config.getUsername()),
+                Objects.toString(config.getPassword()),
+                Objects.toString(config.getDriverClass()),
+                Objects.toString(config.getMaxPoolSize()),
+                Objects.toString(config.getMinIdle()),
+                Objects.toString(config.getConnectionTimeout()),
+                Objects.toString(config.getUpdatedAt()));
+    }
+
+    /**
+     * 连接池租约
+     *
+     * 持有期间连接池不会被关闭；关闭租约是幂等的。
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final PoolHolder holder;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(PoolHolder holder) {
+            this.holder = holder;
+        }
+
+        public JdbcTemplate getJdbcTemplate() {
+            return holder.jdbcTemplate;
+        }
+
+        /**
+         * 为同一连接池再登记一个租约（供调用方返回后仍在运行的异步任务使用，需各自关闭）
+         */
+        public Lease share() {
+            if (closed.get()) {
+                throw new IllegalStateException("租约已关闭");
+            }
+            holder.leases.incrementAndGet();
+            return new Lease(holder);
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                holder.release();
+            }
+        }
+    }
+
+    /**
+     * 连接池及其JdbcTemplate
+     */
+    private static final class PoolHolder {
+
+        private final String datasourceCode;
+        private final String signature;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean retired;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private PoolHolder(String datasourceCode, String signature, HikariDataSource dataSource, int fetchSize) {
+            this.datasourceCode = datasourceCode;
+            this.signature = signature;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.jdbcTemplate.setFetchSize(fetchSize);
+        }
+
+        /**
+         * 已从注册表移除：没有租约时立即关闭，否则由最后一个租约关闭
+         */
+        private void retire() {
+            retired = true;
+            if (leases.get() == 0) {
+                close();
+            }
+        }
+
+        private void release() {
+            lastUsedAt = System.currentTimeMillis();
+            if (leases.decrementAndGet() == 0 && retired) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                dataSource.close();
+                log.info("数据源 {} 的连接池已关闭", datasourceCode);
+            }
+        }
+    }
+}
@@ -44,7 +44,8 @@ public class DatasourceService {
         // 查询所有数据源
         String datasourceSql = "SELECT id, datasource_name, datasource_code, category_id, db_type, " +
                 "host, port, database_name, username, password, jdbc_url, driver_class, " +
-                "is_enabled, max_pool_size, min_idle, connection_timeout, description, " +
+                "is_enabled, max_pool_size, min_idle, connection_timeout, max_query_cost, max_estimated_rows, " +
+                "max_estimated_bytes, cost_guard_action, cluster_name, description, " +
                 "created_at, updated_at " +
                 "FROM datasource_config WHERE is_enabled = true ORDER BY id";
 
@@ -64,7 +65,8 @@ public class DatasourceService {
     public DatasourceConfig getDatasourceByCode(String datasourceCode) {
         String sql = "SELECT id, datasource_name, datasource_code, category_id, db_type, " +
                 "host, port, database_name, username, password, jdbc_url, driver_class, " +
-                "is_enabled, max_pool_size, min_idle, connection_timeout, description, " +
+                "is_enabled, max_pool_size, min_idle, connection_timeout, max_query_cost, max_estimated_rows, " +
+                "max_estimated_bytes, cost_guard_action, cluster_name, description, " +
                 "created_at, updated_at " +
                 "FROM datasource_config WHERE datasource_code = ? AND is_enabled = true";
 
@@ -92,7 +94,8 @@ public class DatasourceService {
 
         String sql = "SELECT id, datasource_name, datasource_code, category_id, db_type, " +
                 "host, port, database_name, username, password, jdbc_url, driver_class, " +
-                "is_enabled, max_pool_size, min_idle, connection_timeout, description, " +
+                "is_enabled, max_pool_size, min_idle, connection_timeout, max_query_cost, max_estimated_rows, " +
+                "max_estimated_bytes, cost_guard_action, cluster_name, description, " +
                 "created_at, updated_at " +
                 "FROM datasource_config WHERE datasource_code IN (" + placeholders + ") AND is_enabled = true";
 
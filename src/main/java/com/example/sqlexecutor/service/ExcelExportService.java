@@ -2,22 +2,21 @@ package com.example.sqlexecutor.service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.io.OutputStream;
 
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
-
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -25,66 +24,33 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ExcelExportService {
 
     /**
-     * 将多个数据源的查询结果导出为ZIP压缩包
-     * 
-     * @param results 多数据源查询结果列表
-     * @return ZIP文件字节数组
-     * @throws IOException IO异常
+     * 列宽上下限（1/256字符宽度）
      */
-    public byte[] exportMultiDatasourcesToZip(List<MultiDatasourceQueryResponse.DatasourceQueryResult> results)
-            throws IOException {
-        log.info("开始导出多数据源Excel为ZIP，数据源数量: {}", results.size());
-
-        try (ByteArrayOutputStream zipOutputStream = new ByteArrayOutputStream();
-                ZipOutputStream zos = new ZipOutputStream(zipOutputStream)) {
-
-            for (MultiDatasourceQueryResponse.DatasourceQueryResult result : results) {
-                String datasourceName = result.getDatasourceName();
-                String datasourceCode = result.getDatasourceCode();
-
-                log.debug("处理数据源: {} [{}]", datasourceName, datasourceCode);
-
-                // 为每个数据源创建一个Excel文件
-                byte[] excelData;
-                String fileName;
-
-                if (result.isSuccess() && result.getData() != null && !result.getData().isEmpty()) {
-                    // 查询成功，导出数据
-                    excelData = exportToExcel(result.getData(), datasourceName);
-                    fileName = String.format("%s_%s.xlsx", datasourceCode, datasourceName);
-                    log.debug("数据源 {} 导出成功，数据行数: {}", datasourceName, result.getData().size());
-                } else if (!result.isSuccess()) {
-                    // 查询失败，创建包含错误信息的Excel
-                    excelData = createErrorExcel(datasourceName, result.getError(), result.getMessage());
-                    fileName = String.format("%s_%s_错误.xlsx", datasourceCode, datasourceName);
-                    log.debug("数据源 {} 查询失败，创建错误信息Excel", datasourceName);
-                } else {
-                    // 查询成功但无数据
-                    excelData = exportToExcel(result.getData(), datasourceName);
-                    fileName = String.format("%s_%s_无数据.xlsx", datasourceCode, datasourceName);
-                    log.debug("数据源 {} 查询成功但无数据", datasourceName);
-                }
+    private static final int MIN_COLUMN_WIDTH = 2000;
+    private static final int MAX_COLUMN_WIDTH = 15000;
 
-                // 将Excel文件添加到ZIP
-                ZipEntry zipEntry = new ZipEntry(fileName);
-                zos.putNextEntry(zipEntry);
-                zos.write(excelData);
-                zos.closeEntry();
-            }
+    /**
+     * 日期时间按 yyyy-mm-dd hh:mm:ss 显示的字符数
+     */
+    private static final int DATE_DISPLAY_WIDTH = 19;
+
+    /**
+     * 工作表最后一行的行号（xlsx最多1048576行），该行留给截断提示
+     */
+    private static final int LAST_ROW_INDEX = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
 
-            zos.finish();
-            byte[] zipData = zipOutputStream.toByteArray();
-            log.info("多数据源Excel导出为ZIP完成，文件大小: {} bytes", zipData.length);
-            return zipData;
+    @Value("${sql-executor.export.row-access-window:100}")
+    private int rowAccessWindow;
 
-        } catch (IOException e) {
-            log.error("导出多数据源Excel为ZIP失败", e);
-            throw e;
-        }
-    }
+    @Value("${sql-executor.export.compress-temp-files:true}")
+    private boolean compressTempFiles;
+
+    @Value("${sql-executor.export.width-sample-rows:200}")
+    private int widthSampleRows;
 
     /**
      * 创建包含错误信息的Excel文件
@@ -95,7 +61,7 @@ public class ExcelExportService {
      * @return Excel文件字节数组
      * @throws IOException IO异常
      */
-    private byte[] createErrorExcel(String datasourceName, String errorMessage, String additionalInfo)
+    public byte[] createErrorExcel(String datasourceName, String errorMessage, String additionalInfo)
             throws IOException {
         log.debug("创建错误信息Excel: {}", datasourceName);
 
@@ -148,72 +114,15 @@ public class ExcelExportService {
     }
 
     /**
-     * 将查询结果导出为Excel文件
+     * 创建一个流式工作表写入器
+     *
+     * 基于SXSSF：内存中只保留最近 row-access-window 行，更早的行写入（可压缩的）临时文件，
+     * 字符串以内联方式写入而不建立共享字符串表，内存占用与行数无关。
+     * 列宽按表头和前 width-sample-rows 行估算，不使用逐个单元格测量字体的 autoSizeColumn。
+     * 写入器必须关闭以删除临时文件。
      */
-    public byte[] exportToExcel(List<Map<String, Object>> data, String sheetName) throws IOException {
-        log.debug("开始导出Excel，数据行数: {}", data != null ? data.size() : 0);
-
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet(sheetName != null ? sheetName : "查询结果");
-
-            if (data.isEmpty()) {
-                // 如果没有数据，创建一个空的工作表
-                Row headerRow = sheet.createRow(0);
-                Cell cell = headerRow.createCell(0);
-                cell.setCellValue("无数据");
-            } else {
-                // 创建样式
-                CellStyle headerStyle = createHeaderStyle(workbook);
-                CellStyle dateStyle = createDateStyle(workbook);
-                CellStyle numberStyle = createNumberStyle(workbook);
-                CellStyle decimalStyle = createDecimalStyle(workbook);
-
-                // 获取列名（从第一行数据中提取）
-                Map<String, Object> firstRow = data.get(0);
-                String[] columnNames = firstRow.keySet().toArray(new String[0]);
-
-                // 创建表头
-                Row headerRow = sheet.createRow(0);
-                for (int i = 0; i < columnNames.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(columnNames[i]);
-                    cell.setCellStyle(headerStyle);
-                }
-
-                // 填充数据
-                for (int i = 0; i < data.size(); i++) {
-                    Row dataRow = sheet.createRow(i + 1);
-                    Map<String, Object> rowData = data.get(i);
-
-                    for (int j = 0; j < columnNames.length; j++) {
-                        Cell cell = dataRow.createCell(j);
-                        Object value = rowData.get(columnNames[j]);
-
-                        // 设置单元格值和样式
-                        setCellValueWithStyle(cell, value, dateStyle, numberStyle, decimalStyle);
-                    }
-                }
-
-                // 自动调整列宽
-                for (int i = 0; i < columnNames.length; i++) {
-                    sheet.autoSizeColumn(i);
-                    // 设置最大列宽避免过宽
-                    if (sheet.getColumnWidth(i) > 15000) {
-                        sheet.setColumnWidth(i, 15000);
-                    }
-                    // 设置最小列宽保证可读性
-                    if (sheet.getColumnWidth(i) < 2000) {
-                        sheet.setColumnWidth(i, 2000);
-                    }
-                }
-            }
-
-            // 将工作簿写入字节数组
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                workbook.write(outputStream);
-                return outputStream.toByteArray();
-            }
-        }
+    public SheetWriter openSheetWriter(String sheetName) {
+        return new SheetWriter(sheetName != null ? sheetName : "查询结果");
     }
 
     /**
@@ -500,4 +409,169 @@ public class ExcelExportService {
             setCellValue(cell, value);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 流式工作表写入器（非线程安全）
+     */
+    public final class SheetWriter implements AutoCloseable {
+
+        private final SXSSFWorkbook workbook;
+        private final Sheet sheet;
+        private final CellStyle headerStyle;
+        private final CellStyle dateStyle;
+        private final CellStyle numberStyle;
+        private final CellStyle decimalStyle;
+
+        private int columnCount;
+        private int[] sampledWidths;
+        private int sampledRows;
+        private boolean widthsApplied;
+        private boolean truncated;
+        private int nextRow;
+        private int dataRows;
+
+        private SheetWriter(String sheetName) {
+            this.workbook = new SXSSFWorkbook(null, rowAccessWindow, compressTempFiles, false);
+            this.sheet = workbook.createSheet(sheetName);
+            this.headerStyle = createHeaderStyle(workbook);
+            this.dateStyle = createDateStyle(workbook);
+            this.numberStyle = createNumberStyle(workbook);
+            this.decimalStyle = createDecimalStyle(workbook);
+        }
+
+        /**
+         * 写入表头（必须在数据行之前写入）
+         */
+        public void writeHeader(String[] columnNames) {
+            columnCount = columnNames.length;
+            sampledWidths = new int[columnCount];
+            Row headerRow = sheet.createRow(nextRow++);
+            for (int i = 0; i < columnCount; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(columnNames[i]);
+                cell.setCellStyle(headerStyle);
+                sampledWidths[i] = textWidth(columnNames[i]);
+            }
+        }
+
+        /**
+         * 按表头顺序写入一行
+         *
+         * @return 写入成功返回true；工作表已满时写入截断提示并返回false，此后不再写入数据行
+         */
+        public boolean writeRow(Object[] values) {
+            if (truncated) {
+                return false;
+            }
+            if (nextRow >= LAST_ROW_INDEX) {
+                truncated = true;
+                sheet.createRow(nextRow++).createCell(0).setCellValue("已达到Excel工作表行数上限，后续数据未导出");
+                return false;
+            }
+            Row dataRow = sheet.createRow(nextRow++);
+            boolean sampling = !widthsApplied;
+            for (int j = 0; j < values.length; j++) {
+                Cell cell = dataRow.createCell(j);
+                setCellValueWithStyle(cell, values[j], dateStyle, numberStyle, decimalStyle);
+                if (sampling && j < columnCount) {
+                    sampledWidths[j] = Math.max(sampledWidths[j], displayWidth(cell));
+                }
+            }
+            dataRows++;
+            if (sampling && ++sampledRows >= widthSampleRows) {
+                applyColumnWidths();
+            }
+            return true;
+        }
+
+        /**
+         * 已写入的数据行数（不含表头和截断提示）
+         */
+        public int getRowCount() {
+            return dataRows;
+        }
+
+        /**
+         * 数据行是否因超出工作表行数上限被截断
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * 完成工作表并写入输出流（不关闭输出流）
+         */
+        public void finish(OutputStream outputStream) throws IOException {
+            if (dataRows == 0) {
+                // 如果没有数据，在表头（如有）下方写入提示
+                sheet.createRow(nextRow++).createCell(0).setCellValue("无数据");
+            }
+            applyColumnWidths();
+            workbook.write(outputStream);
+        }
+
+        /**
+         * 删除临时文件并释放工作簿
+         */
+        @Override
+        public void close() throws IOException {
+            workbook.dispose();
+            workbook.close();
+        }
+
+        private void applyColumnWidths() {
+            if (widthsApplied || sampledWidths == null) {
+                return;
+            }
+            widthsApplied = true;
+            for (int i = 0; i < columnCount; i++) {
+                // 字符数换算为1/256字符宽度，留出两个字符的边距，限制在可读范围内
+                int width = (sampledWidths[i] + 2) * 256;
+                sheet.setColumnWidth(i, Math.max(MIN_COLUMN_WIDTH, Math.min(MAX_COLUMN_WIDTH, width)));
+            }
+        }
+
+        /**
+         * 估算单元格按其格式显示时的字符宽度
+         */
+        private int displayWidth(Cell cell) {
+            switch (cell.getCellType()) {
+                case STRING:
+                    return textWidth(cell.getStringCellValue());
+                case BOOLEAN:
+                    return 5;
+                case NUMERIC:
+                    if (cell.getCellStyle() == dateStyle) {
+                        return DATE_DISPLAY_WIDTH;
+                    }
+                    double value = cell.getNumericCellValue();
+                    if (cell.getCellStyle() == numberStyle) {
+                        return String.format("%,d", (long) value).length();
+                    }
+                    if (cell.getCellStyle() == decimalStyle) {
+                        return String.format("%,.2f", value).length();
+                    }
+                    return String.valueOf(value).length();
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /**
+     * 文本显示宽度（按码点计算，中日韩等全角字符和辅助平面字符按两个字符计算，半角片假名等半角形式按一个字符计算）
+     */
+    static int textWidth(String text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            width += codePoint >= 0x2E80 && !isHalfwidthForm(codePoint) ? 2 : 1;
+            i += Character.charCount(codePoint);
+        }
+        return width;
+    }
+
+    private static boolean isHalfwidthForm(int codePoint) {
+        return codePoint >= 0xFF61 && codePoint <= 0xFFDC || codePoint >= 0xFFE8 && codePoint <= 0xFFEE;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 执行计划服务
+ *
+ * 通过 EXPLAIN (FORMAT JSON) 获取PostgreSQL执行计划，并汇总估算/实际行数和耗时。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExecutionPlanService {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 在给定连接上获取执行计划
+     *
+     * ANALYZE模式会真正执行语句，因此在只读事务中执行并在结束后回滚：调用方只对查询语句开启ANALYZE，
+     * 含数据修改的CTE或有写操作的函数会因只读事务直接失败，而不是在回滚前先修改数据。
+     *
+     * @param connection 执行查询所用的同一连接
+     * @param sql        待分析的SQL
+     * @param analyze    是否使用 ANALYZE, BUFFERS 获取实际执行数据
+     * @param timeout    超时时间（秒，0表示不限制）
+     * @return 包含 plan（原始计划）和 summary（汇总信息）的Map
+     */
+    public Map<String, Object> explain(Connection connection, String sql, boolean analyze, int timeout)
+            throws SQLException {
+        String explainSql = (analyze ? "EXPLAIN (FORMAT JSON, ANALYZE, BUFFERS) " : "EXPLAIN (FORMAT JSON) ") + sql;
+
+        boolean autoCommit = connection.getAutoCommit();
+        if (analyze && autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            if (analyze) {
+                statement.execute("SET TRANSACTION READ ONLY");
+            }
+            statement.setQueryTimeout(timeout);
+            String planJson;
+            try (ResultSet rs = statement.executeQuery(explainSql)) {
+                planJson = rs.next() ? rs.getString(1) : null;
+            }
+            return parsePlan(planJson);
+
+        } finally {
+            if (analyze) {
+                connection.rollback();
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析JSON格式的执行计划
+     */
+    private Map<String, Object> parsePlan(String planJson) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (planJson == null) {
+            return result;
+        }
+
+        try {
+            List<Map<String, Object>> explainOutput = objectMapper.readValue(planJson,
+                    new TypeReference<List<Map<String, Object>>>() {
+                    });
+            if (explainOutput.isEmpty()) {
+                return result;
+            }
+
+            Map<String, Object> top = explainOutput.get(0);
+            result.put("plan", top.get("Plan"));
+            result.put("summary", summarize(top));
+            return result;
+
+        } catch (JsonProcessingException e) {
+            log.warn("执行计划解析失败: {}", e.getMessage());
+            result.put("raw", planJson);
+            return result;
+        }
+    }
+
+    /**
+     * 汇总执行计划：根节点的估算代价/行数，以及所有节点的估算与实际行数、时间合计
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> summarize(Map<String, Object> top) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Object planObject = top.get("Plan");
+        if (!(planObject instanceof Map)) {
+            return summary;
+        }
+
+        Map<String, Object> root = (Map<String, Object>) planObject;
+        summary.put("nodeType", root.get("Node Type"));
+        summary.put("totalCost", toDouble(root.get("Total Cost")));
+        summary.put("estimatedRows", toDouble(root.get("Plan Rows")));
+        summary.put("estimatedWidth", toDouble(root.get("Plan Width")));
+
+        double[] totals = new double[3]; // 节点数、估算行数合计、实际行数合计
+        accumulate(root, totals);
+        summary.put("nodeCount", (long) totals[0]);
+        summary.put("totalEstimatedRows", totals[1]);
+
+        if (root.containsKey("Actual Rows")) {
+            double loops = root.get("Actual Loops") != null ? toDouble(root.get("Actual Loops")) : 1;
+            summary.put("actualRows", toDouble(root.get("Actual Rows")) * loops);
+            summary.put("actualTotalTime", toDouble(root.get("Actual Total Time")));
+            summary.put("totalActualRows", totals[2]);
+        }
+        if (top.containsKey("Planning Time")) {
+            summary.put("planningTime", toDouble(top.get("Planning Time")));
+        }
+        if (top.containsKey("Execution Time")) {
+            summary.put("executionTime", toDouble(top.get("Execution Time")));
+        }
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void accumulate(Map<String, Object> node, double[] totals) {
+        totals[0]++;
+        totals[1] += toDouble(node.get("Plan Rows"));
+        if (node.containsKey("Actual Rows")) {
+            double loops = node.get("Actual Loops") != null ? toDouble(node.get("Actual Loops")) : 1;
+            totals[2] += toDouble(node.get("Actual Rows")) * loops;
+        }
+
+        Object children = node.get("Plans");
+        if (children instanceof List) {
+            for (Object child : (List<Object>) children) {
+                if (child instanceof Map) {
+                    accumulate((Map<String, Object>) child, totals);
+                }
+            }
+        }
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.example.sqlexecutor.exception.SqlExecutionException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多数据源查询的整体截止时间
+ *
+ * 一次多数据源查询的所有数据源共享同一个截止时间，覆盖线程池排队、获取连接和语句执行。
+ * 执行中的语句登记在这里，截止时间到达时由请求线程统一取消；到期后才开始的数据源不再执行。
+ * 预算不大于0时不限制时间，仍可通过 {@link #cancel} 取消（如流式响应的客户端断开）。
+ */
+@Slf4j
+public class FanoutDeadline {
+
+    private final long budgetMillis;
+    private final long deadlineNanos;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean expired;
+    private volatile boolean cancelled;
+
+    /**
+     * @param budgetMillis 截止时间（毫秒，从现在开始），不大于0时不限制
+     */
+    public FanoutDeadline(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis));
+    }
+
+    /**
+     * 是否限制时间
+     */
+    public boolean isBounded() {
+        return budgetMillis > 0;
+    }
+
+    /**
+     * 截止时间（毫秒，相对于查询开始）
+     */
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * 剩余时间（毫秒），已到期或已取消时为0，不限制时间时为 Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        if (expired) {
+            return 0;
+        }
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * 是否已到期（含已取消）
+     */
+    public boolean isExpired() {
+        return expired || isBounded() && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 是否已取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 已到期时抛出异常，用于在排队或获取连接之后、执行语句之前检查
+     */
+    public void check() {
+        if (cancelled) {
+            throw new SqlExecutionException("多数据源查询已取消");
+        }
+        if (isExpired()) {
+            throw new SqlExecutionException(String.format("未在截止时间（%dms）内开始执行", budgetMillis));
+        }
+    }
+
+    /**
+     * 语句超时时间（秒）：不超过剩余时间（向上取整），也不超过查询选项中的超时
+     *
+     * @param timeoutSeconds 查询选项中的超时（秒），0表示不限制
+     */
+    public int statementTimeoutSeconds(int timeoutSeconds) {
+        if (!isBounded()) {
+            return timeoutSeconds;
+        }
+        int remainingSeconds = (int) Math.max(1, (remainingMillis() + 999) / 1000);
+        return timeoutSeconds > 0 ? Math.min(timeoutSeconds, remainingSeconds) : remainingSeconds;
+    }
+
+    /**
+     * 登记执行中的语句（已到期时立即取消）
+     */
+    public void register(Statement statement) {
+        statements.add(statement);
+        if (expired) {
+            cancel(statement);
+        }
+    }
+
+    /**
+     * 语句执行结束后取消登记
+     */
+    public void unregister(Statement statement) {
+        statements.remove(statement);
+    }
+
+    /**
+     * 标记为已到期并取消所有执行中的语句
+     */
+    public void expire() {
+        expired = true;
+        statements.forEach(this::cancel);
+    }
+
+    /**
+     * 取消整个多数据源查询：与到期相同，执行中的语句被取消，尚未开始的数据源不再执行
+     */
+    public void cancel() {
+        cancelled = true;
+        expire();
+    }
+
+    private void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            log.debug("取消多数据源查询的语句失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PartialAggregator;
+import com.example.sqlexecutor.util.RowComparator;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多数据源结果合并服务
+ *
+ * 各数据源的查询在线程池中并行打开游标（执行语句并取回第一批数据后即释放线程），之后由请求线程按合并方式
+ * 从各游标逐行拉取：UNION_ALL 依次拼接，ORDER_BY 用优先队列做k路归并，两者达到行数上限后立即关闭所有游标，
+ * 不再拉取剩余数据；行数上限同时以 LIMIT 下推到各数据源。AGGREGATE 读取各数据源的分组部分聚合结果并合并。
+ *
+ * 与非合并的多数据源查询一样受整体截止时间约束：等待打开游标和逐行合并都不超过截止时间，到期时取消执行中的
+ * 语句并停止合并，返回已合并的部分结果，尚未读完的数据源标记为超时。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FederatedMergeService {
+
+    private final SqlExecutionService sqlExecutionService;
+    private final DatasourcePoolRegistry datasourcePoolRegistry;
+    private final WorkloadManager workloadManager;
+    private final CostGuardService costGuardService;
+    private final QueryStatisticsService queryStatisticsService;
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.max-rows:10000}")
+    private int maxRows;
+
+    /**
+     * 在多个数据源上执行查询并合并结果
+     *
+     * @param configs   数据源配置（按请求顺序）
+     * @param query     查询语句
+     * @param options   查询选项
+     * @param merge     合并选项
+     * @param queryType 语句类型
+     * @param source    执行路径
+     * @param deadline  整体截止时间
+     */
+    public Outcome execute(List<DatasourceConfig> configs, String query, ExecuteSqlRequest.QueryOptions options,
+            MultiDatasourceQueryRequest.MergeOptions merge, String queryType, QuerySource source,
+            FanoutDeadline deadline) {
+        MergeMode mode = parseMode(merge);
+        if (mode == MergeMode.ORDER_BY && (merge.getOrderBy() == null || merge.getOrderBy().isEmpty())) {
+            throw new IllegalArgumentException("ORDER_BY 合并需要指定排序键 orderBy");
+        }
+        if (mode == MergeMode.AGGREGATE && (merge.getAggregates() == null || merge.getAggregates().isEmpty())) {
+            throw new IllegalArgumentException("AGGREGATE 合并需要指定聚合列 aggregates");
+        }
+        PartialAggregator aggregator = mode == MergeMode.AGGREGATE
+                ? new PartialAggregator(merge.getGroupBy(), merge.getAggregates())
+                : null;
+
+        int outputLimit = outputLimit(merge);
+        String shardSql = shardSql(query, mode, merge, outputLimit);
+        int timeout = sqlExecutionService.timeoutSeconds(options);
+
+        // 并行打开各数据源的游标
+        ExecutorService executorService = workloadManager.getExecutor(WorkloadClass.of(source));
+        QueryContext queryContext = QueryContext.current();
+        List<CompletableFuture<ShardCursor>> futures = configs.stream()
+                .map(config -> CompletableFuture.supplyAsync(
+                        () -> open(config, shardSql, timeout, source, queryContext, deadline), executorService))
+                .collect(Collectors.toList());
+        // 到期时取消执行中的语句（包括合并阶段中正在拉取下一批数据的游标）
+        CompletableFuture<Void> expiry = new CompletableFuture<>();
+        if (deadline.isBounded()) {
+            expiry.orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        if (e instanceof TimeoutException) {
+                            deadline.expire();
+                        }
+                        return null;
+                    });
+        }
+        List<ShardCursor> cursors = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            cursors.add(await(futures.get(i), configs.get(i), deadline));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        boolean limitReached;
+        try {
+            switch (mode) {
+                case ORDER_BY:
+                    limitReached = mergeOrdered(cursors, new RowComparator(merge.getOrderBy()), outputLimit, rows);
+                    break;
+                case AGGREGATE:
+                    limitReached = aggregate(cursors, aggregator, merge, outputLimit, rows);
+                    break;
+                default:
+                    limitReached = unionAll(cursors, outputLimit, rows);
+            }
+        } finally {
+            expiry.complete(null);
+            cursors.forEach(ShardCursor::close);
+        }
+        if (deadline.isExpired()) {
+            log.warn("多数据源合并未在截止时间（{}ms）内完成，返回部分结果", deadline.getBudgetMillis());
+        }
+
+        List<MultiDatasourceQueryResponse.DatasourceQueryResult> results = new ArrayList<>();
+        for (ShardCursor cursor : cursors) {
+            record(source, cursor.config.getDatasourceCode(), query, queryType, cursor.executionTime,
+                    cursor.rows, cursor.error == null);
+            results.add(cursor.toResult());
+        }
+
+        log.info("多数据源 {} 合并完成，合并后 {} 行{}", mode, rows.size(), limitReached ? "（已达到行数上限）" : "");
+        return new Outcome(results, MultiDatasourceQueryResponse.MergedResult.builder()
+                .mode(mode.name())
+                .data(rows)
+                .rowCount(rows.size())
+                .limitReached(limitReached)
+                .build());
+    }
+
+    /**
+     * 等待游标打开，最多等到截止时间；超时的数据源以超时游标代替，其游标在打开任务结束后自行关闭
+     */
+    private static ShardCursor await(CompletableFuture<ShardCursor> future, DatasourceConfig config,
+            FanoutDeadline deadline) {
+        if (!deadline.isBounded()) {
+            return future.join();
+        }
+        try {
+            return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("数据源 {} 未在截止时间（{}ms）内打开游标", config.getDatasourceCode(), deadline.getBudgetMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+        deadline.expire();
+        future.thenAccept(ShardCursor::close);
+        return ShardCursor.abandoned(config, deadline);
+    }
+
+    private static MergeMode parseMode(MultiDatasourceQueryRequest.MergeOptions merge) {
+        String mode = merge.getMode() != null ? merge.getMode().trim().toUpperCase(Locale.ROOT) : "";
+        try {
+            return MergeMode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的合并方式: " + merge.getMode() + "，可选 UNION_ALL、ORDER_BY、AGGREGATE");
+        }
+    }
+
+    private int outputLimit(MultiDatasourceQueryRequest.MergeOptions merge) {
+        int limit = merge.getLimit() != null && merge.getLimit() > 0 ? merge.getLimit() : Integer.MAX_VALUE;
+        return maxRows > 0 ? Math.min(limit, maxRows) : limit;
+    }
+
+    /**
+     * 各数据源实际执行的语句：ORDER_BY 追加排序，UNION_ALL 和 ORDER_BY 下推行数上限
+     * （多取一行用于判断是否还有剩余数据）
+     */
+    private static String shardSql(String query, MergeMode mode, MultiDatasourceQueryRequest.MergeOptions merge,
+            int outputLimit) {
+        if (mode == MergeMode.AGGREGATE) {
+            return query;
+        }
+        // 原查询可能以行注释结尾，右括号另起一行
+        StringBuilder sql = new StringBuilder("SELECT * FROM (\n").append(SqlAnalyzer.stripTerminator(query))
+                .append("\n) AS merge_source");
+        if (mode == MergeMode.ORDER_BY) {
+            sql.append(" ORDER BY ").append(merge.getOrderBy().stream()
+                    .map(key -> quoteIdentifier(key.getColumn()) + (key.isDescending() ? " DESC" : ""))
+                    .collect(Collectors.joining(", ")));
+        }
+        if (outputLimit < Integer.MAX_VALUE) {
+            sql.append(" LIMIT ").append(outputLimit + 1L);
+        }
+        return sql.toString();
+    }
+
+    private static boolean unionAll(List<ShardCursor> cursors, int outputLimit, List<Map<String, Object>> rows) {
+        for (ShardCursor cursor : cursors) {
+            Map<String, Object> row;
+            while ((row = cursor.next()) != null) {
+                if (rows.size() >= outputLimit) {
+                    return true;
+                }
+                rows.add(row);
+            }
+        }
+        return false;
+    }
+
+    private static boolean mergeOrdered(List<ShardCursor> cursors, RowComparator comparator, int outputLimit,
+            List<Map<String, Object>> rows) {
+        // 排序键相同时按数据源的请求顺序输出，保证结果稳定
+        PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+            int result = comparator.compare(a.row, b.row);
+            return result != 0 ? result : Integer.compare(a.shard, b.shard);
+        });
+        for (int i = 0; i < cursors.size(); i++) {
+            Map<String, Object> row = cursors.get(i).next();
+            if (row != null) {
+                heads.add(new Head(row, i));
+            }
+        }
+        while (!heads.isEmpty()) {
+            if (rows.size() >= outputLimit) {
+                return true;
+            }
+            Head head = heads.poll();
+            rows.add(head.row);
+            Map<String, Object> next = cursors.get(head.shard).next();
+            if (next != null) {
+                heads.add(new Head(next, head.shard));
+            }
+        }
+        return false;
+    }
+
+    private static boolean aggregate(List<ShardCursor> cursors, PartialAggregator aggregator,
+            MultiDatasourceQueryRequest.MergeOptions merge, int outputLimit, List<Map<String, Object>> rows) {
+        for (ShardCursor cursor : cursors) {
+            Map<String, Object> row;
+            while ((row = cursor.next()) != null) {
+                try {
+                    aggregator.add(row);
+                } catch (SQLException e) {
+                    cursor.fail(e);
+                    break;
+                }
+            }
+        }
+        List<Map<String, Object>> groups = aggregator.result();
+        if (merge.getOrderBy() != null && !merge.getOrderBy().isEmpty()) {
+            groups.sort(new RowComparator(merge.getOrderBy()));
+        }
+        rows.addAll(groups.subList(0, Math.min(outputLimit, groups.size())));
+        return groups.size() > outputLimit;
+    }
+
+    /**
+     * 在单个数据源上执行语句并打开游标（失败时返回带错误信息的游标）
+     */
+    private ShardCursor open(DatasourceConfig config, String sql, int timeout, QuerySource source,
+            QueryContext queryContext, FanoutDeadline deadline) {
+        ShardCursor cursor = new ShardCursor(config, deadline);
+        try {
+            deadline.check();
+            cursor.lease = datasourcePoolRegistry.lease(config);
+            JdbcTemplate jdbcTemplate = cursor.lease.getJdbcTemplate();
+            WorkloadClass workloadClass = costGuardService.admit(jdbcTemplate, config, config.getDatasourceCode(),
+                    sql, WorkloadClass.of(source), null);
+            cursor.permit = workloadManager.acquireConnection(workloadClass, config.getDatasourceCode(),
+                    DatasourcePoolRegistry.maxPoolSize(config), deadline);
+            deadline.check();
+            cursor.dataSource = jdbcTemplate.getDataSource();
+            cursor.connection = DataSourceUtils.getConnection(cursor.dataSource);
+            // 非自动提交模式下驱动才按fetchSize分批读取，游标才能在读到上限后停止拉取
+            if (cursor.connection.getAutoCommit()) {
+                cursor.connection.setAutoCommit(false);
+                cursor.restoreAutoCommit = true;
+            }
+            cursor.statement = cursor.connection.createStatement();
+            cursor.statement.setQueryTimeout(deadline.statementTimeoutSeconds(timeout));
+            deadline.register(cursor.statement);
+            if (jdbcTemplate.getFetchSize() > 0) {
+                cursor.statement.setFetchSize(jdbcTemplate.getFetchSize());
+            }
+            cursor.resultSet = cursor.statement.executeQuery(sql);
+            ResultSetMetaData metaData = cursor.resultSet.getMetaData();
+            cursor.labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < cursor.labels.length; i++) {
+                cursor.labels[i] = metaData.getColumnLabel(i + 1);
+            }
+        } catch (SQLException | RuntimeException e) {
+            cursor.fail(e);
+            if (queryContext != null && !cursor.timedOut) {
+                queryContext.recordFailure(e);
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * 记录单个数据源上的一次执行（指纹统计和Micrometer指标）
+     */
+    private void record(QuerySource source, String datasourceCode, String sql, String queryType,
+            long executionTime, long rows, boolean success) {
+        queryStatisticsService.record(source, datasourceCode, sql, executionTime, rows, 0, success);
+        queryMetricsService.recordQuery(source, datasourceCode, queryType, executionTime, rows, 0, success);
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * 合并执行的结果
+     */
+    @Getter
+    public static final class Outcome {
+
+        /**
+         * 各数据源的执行情况（不含数据行）
+         */
+        private final List<MultiDatasourceQueryResponse.DatasourceQueryResult> results;
+
+        /**
+         * 合并后的结果
+         */
+        private final MultiDatasourceQueryResponse.MergedResult merged;
+
+        private Outcome(List<MultiDatasourceQueryResponse.DatasourceQueryResult> results,
+                MultiDatasourceQueryResponse.MergedResult merged) {
+            this.results = results;
+            this.merged = merged;
+        }
+    }
+
+    /**
+     * 归并时某个数据源的当前行
+     */
+    private static final class Head {
+
+        private final Map<String, Object> row;
+        private final int shard;
+
+        private Head(Map<String, Object> row, int shard) {
+            this.row = row;
+            this.shard = shard;
+        }
+    }
+
+    /**
+     * 单个数据源上打开的游标
+     */
+    private static final class ShardCursor {
+
+        private final DatasourceConfig config;
+        private final FanoutDeadline deadline;
+        private final long startTime = System.currentTimeMillis();
+        private DatasourcePoolRegistry.Lease lease;
+        private WorkloadManager.ConnectionPermit permit;
+        private DataSource dataSource;
+        private Connection connection;
+        private boolean restoreAutoCommit;
+        private Statement statement;
+        private ResultSet resultSet;
+        private String[] labels;
+        private long rows;
+        private boolean exhausted;
+        private String error;
+        private boolean timedOut;
+        private long executionTime;
+
+        /**
+         * 未在截止时间内打开、由超时游标代替（不持有任何资源）
+         */
+        private boolean abandoned;
+
+        private ShardCursor(DatasourceConfig config, FanoutDeadline deadline) {
+            this.config = config;
+            this.deadline = deadline;
+        }
+
+        private static ShardCursor abandoned(DatasourceConfig config, FanoutDeadline deadline) {
+            ShardCursor cursor = new ShardCursor(config, deadline);
+            cursor.abandoned = true;
+            cursor.timeOut();
+            cursor.executionTime = deadline.getBudgetMillis();
+            return cursor;
+        }
+
+        /**
+         * 读取下一行（已读完、出错或已到截止时间时返回null）
+         */
+        private Map<String, Object> next() {
+            if (exhausted || error != null) {
+                return null;
+            }
+            if (deadline.isExpired()) {
+                timeOut();
+                return null;
+            }
+            try {
+                if (!resultSet.next()) {
+                    exhausted = true;
+                    return null;
+                }
+                Map<String, Object> row = new LinkedHashMap<>(labels.length * 4 / 3 + 1);
+                for (int i = 0; i < labels.length; i++) {
+                    row.put(labels[i], resultSet.getObject(i + 1));
+                }
+                rows++;
+                return row;
+            } catch (SQLException e) {
+                fail(e);
+                return null;
+            }
+        }
+
+        private void fail(Exception e) {
+            if (deadline.isExpired()) {
+                // 到期后语句被取消或不再执行
+                timeOut();
+                return;
+            }
+            error = e.getMessage();
+            log.error("数据源 {} 合并查询失败: {}", config.getDatasourceName(), error);
+        }
+
+        private void timeOut() {
+            timedOut = true;
+            error = String.format("超过整体截止时间（%dms）", deadline.getBudgetMillis());
+        }
+
+        /**
+         * 关闭游标并归还连接（未读完的数据不再拉取）
+         */
+        private void close() {
+            if (abandoned) {
+                return;
+            }
+            if (statement != null) {
+                deadline.unregister(statement);
+            }
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null && restoreAutoCommit) {
+                    if (error == null) {
+                        connection.commit();
+                    } else {
+                        connection.rollback();
+                    }
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.warn("关闭数据源 {} 的合并游标失败: {}", config.getDatasourceName(), e.getMessage());
+            } finally {
+                if (connection != null) {
+                    DataSourceUtils.releaseConnection(connection, dataSource);
+                }
+                if (permit != null) {
+                    permit.close();
+                }
+                if (lease != null) {
+                    lease.close();
+                }
+                executionTime = System.currentTimeMillis() - startTime;
+            }
+        }
+
+        private MultiDatasourceQueryResponse.DatasourceQueryResult toResult() {
+            return MultiDatasourceQueryResponse.DatasourceQueryResult.builder()
+                    .datasourceCode(config.getDatasourceCode())
+                    .datasourceName(config.getDatasourceName())
+                    .success(error == null)
+                    .timedOut(timedOut)
+                    .data(new ArrayList<>())
+                    .rowCount((int) rows)
+                    .rowsAffected(0)
+                    .message(error == null ? "查询成功" : timedOut ? "查询超时" : "查询失败")
+                    .error(error)
+                    .executionTime(executionTime)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.sqlexecutor.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+
+/**
+ * 按主机调度多数据源查询
+ *
+ * 多个数据源编码常常指向同一台物理服务器（同一 host:port），同时向它发起全部查询会使其过载。
+ * 任务先进入等待队列，只有所在主机和集群正在执行的任务数都低于上限时才交给线程池；
+ * 某个任务结束后按提交顺序派发下一个可执行的任务，不同主机的任务互不等待。
+ * 上限对所有请求共同生效，等待中的任务不占用线程池线程。
+ */
+@Service
+public class HostAwareScheduler {
+
+    private static final Pattern JDBC_URL_HOST = Pattern.compile("//([^/?;]+)");
+
+    @Value("${sql-executor.multi-datasource.max-concurrent-per-host:8}")
+    private int maxPerHost;
+
+    @Value("${sql-executor.multi-datasource.max-concurrent-per-cluster:16}")
+    private int maxPerCluster;
+
+    private final Deque<PendingTask<?>> pending = new ArrayDeque<>();
+    private final Map<String, Integer> runningByHost = new HashMap<>();
+    private final Map<String, Integer> runningByCluster = new HashMap<>();
+
+    /**
+     * 提交在指定数据源上执行的任务
+     *
+     * 返回的Future可以在任务开始前被完成（如超过截止时间），此时任务不再执行。
+     */
+    public <T> CompletableFuture<T> submit(DatasourceConfig config, Supplier<T> task, Executor executor) {
+        PendingTask<T> pendingTask = new PendingTask<>(hostKey(config), clusterKey(config), task, executor);
+        synchronized (this) {
+            pending.addLast(pendingTask);
+        }
+        dispatch();
+        return pendingTask.future;
+    }
+
+    /**
+     * 数据源所在的主机（host:port，小写），未配置host时从JDBC URL中解析
+     */
+    public static String hostKey(DatasourceConfig config) {
+        String host = config.getHost();
+        if (host != null && !host.isBlank()) {
+            return (host.trim() + ":" + (config.getPort() != null ? config.getPort() : "")).toLowerCase(Locale.ROOT);
+        }
+        if (config.getJdbcUrl() != null) {
+            Matcher matcher = JDBC_URL_HOST.matcher(config.getJdbcUrl());
+            if (matcher.find()) {
+                return matcher.group(1).toLowerCase(Locale.ROOT);
+            }
+        }
+        return "datasource:" + config.getDatasourceCode();
+    }
+
+    private static String clusterKey(DatasourceConfig config) {
+        String cluster = config.getClusterName();
+        return cluster != null && !cluster.isBlank() ? cluster.trim() : null;
+    }
+
+    /**
+     * 按提交顺序派发主机和集群都有空余的任务
+     */
+    private void dispatch() {
+        while (true) {
+            PendingTask<?> next = null;
+            synchronized (this) {
+                Iterator<PendingTask<?>> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    PendingTask<?> candidate = iterator.next();
+                    if (candidate.future.isDone()) {
+                        // 等待期间已被完成（超时或取消），不再执行
+                        iterator.remove();
+                        continue;
+                    }
+                    if (hasCapacity(candidate)) {
+                        iterator.remove();
+                        acquire(candidate);
+                        next = candidate;
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            start(next);
+        }
+    }
+
+    private <T> void start(PendingTask<T> task) {
+        try {
+            task.executor.execute(() -> {
+                try {
+                    if (!task.future.isDone()) {
+                        task.future.complete(task.task.get());
+                    }
+                } catch (Throwable e) {
+                    task.future.completeExceptionally(e);
+                } finally {
+                    release(task);
+                    dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(task);
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private boolean hasCapacity(PendingTask<?> task) {
+        if (maxPerHost > 0 && runningByHost.getOrDefault(task.host, 0) >= maxPerHost) {
+            return false;
+        }
+        return task.cluster == null || maxPerCluster <= 0
+                || runningByCluster.getOrDefault(task.cluster, 0) < maxPerCluster;
+    }
+
+    private void acquire(PendingTask<?> task) {
+        runningByHost.merge(task.host, 1, Integer::sum);
+        if (task.cluster != null) {
+            runningByCluster.merge(task.cluster, 1, Integer::sum);
+        }
+    }
+
+    private synchronized void release(PendingTask<?> task) {
+        runningByHost.computeIfPresent(task.host, (key, count) -> count > 1 ? count - 1 : null);
+        if (task.cluster != null) {
+            runningByCluster.computeIfPresent(task.cluster, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * 等待派发的任务
+     */
+    private static final class PendingTask<T> {
+
+        private final String host;
+        private final String cluster;
+        private final Supplier<T> task;
+        private final Executor executor;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private PendingTask(String host, String cluster, Supplier<T> task, Executor executor) {
+            this.host = host;
+            this.cluster = cluster;
+            this.task = task;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.sqlexecutor.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.util.ResultBuffer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 结果内存预算服务
+ *
+ * 维护全局的结果内存预留量。每个请求通过 {@link QueryContext} 在映射数据行时增量预留内存，
+ * 同时受单请求预算和全局预算限制，请求结束时统一归还。SPILL策略下超出预算（或单个结果超过堆上阈值）的行
+ * 写入溢出目录中的内存映射文件。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemoryGovernor {
+
+    private static final long MB = 1024L * 1024L;
+
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.memory.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 全局预算（MB），0表示取最大堆内存的40%
+     */
+    @Value("${sql-executor.memory.global-budget-mb:0}")
+    private long globalBudgetMb;
+
+    @Value("${sql-executor.memory.request-budget-mb:256}")
+    private long requestBudgetMb;
+
+    @Value("${sql-executor.memory.policy:TRUNCATE}")
+    private MemoryPolicy policy;
+
+    /**
+     * 溢出文件目录，为空时使用系统临时目录下的 sql-executor-spill
+     */
+    @Value("${sql-executor.memory.spill.directory:}")
+    private String spillDirectory;
+
+    /**
+     * 单个结果保留在堆上的上限（MB），超出部分写入磁盘
+     */
+    @Value("${sql-executor.memory.spill.heap-threshold-mb:16}")
+    private long spillHeapThresholdMb;
+
+    /**
+     * 单个结果写入磁盘的上限（MB），超出后截断
+     */
+    @Value("${sql-executor.memory.spill.max-disk-mb:4096}")
+    private long spillMaxDiskMb;
+
+    /**
+     * 溢出文件的写缓冲区大小（KB）
+     */
+    @Value("${sql-executor.memory.spill.write-buffer-kb:64}")
+    private int spillWriteBufferKb;
+
+    private long globalBudget;
+
+    private Path spillPath;
+
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        globalBudget = globalBudgetMb > 0 ? globalBudgetMb * MB : Runtime.getRuntime().maxMemory() * 2 / 5;
+        queryMetricsService.monitorMemoryGovernor(this);
+        log.info("结果内存预算: {}，全局: {}MB，单请求: {}MB，超出策略: {}",
+                enabled ? "启用" : "停用", globalBudget / MB, requestBudgetMb, policy);
+
+        if (enabled && policy == MemoryPolicy.SPILL) {
+            spillPath = spillDirectory == null || spillDirectory.isBlank()
+                    ? Paths.get(System.getProperty("java.io.tmpdir"), "sql-executor-spill")
+                    : Paths.get(spillDirectory);
+            prepareSpillDirectory();
+            log.info("结果溢出目录: {}，单个结果堆上阈值: {}MB，磁盘上限: {}MB",
+                    spillPath, spillHeapThresholdMb, spillMaxDiskMb);
+        }
+    }
+
+    /**
+     * 创建溢出目录并清理上次进程异常退出遗留的文件
+     */
+    private void prepareSpillDirectory() {
+        try {
+            Files.createDirectories(spillPath);
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spillPath, "result-*.spill")) {
+                for (Path file : leftovers) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法准备结果溢出目录: " + spillPath, e);
+        }
+    }
+
+    /**
+     * 为一个请求创建查询上下文（未启用内存预算时返回null）
+     */
+    public QueryContext newContext() {
+        if (!enabled) {
+            return null;
+        }
+        return new QueryContext(this, requestBudgetMb * MB, policy);
+    }
+
+    /**
+     * 创建结果缓冲区（仅SPILL策略下由查询上下文调用）
+     */
+    ResultBuffer createResultBuffer(String[] columnLabels) {
+        if (spillPath == null) {
+            throw new IllegalStateException("未启用结果溢出");
+        }
+        return new ResultBuffer(columnLabels, spillPath, spillHeapThresholdMb * MB, spillMaxDiskMb * MB,
+                spillWriteBufferKb * 1024);
+    }
+
+    /**
+     * 尝试从全局预算中预留内存
+     */
+    boolean tryReserve(long bytes) {
+        while (true) {
+            long current = reservedBytes.get();
+            if (current + bytes > globalBudget) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还预留的内存
+     */
+    void release(long bytes) {
+        if (bytes > 0) {
+            reservedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * 当前全局预留的字节数
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * 全局预算字节数
+     */
+    public long getGlobalBudget() {
+        return globalBudget;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.sqlexecutor.service;
+
+/**
+ * 查询结果超出内存预算时的处理策略
+ */
+public enum MemoryPolicy {
+
+    /**
+     * 截断结果，返回预算内的行并标记 truncated
+     */
+    TRUNCATE,
+
+    /**
+     * 拒绝请求
+     */
+    REJECT,
+
+    /**
+     * 将超出部分写入磁盘（内存映射的临时文件），结果完整返回
+     */
+    SPILL
+}
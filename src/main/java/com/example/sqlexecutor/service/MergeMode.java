@@ -0,0 +1,22 @@
+package com.example.sqlexecutor.service;
+
+/**
+ * 多数据源结果的合并方式
+ */
+public enum MergeMode {
+
+    /**
+     * 按数据源顺序依次拼接，达到行数上限后停止读取
+     */
+    UNION_ALL,
+
+    /**
+     * 各数据源按排序键排序，服务端k路归并，达到行数上限后停止读取
+     */
+    ORDER_BY,
+
+    /**
+     * 各数据源完成分组部分聚合，服务端合并同组的部分聚合值
+     */
+    AGGREGATE
+}
@@ -1,34 +1,39 @@
 package com.example.sqlexecutor.service;
 
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Service;
 
+import com.example.sqlexecutor.dto.ApiResponse;
 import com.example.sqlexecutor.dto.ExecuteSqlRequest;
 import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
 import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.dto.MultiDatasourceStreamEvent;
+import com.example.sqlexecutor.dto.QueryTimings;
 import com.example.sqlexecutor.entity.DatasourceConfig;
 import com.example.sqlexecutor.exception.InvalidSqlException;
-import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.example.sqlexecutor.util.PhaseTimer;
+import com.example.sqlexecutor.util.SqlAnalyzer;
 
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 /**
  * 多数据源并行查询服务
@@ -40,41 +45,51 @@ public class MultiDatasourceQueryService {
 
     private final DatasourceService datasourceService;
     private final SqlExecutionService sqlExecutionService;
-    private final PasswordEncryptor passwordEncryptor;
+    private final DatasourcePoolRegistry datasourcePoolRegistry;
+    private final QueryStatisticsService queryStatisticsService;
+    private final QueryMetricsService queryMetricsService;
+    private final WorkloadManager workloadManager;
+    private final CostGuardService costGuardService;
+    private final RowCountService rowCountService;
+    private final ResultCompareService resultCompareService;
+    private final FederatedMergeService federatedMergeService;
+    private final HostAwareScheduler hostAwareScheduler;
 
-    @Value("${sql-executor.multi-datasource.thread-pool-size:10}")
-    private int threadPoolSize;
+    @Value("${sql-executor.multi-datasource.stream-window:64}")
+    private int streamWindow;
 
-    @Value("${sql-executor.default-timeout:30000}")
-    private int defaultTimeout;
+    @Value("${sql-executor.multi-datasource.default-deadline:60000}")
+    private long defaultDeadline;
 
-    private ExecutorService executorService;
+    @Value("${sql-executor.multi-datasource.latency-ordering:true}")
+    private boolean latencyOrdering;
 
-    @PostConstruct
-    public void init() {
-        executorService = Executors.newFixedThreadPool(threadPoolSize);
-        log.info("多数据源查询服务初始化，线程池大小: {}", threadPoolSize);
-    }
-
-    @PreDestroy
-    public void destroy() {
-        if (executorService != null) {
-            executorService.shutdown();
-            log.info("多数据源查询服务线程池已关闭");
-        }
+    /**
+     * 并行执行多数据源查询
+     */
+    public MultiDatasourceQueryResponse executeMultiDatasourceQuery(MultiDatasourceQueryRequest request) {
+        return executeMultiDatasourceQuery(request, QuerySource.MULTI_QUERY);
     }
 
     /**
      * 并行执行多数据源查询
+     *
+     * @param source 执行路径（查询或导出），用于统计
      */
-    public MultiDatasourceQueryResponse executeMultiDatasourceQuery(MultiDatasourceQueryRequest request) {
+    public MultiDatasourceQueryResponse executeMultiDatasourceQuery(MultiDatasourceQueryRequest request,
+            QuerySource source) {
         long startTime = System.currentTimeMillis();
 
         log.info("开始执行多数据源并行查询，数据源数量: {}", request.getDatasourceCodes().size());
 
         try {
             // 验证SQL
-            sqlExecutionService.validateSql(request.getQuery());
+            long validationStart = System.nanoTime();
+            SqlAnalyzer.SqlAnalysis analysis = sqlExecutionService.validateSql(request.getQuery());
+            long validationNanos = System.nanoTime() - validationStart;
+            boolean isQuery = "SELECT".equals(analysis.getStatementType())
+                    || "WITH".equals(analysis.getStatementType());
+            SqlExecutionService.checkExplainAnalyze(request.getOptions(), isQuery);
 
             // 批量获取数据源配置
             Map<String, DatasourceConfig> datasourceConfigs = datasourceService
@@ -94,45 +109,42 @@ public class MultiDatasourceQueryService {
                         .build();
             }
 
-            // 并行执行查询
-            List<CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult>> futures = request
-                    .getDatasourceCodes().stream()
-                    .map(datasourceCode -> CompletableFuture.supplyAsync(() -> {
-                        DatasourceConfig config = datasourceConfigs.get(datasourceCode);
-                        return executeSingleDatasourceQuery(config, request.getQuery(), request.getOptions());
-                    }, executorService))
-                    .collect(Collectors.toList());
+            // 合并模式：各数据源的结果在服务端合并为一个结果
+            if (isQuery && request.getMerge() != null) {
+                FederatedMergeService.Outcome outcome = federatedMergeService.execute(request.getDatasourceCodes()
+                        .stream().map(datasourceConfigs::get).collect(Collectors.toList()), request.getQuery(),
+                        request.getOptions(), request.getMerge(), analysis.getStatementType(), source,
+                        createDeadline(request));
+                return buildResponse(outcome.getResults(), source, startTime, null, outcome.getMerged());
+            }
+
+            // 并行执行查询（导出任务使用独立的线程池），同一主机和集群上同时执行的数据源数受限，
+            // 各数据源共享请求的内存预算
+            Fanout fanout = prepareFanout(request, analysis.getStatementType(), isQuery, source, validationNanos,
+                    QueryContext.current());
+            ExecutorService executorService = workloadManager.getExecutor(WorkloadClass.of(source));
+            List<String> datasourceCodes = request.getDatasourceCodes();
+            List<CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult>> futures = new ArrayList<>(
+                    Collections.nCopies(datasourceCodes.size(), null));
+            for (int index : scheduleOrder(datasourceCodes, fanout)) {
+                futures.set(index, submit(fanout, datasourceConfigs.get(datasourceCodes.get(index)),
+                        executorService));
+            }
 
-            // 等待所有查询完成
+            // 等待所有查询完成（或到达截止时间）
             CompletableFuture<Void> allFutures = CompletableFuture
-                    .allOf(futures.toArray(new CompletableFuture[0]));
+                    .allOf(futures.toArray(new CompletableFuture<?>[0]));
 
             allFutures.join();
 
-            // 收集结果
+            // 收集结果（按请求中的数据源顺序）
             List<MultiDatasourceQueryResponse.DatasourceQueryResult> results = futures.stream()
                     .map(CompletableFuture::join)
                     .collect(Collectors.toList());
 
-            long totalExecutionTime = System.currentTimeMillis() - startTime;
-
-            // 检查是否有失败的查询
-            long failedCount = results.stream().filter(r -> !r.isSuccess()).count();
-            long successCount = results.stream().filter(MultiDatasourceQueryResponse.DatasourceQueryResult::isSuccess)
-                    .count();
+            MultiDatasourceQueryResponse.Comparison comparison = compare(results, fanout);
 
-            String message = String.format("多数据源查询完成: 成功 %d/%d, 失败 %d/%d",
-                    successCount, results.size(), failedCount, results.size());
-
-            log.info("{}, 总执行时间: {}ms", message, totalExecutionTime);
-
-            // 即使部分查询失败，也返回成功状态，让前端能够显示所有结果
-            return MultiDatasourceQueryResponse.builder()
-                    .success(true) // 总是返回true，以便前端可以显示所有结果标签页
-                    .message(message)
-                    .results(results)
-                    .totalExecutionTime(totalExecutionTime)
-                    .build();
+            return buildResponse(results, source, startTime, comparison, null);
 
         } catch (InvalidSqlException e) {
             log.warn("SQL验证失败: {}", e.getMessage());
@@ -153,55 +165,335 @@ public class MultiDatasourceQueryService {
         }
     }
 
+    /**
+     * 流式执行多数据源查询，每个数据源完成后立即输出其结果，全部完成后输出一条汇总事件
+     *
+     * SQL验证和数据源检查在返回前同步完成（失败时直接抛出异常），查询在订阅后执行，整体截止时间也从订阅时开始计算。
+     * 同时进行中的数据源（执行中及已完成但尚未写出的）不超过 stream-window 个，
+     * 客户端读取变慢时不再提交新的数据源查询。取消订阅（如客户端断开）时取消执行中的语句，
+     * 尚未开始的数据源不再执行。合并模式需要全部数据源参与，不支持流式输出。
+     */
+    public Flux<MultiDatasourceStreamEvent> streamMultiDatasourceQuery(MultiDatasourceQueryRequest request) {
+        QuerySource source = QuerySource.MULTI_QUERY;
+
+        long validationStart = System.nanoTime();
+        SqlAnalyzer.SqlAnalysis analysis = sqlExecutionService.validateSql(request.getQuery());
+        long validationNanos = System.nanoTime() - validationStart;
+        boolean isQuery = "SELECT".equals(analysis.getStatementType())
+                || "WITH".equals(analysis.getStatementType());
+        SqlExecutionService.checkExplainAnalyze(request.getOptions(), isQuery);
+        if (isQuery && request.getMerge() != null) {
+            throw new InvalidSqlException("流式查询不支持合并模式，请使用 /api/datasource/multi-query");
+        }
+
+        Map<String, DatasourceConfig> datasourceConfigs = datasourceService
+                .getDatasourcesByCodes(request.getDatasourceCodes());
+        List<String> missingDatasources = request.getDatasourceCodes().stream()
+                .filter(code -> !datasourceConfigs.containsKey(code))
+                .collect(Collectors.toList());
+        if (!missingDatasources.isEmpty()) {
+            throw new InvalidSqlException("以下数据源不存在或已禁用: " + String.join(", ", missingDatasources));
+        }
+
+        // 请求上下文只能在请求线程上获取，各数据源仍共享请求的内存预算
+        QueryContext queryContext = QueryContext.current();
+        ExecutorService executorService = workloadManager.getExecutor(WorkloadClass.of(source));
+        List<String> datasourceCodes = request.getDatasourceCodes();
+
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            Fanout fanout = prepareFanout(request, analysis.getStatementType(), isQuery, source, validationNanos,
+                    queryContext);
+            List<MultiDatasourceQueryResponse.DatasourceQueryResult> results = Collections
+                    .synchronizedList(new ArrayList<>());
+
+            log.info("开始流式执行多数据源查询，数据源数量: {}", datasourceCodes.size());
+            return streamResults(fanout, datasourceConfigs, executorService, results)
+                    .concatWith(Mono.fromSupplier(() -> {
+                        MultiDatasourceQueryResponse summary = buildResponse(results, source, startTime,
+                                compare(results, fanout), null);
+                        // 各数据源结果已逐条输出，汇总中不再重复
+                        summary.setResults(null);
+                        return MultiDatasourceStreamEvent.summary(summary);
+                    }))
+                    .doFinally(signal -> {
+                        // 先停止上游再取消任务，被取消的任务不再作为结果输出
+                        if (signal == SignalType.CANCEL) {
+                            log.info("流式多数据源查询已取消，停止未完成的数据源");
+                            fanout.cancel();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 按提交顺序执行各数据源，每个数据源完成后输出其结果事件
+     */
+    private Flux<MultiDatasourceStreamEvent> streamResults(Fanout fanout,
+            Map<String, DatasourceConfig> datasourceConfigs, ExecutorService executorService,
+            List<MultiDatasourceQueryResponse.DatasourceQueryResult> results) {
+        List<String> datasourceCodes = fanout.request.getDatasourceCodes();
+        return Flux.fromIterable(scheduleOrder(datasourceCodes, fanout))
+                .flatMap(index -> {
+                    DatasourceConfig config = datasourceConfigs.get(datasourceCodes.get(index));
+                    return Mono.fromFuture(() -> submit(fanout, config, executorService)).onErrorResume(e -> {
+                        // 线程池拒绝等提交失败，单个数据源查询内部的异常已转为失败结果
+                        log.error("数据源 {} 查询提交失败: {}", config.getDatasourceCode(), e.getMessage());
+                        return Mono.just(MultiDatasourceQueryResponse.DatasourceQueryResult.builder()
+                                .datasourceCode(config.getDatasourceCode())
+                                .datasourceName(config.getDatasourceName())
+                                .success(false)
+                                .data(new ArrayList<>())
+                                .message("查询失败")
+                                .error(e.getMessage())
+                                .build());
+                    });
+                }, Math.max(1, streamWindow))
+                .doOnNext(results::add)
+                .map(MultiDatasourceStreamEvent::result);
+    }
+
+    /**
+     * 准备一次多数据源查询中各数据源任务共享的参数
+     */
+    private Fanout prepareFanout(MultiDatasourceQueryRequest request, String queryType, boolean isQuery,
+            QuerySource source, long validationNanos, QueryContext queryContext) {
+        // 比对模式只计算各数据源的结果摘要，不返回数据行
+        MultiDatasourceQueryRequest.CompareOptions compare = isQuery ? request.getCompare() : null;
+        Map<String, Long> predictions = latencyOrdering
+                ? queryStatisticsService.predictMillis(request.getQuery(), request.getDatasourceCodes())
+                : Map.of();
+        // 整体截止时间从验证完成后开始计算，到期后未完成的数据源标记为超时
+        return new Fanout(request, queryType, isQuery, compare, source, validationNanos, queryContext,
+                createDeadline(request), predictions);
+    }
+
+    /**
+     * 数据源的提交顺序（请求中的下标）
+     *
+     * 按历史耗时由长到短提交（最长处理时间优先），最慢的数据源最先占用线程、主机名额和连接，
+     * 整体完成时间不再取决于排在最后的慢查询。没有历史记录的数据源视为最慢，耗时相同时保持请求顺序。
+     */
+    private static List<Integer> scheduleOrder(List<String> datasourceCodes, Fanout fanout) {
+        List<Integer> order = new ArrayList<>(datasourceCodes.size());
+        for (int i = 0; i < datasourceCodes.size(); i++) {
+            order.add(i);
+        }
+        if (!fanout.predictions.isEmpty()) {
+            order.sort(Comparator.comparingLong((Integer index) -> fanout.predictions
+                    .getOrDefault(datasourceCodes.get(index), Long.MAX_VALUE)).reversed());
+        }
+        return order;
+    }
+
+    /**
+     * 将单个数据源的任务交给按主机调度的线程池，并加上整体截止时间
+     *
+     * 任务在完成前登记在 fanout 中，整个查询被取消时尚在排队的任务不再执行。
+     */
+    private CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult> submit(Fanout fanout,
+            DatasourceConfig config, ExecutorService executorService) {
+        long submittedAt = System.nanoTime();
+        CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult> task = hostAwareScheduler.submit(
+                config, () -> executeDatasourceTask(config, fanout, submittedAt), executorService);
+        fanout.tasks.add(task);
+        task.whenComplete((result, e) -> fanout.tasks.remove(task));
+        if (fanout.deadline.isCancelled()) {
+            // 提交与取消并发时，由这里取消刚提交的任务
+            task.cancel(false);
+        }
+        return withDeadline(task, config, fanout.deadline);
+    }
+
+    /**
+     * 比对模式下汇总各数据源的结果摘要
+     */
+    private MultiDatasourceQueryResponse.Comparison compare(
+            List<MultiDatasourceQueryResponse.DatasourceQueryResult> results, Fanout fanout) {
+        if (fanout.compare == null) {
+            return null;
+        }
+        List<String> succeeded;
+        synchronized (results) {
+            succeeded = results.stream()
+                    .filter(MultiDatasourceQueryResponse.DatasourceQueryResult::isSuccess)
+                    .map(MultiDatasourceQueryResponse.DatasourceQueryResult::getDatasourceCode)
+                    .collect(Collectors.toList());
+        }
+        return resultCompareService.compare(succeeded, fanout.digests, fanout.compare);
+    }
+
+    /**
+     * 在线程池中执行单个数据源的查询或摘要计算
+     */
+    private MultiDatasourceQueryResponse.DatasourceQueryResult executeDatasourceTask(DatasourceConfig config,
+            Fanout fanout, long submittedAt) {
+        // 在线程池中排队期间已到达截止时间，不再执行
+        if (fanout.deadline.isExpired()) {
+            return timedOutResult(config, fanout.deadline);
+        }
+        MultiDatasourceQueryRequest request = fanout.request;
+        PhaseTimer phaseTimer = null;
+        if (request.getOptions() != null && Boolean.TRUE.equals(request.getOptions().getTimings())) {
+            phaseTimer = new PhaseTimer();
+            phaseTimer.setValidationNanos(fanout.validationNanos);
+            phaseTimer.setQueueWaitNanos(System.nanoTime() - submittedAt);
+        }
+        MultiDatasourceQueryResponse.DatasourceQueryResult result = fanout.compare != null
+                ? executeSingleDatasourceDigest(config, request.getQuery(), request.getOptions(), fanout.compare,
+                        fanout.queryType, fanout.source, phaseTimer, fanout.digests, fanout.queryContext,
+                        fanout.deadline)
+                : executeSingleDatasourceQuery(config, request.getQuery(), request.getOptions(), fanout.isQuery,
+                        fanout.queryType, fanout.source, phaseTimer, fanout.queryContext, fanout.deadline);
+        if (result.getTimings() != null) {
+            Long predicted = fanout.predictions.get(config.getDatasourceCode());
+            result.getTimings().setPredicted(predicted != null ? predicted.doubleValue() : null);
+            result.getTimings().setCompletion(QueryTimings.toMillis(System.nanoTime() - fanout.startNanos));
+        }
+        return result;
+    }
+
+    /**
+     * 按请求或默认值创建整体截止时间（不大于0时不限制，仍用于取消）
+     */
+    private FanoutDeadline createDeadline(MultiDatasourceQueryRequest request) {
+        return new FanoutDeadline(request.getDeadline() != null ? request.getDeadline() : defaultDeadline);
+    }
+
+    /**
+     * 为单个数据源的任务加上截止时间：到期时取消所有执行中的语句，该数据源的结果标记为超时，
+     * 尚未开始执行的任务不再执行
+     */
+    private CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult> withDeadline(
+            CompletableFuture<MultiDatasourceQueryResponse.DatasourceQueryResult> future, DatasourceConfig config,
+            FanoutDeadline deadline) {
+        if (!deadline.isBounded()) {
+            return future;
+        }
+        return future.orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    if (!(e instanceof TimeoutException)) {
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                    }
+                    deadline.expire();
+                    log.warn("数据源 {} 未在截止时间（{}ms）内完成", config.getDatasourceCode(),
+                            deadline.getBudgetMillis());
+                    return timedOutResult(config, deadline);
+                });
+    }
+
+    private static MultiDatasourceQueryResponse.DatasourceQueryResult timedOutResult(DatasourceConfig config,
+            FanoutDeadline deadline) {
+        return MultiDatasourceQueryResponse.DatasourceQueryResult.builder()
+                .datasourceCode(config.getDatasourceCode())
+                .datasourceName(config.getDatasourceName())
+                .success(false)
+                .timedOut(true)
+                .data(new ArrayList<>())
+                .message("查询超时")
+                .error(String.format("超过整体截止时间（%dms）", deadline.getBudgetMillis()))
+                .executionTime(deadline.getBudgetMillis())
+                .build();
+    }
+
+    /**
+     * 汇总各数据源的执行情况，构建响应
+     */
+    private MultiDatasourceQueryResponse buildResponse(List<MultiDatasourceQueryResponse.DatasourceQueryResult> results,
+            QuerySource source, long startTime, MultiDatasourceQueryResponse.Comparison comparison,
+            MultiDatasourceQueryResponse.MergedResult merged) {
+        long totalExecutionTime = System.currentTimeMillis() - startTime;
+
+        // 检查是否有失败的查询
+        long failedCount = results.stream().filter(r -> !r.isSuccess()).count();
+        long successCount = results.stream().filter(MultiDatasourceQueryResponse.DatasourceQueryResult::isSuccess)
+                .count();
+
+        long timedOutCount = results.stream()
+                .filter(MultiDatasourceQueryResponse.DatasourceQueryResult::isTimedOut).count();
+
+        String message = String.format("多数据源查询完成: 成功 %d/%d, 失败 %d/%d",
+                successCount, results.size(), failedCount, results.size());
+        if (timedOutCount > 0) {
+            message += String.format("（其中超时 %d）", timedOutCount);
+        }
+
+        log.info("{}, 总执行时间: {}ms", message, totalExecutionTime);
+        queryMetricsService.recordFanout(source, results.size(), (int) failedCount, totalExecutionTime);
+
+        // 即使部分查询失败，也返回成功状态，让前端能够显示所有结果
+        return MultiDatasourceQueryResponse.builder()
+                .success(true) // 总是返回true，以便前端可以显示所有结果标签页
+                .message(message)
+                .results(results)
+                .totalExecutionTime(totalExecutionTime)
+                .deadlineExceeded(timedOutCount > 0)
+                .comparison(comparison)
+                .merged(merged)
+                .build();
+    }
+
     /**
      * 执行单个数据源查询
      */
     private MultiDatasourceQueryResponse.DatasourceQueryResult executeSingleDatasourceQuery(
-            DatasourceConfig config, String query, ExecuteSqlRequest.QueryOptions options) {
+            DatasourceConfig config, String query, ExecuteSqlRequest.QueryOptions options,
+            boolean isQuery, String queryType, QuerySource source, PhaseTimer phaseTimer,
+            QueryContext queryContext, FanoutDeadline deadline) {
 
         long startTime = System.currentTimeMillis();
 
         try {
             log.info("开始查询数据源: {} [{}]", config.getDatasourceName(), config.getDatasourceCode());
 
-            // 创建数据源连接
-            DriverManagerDataSource dataSource = new DriverManagerDataSource();
-            dataSource.setDriverClassName(config.getDriverClass());
-            dataSource.setUrl(config.getJdbcUrl());
-            dataSource.setUsername(config.getUsername());
-
-            // 解密密码
-            String password = config.getPassword();
-            if (passwordEncryptor.isEncrypted(password)) {
-                password = passwordEncryptor.decrypt(password);
-            }
-            dataSource.setPassword(password);
-
-            // 创建JdbcTemplate
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-
-            // 设置查询超时
-            int timeout = options != null && options.getTimeout() != null ? options.getTimeout() : defaultTimeout;
-            jdbcTemplate.setQueryTimeout(timeout / 1000);
-
-            // 执行查询
-            List<Map<String, Object>> results = jdbcTemplate.query(query, new RowMapper<Map<String, Object>>() {
-                @Override
-                public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    ResultSetMetaData metaData = rs.getMetaData();
-                    Map<String, Object> row = new LinkedHashMap<>();
-
-                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                        String columnName = metaData.getColumnLabel(i);
-                        Object value = rs.getObject(i);
-                        row.put(columnName, value);
-                    }
+            // 从数据源连接池注册表租用连接池（连接池按数据源复用）
+            Long estimatedRowCount;
+            QueryResult queryResult;
+            String rowCountToken = null;
+            try (DatasourcePoolRegistry.Lease lease = datasourcePoolRegistry.lease(config)) {
+                JdbcTemplate jdbcTemplate = lease.getJdbcTemplate();
+
+                // 执行查询（超时、列信息和执行计划由查询选项控制），导出任务只能占用连接池的一部分，
+                // 估算代价超过该数据源阈值的语句转入后台通道或被拒绝（预览只读取少量行，不做检查）
+                WorkloadClass workloadClass = SqlExecutionService.isPreview(options, isQuery)
+                        ? WorkloadClass.of(source)
+                        : costGuardService.admit(jdbcTemplate, config, config.getDatasourceCode(), query,
+                                WorkloadClass.of(source), phaseTimer);
+                estimatedRowCount = isQuery && options != null && Boolean.TRUE.equals(options.getEstimateRowCount())
+                        ? rowCountService.estimate(jdbcTemplate, query, phaseTimer)
+                        : null;
+                try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(workloadClass,
+                        config.getDatasourceCode(), DatasourcePoolRegistry.maxPoolSize(config), deadline)) {
+                    queryResult = sqlExecutionService.query(jdbcTemplate, query, options, isQuery, phaseTimer,
+                            queryContext, deadline);
+                }
 
-                    return row;
+                // 结果未被截断时已读到全部行，精确行数无需再扫描一遍
+                if (isQuery && options != null && Boolean.TRUE.equals(options.getExactRowCount())) {
+                    rowCountToken = !queryResult.isTruncated() && queryResult.getSamplingMethod() == null
+                            ? rowCountService.completedCount(config.getDatasourceCode(), queryResult.getRows().size())
+                            : rowCountService.startExactCount(lease, config.getDatasourceCode(),
+                                    DatasourcePoolRegistry.maxPoolSize(config), query);
                 }
-            });
+            }
+            List<Map<String, Object>> results = queryResult.getRows();
 
             long executionTime = System.currentTimeMillis() - startTime;
+            queryMetricsService.recordConnectionAcquire(config.getDatasourceCode(),
+                    queryResult.getConnectionWaitNanos());
+            record(source, config.getDatasourceCode(), query, queryType, executionTime,
+                    isQuery ? results.size() : queryResult.getRowsAffected(), queryResult.getEstimatedBytes(), true);
+
+            ApiResponse.Metadata metadata = null;
+            if ((options != null && Boolean.TRUE.equals(options.getIncludeMetadata()))
+                    || queryResult.getExecutionPlan() != null) {
+                metadata = ApiResponse.Metadata.builder()
+                        .queryType(queryType)
+                        .database(config.getDatabaseName())
+                        .columns(queryResult.getColumns() != null ? queryResult.getColumns() : new ArrayList<>())
+                        .executionPlan(queryResult.getExecutionPlan())
+                        .build();
+            }
 
             log.info("数据源 {} 查询成功，返回 {} 行数据，耗时 {}ms",
                     config.getDatasourceName(), results.size(), executionTime);
@@ -212,13 +504,28 @@ public class MultiDatasourceQueryService {
                     .success(true)
                     .data(results)
                     .rowCount(results.size())
-                    .rowsAffected(0)
+                    .rowsAffected(queryResult.getRowsAffected())
                     .message("查询成功")
                     .executionTime(executionTime)
+                    .truncated(queryResult.isTruncated())
+                    .truncationReason(queryResult.getTruncationReason())
+                    .sampled(queryResult.getSamplingMethod() != null)
+                    .samplingMethod(queryResult.getSamplingMethod())
+                    .samplingRatio(queryResult.getSamplingRatio())
+                    .estimatedRowCount(estimatedRowCount)
+                    .rowCountToken(rowCountToken)
+                    .metadata(metadata)
+                    .timings(phaseTimer != null
+                            ? phaseTimer.finish(isQuery ? results.size() : queryResult.getRowsAffected())
+                            : null)
                     .build();
 
         } catch (Exception e) {
             long executionTime = System.currentTimeMillis() - startTime;
+            record(source, config.getDatasourceCode(), query, queryType, executionTime, 0, 0, false);
+            if (queryContext != null) {
+                queryContext.recordFailure(e);
+            }
 
             log.error("数据源 {} 查询失败: {}", config.getDatasourceName(), e.getMessage());
 
@@ -235,4 +542,128 @@ public class MultiDatasourceQueryService {
                     .build();
         }
     }
+
+    /**
+     * 在单个数据源上计算结果摘要（比对模式）
+     */
+    private MultiDatasourceQueryResponse.DatasourceQueryResult executeSingleDatasourceDigest(
+            DatasourceConfig config, String query, ExecuteSqlRequest.QueryOptions options,
+            MultiDatasourceQueryRequest.CompareOptions compare, String queryType, QuerySource source,
+            PhaseTimer phaseTimer, Map<String, ResultCompareService.Digest> digests, QueryContext queryContext,
+            FanoutDeadline deadline) {
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            log.info("开始计算数据源结果摘要: {} [{}]", config.getDatasourceName(), config.getDatasourceCode());
+
+            ResultCompareService.Digest digest;
+            try (DatasourcePoolRegistry.Lease lease = datasourcePoolRegistry.lease(config)) {
+                JdbcTemplate jdbcTemplate = lease.getJdbcTemplate();
+                WorkloadClass workloadClass = costGuardService.admit(jdbcTemplate, config,
+                        config.getDatasourceCode(), query, WorkloadClass.of(source), phaseTimer);
+                try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(workloadClass,
+                        config.getDatasourceCode(), DatasourcePoolRegistry.maxPoolSize(config), deadline)) {
+                    deadline.check();
+                    int timeout = deadline.statementTimeoutSeconds(sqlExecutionService.timeoutSeconds(options));
+                    digest = resultCompareService.digest(jdbcTemplate, query, compare, timeout, phaseTimer,
+                            deadline);
+                }
+            }
+            digests.put(config.getDatasourceCode(), digest);
+
+            long executionTime = System.currentTimeMillis() - startTime;
+            record(source, config.getDatasourceCode(), query, queryType, executionTime, digest.getRowCount(), 0,
+                    true);
+
+            log.info("数据源 {} 结果摘要计算完成，共 {} 行，耗时 {}ms",
+                    config.getDatasourceName(), digest.getRowCount(), executionTime);
+
+            return MultiDatasourceQueryResponse.DatasourceQueryResult.builder()
+                    .datasourceCode(config.getDatasourceCode())
+                    .datasourceName(config.getDatasourceName())
+                    .success(true)
+                    .data(new ArrayList<>())
+                    .rowCount((int) Math.min(Integer.MAX_VALUE, digest.getRowCount()))
+                    .rowsAffected(0)
+                    .message("摘要计算成功")
+                    .executionTime(executionTime)
+                    .checksum(digest.getChecksum())
+                    .blockCount(digest.getBlockCount())
+                    .merkleRoot(digest.getMerkleRoot())
+                    .timings(phaseTimer != null ? phaseTimer.finish(digest.getRowCount()) : null)
+                    .build();
+
+        } catch (Exception e) {
+            long executionTime = System.currentTimeMillis() - startTime;
+            record(source, config.getDatasourceCode(), query, queryType, executionTime, 0, 0, false);
+            if (queryContext != null) {
+                queryContext.recordFailure(e);
+            }
+
+            log.error("数据源 {} 结果摘要计算失败: {}", config.getDatasourceName(), e.getMessage());
+
+            return MultiDatasourceQueryResponse.DatasourceQueryResult.builder()
+                    .datasourceCode(config.getDatasourceCode())
+                    .datasourceName(config.getDatasourceName())
+                    .success(false)
+                    .data(new ArrayList<>())
+                    .rowCount(0)
+                    .rowsAffected(0)
+                    .message("摘要计算失败")
+                    .error(e.getMessage())
+                    .executionTime(executionTime)
+                    .build();
+        }
+    }
+
+    /**
+     * 记录单个数据源上的一次执行（指纹统计和Micrometer指标）
+     */
+    private void record(QuerySource source, String datasourceCode, String sql, String queryType,
+            long executionTime, long rows, long bytes, boolean success) {
+        queryStatisticsService.record(source, datasourceCode, sql, executionTime, rows, bytes, success);
+        queryMetricsService.recordQuery(source, datasourceCode, queryType, executionTime, rows, bytes, success);
+    }
+
+    /**
+     * 一次多数据源查询中各数据源任务共享的参数
+     */
+    private static final class Fanout {
+
+        private final MultiDatasourceQueryRequest request;
+        private final String queryType;
+        private final boolean isQuery;
+        private final MultiDatasourceQueryRequest.CompareOptions compare;
+        private final QuerySource source;
+        private final long validationNanos;
+        private final QueryContext queryContext;
+        private final FanoutDeadline deadline;
+        private final Map<String, Long> predictions;
+        private final Map<String, ResultCompareService.Digest> digests = new ConcurrentHashMap<>();
+        private final Set<CompletableFuture<?>> tasks = ConcurrentHashMap.newKeySet();
+        private final long startNanos = System.nanoTime();
+
+        private Fanout(MultiDatasourceQueryRequest request, String queryType, boolean isQuery,
+                MultiDatasourceQueryRequest.CompareOptions compare, QuerySource source, long validationNanos,
+                QueryContext queryContext, FanoutDeadline deadline, Map<String, Long> predictions) {
+            this.request = request;
+            this.queryType = queryType;
+            this.isQuery = isQuery;
+            this.compare = compare;
+            this.source = source;
+            this.validationNanos = validationNanos;
+            this.queryContext = queryContext;
+            this.deadline = deadline;
+            this.predictions = predictions;
+        }
+
+        /**
+         * 取消整个查询：取消执行中的语句，尚在排队的任务不再执行
+         */
+        private void cancel() {
+            deadline.cancel();
+            tasks.forEach(task -> task.cancel(false));
+        }
+    }
 }
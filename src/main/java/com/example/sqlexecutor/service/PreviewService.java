@@ -0,0 +1,124 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.util.PreviewRewriter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 预览查询服务
+ *
+ * 预览模式下，简单单表查询按 pg_class.reltuples 估算的表行数改写为 TABLESAMPLE 抽样（大表用按数据页抽样的
+ * SYSTEM，其余用按行抽样的 BERNOULLI），只读取目标行数附近的数据；其他查询原样执行，读取到目标行数后
+ * 立即关闭游标。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewService {
+
+    /**
+     * 不抽样时的方法名（只读取前若干行）
+     */
+    private static final String PREFIX = "PREFIX";
+
+    @Value("${sql-executor.preview.default-rows:100}")
+    private int defaultRows;
+
+    @Value("${sql-executor.preview.max-rows:1000}")
+    private int maxRows;
+
+    /**
+     * 抽样比例放大系数，抵消抽样的随机波动，保证大概率拿到目标行数
+     */
+    @Value("${sql-executor.preview.oversample:2.0}")
+    private double oversample;
+
+    /**
+     * 表估算行数达到该值时使用 SYSTEM 抽样，否则使用 BERNOULLI
+     */
+    @Value("${sql-executor.preview.system-threshold:1000000}")
+    private long systemThreshold;
+
+    /**
+     * 生成预览执行计划
+     *
+     * @param connection 执行查询所用的同一连接
+     * @param sql        原始SQL
+     * @param rows       请求的预览行数（为null时使用默认值）
+     */
+    public Plan plan(Connection connection, String sql, Integer rows) throws SQLException {
+        int targetRows = Math.max(1, Math.min(maxRows, rows != null ? rows : defaultRows));
+
+        PreviewRewriter.SimpleSelect select = PreviewRewriter.parse(sql);
+        if (select != null) {
+            double tableRows = estimateTableRows(connection, select.getTable());
+            double sampleRows = targetRows * oversample;
+            if (tableRows > sampleRows) {
+                double percent = Math.min(100, sampleRows * 100 / tableRows);
+                String method = tableRows >= systemThreshold ? "SYSTEM" : "BERNOULLI";
+                log.debug("预览查询改写为 {} 抽样，表 {} 估算 {} 行，抽样 {}%", method, select.getTable(), tableRows,
+                        percent);
+                return new Plan(PreviewRewriter.rewrite(sql, select, method, percent, targetRows), method,
+                        percent / 100, targetRows);
+            }
+        }
+        return new Plan(sql, PREFIX, null, targetRows);
+    }
+
+    /**
+     * 表的估算行数（来自统计信息，表不存在或从未分析时返回0）
+     */
+    private double estimateTableRows(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT reltuples FROM pg_class WHERE oid = to_regclass(?)")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? Math.max(0, rs.getDouble(1)) : 0;
+            }
+        }
+    }
+
+    /**
+     * 预览执行计划
+     */
+    @Getter
+    public static final class Plan {
+
+        /**
+         * 实际执行的SQL
+         */
+        private final String sql;
+
+        /**
+         * 抽样方法：SYSTEM、BERNOULLI 或 PREFIX（只读取前若干行）
+         */
+        private final String method;
+
+        /**
+         * 抽样比例（0~1，PREFIX时为null）
+         */
+        private final Double ratio;
+
+        /**
+         * 最多读取的行数
+         */
+        private final int rowLimit;
+
+        private Plan(String sql, String method, Double ratio, int rowLimit) {
+            this.sql = sql;
+            this.method = method;
+            this.ratio = ratio;
+            this.rowLimit = rowLimit;
+        }
+    }
+}
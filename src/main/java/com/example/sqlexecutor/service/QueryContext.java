@@ -0,0 +1,131 @@
+package com.example.sqlexecutor.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.example.sqlexecutor.exception.ResultMemoryExceededException;
+import com.example.sqlexecutor.util.OverloadSignals;
+import com.example.sqlexecutor.util.ResultBuffer;
+
+/**
+ * 请求级查询上下文
+ *
+ * 记录一个HTTP请求中所有查询结果的内存预留量（多数据源查询的各工作线程共享同一个上下文），
+ * 由拦截器在请求开始时创建、请求结束时关闭并归还全部预留，同时删除本请求的结果溢出文件。
+ */
+public class QueryContext implements AutoCloseable {
+
+    /**
+     * 请求属性名
+     */
+    public static final String ATTRIBUTE = QueryContext.class.getName();
+
+    private final MemoryGovernor governor;
+    private final long requestBudget;
+    private final MemoryPolicy policy;
+
+    private long reservedBytes;
+
+    private final List<ResultBuffer> resultBuffers = new ArrayList<>();
+
+    private boolean closed;
+
+    private volatile boolean overloaded;
+
+    QueryContext(MemoryGovernor governor, long requestBudget, MemoryPolicy policy) {
+        this.governor = governor;
+        this.requestBudget = requestBudget;
+        this.policy = policy;
+    }
+
+    /**
+     * 当前请求的查询上下文（不在请求线程中或未启用时返回null）
+     */
+    public static QueryContext current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (QueryContext) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * 预留内存
+     *
+     * @throws ResultMemoryExceededException 超出单请求预算或全局预算
+     */
+    public synchronized void reserve(long bytes) {
+        if (closed || reservedBytes + bytes > requestBudget) {
+            throw new ResultMemoryExceededException(
+                    String.format("结果超出单个请求的内存预算（%dMB）", requestBudget / 1024 / 1024), false);
+        }
+        if (!governor.tryReserve(bytes)) {
+            throw new ResultMemoryExceededException(
+                    String.format("服务器结果内存预算已用尽（%dMB）", governor.getGlobalBudget() / 1024 / 1024), true);
+        }
+        reservedBytes += bytes;
+    }
+
+    /**
+     * 创建一个可溢出到磁盘的结果缓冲区，请求结束时自动关闭
+     *
+     * @param columnLabels 列标签
+     */
+    public synchronized ResultBuffer newResultBuffer(String[] columnLabels) {
+        if (closed) {
+            throw new IllegalStateException("查询上下文已关闭");
+        }
+        ResultBuffer buffer = governor.createResultBuffer(columnLabels);
+        resultBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * 记录本请求中的一次失败，属于过载信号时标记本请求过载
+     * （多数据源查询中单个数据源的失败不会反映在响应状态码上）
+     */
+    public void recordFailure(Throwable error) {
+        if (OverloadSignals.isOverload(error)) {
+            overloaded = true;
+        }
+    }
+
+    /**
+     * 本请求中是否出现过过载信号
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * 超出预算时的处理策略
+     */
+    public MemoryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 当前请求已预留的字节数
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * 归还全部预留并关闭结果缓冲区（可重复调用）
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        governor.release(reservedBytes);
+        reservedBytes = 0;
+        resultBuffers.forEach(ResultBuffer::close);
+        resultBuffers.clear();
+    }
+}
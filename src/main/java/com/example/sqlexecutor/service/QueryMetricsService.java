@@ -0,0 +1,252 @@
+package com.example.sqlexecutor.service;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.util.AdaptiveConcurrencyLimiter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 查询指标服务
+ *
+ * 基于Micrometer记录查询、多数据源并行查询和Excel导出的耗时、行数和数据量，
+ * 通过 /actuator/prometheus 暴露给Prometheus抓取。
+ */
+@Service
+@RequiredArgsConstructor
+public class QueryMetricsService {
+
+    private static final Duration[] LATENCY_SLOS = {
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(10),
+            Duration.ofSeconds(30)
+    };
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 记录一次语句执行
+     *
+     * @param source         执行路径
+     * @param datasourceCode 数据源编码
+     * @param queryType      语句类型
+     * @param elapsedMillis  耗时（毫秒）
+     * @param rows           返回行数或受影响行数
+     * @param bytes          返回数据字节数（估算）
+     * @param success        是否成功
+     */
+    public void recordQuery(QuerySource source, String datasourceCode, String queryType, long elapsedMillis,
+            long rows, long bytes, boolean success) {
+        String endpoint = source.getTag();
+        String type = queryType != null ? queryType : "UNKNOWN";
+
+        Timer.builder("sqlexecutor.query.duration")
+                .description("SQL语句执行耗时")
+                .tag("endpoint", endpoint)
+                .tag("datasource", datasourceCode)
+                .tag("query.type", type)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(LATENCY_SLOS)
+                .register(meterRegistry)
+                .record(elapsedMillis, TimeUnit.MILLISECONDS);
+
+        if (!success) {
+            return;
+        }
+
+        DistributionSummary.builder("sqlexecutor.query.rows")
+                .description("每次查询返回或影响的行数")
+                .tag("endpoint", endpoint)
+                .tag("datasource", datasourceCode)
+                .tag("query.type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows);
+
+        DistributionSummary.builder("sqlexecutor.query.response.bytes")
+                .description("每次查询返回数据的估算字节数")
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .tag("datasource", datasourceCode)
+                .tag("query.type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * 记录一次多数据源并行查询的总耗时
+     */
+    public void recordFanout(QuerySource source, int datasourceCount, int failedCount, long elapsedMillis) {
+        Timer.builder("sqlexecutor.fanout.duration")
+                .description("多数据源并行查询总耗时")
+                .tag("endpoint", source.getTag())
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(LATENCY_SLOS)
+                .register(meterRegistry)
+                .record(elapsedMillis, TimeUnit.MILLISECONDS);
+
+        DistributionSummary.builder("sqlexecutor.fanout.datasources")
+                .description("每次并行查询涉及的数据源数量")
+                .tag("endpoint", source.getTag())
+                .register(meterRegistry)
+                .record(datasourceCount);
+
+        if (failedCount > 0) {
+            meterRegistry.counter("sqlexecutor.fanout.failures", "endpoint", source.getTag())
+                    .increment(failedCount);
+        }
+    }
+
+    /**
+     * 记录一次导出文件生成
+     *
+     * @param format        文件格式（xlsx、zip）
+     * @param fileBytes     文件大小（字节）
+     * @param elapsedMillis 生成耗时（毫秒）
+     */
+    public void recordExport(String format, long fileBytes, long elapsedMillis) {
+        Timer.builder("sqlexecutor.export.duration")
+                .description("导出文件生成耗时")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedMillis, TimeUnit.MILLISECONDS);
+
+        DistributionSummary.builder("sqlexecutor.export.file.size")
+                .description("导出文件大小")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(fileBytes);
+    }
+
+    /**
+     * 记录多数据源导出中单个工作簿各阶段的耗时
+     *
+     * @param queueWaitNanos 提交到开始执行的等待时间
+     * @param queryNanos     准入、执行查询并写入数据行的耗时
+     * @param workbookNanos  生成工作簿临时文件的耗时
+     * @param zipNanos       写入ZIP的耗时
+     */
+    public void recordExportEntry(long queueWaitNanos, long queryNanos, long workbookNanos, long zipNanos) {
+        recordExportPhase("queue", queueWaitNanos);
+        recordExportPhase("query", queryNanos);
+        recordExportPhase("workbook", workbookNanos);
+        recordExportPhase("zip", zipNanos);
+    }
+
+    private void recordExportPhase(String phase, long elapsedNanos) {
+        Timer.builder("sqlexecutor.export.entry.duration")
+                .description("多数据源导出中单个工作簿各阶段耗时")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录获取数据源连接的等待时间
+     */
+    public void recordConnectionAcquire(String datasourceCode, long elapsedNanos) {
+        Timer.builder("sqlexecutor.datasource.connection.acquire")
+                .description("获取数据库连接的等待时间")
+                .tag("datasource", datasourceCode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为线程池注册执行器指标（队列深度、活跃线程、任务耗时等）
+     */
+    public ExecutorService monitor(ExecutorService executorService, String name) {
+        return ExecutorServiceMetrics.monitor(meterRegistry, executorService, name);
+    }
+
+    /**
+     * 为并发限制器注册指标（当前上限、进行中请求数、拒绝数）
+     */
+    public void monitorConcurrencyLimiter(AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("sqlexecutor.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("自适应并发上限")
+                .tag("endpoint", limiter.getName())
+                .register(meterRegistry);
+
+        Gauge.builder("sqlexecutor.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("进行中的请求数")
+                .tag("endpoint", limiter.getName())
+                .register(meterRegistry);
+
+        Gauge.builder("sqlexecutor.concurrency.baseline", limiter,
+                AdaptiveConcurrencyLimiter::getBaselineLatencyMillis)
+                .description("并发限制器的基线耗时（毫秒）")
+                .tag("endpoint", limiter.getName())
+                .register(meterRegistry);
+
+        FunctionCounter.builder("sqlexecutor.concurrency.rejected", limiter,
+                AdaptiveConcurrencyLimiter::getRejectedCount)
+                .description("超过并发上限被拒绝的请求数")
+                .tag("endpoint", limiter.getName())
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为结果内存预算注册指标（全局预留量、预算）
+     */
+    public void monitorMemoryGovernor(MemoryGovernor memoryGovernor) {
+        Gauge.builder("sqlexecutor.memory.reserved", memoryGovernor, MemoryGovernor::getReservedBytes)
+                .description("查询结果当前预留的内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Gauge.builder("sqlexecutor.memory.budget", memoryGovernor, MemoryGovernor::getGlobalBudget)
+                .description("查询结果全局内存预算")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次结果超出内存预算
+     *
+     * @param policy 处理策略
+     * @param global 是否为全局预算不足
+     */
+    public void recordMemoryExceeded(MemoryPolicy policy, boolean global) {
+        meterRegistry.counter("sqlexecutor.memory.exceeded",
+                "policy", policy.name().toLowerCase(), "scope", global ? "global" : "request").increment();
+    }
+
+    /**
+     * 记录一次结果溢出到磁盘
+     *
+     * @param bytes 写入磁盘的字节数
+     */
+    public void recordSpill(long bytes) {
+        meterRegistry.counter("sqlexecutor.memory.spilled").increment();
+        meterRegistry.counter("sqlexecutor.memory.spilled.bytes").increment(bytes);
+    }
+
+    /**
+     * 记录一次查询代价检查
+     *
+     * @param datasourceCode 数据源编码
+     * @param action         超过阈值时采取的动作
+     * @param exceeded       是否超过阈值
+     */
+    public void recordCostGuard(String datasourceCode, CostGuardAction action, boolean exceeded) {
+        meterRegistry.counter("sqlexecutor.cost.guard", "datasource", datasourceCode,
+                "outcome", exceeded ? action.name().toLowerCase() : "pass").increment();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.sqlexecutor.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.sqlexecutor.dto.ApiResponse;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 单次语句执行的结果
+ */
+@Getter
+@Builder
+public class QueryResult {
+
+    /**
+     * 查询返回的数据行（更新语句为空列表）
+     */
+    private final List<Map<String, Object>> rows;
+
+    /**
+     * 受影响的行数（查询语句为0）
+     */
+    private final int rowsAffected;
+
+    /**
+     * 列信息（未采集时为null）
+     */
+    private final List<ApiResponse.ColumnInfo> columns;
+
+    /**
+     * 执行计划（未开启时为null）
+     */
+    private final Map<String, Object> executionPlan;
+
+    /**
+     * 估算的结果数据字节数
+     */
+    private final long estimatedBytes;
+
+    /**
+     * 获取数据库连接的等待时间（纳秒）
+     */
+    private final long connectionWaitNanos;
+
+    /**
+     * 结果是否因超出内存预算被截断
+     */
+    private final boolean truncated;
+
+    /**
+     * 截断原因
+     */
+    private final String truncationReason;
+
+    /**
+     * 抽样方法（预览模式：SYSTEM、BERNOULLI 或 PREFIX，非预览时为null）
+     */
+    private final String samplingMethod;
+
+    /**
+     * 抽样比例（0~1，未抽样时为null）
+     */
+    private final Double samplingRatio;
+}
@@ -0,0 +1,45 @@
+package com.example.sqlexecutor.service;
+
+/**
+ * 查询来源（执行路径）
+ */
+public enum QuerySource {
+
+    /**
+     * 单数据源查询 /api/execute-sql
+     */
+    QUERY("query"),
+
+    /**
+     * 多数据源查询 /api/datasource/multi-query
+     */
+    MULTI_QUERY("multi-query"),
+
+    /**
+     * 单数据源Excel导出 /api/export-excel
+     */
+    EXPORT("export"),
+
+    /**
+     * 多数据源Excel导出 /api/export-multi-datasource-excel
+     */
+    MULTI_EXPORT("multi-export"),
+
+    /**
+     * 响应式流式查询 /api/reactive/query
+     */
+    REACTIVE("reactive");
+
+    private final String tag;
+
+    QuerySource(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 用于日志、统计和指标的来源标识
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.sqlexecutor.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.QueryStatistics;
+import com.example.sqlexecutor.util.SqlFingerprint;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 查询指纹统计服务
+ *
+ * 按（SQL指纹, 数据源）维护滚动统计，并对超过阈值的查询写慢查询日志。
+ * 请求线程只负责投递执行记录，指纹计算、统计更新和日志输出都在后台单线程中完成。
+ */
+@Slf4j
+@Service
+public class QueryStatisticsService {
+
+    /**
+     * 慢查询日志（可在日志配置中单独输出到文件）
+     */
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("com.example.sqlexecutor.slow-query");
+
+    private static final int MAX_LOGGED_SQL_LENGTH = 2000;
+
+    @Value("${sql-executor.statistics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql-executor.statistics.slow-query-threshold:1000}")
+    private long slowQueryThreshold;
+
+    @Value("${sql-executor.statistics.sample-size:1024}")
+    private int sampleSize;
+
+    @Value("${sql-executor.statistics.max-fingerprints:5000}")
+    private int maxFingerprints;
+
+    @Value("${sql-executor.statistics.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${sql-executor.statistics.latency-smoothing:0.3}")
+    private double latencySmoothing;
+
+    private final Map<StatsKey, FingerprintStats> statistics = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private ThreadPoolExecutor bookkeepingExecutor;
+
+    @PostConstruct
+    public void init() {
+        bookkeepingExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "query-statistics");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("查询统计服务初始化，慢查询阈值: {}ms，样本窗口: {}", slowQueryThreshold, sampleSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (bookkeepingExecutor != null) {
+            bookkeepingExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 记录一次语句执行（立即返回，统计在后台完成）
+     *
+     * @param source         执行路径
+     * @param datasourceCode 数据源编码
+     * @param sql            原始SQL
+     * @param elapsedMillis  执行耗时（毫秒）
+     * @param rows           返回行数或受影响行数
+     * @param bytes          返回数据字节数（估算）
+     * @param success        是否执行成功
+     */
+    public void record(QuerySource source, String datasourceCode, String sql, long elapsedMillis,
+            long rows, long bytes, boolean success) {
+        if (!enabled || sql == null) {
+            return;
+        }
+
+        LocalDateTime executedAt = LocalDateTime.now();
+        try {
+            bookkeepingExecutor.execute(() -> update(source, datasourceCode, sql, elapsedMillis, rows, bytes,
+                    success, executedAt));
+        } catch (RejectedExecutionException e) {
+            // 队列已满时丢弃，不阻塞请求线程
+            if (droppedRecords.incrementAndGet() % 1000 == 1) {
+                log.warn("查询统计队列已满，已丢弃 {} 条记录", droppedRecords.get());
+            }
+        }
+    }
+
+    /**
+     * 获取Top-N查询统计
+     *
+     * @param limit   返回条数
+     * @param orderBy 排序字段：totalTime、count、avgTime、p95、p99、maxTime、rows、bytes、errors
+     */
+    public List<QueryStatistics> getTopStatistics(int limit, String orderBy) {
+        Comparator<QueryStatistics> comparator = comparatorFor(orderBy);
+
+        return statistics.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(comparator.reversed())
+                .limit(Math.max(1, limit))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按历史耗时预测语句在各数据源上的执行时间
+     *
+     * 取该指纹在各数据源上成功执行耗时的指数加权平均（越近的执行权重越大），
+     * 没有历史记录的数据源不在返回结果中。指纹只计算一次，供多数据源查询调度使用。
+     *
+     * @return 数据源编码 -> 预计耗时（毫秒）
+     */
+    public Map<String, Long> predictMillis(String sql, Collection<String> datasourceCodes) {
+        Map<String, Long> predictions = new HashMap<>();
+        if (!enabled || sql == null || statistics.isEmpty()) {
+            return predictions;
+        }
+        String fingerprintId = SqlFingerprint.hash(SqlFingerprint.normalize(sql));
+        for (String datasourceCode : datasourceCodes) {
+            FingerprintStats stats = statistics.get(new StatsKey(fingerprintId, datasourceCode));
+            long predicted = stats != null ? stats.predictedTime() : -1;
+            if (predicted >= 0) {
+                predictions.put(datasourceCode, predicted);
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void reset() {
+        statistics.clear();
+        log.info("查询统计数据已清空");
+    }
+
+    /**
+     * 已丢弃的记录数（统计队列满时）
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * 当前统计的指纹数量
+     */
+    public int getFingerprintCount() {
+        return statistics.size();
+    }
+
+    /**
+     * 后台线程：计算指纹并更新统计
+     */
+    private void update(QuerySource source, String datasourceCode, String sql, long elapsedMillis,
+            long rows, long bytes, boolean success, LocalDateTime executedAt) {
+        try {
+            String fingerprint = SqlFingerprint.normalize(sql);
+            StatsKey key = new StatsKey(SqlFingerprint.hash(fingerprint), datasourceCode);
+
+            FingerprintStats stats = statistics.get(key);
+            if (stats == null) {
+                if (statistics.size() >= maxFingerprints) {
+                    evictLeastRecentlyUsed();
+                }
+                stats = statistics.computeIfAbsent(key, k -> new FingerprintStats(fingerprint, sampleSize));
+            }
+            stats.add(source, elapsedMillis, rows, bytes, success, executedAt, latencySmoothing);
+
+            if (elapsedMillis >= slowQueryThreshold) {
+                SLOW_QUERY_LOG.warn("慢查询 [{}] 数据源: {}, 来源: {}, 耗时: {}ms, 行数: {}, 字节数: {}, 成功: {}, SQL: {}",
+                        key.fingerprintId, datasourceCode, source.getTag(), elapsedMillis, rows, bytes, success,
+                        sql.length() > MAX_LOGGED_SQL_LENGTH ? sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "..." : sql);
+            }
+        } catch (Exception e) {
+            log.warn("更新查询统计失败: {}", e.getMessage());
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        statistics.entrySet().stream()
+                .min(Comparator.comparing(entry -> entry.getValue().lastExecutedAt))
+                .ifPresent(entry -> statistics.remove(entry.getKey()));
+    }
+
+    private Comparator<QueryStatistics> comparatorFor(String orderBy) {
+        if (orderBy == null) {
+            return Comparator.comparingLong(QueryStatistics::getTotalTime);
+        }
+        switch (orderBy) {
+            case "count":
+                return Comparator.comparingLong(QueryStatistics::getCount);
+            case "avgTime":
+                return Comparator.comparingDouble(QueryStatistics::getAvgTime);
+            case "p95":
+                return Comparator.comparingLong(QueryStatistics::getP95);
+            case "p99":
+                return Comparator.comparingLong(QueryStatistics::getP99);
+            case "maxTime":
+                return Comparator.comparingLong(QueryStatistics::getMaxTime);
+            case "rows":
+                return Comparator.comparingLong(QueryStatistics::getTotalRows);
+            case "bytes":
+                return Comparator.comparingLong(QueryStatistics::getTotalBytes);
+            case "errors":
+                return Comparator.comparingLong(QueryStatistics::getErrorCount);
+            default:
+                return Comparator.comparingLong(QueryStatistics::getTotalTime);
+        }
+    }
+
+    /**
+     * 统计键：指纹ID + 数据源编码
+     */
+    private static final class StatsKey {
+
+        private final String fingerprintId;
+        private final String datasourceCode;
+
+        private StatsKey(String fingerprintId, String datasourceCode) {
+            this.fingerprintId = fingerprintId;
+            this.datasourceCode = datasourceCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatsKey)) {
+                return false;
+            }
+            StatsKey other = (StatsKey) o;
+            return fingerprintId.equals(other.fingerprintId) && Objects.equals(datasourceCode, other.datasourceCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprintId, datasourceCode);
+        }
+    }
+
+    /**
+     * 单个指纹的滚动统计，最近的耗时样本保存在环形缓冲区中用于计算分位数
+     */
+    private static final class FingerprintStats {
+
+        private final String fingerprint;
+        private final long[] samples;
+        private final Set<String> sources = new LinkedHashSet<>();
+
+        private int sampleCount;
+        private int nextSample;
+        private long count;
+        private long errorCount;
+        private long totalTime;
+        private long maxTime;
+        private long totalRows;
+        private long totalBytes;
+        private double smoothedTime = -1;
+        private volatile LocalDateTime lastExecutedAt;
+
+        private FingerprintStats(String fingerprint, int sampleSize) {
+            this.fingerprint = fingerprint;
+            this.samples = new long[Math.max(1, sampleSize)];
+        }
+
+        private synchronized void add(QuerySource source, long elapsedMillis, long rows, long bytes,
+                boolean success, LocalDateTime executedAt, double smoothing) {
+            sources.add(source.getTag());
+            count++;
+            if (!success) {
+                errorCount++;
+            } else {
+                // 失败的执行（超时、取消）耗时不代表语句本身的耗时，不计入预测
+                smoothedTime = smoothedTime < 0 ? elapsedMillis
+                        : smoothedTime + smoothing * (elapsedMillis - smoothedTime);
+            }
+            totalTime += elapsedMillis;
+            maxTime = Math.max(maxTime, elapsedMillis);
+            totalRows += rows;
+            totalBytes += bytes;
+            lastExecutedAt = executedAt;
+
+            samples[nextSample] = elapsedMillis;
+            nextSample = (nextSample + 1) % samples.length;
+            sampleCount = Math.min(sampleCount + 1, samples.length);
+        }
+
+        /**
+         * 预计耗时（毫秒），还没有成功执行过时返回-1
+         */
+        private synchronized long predictedTime() {
+            return smoothedTime < 0 ? -1 : Math.round(smoothedTime);
+        }
+
+        private synchronized QueryStatistics snapshot(StatsKey key) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+
+            return QueryStatistics.builder()
+                    .fingerprintId(key.fingerprintId)
+                    .fingerprint(fingerprint)
+                    .datasourceCode(key.datasourceCode)
+                    .sources(new LinkedHashSet<>(sources))
+                    .count(count)
+                    .errorCount(errorCount)
+                    .totalTime(totalTime)
+                    .avgTime(count > 0 ? (double) totalTime / count : 0)
+                    .p50(percentile(sorted, 0.50))
+                    .p95(percentile(sorted, 0.95))
+                    .p99(percentile(sorted, 0.99))
+                    .maxTime(maxTime)
+                    .totalRows(totalRows)
+                    .totalBytes(totalBytes)
+                    .lastExecutedAt(lastExecutedAt)
+                    .build();
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
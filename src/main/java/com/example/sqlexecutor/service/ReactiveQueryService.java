@@ -0,0 +1,414 @@
+package com.example.sqlexecutor.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.DatasourceRowEvent;
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.example.sqlexecutor.util.ResultSizeEstimator;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.codec.Json;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 响应式查询服务
+ *
+ * 基于R2DBC以非阻塞方式执行只读查询，按客户端的消费速度从数据库分批拉取（fetchSize），
+ * 不为每个进行中的查询占用线程。数据源信息复用 datasource_config，SQL验证复用 {@link SqlExecutionService}。
+ * 目前仅支持PostgreSQL数据源。
+ *
+ * 与 {@link DatasourcePoolRegistry} 相同，每个查询在执行期间持有所用连接池的一个租约：配置变化时被替换的连接池、
+ * 长时间未使用而被移除的连接池都在最后一个查询结束后才关闭。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveQueryService {
+
+    /**
+     * JDBC URL中的主机、端口和库名，如 jdbc:postgresql://host:5432/db?ssl=true
+     */
+    private static final Pattern JDBC_URL = Pattern.compile("//([^/?;:]+)(?::(\\d+))?(?:/([^?;]*))?");
+
+    private final DatasourceService datasourceService;
+    private final SqlExecutionService sqlExecutionService;
+    private final PasswordEncryptor passwordEncryptor;
+    private final QueryStatisticsService queryStatisticsService;
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.default-timeout:30000}")
+    private int defaultTimeout;
+
+    @Value("${sql-executor.max-rows:10000}")
+    private int maxRows;
+
+    @Value("${sql-executor.reactive.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${sql-executor.reactive.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${sql-executor.reactive.max-idle-time:300000}")
+    private long maxIdleTime;
+
+    /**
+     * 连接池多久未使用后移除（毫秒）
+     */
+    @Value("${sql-executor.reactive.evict-after:1800000}")
+    private long evictAfter;
+
+    private final Map<String, PoolHolder> pools = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictionExecutor;
+
+    @PostConstruct
+    public void init() {
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "r2dbc-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(60000, evictAfter / 4);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdlePools, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+        }
+        pools.values().forEach(PoolHolder::close);
+        pools.clear();
+        log.info("R2DBC连接池已全部关闭");
+    }
+
+    /**
+     * 在一个或多个数据源上执行查询，以事件流返回各数据源的数据行
+     *
+     * SQL验证和数据源检查在返回前同步完成（失败时直接抛出异常），查询本身在订阅后执行。
+     * 单个数据源失败时输出一条 error 事件，不影响其他数据源。
+     */
+    public Flux<DatasourceRowEvent> streamQuery(MultiDatasourceQueryRequest request) {
+        SqlAnalyzer.SqlAnalysis analysis = sqlExecutionService.validateSql(request.getQuery());
+        String statementType = analysis.getStatementType();
+        if (!"SELECT".equals(statementType) && !"WITH".equals(statementType)) {
+            throw new InvalidSqlException("响应式查询仅支持 SELECT 和 WITH 语句");
+        }
+
+        Map<String, DatasourceConfig> datasourceConfigs = datasourceService
+                .getDatasourcesByCodes(request.getDatasourceCodes());
+        List<String> missingDatasources = request.getDatasourceCodes().stream()
+                .filter(code -> !datasourceConfigs.containsKey(code))
+                .collect(Collectors.toList());
+        if (!missingDatasources.isEmpty()) {
+            throw new InvalidSqlException("以下数据源不存在或已禁用: " + String.join(", ", missingDatasources));
+        }
+
+        ExecuteSqlRequest.QueryOptions options = request.getOptions() != null
+                ? request.getOptions()
+                : new ExecuteSqlRequest.QueryOptions();
+        Duration timeout = Duration.ofMillis(options.getTimeout() != null ? options.getTimeout() : defaultTimeout);
+        long rowLimit = maxRows > 0
+                ? (options.getMaxRows() != null ? Math.min(options.getMaxRows(), maxRows) : maxRows)
+                : (options.getMaxRows() != null && options.getMaxRows() > 0 ? options.getMaxRows() : 0);
+
+        List<DatasourceConfig> configs = request.getDatasourceCodes().stream()
+                .distinct()
+                .map(datasourceConfigs::get)
+                .collect(Collectors.toList());
+
+        log.info("开始响应式查询，数据源数量: {}", configs.size());
+        return Flux.fromIterable(configs)
+                .flatMap(config -> queryDatasource(config, request.getQuery(), statementType, rowLimit, timeout),
+                        Math.max(1, maxConcurrency));
+    }
+
+    /**
+     * 查询单个数据源
+     */
+    private Flux<DatasourceRowEvent> queryDatasource(DatasourceConfig config, String sql, String statementType,
+            long rowLimit, Duration timeout) {
+        String datasourceCode = config.getDatasourceCode();
+
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            AtomicLong rowCount = new AtomicLong();
+            AtomicLong estimatedBytes = new AtomicLong();
+
+            // 查询期间持有连接池租约；创建连接池失败（如数据库类型不受支持）同样作为该数据源的 error 事件输出
+            Flux<Map<String, Object>> rows = Flux.using(() -> leasePool(config),
+                    holder -> Flux.usingWhen(holder.pool.create(),
+                            connection -> Flux.from(connection.createStatement(sql).fetchSize(fetchSize).execute())
+                                    .concatMap(result -> result.map((row, metadata) ->
+                                            toMap(row, metadata, estimatedBytes))),
+                            Connection::close),
+                    PoolHolder::release);
+            if (rowLimit > 0) {
+                // 达到行数上限后取消查询，不再从数据库拉取
+                rows = rows.take(rowLimit, true);
+            }
+
+            return withDeadline(rows, timeout)
+                    .doOnNext(row -> rowCount.incrementAndGet())
+                    .map(row -> DatasourceRowEvent.row(datasourceCode, row))
+                    .doOnComplete(() -> record(datasourceCode, sql, statementType, startTime, rowCount.get(),
+                            estimatedBytes.get(), true))
+                    .onErrorResume(e -> {
+                        record(datasourceCode, sql, statementType, startTime, rowCount.get(), estimatedBytes.get(),
+                                false);
+                        log.error("数据源 {} 响应式查询失败: {}", config.getDatasourceName(), e.getMessage());
+                        return Flux.just(DatasourceRowEvent.error(datasourceCode, e.getMessage()));
+                    });
+        });
+    }
+
+    /**
+     * 为整个查询（获取连接、执行和读取全部行）加上超时时间
+     *
+     * 与 {@link Flux#timeout(Duration)} 按相邻两行的间隔计时不同，这里从订阅时开始计时：客户端读取慢时
+     * 只要在超时时间内读完就不会失败，持续输出数据行的查询到期后同样被取消。
+     */
+    static <T> Flux<T> withDeadline(Flux<T> rows, Duration timeout) {
+        return Flux.defer(() -> {
+            AtomicBoolean expired = new AtomicBoolean();
+            // 到期时取消上游查询，再以超时错误结束
+            return rows.takeUntilOther(Mono.delay(timeout).doOnNext(tick -> expired.set(true)))
+                    .concatWith(Mono.defer(() -> expired.get()
+                            ? Mono.error(new TimeoutException("查询超过超时时间（" + timeout.toMillis() + "ms）"))
+                            : Mono.empty()));
+        });
+    }
+
+    private Map<String, Object> toMap(Row row, RowMetadata metadata, AtomicLong estimatedBytes) {
+        List<? extends ColumnMetadata> columns = metadata.getColumnMetadatas();
+        Map<String, Object> result = new LinkedHashMap<>(columns.size() * 4 / 3 + 1);
+        long rowBytes = 2;
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = row.get(i);
+            if (value instanceof Json) {
+                value = ((Json) value).asString();
+            }
+            String name = columns.get(i).getName();
+            result.put(name, value);
+            rowBytes += name.length() + 4 + ResultSizeEstimator.estimateValue(value);
+        }
+        estimatedBytes.addAndGet(rowBytes);
+        return result;
+    }
+
+    private void record(String datasourceCode, String sql, String statementType, long startTime, long rows,
+            long bytes, boolean success) {
+        long executionTime = System.currentTimeMillis() - startTime;
+        queryStatisticsService.record(QuerySource.REACTIVE, datasourceCode, sql, executionTime, rows, bytes, success);
+        queryMetricsService.recordQuery(QuerySource.REACTIVE, datasourceCode, statementType, executionTime, rows,
+                bytes, success);
+    }
+
+    /**
+     * 租用数据源对应的R2DBC连接池（首次使用或配置变化时创建），用完后必须调用 {@link PoolHolder#release}
+     */
+    private PoolHolder leasePool(DatasourceConfig config) {
+        String signature = DatasourcePoolRegistry.signature(config);
+        return pools.compute(config.getDatasourceCode(), (code, existing) -> {
+            PoolHolder current = existing;
+            if (existing != null && !existing.signature.equals(signature)) {
+                log.info("数据源 {} 配置已变化，重建R2DBC连接池", code);
+                existing.retire();
+                current = null;
+            }
+            if (current == null) {
+                current = new PoolHolder(code, signature, createConnectionPool(config));
+            }
+            // 在compute内登记租约，驱逐任务同样在compute内判断，二者不会交错
+            current.leases.incrementAndGet();
+            current.lastUsedAt = System.currentTimeMillis();
+            return current;
+        });
+    }
+
+    /**
+     * 移除长时间未使用且没有进行中查询的连接池
+     */
+    void evictIdlePools() {
+        long threshold = System.currentTimeMillis() - evictAfter;
+        for (String code : pools.keySet()) {
+            PoolHolder[] evicted = new PoolHolder[1];
+            pools.computeIfPresent(code, (key, holder) -> {
+                if (holder.leases.get() > 0 || holder.lastUsedAt >= threshold) {
+                    return holder;
+                }
+                evicted[0] = holder;
+                return null;
+            });
+            if (evicted[0] != null) {
+                evicted[0].retire();
+                log.info("数据源 {} 的R2DBC连接池长时间未使用，已移除", code);
+            }
+        }
+    }
+
+    /**
+     * 当前已创建的连接池数量
+     */
+    int getPoolCount() {
+        return pools.size();
+    }
+
+    /**
+     * 数据源的连接地址，未配置主机、端口或库名时从JDBC URL中解析
+     */
+    static Endpoint endpoint(DatasourceConfig config) {
+        Matcher matcher = config.getJdbcUrl() != null ? JDBC_URL.matcher(config.getJdbcUrl()) : null;
+        boolean urlMatched = matcher != null && matcher.find();
+
+        String host = config.getHost();
+        if (host == null || host.isBlank()) {
+            if (!urlMatched) {
+                throw new InvalidSqlException("数据源 " + config.getDatasourceCode() + " 未配置主机地址");
+            }
+            host = matcher.group(1);
+        }
+        int port = 5432;
+        if (config.getPort() != null) {
+            port = config.getPort();
+        } else if (urlMatched && matcher.group(2) != null) {
+            port = Integer.parseInt(matcher.group(2));
+        }
+        String database = config.getDatabaseName();
+        if ((database == null || database.isBlank()) && urlMatched && matcher.group(3) != null
+                && !matcher.group(3).isEmpty()) {
+            database = matcher.group(3);
+        }
+        return new Endpoint(host.trim(), port, database);
+    }
+
+    private ConnectionPool createConnectionPool(DatasourceConfig config) {
+        if (config.getDbType() != null && !config.getDbType().toLowerCase().startsWith("postgres")) {
+            throw new InvalidSqlException("响应式查询暂不支持该数据库类型: " + config.getDbType());
+        }
+
+        String password = config.getPassword();
+        if (passwordEncryptor.isEncrypted(password)) {
+            password = passwordEncryptor.decrypt(password);
+        }
+
+        Endpoint endpoint = endpoint(config);
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(endpoint.host)
+                        .port(endpoint.port)
+                        .database(endpoint.database)
+                        .username(config.getUsername())
+                        .password(password)
+                        .applicationName("sql-executor-reactive")
+                        .build());
+
+        int maxPoolSize = DatasourcePoolRegistry.maxPoolSize(config);
+        long connectionTimeout = config.getConnectionTimeout() != null && config.getConnectionTimeout() > 0
+                ? config.getConnectionTimeout()
+                : 30000;
+
+        log.info("创建R2DBC连接池: r2dbc-{}，最大连接数: {}", config.getDatasourceCode(), maxPoolSize);
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("r2dbc-" + config.getDatasourceCode())
+                .initialSize(0)
+                .maxSize(maxPoolSize)
+                .maxIdleTime(Duration.ofMillis(maxIdleTime))
+                .maxAcquireTime(Duration.ofMillis(connectionTimeout))
+                .build());
+    }
+
+    /**
+     * 连接地址
+     */
+    static final class Endpoint {
+
+        final String host;
+        final int port;
+        final String database;
+
+        private Endpoint(String host, int port, String database) {
+            this.host = host;
+            this.port = port;
+            this.database = database;
+        }
+    }
+
+    /**
+     * 连接池及其配置签名、租约计数
+     */
+    private static final class PoolHolder {
+
+        private final String datasourceCode;
+        private final String signature;
+        private final ConnectionPool pool;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean retired;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private PoolHolder(String datasourceCode, String signature, ConnectionPool pool) {
+            this.datasourceCode = datasourceCode;
+            this.signature = signature;
+            this.pool = pool;
+        }
+
+        /**
+         * 已从连接池表移除：没有租约时立即关闭，否则由最后一个租约关闭
+         */
+        private void retire() {
+            retired = true;
+            if (leases.get() == 0) {
+                close();
+            }
+        }
+
+        private void release() {
+            lastUsedAt = System.currentTimeMillis();
+            if (leases.decrementAndGet() == 0 && retired) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                pool.dispose();
+                log.info("数据源 {} 的R2DBC连接池已关闭", datasourceCode);
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.sqlexecutor.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.util.PhaseTimer;
+import com.example.sqlexecutor.util.RowHasher;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import lombok.Getter;
+
+/**
+ * 跨数据源结果比对服务
+ *
+ * 每个数据源以游标逐行读取结果，只计算行哈希而不保留数据行：所有行哈希之和（及异或）构成与行顺序无关的
+ * 整体校验和。指定键列时结果按键排序，并按键的哈希切分成块（键哈希对块大小取模为0的行结束一个块），块边界
+ * 只取决于键本身，一侧多出或缺少的行只影响所在的块；各块的校验和再构成Merkle树。比对时按块边界对齐，
+ * 校验和不同的块即为差异键范围。
+ */
+@Service
+public class ResultCompareService {
+
+    private static final String END_OF_RESULT = "\u0000END";
+
+    @Value("${sql-executor.compare.default-block-size:1000}")
+    private int defaultBlockSize;
+
+    @Value("${sql-executor.compare.min-block-size:10}")
+    private int minBlockSize;
+
+    @Value("${sql-executor.compare.default-diff-ranges:10}")
+    private int defaultDiffRanges;
+
+    @Value("${sql-executor.compare.max-diff-ranges:1000}")
+    private int maxDiffRanges;
+
+    /**
+     * 在一个数据源上流式计算结果摘要
+     *
+     * @param template   目标数据源的JdbcTemplate
+     * @param sql        查询语句
+     * @param compare    比对选项
+     * @param timeout    查询超时时间（秒）
+     * @param phaseTimer 阶段计时器（为null时不计时）
+     * @param deadline   多数据源查询的整体截止时间，到期或取消时取消语句（为null时只受语句超时限制）
+     */
+    public Digest digest(JdbcTemplate template, String sql, MultiDatasourceQueryRequest.CompareOptions compare,
+            int timeout, PhaseTimer phaseTimer, FanoutDeadline deadline) {
+        List<String> keyColumns = compare.getKeyColumns() != null ? compare.getKeyColumns() : List.of();
+        int blockSize = Math.max(minBlockSize, compare.getBlockSize() != null ? compare.getBlockSize()
+                : defaultBlockSize);
+        String statementSql = keyColumns.isEmpty() ? sql
+                : "SELECT * FROM (\n" + SqlAnalyzer.stripTerminator(sql) + "\n) AS compare_source ORDER BY "
+                        + keyColumns.stream().map(ResultCompareService::quoteIdentifier)
+                                .collect(Collectors.joining(", "));
+
+        return template.execute((ConnectionCallback<Digest>) connection -> {
+            // 与普通查询相同，非自动提交模式下驱动才按fetchSize分批读取
+            boolean cursorFetch = template.getFetchSize() > 0 && connection.getAutoCommit();
+            if (cursorFetch) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                Digest digest;
+                try (Statement statement = connection.createStatement()) {
+                    statement.setQueryTimeout(timeout);
+                    if (template.getFetchSize() > 0) {
+                        statement.setFetchSize(template.getFetchSize());
+                    }
+                    if (deadline != null) {
+                        deadline.register(statement);
+                    }
+                    try {
+                        long executionStart = System.nanoTime();
+                        try (ResultSet rs = statement.executeQuery(statementSql)) {
+                            long fetchStart = System.nanoTime();
+                            if (phaseTimer != null) {
+                                phaseTimer.addExecutionNanos(fetchStart - executionStart);
+                            }
+                            digest = readDigest(rs, keyColumns, blockSize);
+                            if (phaseTimer != null) {
+                                phaseTimer.addFetchNanos(System.nanoTime() - fetchStart);
+                            }
+                        }
+                    } finally {
+                        if (deadline != null) {
+                            deadline.unregister(statement);
+                        }
+                    }
+                }
+                if (cursorFetch) {
+                    connection.commit();
+                }
+                return digest;
+            } catch (SQLException | RuntimeException e) {
+                if (cursorFetch) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (cursorFetch) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    private Digest readDigest(ResultSet rs, List<String> keyColumns, int blockSize) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int[] keyIndexes = new int[keyColumns.size()];
+        for (int k = 0; k < keyIndexes.length; k++) {
+            keyIndexes[k] = rs.findColumn(keyColumns.get(k));
+        }
+
+        RowHasher hasher = new RowHasher();
+        Object[] values = new Object[columnCount];
+        Object[] keyValues = new Object[keyIndexes.length];
+        Digest digest = new Digest(!keyColumns.isEmpty());
+        Block block = null;
+
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            long rowHash = hasher.hash(values);
+            digest.rowCount++;
+            digest.sum += rowHash;
+            digest.xor ^= rowHash;
+
+            if (keyIndexes.length == 0) {
+                continue;
+            }
+            for (int k = 0; k < keyIndexes.length; k++) {
+                keyValues[k] = values[keyIndexes[k] - 1];
+            }
+            if (block == null) {
+                block = new Block(normalizeKey(keyValues));
+            }
+            block.rows++;
+            block.sum += rowHash;
+
+            // 块边界由键决定：同一个键在各数据源上总是落在相同位置的块边界上
+            long keyHash = RowHasher.mix(hasher.hash(keyValues));
+            if (Long.remainderUnsigned(keyHash, blockSize) == 0) {
+                block.endKey = normalizeKey(keyValues);
+                digest.blocks.add(block);
+                block = null;
+            }
+        }
+        if (block != null) {
+            digest.blocks.add(block);
+        }
+        return digest;
+    }
+
+    /**
+     * 以第一个数据源为基准比较各数据源的摘要
+     *
+     * @param datasourceCodes 成功计算出摘要的数据源（按请求顺序）
+     * @param digests         各数据源的摘要
+     * @param compare         比对选项
+     */
+    public MultiDatasourceQueryResponse.Comparison compare(List<String> datasourceCodes, Map<String, Digest> digests,
+            MultiDatasourceQueryRequest.CompareOptions compare) {
+        if (datasourceCodes.isEmpty()) {
+            return MultiDatasourceQueryResponse.Comparison.builder()
+                    .identical(false)
+                    .differences(new ArrayList<>())
+                    .build();
+        }
+        int rangeLimit = Math.max(1, Math.min(maxDiffRanges,
+                compare.getMaxDiffRanges() != null ? compare.getMaxDiffRanges() : defaultDiffRanges));
+
+        String referenceCode = datasourceCodes.get(0);
+        Digest reference = digests.get(referenceCode);
+        List<MultiDatasourceQueryResponse.DatasourceDifference> differences = new ArrayList<>();
+        boolean identical = true;
+        for (String datasourceCode : datasourceCodes.subList(1, datasourceCodes.size())) {
+            MultiDatasourceQueryResponse.DatasourceDifference difference = compareDigest(datasourceCode, reference,
+                    digests.get(datasourceCode), rangeLimit);
+            identical &= difference.isIdentical();
+            differences.add(difference);
+        }
+
+        return MultiDatasourceQueryResponse.Comparison.builder()
+                .identical(identical)
+                .referenceDatasource(referenceCode)
+                .differences(differences)
+                .build();
+    }
+
+    private MultiDatasourceQueryResponse.DatasourceDifference compareDigest(String datasourceCode, Digest reference,
+            Digest other, int rangeLimit) {
+        boolean checksumMatch = reference.getChecksum().equals(other.getChecksum());
+        List<MultiDatasourceQueryResponse.DiffRange> ranges = new ArrayList<>();
+        int rangeCount = 0;
+
+        if (reference.keyed && !checksumMatch) {
+            Map<String, Block> otherBlocks = new HashMap<>();
+            for (Block block : other.blocks) {
+                otherBlocks.put(endKeyOf(block), block);
+            }
+            Set<String> matchedEnds = new HashSet<>();
+            for (Block block : reference.blocks) {
+                String end = endKeyOf(block);
+                Block counterpart = otherBlocks.get(end);
+                if (counterpart != null) {
+                    matchedEnds.add(end);
+                    if (counterpart.sameAs(block)) {
+                        continue;
+                    }
+                }
+                if (rangeCount++ < rangeLimit) {
+                    ranges.add(block.toRange(block.rows, counterpart != null ? counterpart.rows : null));
+                }
+            }
+            for (Block block : other.blocks) {
+                if (!matchedEnds.contains(endKeyOf(block)) && rangeCount++ < rangeLimit) {
+                    ranges.add(block.toRange(null, block.rows));
+                }
+            }
+        }
+
+        return MultiDatasourceQueryResponse.DatasourceDifference.builder()
+                .datasourceCode(datasourceCode)
+                .identical(checksumMatch && reference.rowCount == other.rowCount)
+                .rowCountDifference(other.rowCount - reference.rowCount)
+                .checksumMatch(checksumMatch)
+                .ranges(ranges)
+                .rangesTruncated(rangeCount > rangeLimit)
+                .build();
+    }
+
+    private static String endKeyOf(Block block) {
+        return block.endKey != null ? String.join("\u001f", block.endKey) : END_OF_RESULT;
+    }
+
+    private static List<String> normalizeKey(Object[] keyValues) throws SQLException {
+        List<String> key = new ArrayList<>(keyValues.length);
+        for (Object value : keyValues) {
+            key.add(RowHasher.normalize(value));
+        }
+        return key;
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String hex(long value) {
+        return String.format("%016x", value);
+    }
+
+    /**
+     * 单个数据源的结果摘要
+     */
+    public static final class Digest {
+
+        private final boolean keyed;
+        private final List<Block> blocks = new ArrayList<>();
+        @Getter
+        private long rowCount;
+        private long sum;
+        private long xor;
+
+        private Digest(boolean keyed) {
+            this.keyed = keyed;
+        }
+
+        /**
+         * 与行顺序无关的整体校验和
+         */
+        public String getChecksum() {
+            return hex(sum) + hex(xor);
+        }
+
+        /**
+         * 块数（未指定键列时为null）
+         */
+        public Integer getBlockCount() {
+            return keyed ? blocks.size() : null;
+        }
+
+        /**
+         * 各块校验和构成的Merkle树根（未指定键列时为null）
+         */
+        public String getMerkleRoot() {
+            if (!keyed) {
+                return null;
+            }
+            MessageDigest md5;
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("当前JVM不支持MD5", e);
+            }
+            List<byte[]> level = new ArrayList<>(blocks.size());
+            for (Block block : blocks) {
+                level.add(md5.digest((endKeyOf(block) + "|" + block.rows + "|" + block.sum)
+                        .getBytes(StandardCharsets.UTF_8)));
+            }
+            if (level.isEmpty()) {
+                return hex(0) + hex(0);
+            }
+            while (level.size() > 1) {
+                List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+                for (int i = 0; i < level.size(); i += 2) {
+                    md5.update(level.get(i));
+                    if (i + 1 < level.size()) {
+                        md5.update(level.get(i + 1));
+                    }
+                    parents.add(md5.digest());
+                }
+                level = parents;
+            }
+            StringBuilder root = new StringBuilder(32);
+            for (byte b : level.get(0)) {
+                root.append(String.format("%02x", b));
+            }
+            return root.toString();
+        }
+    }
+
+    /**
+     * 按键切分的一块结果
+     */
+    private static final class Block {
+
+        private final List<String> startKey;
+        private List<String> endKey;
+        private long rows;
+        private long sum;
+
+        private Block(List<String> startKey) {
+            this.startKey = startKey;
+        }
+
+        private boolean sameAs(Block other) {
+            return rows == other.rows && sum == other.sum && startKey.equals(other.startKey);
+        }
+
+        private MultiDatasourceQueryResponse.DiffRange toRange(Long referenceRows, Long rows) {
+            return MultiDatasourceQueryResponse.DiffRange.builder()
+                    .fromKey(startKey)
+                    .toKey(endKey)
+                    .referenceRows(referenceRows)
+                    .rows(rows)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.RowCountStatus;
+import com.example.sqlexecutor.util.PhaseTimer;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 结果行数统计服务
+ *
+ * 估算行数直接取 EXPLAIN 的根节点估算行数，随第一页结果立即返回；精确行数以
+ * SELECT count(*) FROM (原查询) 的形式在后台工作负载通道中异步统计，受时间预算限制（从任务开始执行时计时，
+ * 不含在后台线程池中排队的时间）并可随时取消，客户端凭返回的标识轮询结果。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RowCountService {
+
+    private final ExecutionPlanService executionPlanService;
+    private final WorkloadManager workloadManager;
+
+    /**
+     * 精确统计的时间预算（毫秒），包括等待连接准入和执行语句
+     */
+    @Value("${sql-executor.row-count.budget:60000}")
+    private long budget;
+
+    /**
+     * 估算行数的EXPLAIN超时时间（秒）
+     */
+    @Value("${sql-executor.row-count.explain-timeout:5}")
+    private int explainTimeout;
+
+    /**
+     * 统计结果保留时间（毫秒）
+     */
+    @Value("${sql-executor.row-count.result-ttl:600000}")
+    private long resultTtl;
+
+    /**
+     * 同时进行中的统计任务数上限（已结束、等待过期清理的任务不计入）
+     */
+    @Value("${sql-executor.row-count.max-tasks:100}")
+    private int maxTasks;
+
+    private final Map<String, CountTask> tasks = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    @PostConstruct
+    public void init() {
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "row-count-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleWithFixedDelay(this::removeExpiredTasks, 60, 60, TimeUnit.SECONDS);
+        log.info("精确行数统计时间预算: {}ms，结果保留: {}ms", budget, resultTtl);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+        }
+        tasks.keySet().forEach(this::cancel);
+    }
+
+    /**
+     * 获取查询的估算行数（EXPLAIN失败时返回null）
+     *
+     * @param template   目标数据源的JdbcTemplate
+     * @param sql        原始查询（不含为分页追加的LIMIT）
+     * @param phaseTimer 阶段计时器（为null时不计时）
+     */
+    public Long estimate(JdbcTemplate template, String sql, PhaseTimer phaseTimer) {
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> plan = template.execute((ConnectionCallback<Map<String, Object>>) connection ->
+                    executionPlanService.explain(connection, sql, false, explainTimeout));
+            Object summary = plan != null ? plan.get("summary") : null;
+            Object rows = summary instanceof Map ? ((Map<?, ?>) summary).get("estimatedRows") : null;
+            return rows instanceof Number ? Math.round(((Number) rows).doubleValue()) : null;
+        } catch (DataAccessException e) {
+            log.debug("估算行数失败: {}", e.getMessage());
+            return null;
+        } finally {
+            if (phaseTimer != null) {
+                phaseTimer.addExplainNanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * 启动后台精确行数统计
+     *
+     * @param template       目标数据源的JdbcTemplate（不受连接池注册表管理，如主数据源）
+     * @param datasourceCode 数据源编码
+     * @param poolSize       该数据源连接池的最大连接数
+     * @param sql            原始查询（不含为分页追加的LIMIT）
+     * @return 统计任务标识；任务数已达上限时返回null
+     */
+    public String startExactCount(JdbcTemplate template, String datasourceCode, int poolSize, String sql) {
+        return start(template, null, datasourceCode, poolSize, sql);
+    }
+
+    /**
+     * 在注册表管理的连接池上启动后台精确行数统计，统计任务另持一个租约直到结束，调用方照常关闭自己的租约
+     */
+    public String startExactCount(DatasourcePoolRegistry.Lease lease, String datasourceCode, int poolSize,
+            String sql) {
+        return start(lease.getJdbcTemplate(), lease.share(), datasourceCode, poolSize, sql);
+    }
+
+    private String start(JdbcTemplate template, DatasourcePoolRegistry.Lease lease, String datasourceCode,
+            int poolSize, String sql) {
+        if (runningTaskCount() >= maxTasks) {
+            log.warn("进行中的精确行数统计任务数已达上限 {}，不再启动新任务", maxTasks);
+            release(lease);
+            return null;
+        }
+
+        // 原查询可能以行注释结尾，右括号另起一行
+        String countSql = "SELECT count(*) FROM (\n" + SqlAnalyzer.stripTerminator(sql) + "\n) AS row_count_source";
+        CountTask task = new CountTask(UUID.randomUUID().toString(), datasourceCode, lease);
+        tasks.put(task.token, task);
+        try {
+            task.future = workloadManager.getExecutor(WorkloadClass.BACKGROUND)
+                    .submit(() -> runCount(task, template, poolSize, countSql));
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task.token);
+            release(lease);
+            throw e;
+        }
+        return task.token;
+    }
+
+    /**
+     * 登记已知的精确行数（结果未被截断时，读取到的行数即为精确行数，不再启动后台统计）
+     *
+     * @return 统计任务标识，状态直接为DONE
+     */
+    public String completedCount(String datasourceCode, long count) {
+        CountTask task = new CountTask(UUID.randomUUID().toString(), datasourceCode, null);
+        task.finish("DONE", count, null);
+        tasks.put(task.token, task);
+        return task.token;
+    }
+
+    private void runCount(CountTask task, JdbcTemplate template, int poolSize, String countSql) {
+        task.runStartedAtMillis = System.currentTimeMillis();
+        try {
+            if (task.cancelled) {
+                // 取消时任务已开始执行、未能从线程池中撤下
+                task.finish("CANCELLED", null, null);
+            } else {
+                count(task, template, poolSize, countSql);
+            }
+        } finally {
+            release(task.lease);
+        }
+    }
+
+    private void count(CountTask task, JdbcTemplate template, int poolSize, String countSql) {
+        try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(WorkloadClass.BACKGROUND,
+                task.datasourceCode, poolSize)) {
+            Long count = template.execute((ConnectionCallback<Long>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    task.statement = statement;
+                    if (task.cancelled) {
+                        return null;
+                    }
+                    long remaining = task.remainingMillis(budget);
+                    if (remaining <= 0) {
+                        // 等待连接准入已用完预算
+                        return null;
+                    }
+                    statement.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+                    try (ResultSet rs = statement.executeQuery(countSql)) {
+                        return rs.next() ? rs.getLong(1) : 0L;
+                    }
+                } finally {
+                    task.statement = null;
+                }
+            });
+            if (task.cancelled) {
+                task.finish("CANCELLED", null, null);
+            } else if (count == null) {
+                task.finish("TIMED_OUT", null, "超过统计时间预算（" + budget + "ms）");
+            } else {
+                task.finish("DONE", count, null);
+            }
+        } catch (RuntimeException e) {
+            if (task.cancelled) {
+                task.finish("CANCELLED", null, null);
+            } else if (task.remainingMillis(budget) <= 0) {
+                task.finish("TIMED_OUT", null, "超过统计时间预算（" + budget + "ms）");
+            } else {
+                log.warn("数据源 {} 精确行数统计失败: {}", task.datasourceCode, e.getMessage());
+                task.finish("FAILED", null, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 查询统计状态（任务不存在或已过期时返回null）
+     */
+    public RowCountStatus getStatus(String token) {
+        CountTask task = tasks.get(token);
+        return task != null ? task.toStatus() : null;
+    }
+
+    /**
+     * 取消统计
+     *
+     * @return 任务存在时返回true
+     */
+    public boolean cancel(String token) {
+        CountTask task = tasks.get(token);
+        if (task == null) {
+            return false;
+        }
+        task.cancelled = true;
+        Statement statement = task.statement;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("取消行数统计语句失败: {}", e.getMessage());
+            }
+        }
+        Future<?> future = task.future;
+        if (future != null && future.cancel(false)) {
+            // 任务不会再运行，由这里释放其租约
+            release(task.lease);
+            task.finish("CANCELLED", null, null);
+        }
+        return true;
+    }
+
+    private long runningTaskCount() {
+        return tasks.values().stream().filter(task -> task.finishedAtMillis == 0).count();
+    }
+
+    private void removeExpiredTasks() {
+        long now = System.currentTimeMillis();
+        tasks.values().removeIf(task -> task.finishedAtMillis > 0 && now - task.finishedAtMillis > resultTtl);
+    }
+
+    private static void release(DatasourcePoolRegistry.Lease lease) {
+        if (lease != null) {
+            lease.close();
+        }
+    }
+
+    /**
+     * 一个精确行数统计任务
+     */
+    private static final class CountTask {
+
+        private final String token;
+        private final String datasourceCode;
+        private final DatasourcePoolRegistry.Lease lease;
+        private final long startedAtMillis = System.currentTimeMillis();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile long runStartedAtMillis;
+
+        private volatile String status = "RUNNING";
+        private volatile Long count;
+        private volatile String error;
+        private volatile long finishedAtMillis;
+        private volatile boolean cancelled;
+        private volatile Statement statement;
+        private volatile Future<?> future;
+
+        private CountTask(String token, String datasourceCode, DatasourcePoolRegistry.Lease lease) {
+            this.token = token;
+            this.datasourceCode = datasourceCode;
+            this.lease = lease;
+        }
+
+        /**
+         * 时间预算的剩余毫秒数（从任务开始执行时计时）
+         */
+        private long remainingMillis(long budget) {
+            return budget - (System.currentTimeMillis() - runStartedAtMillis);
+        }
+
+        private synchronized void finish(String status, Long count, String error) {
+            if (finishedAtMillis > 0) {
+                return;
+            }
+            this.count = count;
+            this.error = error;
+            this.status = status;
+            this.finishedAtMillis = System.currentTimeMillis();
+        }
+
+        private RowCountStatus toStatus() {
+            long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+            return RowCountStatus.builder()
+                    .token(token)
+                    .datasourceCode(datasourceCode)
+                    .status(status)
+                    .count(count)
+                    .elapsedTime(end - startedAtMillis)
+                    .error(error)
+                    .startedAt(startedAt)
+                    .build();
+        }
+    }
+}
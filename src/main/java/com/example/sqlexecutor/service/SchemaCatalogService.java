@@ -0,0 +1,579 @@
+package com.example.sqlexecutor.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.CatalogColumn;
+import com.example.sqlexecutor.dto.CatalogIndex;
+import com.example.sqlexecutor.dto.CatalogTable;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PrefixIndex;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 模式目录服务
+ *
+ * 每个数据源的表、列、索引和估算行数用三条 pg_catalog 批量查询一次性加载，保存在内存中的不可变快照里，
+ * 浏览和自动补全的前缀搜索只访问内存。访问时超过检查间隔则在后台比较各表的版本：只有变化的表重新加载，
+ * 超过 TTL 则整体重新加载以刷新估算行数。
+ *
+ * 表的版本由它在 pg_class 中的行，以及它在 pg_attribute、pg_attrdef、pg_description 中各行的最大 xmin
+ * 和行数组成：重命名列、修改 NOT NULL、默认值和注释等DDL只改写后几张系统表，不改写 pg_class 中的行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SchemaCatalogService {
+
+    private static final String TABLE_KINDS = "('r', 'p', 'v', 'm', 'f')";
+
+    private static final String SCHEMA_FILTER = "n.nspname NOT IN ('pg_catalog', 'information_schema') "
+            + "AND n.nspname !~ '^pg_(toast|temp_)'";
+
+    private static final String OID_FILTER = " AND c.oid = ANY(?::oid[])";
+
+    /**
+     * 表（或索引）c 的版本，见 {@link #versionOf(String)}
+     */
+    private static final String VERSION = versionOf("c");
+
+    private static final String TABLES_SQL = "SELECT c.oid, n.nspname, c.relname, c.relkind, c.reltuples, "
+            + VERSION + " AS version, obj_description(c.oid, 'pg_class') AS description "
+            + "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE c.relkind IN " + TABLE_KINDS + " AND " + SCHEMA_FILTER;
+
+    private static final String COLUMNS_SQL = "SELECT a.attrelid, a.attname, "
+            + "format_type(a.atttypid, a.atttypmod) AS data_type, a.attnotnull, a.attnum, "
+            + "pg_get_expr(d.adbin, d.adrelid) AS default_value "
+            + "FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid "
+            + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "LEFT JOIN pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum "
+            + "WHERE a.attnum > 0 AND NOT a.attisdropped AND c.relkind IN " + TABLE_KINDS + " AND " + SCHEMA_FILTER;
+
+    private static final String INDEXES_SQL = "SELECT i.indrelid, i.indexrelid, ic.relname, "
+            + versionOf("ic") + " AS version, "
+            + "i.indisunique, i.indisprimary, pg_get_indexdef(i.indexrelid) AS definition "
+            + "FROM pg_index i JOIN pg_class ic ON ic.oid = i.indexrelid "
+            + "JOIN pg_class c ON c.oid = i.indrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE c.relkind IN " + TABLE_KINDS + " AND " + SCHEMA_FILTER;
+
+    /**
+     * 表和索引的版本，索引归属到所在的表
+     */
+    private static final String VERSIONS_SQL = "SELECT c.oid, " + VERSION + " AS version, "
+            + "COALESCE(i.indrelid, c.oid) AS owner "
+            + "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "LEFT JOIN pg_index i ON i.indexrelid = c.oid "
+            + "WHERE c.relkind IN ('r', 'p', 'v', 'm', 'f', 'i', 'I') AND " + SCHEMA_FILTER;
+
+    /**
+     * 关系的版本：pg_class 中的行，以及 pg_attribute（列名、类型、NOT NULL）、pg_attrdef（默认值）、
+     * pg_description（表和列的注释）中各行的最大 xmin 和行数（删除默认值或注释时行数变化）
+     */
+    private static String versionOf(String alias) {
+        return alias + ".xmin::text"
+                + " || '/' || (SELECT COALESCE(max(a.xmin::text::bigint), 0) || ':' || count(*) FROM pg_attribute a "
+                + "WHERE a.attrelid = " + alias + ".oid)"
+                + " || '/' || (SELECT COALESCE(max(d.xmin::text::bigint), 0) || ':' || count(*) FROM pg_attrdef d "
+                + "WHERE d.adrelid = " + alias + ".oid)"
+                + " || '/' || (SELECT COALESCE(max(ds.xmin::text::bigint), 0) || ':' || count(*) "
+                + "FROM pg_description ds WHERE ds.objoid = " + alias + ".oid "
+                + "AND ds.classoid = 'pg_class'::regclass)";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatasourceService datasourceService;
+    private final DatasourcePoolRegistry datasourcePoolRegistry;
+    private final WorkloadManager workloadManager;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int primaryPoolSize;
+
+    /**
+     * 整体重新加载的间隔（毫秒）
+     */
+    @Value("${sql-executor.catalog.ttl:3600000}")
+    private long ttl;
+
+    /**
+     * 检查DDL变化的间隔（毫秒）
+     */
+    @Value("${sql-executor.catalog.check-interval:30000}")
+    private long checkInterval;
+
+    /**
+     * 变化的表超过该数量时整体重新加载
+     */
+    @Value("${sql-executor.catalog.incremental-max-tables:500}")
+    private int incrementalMaxTables;
+
+    /**
+     * 目录查询超时时间（秒）
+     */
+    @Value("${sql-executor.catalog.query-timeout:60}")
+    private int queryTimeout;
+
+    /**
+     * 单次搜索返回的条数上限
+     */
+    @Value("${sql-executor.catalog.max-results:500}")
+    private int maxResults;
+
+    private final Map<String, CatalogEntry> catalogs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        log.info("模式目录缓存 TTL: {}ms，DDL检查间隔: {}ms", ttl, checkInterval);
+    }
+
+    /**
+     * 前缀搜索表
+     *
+     * @param datasourceCode 数据源编码（主数据源为 primary）
+     * @param prefix         表名前缀；包含“.”时按“模式.表名”匹配
+     * @param schema         只返回该模式下的表（为null时不限）
+     * @param limit          最多返回的条数
+     */
+    public List<CatalogTable> searchTables(String datasourceCode, String prefix, String schema, int limit) {
+        Snapshot snapshot = snapshot(datasourceCode);
+        PrefixIndex<TableEntry> index = prefix != null && prefix.indexOf('.') >= 0 ? snapshot.tablesByQualifiedName
+                : snapshot.tablesByName;
+        Predicate<TableEntry> filter = schema != null ? entry -> entry.summary.getSchema().equalsIgnoreCase(schema)
+                : null;
+        return index.search(prefix, filter, clampLimit(limit)).stream()
+                .map(entry -> entry.summary)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取表的完整信息（列和索引）
+     *
+     * @return 表不存在时返回null
+     */
+    public CatalogTable getTable(String datasourceCode, String schema, String table) {
+        TableEntry entry = snapshot(datasourceCode).tablesByKey.get(qualifiedKey(schema, table));
+        return entry != null ? entry.detail : null;
+    }
+
+    /**
+     * 前缀搜索列
+     *
+     * @param datasourceCode 数据源编码（主数据源为 primary）
+     * @param prefix         列名前缀
+     * @param schema         只返回该模式下的列（为null时不限）
+     * @param table          只返回该表的列（为null时不限）
+     * @param limit          最多返回的条数
+     */
+    public List<CatalogColumn> searchColumns(String datasourceCode, String prefix, String schema, String table,
+            int limit) {
+        Snapshot snapshot = snapshot(datasourceCode);
+        int max = clampLimit(limit);
+        if (table != null && schema != null) {
+            TableEntry entry = snapshot.tablesByKey.get(qualifiedKey(schema, table));
+            if (entry == null) {
+                return new ArrayList<>();
+            }
+            String lowerPrefix = prefix != null ? prefix.toLowerCase(Locale.ROOT) : "";
+            return entry.detail.getColumns().stream()
+                    .filter(column -> column.getName().toLowerCase(Locale.ROOT).startsWith(lowerPrefix))
+                    .limit(max)
+                    .collect(Collectors.toList());
+        }
+        return snapshot.columnsByName.search(prefix, column -> (schema == null
+                || column.getSchema().equalsIgnoreCase(schema))
+                && (table == null || column.getTable().equalsIgnoreCase(table)), max);
+    }
+
+    /**
+     * 获取目录概况
+     */
+    public Map<String, Object> getSummary(String datasourceCode) {
+        Snapshot snapshot = snapshot(datasourceCode);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("datasourceCode", datasourceCode);
+        summary.put("schemas", snapshot.tables.values().stream()
+                .map(entry -> entry.summary.getSchema())
+                .collect(Collectors.toCollection(TreeSet::new)));
+        summary.put("tableCount", snapshot.tables.size());
+        summary.put("columnCount", snapshot.columnsByName.size());
+        summary.put("loadedAt", snapshot.loadedAt);
+        summary.put("refreshedAt", snapshot.refreshedAt);
+        return summary;
+    }
+
+    /**
+     * 立即整体重新加载数据源的目录
+     */
+    public Map<String, Object> refresh(String datasourceCode) {
+        CatalogEntry entry = catalogEntry(datasourceCode);
+        synchronized (entry) {
+            entry.snapshot = Snapshot.of(loadTables(datasourceCode, null), LocalDateTime.now());
+            entry.checkedAt = System.currentTimeMillis();
+        }
+        return getSummary(datasourceCode);
+    }
+
+    /**
+     * 获取数据源的目录快照：首次访问时同步加载，之后超过检查间隔在后台检查变化
+     */
+    private Snapshot snapshot(String datasourceCode) {
+        CatalogEntry entry = catalogEntry(datasourceCode);
+        Snapshot snapshot = entry.snapshot;
+        if (snapshot == null) {
+            synchronized (entry) {
+                if (entry.snapshot == null) {
+                    entry.snapshot = Snapshot.of(loadTables(datasourceCode, null), LocalDateTime.now());
+                    entry.checkedAt = System.currentTimeMillis();
+                }
+                return entry.snapshot;
+            }
+        }
+
+        if (System.currentTimeMillis() - entry.checkedAt >= checkInterval && entry.refreshing.compareAndSet(false,
+                true)) {
+            try {
+                workloadManager.getExecutor(WorkloadClass.BACKGROUND).execute(() -> refreshInBackground(entry));
+            } catch (RejectedExecutionException e) {
+                entry.refreshing.set(false);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取数据源的目录缓存，首次访问时确认数据源存在，不为不存在的编码保留缓存
+     *
+     * @throws IllegalArgumentException 数据源不存在或已禁用
+     */
+    private CatalogEntry catalogEntry(String datasourceCode) {
+        CatalogEntry entry = catalogs.get(datasourceCode);
+        if (entry != null) {
+            return entry;
+        }
+        if (!SqlExecutionService.PRIMARY_DATASOURCE.equals(datasourceCode)
+                && !datasourceService.getDatasourcesByCodes(List.of(datasourceCode)).containsKey(datasourceCode)) {
+            throw new IllegalArgumentException("数据源不存在或已禁用: " + datasourceCode);
+        }
+        return catalogs.computeIfAbsent(datasourceCode, CatalogEntry::new);
+    }
+
+    private void refreshInBackground(CatalogEntry entry) {
+        String datasourceCode = entry.datasourceCode;
+        try {
+            Snapshot current = entry.snapshot;
+            if (LocalDateTime.now().isAfter(current.loadedAt.plus(ttl, ChronoUnit.MILLIS))) {
+                Snapshot reloaded = Snapshot.of(loadTables(datasourceCode, null), LocalDateTime.now());
+                synchronized (entry) {
+                    entry.snapshot = reloaded;
+                }
+                log.info("数据源 {} 的模式目录已超过TTL，整体重新加载 {} 张表", datasourceCode, reloaded.tables.size());
+                return;
+            }
+
+            Set<Long> changed = findChangedTables(datasourceCode, current);
+            if (changed.isEmpty()) {
+                return;
+            }
+            Snapshot updated;
+            if (changed.size() > incrementalMaxTables) {
+                updated = Snapshot.of(loadTables(datasourceCode, null), LocalDateTime.now());
+            } else {
+                Map<Long, TableEntry> tables = new HashMap<>(current.tables);
+                tables.keySet().removeAll(changed);
+                tables.putAll(loadTables(datasourceCode, changed));
+                updated = Snapshot.of(tables, current.loadedAt);
+            }
+            synchronized (entry) {
+                // 刷新期间可能已被手动整体重新加载
+                if (entry.snapshot == current) {
+                    entry.snapshot = updated;
+                }
+            }
+            log.info("数据源 {} 的模式目录检测到 {} 张表的DDL变化，已刷新", datasourceCode, changed.size());
+        } catch (RuntimeException e) {
+            log.warn("数据源 {} 的模式目录刷新失败: {}", datasourceCode, e.getMessage());
+        } finally {
+            entry.checkedAt = System.currentTimeMillis();
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * 比较表和索引的版本，找出新增、修改或删除的表
+     */
+    private Set<Long> findChangedTables(String datasourceCode, Snapshot current) {
+        Map<Long, String> cachedVersions = new HashMap<>();
+        Map<Long, Long> cachedOwners = new HashMap<>();
+        for (TableEntry entry : current.tables.values()) {
+            entry.versions.forEach((oid, version) -> {
+                cachedVersions.put(oid, version);
+                cachedOwners.put(oid, entry.oid);
+            });
+        }
+
+        Set<Long> changed = new TreeSet<>();
+        withConnection(datasourceCode, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(VERSIONS_SQL)) {
+                statement.setQueryTimeout(queryTimeout);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long oid = rs.getLong("oid");
+                        String cached = cachedVersions.remove(oid);
+                        if (!rs.getString("version").equals(cached)) {
+                            changed.add(rs.getLong("owner"));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        // 剩下的是已删除的表或索引
+        cachedVersions.keySet().forEach(oid -> changed.add(cachedOwners.get(oid)));
+        return changed;
+    }
+
+    /**
+     * 批量加载表、列和索引
+     *
+     * @param oids 只加载这些表（为null时加载全部）
+     */
+    private Map<Long, TableEntry> loadTables(String datasourceCode, Collection<Long> oids) {
+        long start = System.currentTimeMillis();
+        String oidArray = oids != null
+                ? oids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"))
+                : null;
+        Map<Long, TableEntry> tables = new HashMap<>();
+
+        withConnection(datasourceCode, connection -> {
+            queryCatalog(connection, TABLES_SQL, oidArray, "", rs -> {
+                double reltuples = rs.getDouble("reltuples");
+                TableEntry entry = new TableEntry(rs.getLong("oid"), CatalogTable.builder()
+                        .schema(rs.getString("nspname"))
+                        .name(rs.getString("relname"))
+                        .type(tableType(rs.getString("relkind")))
+                        .estimatedRows(reltuples >= 0 ? Math.round(reltuples) : null)
+                        .description(rs.getString("description"))
+                        .columns(new ArrayList<>())
+                        .indexes(new ArrayList<>())
+                        .build());
+                entry.versions.put(entry.oid, rs.getString("version"));
+                tables.put(entry.oid, entry);
+            });
+
+            queryCatalog(connection, COLUMNS_SQL, oidArray, " ORDER BY a.attrelid, a.attnum", rs -> {
+                TableEntry entry = tables.get(rs.getLong("attrelid"));
+                if (entry != null) {
+                    entry.detail.getColumns().add(CatalogColumn.builder()
+                            .schema(entry.detail.getSchema())
+                            .table(entry.detail.getName())
+                            .name(rs.getString("attname"))
+                            .dataType(rs.getString("data_type"))
+                            .nullable(!rs.getBoolean("attnotnull"))
+                            .position(rs.getInt("attnum"))
+                            .defaultValue(rs.getString("default_value"))
+                            .build());
+                }
+            });
+
+            queryCatalog(connection, INDEXES_SQL, oidArray, " ORDER BY i.indrelid, ic.relname", rs -> {
+                TableEntry entry = tables.get(rs.getLong("indrelid"));
+                if (entry != null) {
+                    entry.detail.getIndexes().add(CatalogIndex.builder()
+                            .name(rs.getString("relname"))
+                            .unique(rs.getBoolean("indisunique"))
+                            .primary(rs.getBoolean("indisprimary"))
+                            .definition(rs.getString("definition"))
+                            .build());
+                    entry.versions.put(rs.getLong("indexrelid"), rs.getString("version"));
+                }
+            });
+            return null;
+        });
+        log.debug("数据源 {} 加载 {} 张表的模式目录，耗时 {}ms", datasourceCode, tables.size(),
+                System.currentTimeMillis() - start);
+        return tables;
+    }
+
+    private void queryCatalog(Connection connection, String sql, String oidArray, String orderBy,
+            RowCallbackHandler handler) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql + (oidArray != null ? OID_FILTER : "")
+                + orderBy)) {
+            statement.setQueryTimeout(queryTimeout);
+            if (oidArray != null) {
+                statement.setString(1, oidArray);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.processRow(rs);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在数据源上执行目录查询（占用后台工作负载的连接份额）
+     */
+    private <T> T withConnection(String datasourceCode, ConnectionCallback<T> callback) {
+        if (SqlExecutionService.PRIMARY_DATASOURCE.equals(datasourceCode)) {
+            return withConnection(jdbcTemplate, datasourceCode, primaryPoolSize, callback);
+        }
+        DatasourceConfig config = datasourceService.getDatasourceByCode(datasourceCode);
+        try (DatasourcePoolRegistry.Lease lease = datasourcePoolRegistry.lease(config)) {
+            return withConnection(lease.getJdbcTemplate(), datasourceCode, DatasourcePoolRegistry.maxPoolSize(config),
+                    callback);
+        }
+    }
+
+    private <T> T withConnection(JdbcTemplate template, String datasourceCode, int poolSize,
+            ConnectionCallback<T> callback) {
+        try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(WorkloadClass.BACKGROUND,
+                datasourceCode, poolSize)) {
+            return template.execute(callback);
+        }
+    }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    private static String qualifiedKey(String schema, String table) {
+        return (schema + "." + table).toLowerCase(Locale.ROOT);
+    }
+
+    private static String tableType(String relkind) {
+        switch (relkind) {
+            case "p":
+                return "PARTITIONED_TABLE";
+            case "v":
+                return "VIEW";
+            case "m":
+                return "MATERIALIZED_VIEW";
+            case "f":
+                return "FOREIGN_TABLE";
+            default:
+                return "TABLE";
+        }
+    }
+
+    /**
+     * 一个数据源的目录缓存
+     */
+    private static final class CatalogEntry {
+
+        private final String datasourceCode;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Snapshot snapshot;
+        private volatile long checkedAt;
+
+        private CatalogEntry(String datasourceCode) {
+            this.datasourceCode = datasourceCode;
+        }
+    }
+
+    /**
+     * 目录中的一张表
+     */
+    private static final class TableEntry {
+
+        private final long oid;
+
+        /**
+         * 含列和索引的完整信息
+         */
+        private final CatalogTable detail;
+
+        /**
+         * 搜索结果中返回的摘要（不含列和索引）
+         */
+        private final CatalogTable summary;
+
+        /**
+         * 表及其索引的版本（oid → 版本）
+         */
+        private final Map<Long, String> versions = new HashMap<>();
+
+        private TableEntry(long oid, CatalogTable detail) {
+            this.oid = oid;
+            this.detail = detail;
+            this.summary = CatalogTable.builder()
+                    .schema(detail.getSchema())
+                    .name(detail.getName())
+                    .type(detail.getType())
+                    .estimatedRows(detail.getEstimatedRows())
+                    .description(detail.getDescription())
+                    .build();
+        }
+    }
+
+    /**
+     * 目录的不可变快照及其前缀索引
+     */
+    private static final class Snapshot {
+
+        private final Map<Long, TableEntry> tables;
+        private final Map<String, TableEntry> tablesByKey;
+        private final PrefixIndex<TableEntry> tablesByName;
+        private final PrefixIndex<TableEntry> tablesByQualifiedName;
+        private final PrefixIndex<CatalogColumn> columnsByName;
+
+        /**
+         * 最近一次整体加载的时间
+         */
+        private final LocalDateTime loadedAt;
+
+        /**
+         * 快照生成的时间
+         */
+        private final LocalDateTime refreshedAt = LocalDateTime.now();
+
+        private Snapshot(Map<Long, TableEntry> tables, LocalDateTime loadedAt) {
+            this.tables = tables;
+            this.loadedAt = loadedAt;
+
+            List<TableEntry> entries = new ArrayList<>(tables.values());
+            entries.sort((a, b) -> qualifiedKey(a.detail.getSchema(), a.detail.getName())
+                    .compareTo(qualifiedKey(b.detail.getSchema(), b.detail.getName())));
+            this.tablesByKey = new HashMap<>();
+            List<CatalogColumn> columns = new ArrayList<>();
+            for (TableEntry entry : entries) {
+                tablesByKey.put(qualifiedKey(entry.detail.getSchema(), entry.detail.getName()), entry);
+                columns.addAll(entry.detail.getColumns());
+            }
+            this.tablesByName = PrefixIndex.of(entries, entry -> entry.detail.getName());
+            this.tablesByQualifiedName = PrefixIndex.of(entries,
+                    entry -> entry.detail.getSchema() + "." + entry.detail.getName());
+            this.columnsByName = PrefixIndex.of(columns, CatalogColumn::getName);
+        }
+
+        private static Snapshot of(Map<Long, TableEntry> tables, LocalDateTime loadedAt) {
+            return new Snapshot(tables, loadedAt);
+        }
+    }
+}
@@ -1,26 +1,33 @@
 package com.example.sqlexecutor.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 import com.example.sqlexecutor.dto.ApiResponse;
 import com.example.sqlexecutor.dto.ExecuteSqlRequest;
 import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.exception.QueryCostExceededException;
+import com.example.sqlexecutor.exception.ResultMemoryExceededException;
 import com.example.sqlexecutor.exception.SqlExecutionException;
+import com.example.sqlexecutor.util.PhaseTimer;
+import com.example.sqlexecutor.util.RowMapResultSetExtractor;
+import com.example.sqlexecutor.util.SqlAnalyzer;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,7 +39,19 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class SqlExecutionService {
 
+    /**
+     * 主数据源在统计和指标中使用的编码
+     */
+    public static final String PRIMARY_DATASOURCE = "primary";
+
     private final JdbcTemplate jdbcTemplate;
+    private final ExecutionPlanService executionPlanService;
+    private final QueryStatisticsService queryStatisticsService;
+    private final QueryMetricsService queryMetricsService;
+    private final WorkloadManager workloadManager;
+    private final CostGuardService costGuardService;
+    private final PreviewService previewService;
+    private final RowCountService rowCountService;
 
     @Value("${sql-executor.default-timeout:30000}")
     private int defaultTimeout;
@@ -40,46 +59,61 @@ public class SqlExecutionService {
     @Value("${sql-executor.max-rows:10000}")
     private int maxRows;
 
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int primaryPoolSize;
+
     @Value("#{'${sql-executor.allowed-operations}'.split(',')}")
     private List<String> allowedOperations;
 
     @Value("#{'${sql-executor.forbidden-keywords}'.split(',')}")
     private List<String> forbiddenKeywords;
 
-    // SQL操作类型判断模式
-    private static final Pattern SELECT_PATTERN = Pattern.compile("^\\s*SELECT", Pattern.CASE_INSENSITIVE);
-    private static final Pattern INSERT_PATTERN = Pattern.compile("^\\s*INSERT", Pattern.CASE_INSENSITIVE);
-    private static final Pattern UPDATE_PATTERN = Pattern.compile("^\\s*UPDATE", Pattern.CASE_INSENSITIVE);
-    private static final Pattern DELETE_PATTERN = Pattern.compile("^\\s*DELETE", Pattern.CASE_INSENSITIVE);
-    private static final Pattern WITH_PATTERN = Pattern.compile("^\\s*WITH", Pattern.CASE_INSENSITIVE);
+    private SqlAnalyzer sqlAnalyzer;
+
+    @PostConstruct
+    public void init() {
+        sqlAnalyzer = new SqlAnalyzer(forbiddenKeywords);
+    }
 
     /**
      * 执行SQL查询
      */
     public ApiResponse<List<Map<String, Object>>> executeSql(ExecuteSqlRequest request) {
+        return executeSql(request, QuerySource.QUERY);
+    }
+
+    /**
+     * 执行SQL查询
+     *
+     * @param source 执行路径（查询或导出），用于统计
+     */
+    public ApiResponse<List<Map<String, Object>>> executeSql(ExecuteSqlRequest request, QuerySource source) {
         long startTime = System.currentTimeMillis();
 
         try {
-            // 验证SQL
-            validateSql(request.getQuery());
-
             // 获取执行选项
             ExecuteSqlRequest.QueryOptions options = request.getOptions();
             if (options == null) {
                 options = new ExecuteSqlRequest.QueryOptions();
             }
+            PhaseTimer phaseTimer = Boolean.TRUE.equals(options.getTimings()) ? new PhaseTimer() : null;
 
-            // 设置查询超时
-            int timeout = options.getTimeout() != null ? options.getTimeout() : defaultTimeout;
-            jdbcTemplate.setQueryTimeout(timeout / 1000); // 转换为秒
+            // 验证SQL（一次词法扫描同时得到语句类型）
+            long validationStart = System.nanoTime();
+            SqlAnalyzer.SqlAnalysis analysis = validateSql(request.getQuery());
+            if (phaseTimer != null) {
+                phaseTimer.setValidationNanos(System.nanoTime() - validationStart);
+            }
 
             // 判断SQL类型并执行
-            String queryType = determineQueryType(request.getQuery());
+            String queryType = determineQueryType(analysis);
+            boolean isQuery = "SELECT".equals(queryType) || "WITH".equals(queryType);
+            checkExplainAnalyze(options, isQuery);
 
-            if ("SELECT".equals(queryType) || "WITH".equals(queryType)) {
-                return executeSelectQuery(request, options, startTime, queryType);
+            if (isQuery) {
+                return executeSelectQuery(request, options, startTime, queryType, analysis, source, phaseTimer);
             } else {
-                return executeUpdateQuery(request, options, startTime, queryType);
+                return executeUpdateQuery(request, options, startTime, queryType, source, phaseTimer);
             }
 
         } catch (InvalidSqlException e) {
@@ -105,53 +139,73 @@ public class SqlExecutionService {
             ExecuteSqlRequest request,
             ExecuteSqlRequest.QueryOptions options,
             long startTime,
-            String queryType) {
+            String queryType,
+            SqlAnalyzer.SqlAnalysis analysis,
+            QuerySource source,
+            PhaseTimer phaseTimer) {
 
         try {
             // 获取原始SQL语句
             String sql = request.getQuery();
+            int appliedLimit = 0;
 
             // 只有在配置了maxRows且大于0时才进行行数限制
-            if (maxRows > 0) {
-                int maxRowsLimit = options.getMaxRows() != null ? Math.min(options.getMaxRows(), maxRows) : maxRows;
-
-                // PostgreSQL LIMIT语法（仅在没有LIMIT时添加）
-                if (!sql.toLowerCase().contains("limit")) {
-                    sql = sql + " LIMIT " + maxRowsLimit;
-                }
+            // 预览模式自行限制读取行数，不追加LIMIT（否则无法识别简单单表查询）
+            if (!isPreview(options, true)) {
+                appliedLimit = analysis.isTopLevelLimit() ? 0 : rowLimit(options);
+                sql = applyRowLimit(sql, analysis, options);
             }
 
-            List<Map<String, Object>> results = jdbcTemplate.query(sql, new RowMapper<Map<String, Object>>() {
-                @Override
-                public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    ResultSetMetaData metaData = rs.getMetaData();
-                    Map<String, Object> row = new LinkedHashMap<>();
-
-                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                        String columnName = metaData.getColumnLabel(i);
-                        Object value = rs.getObject(i);
-                        row.put(columnName, value);
-                    }
-
-                    return row;
-                }
-            });
+            // 估算行数基于原始SQL（不含追加的LIMIT），与第一页结果一起返回
+            Long estimatedRowCount = Boolean.TRUE.equals(options.getEstimateRowCount())
+                    ? rowCountService.estimate(jdbcTemplate, request.getQuery(), phaseTimer)
+                    : null;
+
+            QueryResult queryResult = queryPrimary(sql, options, true, source, phaseTimer);
+            List<Map<String, Object>> results = queryResult.getRows();
+
+            // 结果未被截断时已读到全部行，精确行数无需再扫描一遍
+            String rowCountToken = null;
+            if (Boolean.TRUE.equals(options.getExactRowCount())) {
+                boolean complete = !queryResult.isTruncated() && queryResult.getSamplingMethod() == null
+                        && (appliedLimit == 0 || results.size() < appliedLimit);
+                rowCountToken = complete ? rowCountService.completedCount(PRIMARY_DATASOURCE, results.size())
+                        : rowCountService.startExactCount(jdbcTemplate, PRIMARY_DATASOURCE, primaryPoolSize,
+                                request.getQuery());
+            }
 
             long executionTime = System.currentTimeMillis() - startTime;
-
-            // 构建响应
-            if (options.getIncludeMetadata() != null && options.getIncludeMetadata()) {
-                ApiResponse.Metadata metadata = buildMetadata(request.getQuery(), request.getDatabase(), queryType);
-                return ApiResponse.success(results, results.size(), 0, "查询成功", executionTime, metadata);
+            queryMetricsService.recordConnectionAcquire(PRIMARY_DATASOURCE, queryResult.getConnectionWaitNanos());
+            record(source, request.getQuery(), queryType, executionTime, results.size(),
+                    queryResult.getEstimatedBytes(), true);
+
+            // 构建响应（请求了执行计划时同样返回元数据）
+            ApiResponse<List<Map<String, Object>>> response;
+            if (Boolean.TRUE.equals(options.getIncludeMetadata()) || queryResult.getExecutionPlan() != null) {
+                ApiResponse.Metadata metadata = buildMetadata(request.getDatabase(), queryType, queryResult);
+                response = ApiResponse.success(results, results.size(), 0, "查询成功", executionTime, metadata);
             } else {
-                return ApiResponse.success(results, results.size(), 0, "查询成功", executionTime);
+                response = ApiResponse.success(results, results.size(), 0, "查询成功", executionTime);
             }
+            response.setTruncated(queryResult.isTruncated());
+            response.setTruncationReason(queryResult.getTruncationReason());
+            response.setSampled(queryResult.getSamplingMethod() != null);
+            response.setSamplingMethod(queryResult.getSamplingMethod());
+            response.setSamplingRatio(queryResult.getSamplingRatio());
+            response.setEstimatedRowCount(estimatedRowCount);
+            response.setRowCountToken(rowCountToken);
+            if (phaseTimer != null) {
+                response.setTimings(phaseTimer.finish(results.size()));
+            }
+            return response;
 
-        } catch (DataAccessException e) {
-            // 直接重新抛出DataAccessException，让全局异常处理器处理
+        } catch (DataAccessException | ResultMemoryExceededException | QueryCostExceededException e) {
+            record(source, request.getQuery(), queryType, System.currentTimeMillis() - startTime, 0, 0, false);
+            // 直接重新抛出，让全局异常处理器处理
             throw e;
         } catch (Exception e) {
             long executionTime = System.currentTimeMillis() - startTime;
+            record(source, request.getQuery(), queryType, executionTime, 0, 0, false);
             throw new SqlExecutionException("查询执行失败: " + e.getMessage(), e);
         }
     }
@@ -163,55 +217,403 @@ public class SqlExecutionService {
             ExecuteSqlRequest request,
             ExecuteSqlRequest.QueryOptions options,
             long startTime,
-            String queryType) {
+            String queryType,
+            QuerySource source,
+            PhaseTimer phaseTimer) {
 
         try {
-            int rowsAffected = jdbcTemplate.update(request.getQuery());
+            QueryResult queryResult = queryPrimary(request.getQuery(), options, false, source, phaseTimer);
+            int rowsAffected = queryResult.getRowsAffected();
             long executionTime = System.currentTimeMillis() - startTime;
+            queryMetricsService.recordConnectionAcquire(PRIMARY_DATASOURCE, queryResult.getConnectionWaitNanos());
+            record(source, request.getQuery(), queryType, executionTime, rowsAffected, 0, true);
 
             // 构建响应
             List<Map<String, Object>> emptyData = new ArrayList<>();
             String message = String.format("%s操作成功", queryType);
 
-            if (options.getIncludeMetadata() != null && options.getIncludeMetadata()) {
-                ApiResponse.Metadata metadata = buildMetadata(request.getQuery(), request.getDatabase(), queryType);
-                return ApiResponse.success(emptyData, 0, rowsAffected, message, executionTime, metadata);
+            ApiResponse<List<Map<String, Object>>> response;
+            if (Boolean.TRUE.equals(options.getIncludeMetadata()) || queryResult.getExecutionPlan() != null) {
+                ApiResponse.Metadata metadata = buildMetadata(request.getDatabase(), queryType, queryResult);
+                response = ApiResponse.success(emptyData, 0, rowsAffected, message, executionTime, metadata);
             } else {
-                return ApiResponse.success(emptyData, 0, rowsAffected, message, executionTime);
+                response = ApiResponse.success(emptyData, 0, rowsAffected, message, executionTime);
+            }
+            if (phaseTimer != null) {
+                response.setTimings(phaseTimer.finish(rowsAffected));
             }
+            return response;
 
-        } catch (DataAccessException e) {
-            // 直接重新抛出DataAccessException，让全局异常处理器处理
+        } catch (DataAccessException | QueryCostExceededException e) {
+            record(source, request.getQuery(), queryType, System.currentTimeMillis() - startTime, 0, 0, false);
+            // 直接重新抛出，让全局异常处理器处理
             throw e;
         } catch (Exception e) {
             long executionTime = System.currentTimeMillis() - startTime;
+            record(source, request.getQuery(), queryType, executionTime, 0, 0, false);
             throw new SqlExecutionException("更新操作执行失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 在主数据源上执行语句（导出任务只能占用连接池的一部分，估算代价过高的语句转入后台通道或被拒绝）
+     */
+    private QueryResult queryPrimary(String sql, ExecuteSqlRequest.QueryOptions options, boolean isQuery,
+            QuerySource source, PhaseTimer phaseTimer) {
+        // 预览只读取少量行，不做代价检查
+        WorkloadClass workloadClass = isPreview(options, isQuery) ? WorkloadClass.of(source)
+                : costGuardService.admit(jdbcTemplate, null, PRIMARY_DATASOURCE, sql, WorkloadClass.of(source),
+                        phaseTimer);
+        try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(workloadClass,
+                PRIMARY_DATASOURCE, primaryPoolSize)) {
+            return query(jdbcTemplate, sql, options, isQuery, phaseTimer, QueryContext.current(), null);
+        }
+    }
+
+    /**
+     * 对主数据源上的查询做代价检查，返回执行所用的工作负载类别（见 {@link CostGuardService#admit}）
+     */
+    public WorkloadClass admitPrimary(String sql, QuerySource source) {
+        return costGuardService.admit(jdbcTemplate, null, PRIMARY_DATASOURCE, sql, WorkloadClass.of(source), null);
+    }
+
+    /**
+     * 在主数据源上以游标执行查询，逐行交给处理器
+     *
+     * @param workloadClass {@link #admitPrimary} 返回的工作负载类别
+     * @return 处理器接受的数据行数
+     */
+    public long streamPrimary(String sql, ExecuteSqlRequest.QueryOptions options, WorkloadClass workloadClass,
+            RowHandler handler) {
+        try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(workloadClass,
+                PRIMARY_DATASOURCE, primaryPoolSize)) {
+            return streamRows(jdbcTemplate, sql, options, handler);
+        }
+    }
+
+    /**
+     * 以游标执行查询，逐行交给处理器（结果不在内存中保留，用于导出）
+     *
+     * 数据行按 fetchSize 分批从数据库拉取，处理器返回false时停止读取。
+     * 处理器抛出的IOException包装为 {@link UncheckedIOException} 抛出。
+     *
+     * @return 处理器接受的数据行数
+     */
+    public long streamRows(JdbcTemplate template, String sql, ExecuteSqlRequest.QueryOptions options,
+            RowHandler handler) {
+        int timeout = timeoutSeconds(options);
+        return template.execute((ConnectionCallback<Long>) connection -> {
+            boolean cursorFetch = template.getFetchSize() > 0 && connection.getAutoCommit();
+            if (cursorFetch) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                long rows = streamResultSet(connection, template.getFetchSize(), sql, timeout, handler);
+                if (cursorFetch) {
+                    connection.commit();
+                }
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                if (cursorFetch) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (cursorFetch) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    private static long streamResultSet(Connection connection, int fetchSize, String sql, int timeout,
+            RowHandler handler) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeout);
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columnLabels = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columnLabels.length; i++) {
+                    columnLabels[i] = metaData.getColumnLabel(i + 1);
+                }
+                handler.columns(columnLabels);
+
+                // 各行复用同一个数组，处理器不能保留其引用
+                Object[] values = new Object[columnLabels.length];
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    if (!handler.row(values)) {
+                        break;
+                    }
+                    rows++;
+                }
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 在同一连接上执行语句，并按选项采集列信息和执行计划
+     *
+     * @param template     目标数据源的JdbcTemplate
+     * @param sql          待执行的SQL
+     * @param options      查询选项
+     * @param isQuery      是否为返回结果集的查询语句
+     * @param phaseTimer   阶段计时器（为null时不计时）
+     * @param queryContext 请求的查询上下文，用于结果内存预算（为null时不限制）
+     * @param deadline     多数据源查询的整体截止时间（为null时只受语句超时限制）
+     */
+    public QueryResult query(JdbcTemplate template, String sql, ExecuteSqlRequest.QueryOptions options,
+            boolean isQuery, PhaseTimer phaseTimer, QueryContext queryContext, FanoutDeadline deadline) {
+        boolean includeMetadata = options != null && Boolean.TRUE.equals(options.getIncludeMetadata());
+        boolean explain = options != null
+                && (Boolean.TRUE.equals(options.getExplain()) || Boolean.TRUE.equals(options.getExplainAnalyze()));
+        boolean analyze = options != null && Boolean.TRUE.equals(options.getExplainAnalyze());
+        boolean preview = isPreview(options, isQuery);
+
+        long acquireStart = System.nanoTime();
+        return template.execute((ConnectionCallback<QueryResult>) connection -> {
+            long connectionWaitNanos = System.nanoTime() - acquireStart;
+            if (phaseTimer != null) {
+                phaseTimer.setConnectionAcquireNanos(connectionWaitNanos);
+            }
+            // 语句超时在拿到连接后计算，排队和获取连接已用去的时间从截止时间中扣除
+            int timeout = timeoutSeconds(options);
+            if (deadline != null) {
+                deadline.check();
+                timeout = deadline.statementTimeoutSeconds(timeout);
+            }
+
+            // 预览模式：简单单表查询改写为抽样查询，其他查询只读取前若干行
+            PreviewService.Plan previewPlan = preview ? previewService.plan(connection, sql, options.getPreviewRows())
+                    : null;
+            String statementSql = previewPlan != null ? previewPlan.getSql() : sql;
+
+            // 执行计划在执行语句前获取：ANALYZE模式在回滚的只读事务中运行，不影响后续真正的执行
+            Map<String, Object> executionPlan = null;
+            if (explain) {
+                long explainStart = System.nanoTime();
+                executionPlan = executionPlanService.explain(connection, statementSql, analyze, timeout);
+                if (phaseTimer != null) {
+                    phaseTimer.addExplainNanos(System.nanoTime() - explainStart);
+                }
+            }
+
+            QueryResult.QueryResultBuilder result = QueryResult.builder()
+                    .executionPlan(executionPlan)
+                    .connectionWaitNanos(connectionWaitNanos)
+                    .samplingMethod(previewPlan != null ? previewPlan.getMethod() : null)
+                    .samplingRatio(previewPlan != null ? previewPlan.getRatio() : null);
+
+            if (!isQuery) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.setQueryTimeout(timeout);
+                    register(deadline, statement);
+                    try {
+                        long executionStart = System.nanoTime();
+                        int rowsAffected = statement.executeUpdate(sql);
+                        if (phaseTimer != null) {
+                            phaseTimer.addExecutionNanos(System.nanoTime() - executionStart);
+                        }
+                        return result.rows(new ArrayList<>()).rowsAffected(rowsAffected).build();
+                    } finally {
+                        unregister(deadline, statement);
+                    }
+                }
+            }
+
+            // PostgreSQL只在非自动提交模式下按fetchSize分批读取，否则驱动会先把整个结果集读入内存，
+            // 内存预算就无法在映射时生效
+            boolean cursorFetch = template.getFetchSize() > 0 && connection.getAutoCommit();
+            if (cursorFetch) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                readRows(connection, template.getFetchSize(), statementSql, timeout,
+                        previewPlan != null ? previewPlan.getRowLimit() : 0, includeMetadata, phaseTimer, queryContext,
+                        deadline, result);
+                if (cursorFetch) {
+                    connection.commit();
+                }
+                return result.build();
+            } catch (SQLException | RuntimeException e) {
+                if (cursorFetch) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (cursorFetch) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * 执行查询并读取结果集
+     *
+     * @param rowLimit 最多读取的行数（0表示不限制），读到上限后驱动不再拉取后续数据
+     */
+    private void readRows(Connection connection, int fetchSize, String sql, int timeout, int rowLimit,
+            boolean includeMetadata, PhaseTimer phaseTimer, QueryContext queryContext, FanoutDeadline deadline,
+            QueryResult.QueryResultBuilder result) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeout);
+            if (rowLimit > 0) {
+                statement.setMaxRows(rowLimit);
+                fetchSize = fetchSize > 0 ? Math.min(fetchSize, rowLimit) : rowLimit;
+            }
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+
+            RowMapResultSetExtractor extractor = new RowMapResultSetExtractor(includeMetadata, phaseTimer,
+                    queryContext);
+            // 截止时间到达时语句被取消，读取剩余数据行时同样会中断
+            register(deadline, statement);
+            long executionStart = System.nanoTime();
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                if (phaseTimer != null) {
+                    phaseTimer.addExecutionNanos(System.nanoTime() - executionStart);
+                }
+                result.rows(extractor.extractData(rs));
+            } catch (ResultMemoryExceededException e) {
+                queryMetricsService.recordMemoryExceeded(MemoryPolicy.REJECT, e.isGlobal());
+                throw e;
+            } finally {
+                unregister(deadline, statement);
+            }
+
+            if (extractor.getSpilledBytes() > 0) {
+                queryMetricsService.recordSpill(extractor.getSpilledBytes());
+                log.info("查询结果超出堆上阈值，{} 字节已写入溢出文件", extractor.getSpilledBytes());
+            }
+            if (extractor.isTruncated()) {
+                queryMetricsService.recordMemoryExceeded(queryContext.getPolicy(),
+                        extractor.isTruncatedByGlobalBudget());
+                log.warn("查询结果超出内存预算，已截断: {}", extractor.getTruncationReason());
+            }
+            result.columns(extractor.getColumns())
+                    .estimatedBytes(extractor.getEstimatedBytes())
+                    .truncated(extractor.isTruncated())
+                    .truncationReason(extractor.getTruncationReason());
+        }
+    }
+
+    private static void register(FanoutDeadline deadline, Statement statement) {
+        if (deadline != null) {
+            deadline.register(statement);
+        }
+    }
+
+    private static void unregister(FanoutDeadline deadline, Statement statement) {
+        if (deadline != null) {
+            deadline.unregister(statement);
+        }
+    }
+
+    /**
+     * 语句超时时间（秒），未指定时使用默认值
+     */
+    public int timeoutSeconds(ExecuteSqlRequest.QueryOptions options) {
+        return (options != null && options.getTimeout() != null ? options.getTimeout() : defaultTimeout)
+                / 1000; // 转换为秒
+    }
+
+    /**
+     * 查询语句的行数上限（0表示不限制）：请求的 maxRows 不超过配置的 max-rows
+     */
+    public int rowLimit(ExecuteSqlRequest.QueryOptions options) {
+        if (maxRows <= 0) {
+            return 0;
+        }
+        return options != null && options.getMaxRows() != null ? Math.min(options.getMaxRows(), maxRows) : maxRows;
+    }
+
+    /**
+     * 按行数上限为查询追加LIMIT（PostgreSQL语法，仅在最外层没有LIMIT时添加）
+     */
+    public String applyRowLimit(String sql, SqlAnalyzer.SqlAnalysis analysis, ExecuteSqlRequest.QueryOptions options) {
+        int limit = rowLimit(options);
+        return limit > 0 && !analysis.isTopLevelLimit() ? sql + " LIMIT " + limit : sql;
+    }
+
+    /**
+     * 是否以预览模式执行查询语句
+     */
+    public static boolean isPreview(ExecuteSqlRequest.QueryOptions options, boolean isQuery) {
+        return isQuery && options != null && Boolean.TRUE.equals(options.getPreview());
+    }
+
+    /**
+     * explainAnalyze 会真正执行语句，只允许用于查询语句
+     */
+    public static void checkExplainAnalyze(ExecuteSqlRequest.QueryOptions options, boolean isQuery) {
+        if (!isQuery && options != null && Boolean.TRUE.equals(options.getExplainAnalyze())) {
+            throw new InvalidSqlException("explainAnalyze 仅支持查询语句（SELECT、WITH）");
+        }
+    }
+
+    /**
+     * 记录主数据源上的一次执行（指纹统计和Micrometer指标）
+     */
+    private void record(QuerySource source, String sql, String queryType, long executionTime, long rows,
+            long bytes, boolean success) {
+        queryStatisticsService.record(source, PRIMARY_DATASOURCE, sql, executionTime, rows, bytes, success);
+        queryMetricsService.recordQuery(source, PRIMARY_DATASOURCE, queryType, executionTime, rows, bytes, success);
+    }
+
+    /**
+     * 逐行处理查询结果
+     */
+    public interface RowHandler {
+
+        /**
+         * 读取数据行之前调用一次
+         */
+        void columns(String[] columnLabels) throws IOException;
+
+        /**
+         * 处理一行（数组在各行间复用）
+         *
+         * @return 继续读取时返回true；返回false时当前行不计入结果并停止读取
+         */
+        boolean row(Object[] values) throws IOException;
+    }
+
     /**
      * 验证SQL语句
+     *
+     * @return SQL分析结果，供调用方复用语句类型等信息
      */
-    public void validateSql(String sql) {
+    public SqlAnalyzer.SqlAnalysis validateSql(String sql) {
         if (sql == null || sql.trim().isEmpty()) {
             throw new InvalidSqlException("SQL语句不能为空");
         }
 
-        String upperSql = sql.toUpperCase().trim();
+        SqlAnalyzer.SqlAnalysis analysis = sqlAnalyzer.analyze(sql);
 
-        // 检查禁止的关键字
-        // for (String forbidden : forbiddenKeywords) {
-        // if (upperSql.contains(forbidden.toUpperCase())) {
-        // throw new InvalidSqlException("SQL包含禁止的关键字: " + forbidden);
-        // }
-        // }
+        // 检查禁止的关键字（只匹配关键字本身，不匹配字符串或标识符中的片段）
+        if (analysis.getForbiddenKeyword() != null) {
+            throw new InvalidSqlException("SQL包含禁止的关键字: " + analysis.getForbiddenKeyword());
+        }
 
         // 检查允许的操作类型
         boolean isAllowed = false;
-        for (String allowed : allowedOperations) {
-            if (upperSql.startsWith(allowed.toUpperCase())) {
-                isAllowed = true;
-                break;
+        if (analysis.getStatementType() != null) {
+            for (String allowed : allowedOperations) {
+                if (analysis.getStatementType().equalsIgnoreCase(allowed.trim())) {
+                    isAllowed = true;
+                    break;
+                }
             }
         }
 
@@ -220,92 +622,34 @@ public class SqlExecutionService {
         }
 
         // 基本SQL注入检查
-        if (containsSqlInjectionPatterns(sql)) {
+        if (analysis.hasInjectionRisk()) {
             throw new InvalidSqlException("SQL语句包含潜在的安全风险");
         }
+
+        return analysis;
     }
 
     /**
      * 判断SQL语句类型
      */
-    private String determineQueryType(String sql) {
-        if (SELECT_PATTERN.matcher(sql).find()) {
-            return "SELECT";
-        } else if (INSERT_PATTERN.matcher(sql).find()) {
-            return "INSERT";
-        } else if (UPDATE_PATTERN.matcher(sql).find()) {
-            return "UPDATE";
-        } else if (DELETE_PATTERN.matcher(sql).find()) {
-            return "DELETE";
-        } else if (WITH_PATTERN.matcher(sql).find()) {
-            return "WITH";
-        } else {
-            return "UNKNOWN";
+    private String determineQueryType(SqlAnalyzer.SqlAnalysis analysis) {
+        String statementType = analysis.getStatementType();
+        if ("SELECT".equals(statementType) || "INSERT".equals(statementType) || "UPDATE".equals(statementType)
+                || "DELETE".equals(statementType) || "WITH".equals(statementType)) {
+            return statementType;
         }
+        return "UNKNOWN";
     }
 
     /**
      * 构建元数据信息
      */
-    private ApiResponse.Metadata buildMetadata(String sql, String database, String queryType) {
+    private ApiResponse.Metadata buildMetadata(String database, String queryType, QueryResult queryResult) {
         return ApiResponse.Metadata.builder()
                 .queryType(queryType)
                 .database(database)
-                .columns(new ArrayList<>()) // 实际项目中可以通过ResultSetMetaData获取
-                .executionPlan(new HashMap<>()) // 可以通过EXPLAIN获取执行计划
+                .columns(queryResult.getColumns() != null ? queryResult.getColumns() : new ArrayList<>())
+                .executionPlan(queryResult.getExecutionPlan())
                 .build();
     }
-
-    /**
-     * 简单的SQL注入检查
-     */
-    private boolean containsSqlInjectionPatterns(String sql) {
-        String lowerSql = sql.toLowerCase();
-
-        // 检查一些常见的SQL注入模式
-        String[] injectionPatterns = {
-                "/\\*",
-                "\\*/",
-                "--",
-                // "xp_",
-                // "sp_",
-                // "union[\\s]+select", // 更精确的UNION SELECT检查
-                // "insert[\\s]+into", // 更精确的INSERT INTO检查
-                // "delete[\\s]+from", // 更精确的DELETE FROM检查
-                // "create[\\s]+table",
-                // "drop[\\s]+table",
-                // "alter[\\s]+table",
-                // "exec\\s*\\(",
-                // "execute\\s*\\("
-        };
-
-        for (String pattern : injectionPatterns) {
-            if (lowerSql.matches(".*" + pattern + ".*")) {
-                return true;
-            }
-        }
-
-        // 检查可能的SQL注入关键模式
-        // 1. 检查是否有多个语句（以分号分隔，但排除末尾分号）
-        String trimmedSql = sql.trim();
-        if (trimmedSql.endsWith(";")) {
-            trimmedSql = trimmedSql.substring(0, trimmedSql.length() - 1);
-        }
-        if (trimmedSql.contains(";")) {
-            return true; // 包含多个SQL语句
-        }
-
-        // 2. 检查危险的单引号模式（但排除正常的字符串值）
-        // 检查单引号后直接跟SQL关键字的情况（如 'OR 1=1）
-        if (lowerSql.matches(".*'\\s*(or|and|union|select|insert|update|delete|drop|create|alter).*")) {
-            return true;
-        }
-
-        // 3. 检查其他危险模式
-        if (lowerSql.matches(".*(1\\s*=\\s*1|0\\s*=\\s*0).*")) {
-            return true; // 常见的注入测试条件
-        }
-
-        return false;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,629 @@
+package com.example.sqlexecutor.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.exception.QueryCostExceededException;
+import com.example.sqlexecutor.util.ResultSizeEstimator;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流式Excel导出服务
+ *
+ * 查询以游标分批读取，数据行直接写入SXSSF工作簿（内存中只保留最近若干行，其余在临时文件中），
+ * 完成后工作簿写入临时文件（多数据源导出追加到ZIP临时文件），不构建结果列表，也不在内存中生成整个文件。
+ * SQL验证和代价检查在返回之前同步完成，失败时直接抛出异常；查询在导出线程池中执行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StreamingExportService {
+
+    private final SqlExecutionService sqlExecutionService;
+    private final ExcelExportService excelExportService;
+    private final DatasourceService datasourceService;
+    private final DatasourcePoolRegistry datasourcePoolRegistry;
+    private final CostGuardService costGuardService;
+    private final WorkloadManager workloadManager;
+    private final QueryStatisticsService queryStatisticsService;
+    private final QueryMetricsService queryMetricsService;
+    private final HostAwareScheduler hostAwareScheduler;
+
+    @Value("${sql-executor.export.parallelism:8}")
+    private int parallelism;
+
+    @Value("${sql-executor.multi-datasource.latency-ordering:true}")
+    private boolean latencyOrdering;
+
+    /**
+     * 将主数据源上的查询结果导出为Excel文件
+     *
+     * 查询和工作簿生成在导出线程池（代价检查转入后台通道时为后台线程池）中执行，不占用请求线程和MVC异步线程。
+     * 完整的文件写入临时文件后才完成，调用方可以据此决定响应状态和响应头：查询失败时尚未发出任何响应，
+     * 结果超出工作表行数上限时可以在响应头中标明。
+     *
+     * 调用方取消返回的结果时，尚未开始的查询不再执行，之后生成的文件直接删除。
+     *
+     * @return 完成时为生成的导出文件（调用方负责关闭以删除临时文件），查询或生成失败时异常完成
+     * @throws InvalidSqlException        SQL验证失败或不是查询语句
+     * @throws QueryCostExceededException 估算代价超过阈值且动作为拒绝
+     */
+    public CompletableFuture<ExportFile> exportQuery(ExecuteSqlRequest request, String sheetName) {
+        ExecuteSqlRequest.QueryOptions options = request.getOptions();
+        SqlAnalyzer.SqlAnalysis analysis = validateQuery(request.getQuery());
+        String sql = sqlExecutionService.applyRowLimit(request.getQuery(), analysis, options);
+        WorkloadClass workloadClass = sqlExecutionService.admitPrimary(sql, QuerySource.EXPORT);
+
+        CompletableFuture<ExportFile> result = new CompletableFuture<>();
+        workloadManager.getExecutor(workloadClass).execute(() -> {
+            if (result.isDone()) {
+                // 导出已取消
+                return;
+            }
+            try {
+                ExportFile file = writeQueryExport(request.getQuery(), sql, analysis, options, workloadClass,
+                        sheetName);
+                if (!result.complete(file)) {
+                    file.close();
+                }
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private ExportFile writeQueryExport(String query, String sql, SqlAnalyzer.SqlAnalysis analysis,
+            ExecuteSqlRequest.QueryOptions options, WorkloadClass workloadClass, String sheetName) {
+        long startTime = System.currentTimeMillis();
+        SheetRowHandler handler = null;
+        Path path = null;
+        ExportFile file = null;
+        try (ExcelExportService.SheetWriter writer = excelExportService.openSheetWriter(sheetName)) {
+            handler = new SheetRowHandler(writer);
+            sqlExecutionService.streamPrimary(sql, options, workloadClass, handler);
+            path = Files.createTempFile("sql-executor-export-", ".xlsx");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                writer.finish(out);
+            }
+            file = new ExportFile(path, Files.size(path), handler.rows, writer.isTruncated());
+            if (writer.isTruncated()) {
+                log.warn("导出结果超出Excel工作表行数上限，已截断");
+            }
+            return file;
+        } catch (IOException e) {
+            // 包括关闭写入器失败，此时文件不再交给调用方
+            file = null;
+            throw new UncheckedIOException("生成Excel文件失败: " + e.getMessage(), e);
+        } finally {
+            long executionTime = System.currentTimeMillis() - startTime;
+            record(QuerySource.EXPORT, SqlExecutionService.PRIMARY_DATASOURCE, query, analysis.getStatementType(),
+                    executionTime, handler, file != null);
+            if (file != null) {
+                queryMetricsService.recordExport("xlsx", file.size, executionTime);
+                log.info("Excel导出成功 - 数据行数: {}, 文件大小: {} bytes, 耗时: {}ms",
+                        file.rows, file.size, executionTime);
+            } else if (path != null) {
+                deleteTempFile(path);
+            }
+        }
+    }
+
+    /**
+     * 将多个数据源上的查询结果导出为ZIP压缩包（每个数据源一个Excel文件）
+     *
+     * 各数据源的工作簿在导出线程池中并行生成（同一请求最多 parallelism 个，按历史耗时由长到短提交，
+     * 同样受按主机调度的上限约束），各自写入临时文件；每个工作簿完成后由生成它的线程按完成顺序追加到ZIP临时文件
+     * 并提交下一个数据源，最后一个完成时结束ZIP。没有线程阻塞等待其他导出任务，导出线程池不会因同时进行的
+     * 多个ZIP导出而互相等待。总耗时接近最慢的一个工作簿。单个数据源失败时写入包含错误信息的Excel文件，
+     * 不影响其他数据源。调用方取消返回的结果时，尚未开始的数据源不再查询，ZIP临时文件随即删除。
+     *
+     * @return 完成时为生成的ZIP文件（调用方负责关闭以删除临时文件），ZIP写入失败时异常完成
+     * @throws InvalidSqlException       SQL验证失败或不是查询语句
+     * @throws IllegalArgumentException 有数据源不存在或已禁用
+     */
+    public CompletableFuture<ExportFile> exportMultiDatasourceQuery(String query, List<String> datasourceCodes,
+            ExecuteSqlRequest.QueryOptions options) {
+        SqlAnalyzer.SqlAnalysis analysis = validateQuery(query);
+        Map<String, DatasourceConfig> datasourceConfigs = datasourceService.getDatasourcesByCodes(datasourceCodes);
+        List<String> missingDatasources = datasourceCodes.stream()
+                .filter(code -> !datasourceConfigs.containsKey(code))
+                .collect(Collectors.toList());
+        if (!missingDatasources.isEmpty()) {
+            throw new IllegalArgumentException("以下数据源不存在或已禁用: " + String.join(", ", missingDatasources));
+        }
+        List<DatasourceConfig> configs = exportOrder(query, datasourceCodes, datasourceConfigs);
+
+        ZipAssembly assembly;
+        try {
+            assembly = new ZipAssembly(configs, query, analysis, options,
+                    workloadManager.getExecutor(WorkloadClass.of(QuerySource.MULTI_EXPORT)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建ZIP临时文件失败: " + e.getMessage(), e);
+        }
+        assembly.start();
+        return assembly.result;
+    }
+
+    /**
+     * 数据源的提交顺序：按历史耗时由长到短，没有历史记录的数据源视为最慢，耗时相同时保持请求顺序
+     */
+    private List<DatasourceConfig> exportOrder(String query, List<String> datasourceCodes,
+            Map<String, DatasourceConfig> datasourceConfigs) {
+        Map<String, Long> predictions = latencyOrdering
+                ? queryStatisticsService.predictMillis(query, datasourceCodes)
+                : Map.of();
+        return datasourceCodes.stream()
+                .sorted(Comparator.comparingLong((String code) -> predictions.getOrDefault(code, Long.MAX_VALUE))
+                        .reversed())
+                .map(datasourceConfigs::get)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * 在单个数据源上执行查询，并将结果生成为Excel临时文件
+     *
+     * 数据行先写入工作簿，查询结束后才确定文件名（成功、无数据或错误）。
+     */
+    private WorkbookEntry buildEntry(ZipAssembly assembly, DatasourceConfig config, String query,
+            SqlAnalyzer.SqlAnalysis analysis, ExecuteSqlRequest.QueryOptions options, long submittedAt) {
+        String datasourceCode = config.getDatasourceCode();
+        String datasourceName = config.getDatasourceName();
+        WorkbookEntry entry = new WorkbookEntry(datasourceCode, datasourceName);
+        long queryStart = System.nanoTime();
+        entry.queueWaitNanos = queryStart - submittedAt;
+        if (assembly.result.isDone()) {
+            // 导出已中止
+            return entry;
+        }
+
+        try (ExcelExportService.SheetWriter writer = excelExportService.openSheetWriter(datasourceName)) {
+            SheetRowHandler handler = new SheetRowHandler(writer);
+            String error = null;
+            try {
+                // 导出任务只能占用连接池的一部分，估算代价超过该数据源阈值的语句转入后台通道或被拒绝
+                try (DatasourcePoolRegistry.Lease lease = datasourcePoolRegistry.lease(config)) {
+                    JdbcTemplate jdbcTemplate = lease.getJdbcTemplate();
+                    WorkloadClass workloadClass = costGuardService.admit(jdbcTemplate, config, datasourceCode,
+                            query, WorkloadClass.of(QuerySource.MULTI_EXPORT), null);
+                    try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(workloadClass,
+                            datasourceCode, DatasourcePoolRegistry.maxPoolSize(config))) {
+                        sqlExecutionService.streamRows(jdbcTemplate, query, options, handler);
+                    }
+                }
+            } catch (Exception e) {
+                error = e.getMessage();
+                log.error("数据源 {} 导出失败: {}", datasourceName, e.getMessage());
+            }
+            entry.queryNanos = System.nanoTime() - queryStart;
+            entry.rows = handler.rows;
+            entry.truncated = writer.isTruncated();
+            record(QuerySource.MULTI_EXPORT, datasourceCode, query, analysis.getStatementType(),
+                    TimeUnit.NANOSECONDS.toMillis(entry.queryNanos), handler, error == null);
+
+            long workbookStart = System.nanoTime();
+            if (error == null) {
+                entry.fileName = handler.rows > 0 ? String.format("%s_%s.xlsx", datasourceCode, datasourceName)
+                        : String.format("%s_%s_无数据.xlsx", datasourceCode, datasourceName);
+                try (OutputStream out = entry.createFile()) {
+                    writer.finish(out);
+                }
+            } else {
+                entry.fileName = String.format("%s_%s_错误.xlsx", datasourceCode, datasourceName);
+                entry.error = error;
+                byte[] errorExcel = excelExportService.createErrorExcel(datasourceName, error, "查询失败");
+                try (OutputStream out = entry.createFile()) {
+                    out.write(errorExcel);
+                }
+            }
+            entry.completeFile();
+            entry.workbookNanos = System.nanoTime() - workbookStart;
+        } catch (IOException | RuntimeException e) {
+            log.error("数据源 {} 的工作簿生成失败: {}", datasourceName, e.getMessage());
+            entry.deleteFile();
+            entry.fileName = String.format("%s_%s_错误.xlsx", datasourceCode, datasourceName);
+            entry.error = "工作簿生成失败: " + e.getMessage();
+        }
+        return entry;
+    }
+
+    /**
+     * 将已生成的工作簿追加到ZIP，并记录各阶段耗时
+     */
+    private void writeEntry(ZipOutputStream zos, WorkbookEntry entry) throws IOException {
+        long writeStart = System.nanoTime();
+        try {
+            ZipEntry zipEntry = new ZipEntry(entry.fileName);
+            zipEntry.setComment(entry.describeTimings());
+            if (entry.file != null) {
+                // xlsx本身已是压缩包，按STORED原样写入，写出线程只做文件复制
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(entry.size);
+                zipEntry.setCompressedSize(entry.size);
+                zipEntry.setCrc(entry.crc.getValue());
+                zos.putNextEntry(zipEntry);
+                Files.copy(entry.file, zos);
+            } else {
+                // 任务无法执行或临时文件写入失败，写入包含错误信息的Excel文件
+                zos.putNextEntry(zipEntry);
+                zos.write(excelExportService.createErrorExcel(entry.datasourceName, entry.error, "查询失败"));
+            }
+            zos.closeEntry();
+        } finally {
+            entry.deleteFile();
+        }
+        long zipNanos = System.nanoTime() - writeStart;
+
+        queryMetricsService.recordExportEntry(entry.queueWaitNanos, entry.queryNanos, entry.workbookNanos, zipNanos);
+        log.info("数据源 {} 的工作簿已写入ZIP - 数据行数: {}, 排队: {}ms, 查询: {}ms, 生成工作簿: {}ms, 写入ZIP: {}ms",
+                entry.datasourceName, entry.rows, TimeUnit.NANOSECONDS.toMillis(entry.queueWaitNanos),
+                TimeUnit.NANOSECONDS.toMillis(entry.queryNanos), TimeUnit.NANOSECONDS.toMillis(entry.workbookNanos),
+                TimeUnit.NANOSECONDS.toMillis(zipNanos));
+    }
+
+    /**
+     * 验证SQL，导出只支持查询语句
+     */
+    private SqlAnalyzer.SqlAnalysis validateQuery(String query) {
+        SqlAnalyzer.SqlAnalysis analysis = sqlExecutionService.validateSql(query);
+        if (!"SELECT".equals(analysis.getStatementType()) && !"WITH".equals(analysis.getStatementType())) {
+            throw new InvalidSqlException("导出仅支持查询语句（SELECT、WITH）");
+        }
+        return analysis;
+    }
+
+    private void record(QuerySource source, String datasourceCode, String sql, String queryType,
+            long executionTime, SheetRowHandler handler, boolean success) {
+        long rows = handler != null ? handler.rows : 0;
+        long bytes = handler != null ? handler.estimatedBytes : 0;
+        queryStatisticsService.record(source, datasourceCode, sql, executionTime, rows, bytes, success);
+        queryMetricsService.recordQuery(source, datasourceCode, queryType, executionTime, rows, bytes, success);
+    }
+
+    /**
+     * 已生成的导出文件（临时文件），关闭时删除
+     */
+    public static final class ExportFile implements AutoCloseable {
+
+        private final Path path;
+        private final long size;
+        private final long rows;
+        private final boolean truncated;
+
+        /**
+         * @param path      临时文件
+         * @param size      文件大小（字节）
+         * @param rows      导出的数据行数
+         * @param truncated 数据行是否因超出工作表行数上限被截断
+         */
+        public ExportFile(Path path, long size, long rows, boolean truncated) {
+            this.path = path;
+            this.size = size;
+            this.rows = rows;
+            this.truncated = truncated;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * 文件大小（字节）
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 导出的数据行数
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * 数据行是否因超出工作表行数上限被截断
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * 删除临时文件
+         */
+        @Override
+        public void close() {
+            deleteTempFile(path);
+        }
+    }
+
+    private static void deleteTempFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除导出临时文件失败: {}", path, e);
+        }
+    }
+
+    /**
+     * 将数据行写入工作表，并统计行数和估算的数据字节数
+     */
+    private static final class SheetRowHandler implements SqlExecutionService.RowHandler {
+
+        private final ExcelExportService.SheetWriter writer;
+        private long rowOverhead;
+        private long rows;
+        private long estimatedBytes;
+
+        private SheetRowHandler(ExcelExportService.SheetWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void columns(String[] columnLabels) {
+            writer.writeHeader(columnLabels);
+            rowOverhead = ResultSizeEstimator.estimateRowOverhead(columnLabels);
+        }
+
+        @Override
+        public boolean row(Object[] values) {
+            if (!writer.writeRow(values)) {
+                return false;
+            }
+            long rowBytes = rowOverhead;
+            for (Object value : values) {
+                rowBytes += ResultSizeEstimator.estimateValue(value);
+            }
+            estimatedBytes += rowBytes;
+            rows++;
+            return true;
+        }
+    }
+
+    /**
+     * 单个数据源生成的工作簿（临时文件）及各阶段耗时
+     */
+    private static final class WorkbookEntry {
+
+        private final String datasourceCode;
+        private final String datasourceName;
+        private String fileName;
+        private String error;
+        private Path file;
+        private CRC32 crc;
+        private long size;
+        private long rows;
+        private boolean truncated;
+        private long queueWaitNanos;
+        private long queryNanos;
+        private long workbookNanos;
+
+        private WorkbookEntry(String datasourceCode, String datasourceName) {
+            this.datasourceCode = datasourceCode;
+            this.datasourceName = datasourceName;
+        }
+
+        /**
+         * 任务无法执行（如线程池拒绝）时的条目
+         */
+        private static WorkbookEntry failed(DatasourceConfig config, Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            WorkbookEntry entry = new WorkbookEntry(config.getDatasourceCode(), config.getDatasourceName());
+            entry.fileName = String.format("%s_%s_错误.xlsx", entry.datasourceCode, entry.datasourceName);
+            entry.error = cause.getMessage();
+            return entry;
+        }
+
+        /**
+         * 创建临时文件，返回的输出流在写入时同时计算CRC32
+         */
+        private OutputStream createFile() throws IOException {
+            file = Files.createTempFile("sql-executor-export-", ".xlsx");
+            crc = new CRC32();
+            return new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), crc);
+        }
+
+        private void completeFile() throws IOException {
+            size = Files.size(file);
+        }
+
+        private void deleteFile() {
+            if (file != null) {
+                deleteTempFile(file);
+                file = null;
+            }
+        }
+
+        /**
+         * 各阶段耗时，写入ZIP条目的注释
+         */
+        private String describeTimings() {
+            return String.format("rows=%d queueWait=%dms query=%dms workbook=%dms", rows,
+                    TimeUnit.NANOSECONDS.toMillis(queueWaitNanos), TimeUnit.NANOSECONDS.toMillis(queryNanos),
+                    TimeUnit.NANOSECONDS.toMillis(workbookNanos));
+        }
+    }
+
+    /**
+     * 一次多数据源导出的ZIP文件
+     *
+     * 工作簿任务完成后在其所在线程上追加到ZIP（追加之间互斥），并提交下一个数据源，同一请求同时生成的工作簿
+     * 不超过 parallelism 个。ZIP写入失败或调用方取消结果时结果异常完成，ZIP临时文件随即删除，之后完成的工作簿
+     * 直接删除，尚未开始的数据源不再执行。
+     */
+    private final class ZipAssembly {
+
+        private final CompletableFuture<ExportFile> result = new CompletableFuture<>();
+        private final Iterator<DatasourceConfig> pending;
+        private final String query;
+        private final SqlAnalyzer.SqlAnalysis analysis;
+        private final ExecuteSqlRequest.QueryOptions options;
+        private final ExecutorService executor;
+        private final Path path;
+        private final CountingOutputStream counter;
+        private final ZipOutputStream zos;
+        private final int datasourceCount;
+        private final long startTime = System.currentTimeMillis();
+        private int remaining;
+        private long rows;
+        private boolean truncated;
+        private boolean closed;
+
+        private ZipAssembly(List<DatasourceConfig> configs, String query, SqlAnalyzer.SqlAnalysis analysis,
+                ExecuteSqlRequest.QueryOptions options, ExecutorService executor) throws IOException {
+            this.pending = configs.iterator();
+            this.datasourceCount = configs.size();
+            this.remaining = configs.size();
+            this.query = query;
+            this.analysis = analysis;
+            this.options = options;
+            this.executor = executor;
+            this.path = Files.createTempFile("sql-executor-export-", ".zip");
+            this.counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+            this.zos = new ZipOutputStream(counter);
+            // 调用方取消时关闭并删除未完成的ZIP
+            result.whenComplete((file, e) -> {
+                if (e != null) {
+                    discard(null);
+                }
+            });
+        }
+
+        private synchronized void start() {
+            if (remaining == 0) {
+                finish();
+                return;
+            }
+            for (int i = 0; i < Math.max(1, parallelism) && pending.hasNext(); i++) {
+                submitNext();
+            }
+        }
+
+        /**
+         * 将下一个数据源的工作簿生成任务交给按主机调度的导出线程池，完成（或无法执行）后追加到ZIP
+         */
+        private void submitNext() {
+            DatasourceConfig config = pending.next();
+            long submittedAt = System.nanoTime();
+            hostAwareScheduler.submit(config,
+                    () -> buildEntry(this, config, query, analysis, options, submittedAt), executor)
+                    .whenComplete((entry, e) -> append(e == null ? entry : WorkbookEntry.failed(config, e)));
+        }
+
+        private synchronized void append(WorkbookEntry entry) {
+            if (result.isDone()) {
+                entry.deleteFile();
+                return;
+            }
+            try {
+                writeEntry(zos, entry);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                return;
+            }
+            rows += entry.rows;
+            truncated |= entry.truncated;
+            remaining--;
+            if (pending.hasNext()) {
+                submitNext();
+            } else if (remaining == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            try {
+                closed = true;
+                zos.close();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            long executionTime = System.currentTimeMillis() - startTime;
+            queryMetricsService.recordExport("zip", counter.getCount(), executionTime);
+            log.info("多数据源Excel导出成功 - 文件大小: {} bytes, 包含 {} 个数据源, 耗时: {}ms",
+                    counter.getCount(), datasourceCount, executionTime);
+            result.complete(new ExportFile(path, counter.getCount(), rows, truncated));
+        }
+
+        private void fail(Exception e) {
+            log.error("多数据源Excel导出失败: {}", e.getMessage());
+            discard(e);
+            result.completeExceptionally(e);
+        }
+
+        /**
+         * 关闭并删除ZIP临时文件（只执行一次），关闭失败附加到 failure 上
+         */
+        private synchronized void discard(Exception failure) {
+            if (!closed) {
+                closed = true;
+                try {
+                    zos.close();
+                } catch (IOException closeError) {
+                    if (failure != null) {
+                        failure.addSuppressed(closeError);
+                    }
+                }
+            }
+            deleteTempFile(path);
+        }
+    }
+
+    /**
+     * 统计写出字节数的输出流
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.sqlexecutor.service;
+
+/**
+ * 工作负载类别
+ *
+ * 不同类别使用独立的执行线程池，并各自占用数据源连接池中的一部分连接：导出和后台任务只能占用配置比例内的
+ * 线程和数据库连接，交互式查询使用其余的连接，以保证交互式查询不被大任务拖慢，大任务也不会被交互式查询饿死。
+ */
+public enum WorkloadClass {
+
+    /**
+     * 交互式查询（单数据源、多数据源、响应式查询）
+     */
+    INTERACTIVE("interactive"),
+
+    /**
+     * Excel导出
+     */
+    EXPORT("export"),
+
+    /**
+     * 后台/定时任务
+     */
+    BACKGROUND("background");
+
+    private final String tag;
+
+    WorkloadClass(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 用于日志和指标的类别标识
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * 执行路径对应的工作负载类别
+     */
+    public static WorkloadClass of(QuerySource source) {
+        switch (source) {
+            case EXPORT:
+            case MULTI_EXPORT:
+                return EXPORT;
+            default:
+                return INTERACTIVE;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.sqlexecutor.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.sqlexecutor.exception.ConnectionAdmissionException;
+import com.example.sqlexecutor.exception.SqlExecutionException;
+import com.example.sqlexecutor.util.VirtualThreads;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 工作负载管理服务
+ *
+ * 为每个工作负载类别提供独立的执行线程池，并对每个数据源的连接做按优先级的准入控制：
+ * 导出和后台任务最多占用配置比例的连接，两者合计不超过连接池扣除交互式保底份额后的部分；
+ * 交互式查询可以使用任何空闲连接直到占满连接池。连接不足时排队等待（超过准入超时则失败），
+ * 有连接释放时按 交互式 > 导出 > 后台 的优先级准入，因此大导出不会占满连接池，空闲时交互式查询也不会少用连接。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorkloadManager {
+
+    private final QueryMetricsService queryMetricsService;
+
+    @Value("${sql-executor.multi-datasource.thread-pool-size:10}")
+    private int threadPoolSize;
+
+    /**
+     * 并行查询执行模式：platform（固定大小线程池）或 virtual（每个任务一个虚拟线程）
+     */
+    @Value("${sql-executor.multi-datasource.execution-mode:platform}")
+    private String executionMode;
+
+    @Value("${sql-executor.workload.export-thread-share:0.3}")
+    private double exportThreadShare;
+
+    @Value("${sql-executor.workload.background-thread-share:0.2}")
+    private double backgroundThreadShare;
+
+    @Value("${sql-executor.workload.export-connection-share:0.3}")
+    private double exportConnectionShare;
+
+    @Value("${sql-executor.workload.background-connection-share:0.2}")
+    private double backgroundConnectionShare;
+
+    /**
+     * 为交互式查询保底的连接比例，导出和后台任务合计不能占用
+     */
+    @Value("${sql-executor.workload.interactive-reserved-share:0.2}")
+    private double interactiveReservedShare;
+
+    @Value("${sql-executor.workload.admission-timeout:60000}")
+    private long admissionTimeout;
+
+    private final Map<WorkloadClass, ExecutorService> executors = new EnumMap<>(WorkloadClass.class);
+
+    private final Map<String, ConnectionAdmission> admissions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        boolean virtual = "virtual".equalsIgnoreCase(executionMode);
+        boolean virtualActive = false;
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            // 虚拟线程模式下线程数不再受限，各类别只受连接份额限制
+            ExecutorService executor = virtual ? VirtualThreads.newVirtualThreadPerTaskExecutor() : null;
+            if (executor != null) {
+                virtualActive = true;
+            } else {
+                executor = Executors.newFixedThreadPool(threadsFor(workloadClass), namedThreadFactory(workloadClass));
+            }
+            executors.put(workloadClass, queryMetricsService.monitor(executor, "workload-" + workloadClass.getTag()));
+        }
+
+        if (virtualActive) {
+            log.info("工作负载线程池初始化，执行模式: virtual（并发受各数据源连接池容量限制）");
+        } else {
+            if (virtual) {
+                log.warn("当前JVM（{}）不支持虚拟线程，回退为固定大小线程池", Runtime.version());
+            }
+            log.info("工作负载线程池初始化，执行模式: platform，线程数 interactive: {}, export: {}, background: {}",
+                    threadsFor(WorkloadClass.INTERACTIVE), threadsFor(WorkloadClass.EXPORT),
+                    threadsFor(WorkloadClass.BACKGROUND));
+        }
+        log.info("连接份额上限 export: {}, background: {}，interactive 保底: {}，准入超时: {}ms",
+                exportConnectionShare, backgroundConnectionShare, interactiveReservedShare, admissionTimeout);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executors.values().forEach(ExecutorService::shutdown);
+        log.info("工作负载线程池已关闭");
+    }
+
+    /**
+     * 获取工作负载类别对应的执行线程池
+     */
+    public ExecutorService getExecutor(WorkloadClass workloadClass) {
+        return executors.get(workloadClass);
+    }
+
+    /**
+     * 申请在指定数据源上占用一个连接的准入许可
+     *
+     * 各类别最多占用 {@link #connectionPermits} 个连接，连接不足时按优先级等待，超过准入超时抛出异常。
+     * 返回的许可必须在语句执行完成后关闭。
+     *
+     * @param workloadClass  工作负载类别
+     * @param datasourceCode 数据源编码
+     * @param poolSize       该数据源连接池的最大连接数
+     */
+    public ConnectionPermit acquireConnection(WorkloadClass workloadClass, String datasourceCode, int poolSize) {
+        return acquireConnection(workloadClass, datasourceCode, poolSize, null);
+    }
+
+    /**
+     * 申请在指定数据源上占用一个连接的准入许可，等待时间不超过多数据源查询的剩余时间
+     *
+     * @param deadline 多数据源查询的整体截止时间（为null时只受准入超时限制）
+     */
+    public ConnectionPermit acquireConnection(WorkloadClass workloadClass, String datasourceCode, int poolSize,
+            FanoutDeadline deadline) {
+        ConnectionAdmission admission = admissions.compute(datasourceCode, (k, existing) -> existing != null
+                && existing.poolSize == poolSize ? existing : newAdmission(poolSize));
+
+        try {
+            // 等待时间由截止时间决定时，超时即视为超过截止时间（按毫秒取整后 isExpired 可能尚未成立）
+            boolean boundedByDeadline = deadline != null && deadline.remainingMillis() < admissionTimeout;
+            long waitMillis = boundedByDeadline ? deadline.remainingMillis() : admissionTimeout;
+            if (!admission.acquire(workloadClass, TimeUnit.MILLISECONDS.toNanos(waitMillis))) {
+                if (boundedByDeadline) {
+                    throw new ConnectionAdmissionException(String.format("数据源 %s 等待连接准入超过截止时间（%dms）",
+                            datasourceCode, deadline.getBudgetMillis()));
+                }
+                throw new ConnectionAdmissionException(String.format("数据源 %s 的%s连接份额已用尽，排队超时（%dms）",
+                        datasourceCode, workloadClass.getTag(), admissionTimeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SqlExecutionException("等待连接准入时被中断", e);
+        }
+        return new ConnectionPermit(admission, workloadClass);
+    }
+
+    private ConnectionAdmission newAdmission(int poolSize) {
+        int[] limits = new int[WorkloadClass.values().length];
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            limits[workloadClass.ordinal()] = connectionPermits(workloadClass, poolSize);
+        }
+        return new ConnectionAdmission(poolSize, limits, sharedConnectionLimit(poolSize));
+    }
+
+    private int threadsFor(WorkloadClass workloadClass) {
+        switch (workloadClass) {
+            case EXPORT:
+                return Math.max(1, (int) Math.ceil(threadPoolSize * exportThreadShare));
+            case BACKGROUND:
+                return Math.max(1, (int) Math.ceil(threadPoolSize * backgroundThreadShare));
+            default:
+                return threadPoolSize;
+        }
+    }
+
+    /**
+     * 某类别在连接池中最多占用的连接数
+     *
+     * 导出和后台任务按配置比例向下取整（至少一个连接），交互式查询可以占满连接池。
+     *
+     * @param poolSize 数据源连接池的最大连接数
+     */
+    int connectionPermits(WorkloadClass workloadClass, int poolSize) {
+        switch (workloadClass) {
+            case EXPORT:
+                return Math.max(1, (int) Math.floor(poolSize * exportConnectionShare));
+            case BACKGROUND:
+                return Math.max(1, (int) Math.floor(poolSize * backgroundConnectionShare));
+            default:
+                return Math.max(1, poolSize);
+        }
+    }
+
+    /**
+     * 导出和后台任务合计最多占用的连接数：扣除交互式保底份额（向上取整）后的部分，至少一个连接，
+     * 因此只有一个连接的连接池无法为交互式查询保底
+     */
+    int sharedConnectionLimit(int poolSize) {
+        int reserved = (int) Math.ceil(poolSize * interactiveReservedShare);
+        return Math.max(1, poolSize - reserved);
+    }
+
+    private static ThreadFactory namedThreadFactory(WorkloadClass workloadClass) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> new Thread(runnable, "workload-" + workloadClass.getTag() + "-" + counter.incrementAndGet());
+    }
+
+    /**
+     * 某数据源上各类别的连接占用和等待情况
+     */
+    private static final class ConnectionAdmission {
+
+        private final int poolSize;
+        private final int[] limits;
+        private final int sharedLimit;
+        private final int[] inUse = new int[WorkloadClass.values().length];
+        private final int[] waiting = new int[WorkloadClass.values().length];
+        private int totalInUse;
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Condition released = lock.newCondition();
+
+        private ConnectionAdmission(int poolSize, int[] limits, int sharedLimit) {
+            this.poolSize = poolSize;
+            this.limits = limits;
+            this.sharedLimit = sharedLimit;
+        }
+
+        private boolean acquire(WorkloadClass workloadClass, long waitNanos) throws InterruptedException {
+            int index = workloadClass.ordinal();
+            lock.lock();
+            try {
+                if (tryAdmit(index)) {
+                    return true;
+                }
+                waiting[index]++;
+                try {
+                    long remaining = waitNanos;
+                    while (!tryAdmit(index)) {
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                    return true;
+                } finally {
+                    waiting[index]--;
+                    // 放弃等待后，可能有被本线程挡住的低优先级等待者
+                    released.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 有空余且没有可以准入的更高优先级等待者时占用一个连接（优先级即 {@link WorkloadClass} 的声明顺序）
+         */
+        private boolean tryAdmit(int index) {
+            if (!canAdmit(index)) {
+                return false;
+            }
+            for (int higher = 0; higher < index; higher++) {
+                if (waiting[higher] > 0 && canAdmit(higher)) {
+                    return false;
+                }
+            }
+            inUse[index]++;
+            totalInUse++;
+            return true;
+        }
+
+        private boolean canAdmit(int index) {
+            if (totalInUse >= poolSize || inUse[index] >= limits[index]) {
+                return false;
+            }
+            return index == WorkloadClass.INTERACTIVE.ordinal()
+                    || totalInUse - inUse[WorkloadClass.INTERACTIVE.ordinal()] < sharedLimit;
+        }
+
+        private void release(int index) {
+            lock.lock();
+            try {
+                inUse[index]--;
+                totalInUse--;
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 连接准入许可（关闭时归还）
+     */
+    public static final class ConnectionPermit implements AutoCloseable {
+
+        private final ConnectionAdmission admission;
+        private final WorkloadClass workloadClass;
+        private boolean released;
+
+        private ConnectionPermit(ConnectionAdmission admission, WorkloadClass workloadClass) {
+            this.admission = admission;
+            this.workloadClass = workloadClass;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                admission.release(workloadClass.ordinal());
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.sqlexecutor.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应并发限制器（梯度算法）
+ *
+ * 按采样窗口统计请求平均耗时，与基线（各窗口平均耗时的长期指数平均）比较：
+ * 当前耗时超过基线的 tolerance 倍时，上限按 基线×tolerance/当前耗时 的梯度（不低于0.5）缩小；
+ * 耗时在容忍范围内时上限增加 √limit 的排队余量。新旧上限加权平滑，且只有实际并发接近上限时才调整，
+ * 避免在低负载下上限无限上涨。过载信号（连接获取超时、准入超时、503/429）按比例立即缩减上限。
+ * 超过上限的请求立即拒绝，不排队。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 基线的指数平均跨度（窗口数）
+     */
+    private static final int BASELINE_WINDOWS = 20;
+
+    /**
+     * 新上限的平滑权重
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 梯度下界，单个窗口最多把上限减半
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final int windowSize;
+
+    private double limit;
+    private int inFlight;
+
+    private long windowLatencyNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double baselineNanos;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param name         限制器名称（用于日志和指标）
+     * @param initialLimit 初始并发上限
+     * @param minLimit     并发上限下界
+     * @param maxLimit     并发上限上界
+     * @param backoffRatio 出现过载信号时的缩减比例（0~1）
+     * @param tolerance    耗时相对基线的容忍倍数（不小于1），超过即按梯度缩减
+     * @param windowSize   每个采样窗口的请求数
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+            double backoffRatio, double tolerance, int windowSize) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, backoffRatio));
+        this.tolerance = Math.max(1.0, tolerance);
+        this.windowSize = Math.max(1, windowSize);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * 尝试获取一个并发名额
+     *
+     * @return 未超过上限时返回true（调用方必须在完成后调用 {@link #release}）
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * 释放名额并根据本次请求的结果调整上限
+     *
+     * @param latencyNanos 请求耗时（纳秒）
+     * @param overloaded   请求是否因过载失败（见 {@link OverloadSignals}）；与负载无关的失败按正常样本处理
+     */
+    public synchronized void release(long latencyNanos, boolean overloaded) {
+        int inFlightAtCompletion = inFlight;
+        inFlight = Math.max(0, inFlight - 1);
+
+        if (overloaded) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            resetWindow();
+            return;
+        }
+
+        windowLatencyNanos += latencyNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtCompletion);
+        if (windowSamples < windowSize) {
+            return;
+        }
+
+        double latency = Math.max(1, (double) windowLatencyNanos / windowSamples);
+        boolean utilized = windowMaxInFlight * 2 >= limit;
+        resetWindow();
+
+        if (baselineNanos == 0) {
+            baselineNanos = latency;
+            return;
+        }
+        baselineNanos += (latency - baselineNanos) / BASELINE_WINDOWS;
+        // 负载下降后耗时明显低于基线时，加快基线回落
+        if (baselineNanos > latency * 2) {
+            baselineNanos *= 0.95;
+        }
+
+        if (!utilized) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineNanos / latency));
+        double target = limit * gradient + (gradient >= 1.0 ? Math.sqrt(limit) : 0);
+        limit = Math.min(maxLimit, Math.max(minLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    private void resetWindow() {
+        windowLatencyNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 当前进行中的请求数
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 基线耗时（毫秒，尚无完整采样窗口时为0）
+     */
+    public synchronized double getBaselineLatencyMillis() {
+        return baselineNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 累计拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sqlexecutor.util;
+
+import java.sql.SQLTransientConnectionException;
+
+import com.example.sqlexecutor.exception.ConnectionAdmissionException;
+import com.example.sqlexecutor.exception.ResultMemoryExceededException;
+
+/**
+ * 过载信号判断
+ *
+ * 只有说明服务端资源已饱和的失败才算过载：连接池获取连接超时、连接准入超时、全局结果内存预算用尽。
+ * SQL语法错误、权限不足、语句超时等与负载无关的失败不算。
+ */
+public final class OverloadSignals {
+
+    private OverloadSignals() {
+    }
+
+    /**
+     * 异常（含其原因链）是否为过载信号
+     */
+    public static boolean isOverload(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof ConnectionAdmissionException || e instanceof SQLTransientConnectionException) {
+                return true;
+            }
+            if (e instanceof ResultMemoryExceededException && ((ResultMemoryExceededException) e).isGlobal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sqlexecutor.util;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+
+/**
+ * 合并各数据源的分组部分聚合结果
+ *
+ * 分组键按规范化后的文本比较，不同数据源上类型不同但值相同的分组（如 int4 与 int8）合并为一组，
+ * 输出保留该组第一次出现时的原始值，分组按第一次出现的顺序输出。
+ */
+public final class PartialAggregator {
+
+    private final List<String> groupBy;
+    private final List<MultiDatasourceQueryRequest.AggregateSpec> aggregates;
+    private final String[] functions;
+    private final Map<List<String>, Group> groups = new LinkedHashMap<>();
+
+    public PartialAggregator(List<String> groupBy, List<MultiDatasourceQueryRequest.AggregateSpec> aggregates) {
+        this.groupBy = groupBy != null ? groupBy : List.of();
+        this.aggregates = aggregates;
+        this.functions = new String[aggregates.size()];
+        for (int i = 0; i < functions.length; i++) {
+            MultiDatasourceQueryRequest.AggregateSpec spec = aggregates.get(i);
+            String function = spec.getFunction() != null ? spec.getFunction().trim().toUpperCase(Locale.ROOT) : "";
+            switch (function) {
+                case "COUNT":
+                case "SUM":
+                case "MIN":
+                case "MAX":
+                    break;
+                case "AVG":
+                    if (spec.getCountColumn() == null || spec.getCountColumn().isBlank()) {
+                        throw new IllegalArgumentException("AVG 合并需要指定部分计数列 countColumn: " + spec.getColumn());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("不支持的合并函数: " + spec.getFunction());
+            }
+            if (spec.getColumn() == null || spec.getColumn().isBlank()) {
+                throw new IllegalArgumentException("聚合列 column 不能为空");
+            }
+            functions[i] = function;
+        }
+    }
+
+    /**
+     * 合并一行部分聚合结果
+     */
+    public void add(Map<String, Object> row) throws SQLException {
+        List<String> key = new ArrayList<>(groupBy.size());
+        for (String column : groupBy) {
+            key.add(RowHasher.normalize(row.get(column)));
+        }
+        Group group = groups.computeIfAbsent(key, k -> new Group(row));
+
+        for (int i = 0; i < functions.length; i++) {
+            MultiDatasourceQueryRequest.AggregateSpec spec = aggregates.get(i);
+            Object value = row.get(spec.getColumn());
+            switch (functions[i]) {
+                case "MIN":
+                case "MAX":
+                    if (value != null && (group.values[i] == null || ("MIN".equals(functions[i])
+                            ? RowComparator.compareValues(value, group.values[i]) < 0
+                            : RowComparator.compareValues(value, group.values[i]) > 0))) {
+                        group.values[i] = value;
+                    }
+                    break;
+                case "AVG":
+                    Object count = row.get(spec.getCountColumn());
+                    if (count instanceof Number) {
+                        group.counts[i] = group.counts[i].add(RowComparator.toBigDecimal((Number) count));
+                    }
+                    group.values[i] = add(group.values[i], value);
+                    break;
+                default:
+                    group.values[i] = add(group.values[i], value);
+            }
+        }
+    }
+
+    private static Object add(Object total, Object value) {
+        if (!(value instanceof Number)) {
+            return total;
+        }
+        BigDecimal number = RowComparator.toBigDecimal((Number) value);
+        return total == null ? number : ((BigDecimal) total).add(number);
+    }
+
+    /**
+     * 合并后的分组结果（分组列在前，聚合列在后）
+     */
+    public List<Map<String, Object>> result() {
+        List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String column : groupBy) {
+                row.put(column, group.firstRow.get(column));
+            }
+            for (int i = 0; i < functions.length; i++) {
+                MultiDatasourceQueryRequest.AggregateSpec spec = aggregates.get(i);
+                String name = spec.getAlias() != null && !spec.getAlias().isBlank() ? spec.getAlias()
+                        : spec.getColumn();
+                row.put(name, finish(functions[i], group.values[i], group.counts[i]));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Object finish(String function, Object value, BigDecimal count) {
+        switch (function) {
+            case "COUNT":
+                return value != null ? ((BigDecimal) value).longValue() : 0L;
+            case "AVG":
+                return value != null && count.signum() != 0
+                        ? ((BigDecimal) value).divide(count, MathContext.DECIMAL64)
+                        : null;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * 分组的累计值
+     */
+    private final class Group {
+
+        private final Map<String, Object> firstRow;
+        private final Object[] values = new Object[functions.length];
+        private final BigDecimal[] counts = new BigDecimal[functions.length];
+
+        private Group(Map<String, Object> firstRow) {
+            this.firstRow = firstRow;
+            Arrays.fill(counts, BigDecimal.ZERO);
+        }
+    }
+}
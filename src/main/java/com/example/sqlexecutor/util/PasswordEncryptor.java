@@ -1,8 +1,10 @@
 package com.example.sqlexecutor.util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 
 import javax.crypto.Cipher;
@@ -14,11 +16,15 @@ import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * 密码加密解密工具类
  * 使用 AES-256-GCM 加密算法
+ *
+ * 密钥在启动时派生一次，Cipher 按线程复用，IV 由共享的 SecureRandom 生成。
+ * 解密结果不缓存，明文只在调用方手中存在。
  */
 @Slf4j
 @Component
@@ -31,30 +37,45 @@ public class PasswordEncryptor {
     @Value("${sql-executor.encryption.secret-key:MySecretKey123456MySecretKey123456}")
     private String secretKeyString;
 
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("当前JVM不支持 " + ALGORITHM, e);
+        }
+    });
+
+    private SecretKey secretKey;
+
+    @PostConstruct
+    public void init() {
+        secretKey = deriveSecretKey(secretKeyString);
+    }
+
     /**
      * 加密密码
      */
     public String encrypt(String plainText) {
         try {
-            SecretKey secretKey = getSecretKey();
-
             // 生成随机 IV
             byte[] iv = new byte[GCM_IV_LENGTH];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
+            secureRandom.nextBytes(iv);
 
             // 初始化加密器
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Cipher cipher = ciphers.get();
             GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
             cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
 
-            // 加密
-            byte[] encryptedData = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            // 将 IV 和加密数据组合
-            byte[] combined = new byte[iv.length + encryptedData.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encryptedData, 0, combined, iv.length, encryptedData.length);
+            // 加密，IV 和加密数据组合在同一个数组中
+            byte[] plainData = plainText.getBytes(StandardCharsets.UTF_8);
+            byte[] combined = new byte[GCM_IV_LENGTH + cipher.getOutputSize(plainData.length)];
+            System.arraycopy(iv, 0, combined, 0, GCM_IV_LENGTH);
+            int length = cipher.doFinal(plainData, 0, plainData.length, combined, GCM_IV_LENGTH);
+            if (GCM_IV_LENGTH + length < combined.length) {
+                combined = Arrays.copyOf(combined, GCM_IV_LENGTH + length);
+            }
 
             // Base64 编码
             return Base64.getEncoder().encodeToString(combined);
@@ -70,25 +91,19 @@ public class PasswordEncryptor {
      */
     public String decrypt(String encryptedText) {
         try {
-            SecretKey secretKey = getSecretKey();
-
-            // Base64 解码
+            // Base64 解码，IV 和加密数据直接从组合数组中读取
             byte[] combined = Base64.getDecoder().decode(encryptedText);
 
-            // 分离 IV 和加密数据
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byte[] encryptedData = new byte[combined.length - GCM_IV_LENGTH];
-            System.arraycopy(combined, 0, iv, 0, iv.length);
-            System.arraycopy(combined, iv.length, encryptedData, 0, encryptedData.length);
-
             // 初始化解密器
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
+            Cipher cipher = ciphers.get();
+            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, combined, 0, GCM_IV_LENGTH);
             cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
 
             // 解密
-            byte[] decryptedData = cipher.doFinal(encryptedData);
-            return new String(decryptedData, StandardCharsets.UTF_8);
+            byte[] decryptedData = cipher.doFinal(combined, GCM_IV_LENGTH, combined.length - GCM_IV_LENGTH);
+            String plainText = new String(decryptedData, StandardCharsets.UTF_8);
+            Arrays.fill(decryptedData, (byte) 0);
+            return plainText;
 
         } catch (Exception e) {
             log.error("密码解密失败", e);
@@ -117,13 +132,17 @@ public class PasswordEncryptor {
     }
 
     /**
-     * 获取密钥
+     * 派生密钥
      */
-    private SecretKey getSecretKey() throws Exception {
-        // 使用配置的密钥字符串生成固定的 AES 密钥
-        MessageDigest sha = MessageDigest.getInstance("SHA-256");
-        byte[] key = sha.digest(secretKeyString.getBytes(StandardCharsets.UTF_8));
-        return new SecretKeySpec(key, "AES");
+    private static SecretKey deriveSecretKey(String secretKeyString) {
+        try {
+            // 使用配置的密钥字符串生成固定的 AES 密钥
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] key = sha.digest(secretKeyString.getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(key, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("派生密钥失败", e);
+        }
     }
 
     /**
@@ -0,0 +1,107 @@
+package com.example.sqlexecutor.util;
+
+import java.lang.management.ManagementFactory;
+
+import com.example.sqlexecutor.dto.QueryTimings;
+
+/**
+ * 请求阶段计时器
+ *
+ * 在执行路径上用 System.nanoTime 打点累加各阶段耗时，并通过
+ * {@link com.sun.management.ThreadMXBean} 统计执行线程的内存分配量。
+ * 仅在请求开启 timings 时创建；所有阶段必须在创建它的线程上记录。
+ */
+public class PhaseTimer {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = resolveThreadMXBean();
+
+    private final long startNanos = System.nanoTime();
+    private final long startAllocatedBytes = currentThreadAllocatedBytes();
+
+    private long validationNanos = -1;
+    private long queueWaitNanos = -1;
+    private long connectionAcquireNanos = -1;
+    private long explainNanos = -1;
+    private long executionNanos;
+    private long fetchNanos;
+    private long mappingNanos;
+
+    public void setValidationNanos(long validationNanos) {
+        this.validationNanos = validationNanos;
+    }
+
+    public void setQueueWaitNanos(long queueWaitNanos) {
+        this.queueWaitNanos = queueWaitNanos;
+    }
+
+    public void setConnectionAcquireNanos(long connectionAcquireNanos) {
+        this.connectionAcquireNanos = connectionAcquireNanos;
+    }
+
+    public void addExplainNanos(long nanos) {
+        explainNanos = Math.max(explainNanos, 0) + nanos;
+    }
+
+    public void addExecutionNanos(long nanos) {
+        executionNanos += nanos;
+    }
+
+    public void addFetchNanos(long nanos) {
+        fetchNanos += nanos;
+    }
+
+    public void addMappingNanos(long nanos) {
+        mappingNanos += nanos;
+    }
+
+    /**
+     * 结束计时并生成耗时明细
+     *
+     * @param rows 返回或受影响的行数
+     */
+    public QueryTimings finish(long rows) {
+        long totalNanos = System.nanoTime() - startNanos;
+        long processingNanos = executionNanos + fetchNanos + mappingNanos;
+        long allocatedBytes = currentThreadAllocatedBytes();
+
+        return QueryTimings.builder()
+                .validation(validationNanos >= 0 ? QueryTimings.toMillis(validationNanos) : null)
+                .queueWait(queueWaitNanos >= 0 ? QueryTimings.toMillis(queueWaitNanos) : null)
+                .connectionAcquire(connectionAcquireNanos >= 0 ? QueryTimings.toMillis(connectionAcquireNanos) : null)
+                .explain(explainNanos >= 0 ? QueryTimings.toMillis(explainNanos) : null)
+                .execution(QueryTimings.toMillis(executionNanos))
+                .fetch(QueryTimings.toMillis(fetchNanos))
+                .mapping(QueryTimings.toMillis(mappingNanos))
+                .total(QueryTimings.toMillis(totalNanos))
+                .rowsPerSecond(processingNanos > 0 ? Math.round(rows * 1e9 / processingNanos * 10) / 10.0 : null)
+                .allocatedBytes(allocatedBytes >= 0 && startAllocatedBytes >= 0
+                        ? allocatedBytes - startAllocatedBytes
+                        : null)
+                .build();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN == null) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean resolveThreadMXBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    if (!bean.isThreadAllocatedMemoryEnabled()) {
+                        bean.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return bean;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 不支持线程内存分配统计的JVM上不返回 allocatedBytes
+        }
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.sqlexecutor.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 不可变的前缀索引
+ *
+ * 键统一转为小写后排序存放在数组中，前缀查找先二分定位到第一个不小于前缀的键，再顺序读取直到键不再以
+ * 前缀开头，查找耗时只与命中数量有关。
+ *
+ * @param <T> 索引的元素类型
+ */
+public final class PrefixIndex<T> {
+
+    private final String[] keys;
+    private final Object[] values;
+
+    private PrefixIndex(String[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param elements 元素（同一个键可以对应多个元素，按元素原有顺序返回）
+     * @param keyOf    取元素的键
+     */
+    public static <T> PrefixIndex<T> of(List<T> elements, Function<T, String> keyOf) {
+        int size = elements.size();
+        String[] lowerKeys = new String[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            lowerKeys[i] = keyOf.apply(elements.get(i)).toLowerCase(Locale.ROOT);
+            order[i] = i;
+        }
+        // 稳定排序，保持同键元素的原有顺序
+        Arrays.sort(order, Comparator.comparing(i -> lowerKeys[i]));
+
+        String[] keys = new String[size];
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = lowerKeys[order[i]];
+            values[i] = elements.get(order[i]);
+        }
+        return new PrefixIndex<>(keys, values);
+    }
+
+    /**
+     * 查找键以指定前缀开头（不区分大小写）的元素
+     *
+     * @param prefix 前缀（为空时返回全部元素中的前limit个）
+     * @param filter 附加过滤条件（为null时不过滤）
+     * @param limit  最多返回的元素数
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> search(String prefix, Predicate<T> filter, int limit) {
+        String lowerPrefix = prefix != null ? prefix.toLowerCase(Locale.ROOT) : "";
+        int index = Arrays.binarySearch(keys, lowerPrefix);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // 二分查找命中的可能是同键元素中的任意一个，回退到第一个
+        while (index > 0 && keys[index - 1].equals(lowerPrefix)) {
+            index--;
+        }
+
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        for (int i = index; i < keys.length && result.size() < limit && keys[i].startsWith(lowerPrefix); i++) {
+            T value = (T) values[i];
+            if (filter == null || filter.test(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引的元素数
+     */
+    public int size() {
+        return keys.length;
+    }
+}
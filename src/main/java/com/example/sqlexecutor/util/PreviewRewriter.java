@@ -0,0 +1,168 @@
+package com.example.sqlexecutor.util;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 预览查询改写
+ *
+ * 识别“SELECT 列 FROM 单表 [[AS] 别名]”形式的简单查询：列只能是列名、*、表.* 及其别名，
+ * 不含 WHERE、JOIN、聚合、排序、LIMIT 等子句。这类查询可以在表名（及别名）之后插入 TABLESAMPLE
+ * 子句做抽样而不改变语义；其他查询不改写。
+ */
+public final class PreviewRewriter {
+
+    /**
+     * 不能出现在简单查询列表中的关键字
+     */
+    private static final Set<String> COLUMN_KEYWORDS = Set.of("DISTINCT", "ALL", "INTO", "CASE");
+
+    /**
+     * 出现在表名之后即说明还有其他子句的关键字
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of("WHERE", "GROUP", "HAVING", "ORDER", "LIMIT",
+            "OFFSET", "FETCH", "FOR", "WINDOW", "UNION", "INTERSECT", "EXCEPT", "JOIN", "INNER", "LEFT", "RIGHT",
+            "FULL", "CROSS", "NATURAL", "TABLESAMPLE", "ONLY", "LATERAL");
+
+    private PreviewRewriter() {
+    }
+
+    /**
+     * 解析简单单表查询
+     *
+     * @return 简单查询的表信息；不是简单查询时返回null
+     */
+    public static SimpleSelect parse(String sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        int state = 0; // 0: SELECT, 1: 列, 2: 表名, 3: 表名之后
+        boolean hasColumns = false;
+        boolean expectIdentifier = true;
+        boolean asSeen = false;
+        boolean aliasSeen = false;
+        boolean terminated = false;
+        int tableStart = -1;
+        int tableEnd = -1;
+        int insertPosition = -1;
+
+        while (lexer.next()) {
+            if (!lexer.isSignificant()) {
+                continue;
+            }
+            if (terminated) {
+                return null;
+            }
+            boolean identifier = lexer.type() == SqlLexer.TokenType.WORD
+                    || lexer.type() == SqlLexer.TokenType.QUOTED_IDENTIFIER;
+
+            if (state == 0) {
+                if (!lexer.wordEquals("SELECT")) {
+                    return null;
+                }
+                state = 1;
+                continue;
+            }
+
+            if (state == 1) {
+                if (lexer.wordEquals("FROM")) {
+                    if (!hasColumns) {
+                        return null;
+                    }
+                    state = 2;
+                } else if (lexer.type() == SqlLexer.TokenType.WORD
+                        && COLUMN_KEYWORDS.contains(lexer.text().toUpperCase(Locale.ROOT))) {
+                    return null;
+                } else if (identifier || lexer.isChar('*') || lexer.isChar('.') || lexer.isChar(',')) {
+                    hasColumns = true;
+                } else {
+                    return null;
+                }
+                continue;
+            }
+
+            if (state == 2) {
+                // 表名：[模式.]表
+                if (expectIdentifier) {
+                    if (!identifier || isClauseKeyword(lexer)) {
+                        return null;
+                    }
+                    if (tableStart < 0) {
+                        tableStart = lexer.start();
+                    }
+                    tableEnd = lexer.end();
+                    expectIdentifier = false;
+                    continue;
+                }
+                if (lexer.isChar('.')) {
+                    expectIdentifier = true;
+                    continue;
+                }
+                state = 3;
+            }
+
+            // 表名之后只允许 [AS] 别名 和结尾的分号
+            if (lexer.isChar(';')) {
+                terminated = true;
+            } else if (!asSeen && !aliasSeen && lexer.wordEquals("AS")) {
+                asSeen = true;
+            } else if (!aliasSeen && identifier && !isClauseKeyword(lexer)) {
+                aliasSeen = true;
+                insertPosition = lexer.end();
+            } else {
+                return null;
+            }
+        }
+
+        if (state < 2 || expectIdentifier || (asSeen && !aliasSeen)) {
+            return null;
+        }
+        return new SimpleSelect(sql.substring(tableStart, tableEnd), aliasSeen ? insertPosition : tableEnd);
+    }
+
+    private static boolean isClauseKeyword(SqlLexer lexer) {
+        return lexer.type() == SqlLexer.TokenType.WORD
+                && CLAUSE_KEYWORDS.contains(lexer.text().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * 生成抽样查询：在表名（及别名）之后插入 TABLESAMPLE，并限制返回行数
+     *
+     * @param sql     原始SQL
+     * @param select  简单查询的解析结果
+     * @param method  抽样方法（SYSTEM 或 BERNOULLI）
+     * @param percent 抽样百分比（0~100）
+     * @param limit   返回行数上限
+     */
+    public static String rewrite(String sql, SimpleSelect select, String method, double percent, int limit) {
+        return sql.substring(0, select.getInsertPosition())
+                + " TABLESAMPLE " + method + " (" + String.format(Locale.ROOT, "%.6f", percent) + ")"
+                + " LIMIT " + limit;
+    }
+
+    /**
+     * 简单单表查询的解析结果
+     */
+    public static final class SimpleSelect {
+
+        private final String table;
+        private final int insertPosition;
+
+        private SimpleSelect(String table, int insertPosition) {
+            this.table = table;
+            this.insertPosition = insertPosition;
+        }
+
+        /**
+         * 表名（保持原始写法，可能带模式名和引号）
+         */
+        public String getTable() {
+            return table;
+        }
+
+        /**
+         * TABLESAMPLE 子句的插入位置
+         */
+        public int getInsertPosition() {
+            return insertPosition;
+        }
+    }
+}
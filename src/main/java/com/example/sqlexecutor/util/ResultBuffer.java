@@ -0,0 +1,252 @@
+package com.example.sqlexecutor.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 可溢出到磁盘的查询结果缓冲区
+ *
+ * 前若干MB的行以Map形式保存在堆上，超出后（或调用方预算不足时）按 {@link RowCodec} 编码，
+ * 经写缓冲区追加写入临时文件，堆上只保留每行的偏移量。实现只读的 {@link List}：JSON序列化、Excel导出的
+ * 顺序遍历和按下标、分页（{@link #subList}）访问都按偏移量从文件定位读取并解码。
+ *
+ * 文件以通道的定位读写访问，不做内存映射：关闭时通道和文件立即释放，关闭后的读取只会得到异常。
+ * 写入只能在一个线程中进行；写入完成后可被多个线程并发读取。关闭后删除临时文件，不能再读取。
+ */
+public class ResultBuffer extends AbstractList<Map<String, Object>> implements RandomAccess, AutoCloseable {
+
+    private final String[] columnLabels;
+    private final Path directory;
+    private final long heapLimitBytes;
+    private final long maxDiskBytes;
+    private final int writeBufferSize;
+
+    private final List<Map<String, Object>> heapRows = new ArrayList<>();
+    private long heapBytes;
+    private boolean spilling;
+
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private long[] offsets = new long[1024];
+    private int diskRowCount;
+    private long diskBytes;
+    private volatile long flushedBytes;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+
+    private volatile boolean closed;
+
+    /**
+     * @param columnLabels   列标签（按结果集顺序）
+     * @param directory      临时文件目录
+     * @param heapLimitBytes 保留在堆上的行的估算字节数上限
+     * @param maxDiskBytes    写入磁盘的字节数上限
+     * @param writeBufferSize 写缓冲区大小（攒满后一次写入文件）
+     */
+    public ResultBuffer(String[] columnLabels, Path directory, long heapLimitBytes, long maxDiskBytes,
+            int writeBufferSize) {
+        this.columnLabels = columnLabels;
+        this.directory = directory;
+        this.heapLimitBytes = heapLimitBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.writeBufferSize = Math.max(4096, writeBufferSize);
+    }
+
+    /**
+     * 追加一行
+     *
+     * @param row          数据行
+     * @param rowHeapBytes 该行估算的堆占用
+     * @return 写入成功返回true；磁盘占用超过上限时返回false（该行未写入）
+     */
+    public boolean append(Map<String, Object> row, long rowHeapBytes) {
+        if (closed) {
+            throw new IllegalStateException("结果缓冲区已关闭");
+        }
+        if (!spilling && heapBytes + rowHeapBytes > heapLimitBytes) {
+            spilling = true;
+        }
+        if (!spilling) {
+            heapRows.add(row);
+            heapBytes += rowHeapBytes;
+            return true;
+        }
+        return writeToDisk(row);
+    }
+
+    /**
+     * 是否已切换为写入磁盘
+     */
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    /**
+     * 此后追加的行全部写入磁盘
+     */
+    public void startSpilling() {
+        spilling = true;
+    }
+
+    private synchronized boolean writeToDisk(Map<String, Object> row) {
+        scratch.clear();
+        while (true) {
+            try {
+                RowCodec.encode(row, columnLabels, scratch);
+                break;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+        scratch.flip();
+        int length = scratch.remaining();
+        if (diskBytes + length > maxDiskBytes) {
+            return false;
+        }
+
+        try {
+            if (channel == null) {
+                openFile();
+            }
+            if (writeBuffer.remaining() < length) {
+                flush();
+            }
+            if (length > writeBuffer.capacity()) {
+                // 超过写缓冲区的大行直接写入文件
+                writeFully(scratch, diskBytes);
+            } else {
+                writeBuffer.put(scratch);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入结果溢出文件失败", e);
+        }
+
+        if (diskRowCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[diskRowCount++] = diskBytes;
+        diskBytes += length;
+        if (writeBuffer.position() == 0) {
+            flushedBytes = diskBytes;
+        }
+        return true;
+    }
+
+    private void openFile() throws IOException {
+        file = Files.createTempFile(directory, "result-", ".spill");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeBuffer = ByteBuffer.allocate(writeBufferSize);
+    }
+
+    /**
+     * 将写缓冲区中的数据写入文件
+     */
+    private synchronized void flush() throws IOException {
+        if (writeBuffer == null || writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer, flushedBytes);
+        writeBuffer.clear();
+        flushedBytes = diskBytes;
+    }
+
+    private void writeFully(ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (closed) {
+            throw new IllegalStateException("结果缓冲区已关闭");
+        }
+        int heapCount = heapRows.size();
+        if (index < heapCount) {
+            return heapRows.get(index);
+        }
+        int diskIndex = index - heapCount;
+        if (diskIndex >= diskRowCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        long start = offsets[diskIndex];
+        long end = diskIndex + 1 < diskRowCount ? offsets[diskIndex + 1] : diskBytes;
+        ByteBuffer row = ByteBuffer.allocate((int) (end - start));
+        try {
+            if (end > flushedBytes) {
+                // 读取刚写完、仍在写缓冲区中的行
+                flush();
+            }
+            while (row.hasRemaining()) {
+                if (channel.read(row, start + row.position()) < 0) {
+                    throw new IOException("结果溢出文件被截断");
+                }
+            }
+        } catch (ClosedChannelException e) {
+            throw new IllegalStateException("结果缓冲区已关闭", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取结果溢出文件失败", e);
+        }
+        row.flip();
+        return RowCodec.decode(row, columnLabels);
+    }
+
+    @Override
+    public int size() {
+        return heapRows.size() + diskRowCount;
+    }
+
+    /**
+     * 写入磁盘的行数
+     */
+    public int getSpilledRowCount() {
+        return diskRowCount;
+    }
+
+    /**
+     * 写入磁盘的字节数
+     */
+    public long getSpilledBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * 关闭文件通道并删除临时文件（可重复调用），磁盘空间和文件句柄立即释放
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heapRows.clear();
+        writeBuffer = null;
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 文件随后删除，关闭失败不影响释放
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.sqlexecutor.util;
+
+/**
+ * 结果大小估算工具
+ *
+ * 按值类型快速估算JSON序列化后的字节数，不做真正的序列化，用于统计返回数据量；
+ * 同时按64位JVM（压缩指针）的对象布局估算结果在堆上占用的字节数，用于内存预算。
+ */
+public final class ResultSizeEstimator {
+
+    private ResultSizeEstimator() {
+    }
+
+    /**
+     * 估算一行数据中列名部分的固定开销（"name":, 以及行的 {}）
+     */
+    public static long estimateRowOverhead(String[] columnLabels) {
+        long bytes = 2;
+        for (String label : columnLabels) {
+            bytes += (label != null ? label.length() : 4) + 4;
+        }
+        return bytes;
+    }
+
+    /**
+     * 估算单个值序列化后的字节数
+     */
+    public static long estimateValue(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 2L;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return 6;
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Float
+                || value instanceof java.math.BigInteger) {
+            return 12;
+        }
+        if (value instanceof java.math.BigDecimal) {
+            return ((java.math.BigDecimal) value).precision() + 2L;
+        }
+        if (value instanceof Boolean) {
+            return 5;
+        }
+        if (value instanceof java.util.Date || value instanceof java.time.temporal.Temporal) {
+            return 28;
+        }
+        if (value instanceof byte[]) {
+            // Base64编码
+            return ((byte[]) value).length * 4L / 3 + 4;
+        }
+        if (value instanceof java.util.UUID) {
+            return 38;
+        }
+        if (value instanceof Object[]) {
+            // 数组（数据库数组已转为Java数组）：括号 + 各元素及分隔符
+            long bytes = 2;
+            for (Object element : (Object[]) value) {
+                bytes += estimateValue(element) + 1;
+            }
+            return bytes;
+        }
+        // PGobject（json/jsonb等）及其他类型按toString长度估算
+        return value.toString().length() + 2L;
+    }
+
+    /**
+     * 估算一行数据（LinkedHashMap）本身的堆开销：Map对象、桶数组和每列一个Entry
+     */
+    public static long estimateHeapRowOverhead(int columnCount) {
+        int buckets = Integer.highestOneBit(Math.max(1, columnCount * 4 / 3 + 1)) * 2;
+        return 56 + 16 + buckets * 4L + columnCount * 40L;
+    }
+
+    /**
+     * 估算单个值在堆上占用的字节数
+     */
+    public static long estimateHeapValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            // String对象 + byte[]（Latin1每字符1字节，其他按2字节估算）
+            return 24 + 16 + ((String) value).length() * 2L;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof Boolean) {
+            return 16;
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Float) {
+            return 24;
+        }
+        if (value instanceof java.math.BigDecimal) {
+            return 40 + 24 + ((java.math.BigDecimal) value).precision() / 2L;
+        }
+        if (value instanceof java.util.Date || value instanceof java.time.temporal.Temporal) {
+            return 48;
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof java.util.UUID) {
+            return 32;
+        }
+        if (value instanceof Object[]) {
+            long bytes = 16 + ((Object[]) value).length * 4L;
+            for (Object element : (Object[]) value) {
+                bytes += estimateHeapValue(element);
+            }
+            return bytes;
+        }
+        // PGobject等：对象本身 + 类型名和值字符串
+        return 64 + value.toString().length() * 2L;
+    }
+}
@@ -0,0 +1,409 @@
+package com.example.sqlexecutor.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 数据行的紧凑二进制编码
+ *
+ * 按列顺序逐个写入值：1字节类型标记 + 值本身（长度和小整数使用变长编码），列名不写入。
+ * JDBC常见类型、java.time类型、PGobject（含PGpoint、PGInterval等子类，按类名、类型名和文本值重建）
+ * 和Java数组（按元素类型逐个编码）原样还原；其余类型按toString保存，解码为字符串。
+ * 数据库数组（java.sql.Array）在映射行时已转为Java数组（见 {@link RowMapResultSetExtractor}）。
+ */
+final class RowCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DECIMAL = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte SQL_DATE = 8;
+    private static final byte SQL_TIME = 9;
+    private static final byte TIMESTAMP = 10;
+    private static final byte BYTES = 11;
+    private static final byte UUID_VALUE = 12;
+    private static final byte SHORT = 13;
+    private static final byte BIG_INTEGER = 14;
+    private static final byte OTHER = 15;
+    private static final byte LOCAL_DATE = 16;
+    private static final byte LOCAL_TIME = 17;
+    private static final byte LOCAL_DATE_TIME = 18;
+    private static final byte OFFSET_DATE_TIME = 19;
+    private static final byte OFFSET_TIME = 20;
+    private static final byte ZONED_DATE_TIME = 21;
+    private static final byte INSTANT = 22;
+    private static final byte PG_OBJECT = 23;
+    private static final byte ARRAY = 24;
+
+    private static final String PG_OBJECT_CLASS = "org.postgresql.util.PGobject";
+
+    /**
+     * 可按元素编码的基本类型数组（byte[] 按 BYTES 整体编码）
+     */
+    private static final Map<String, Class<?>> PRIMITIVE_COMPONENTS = Map.of(
+            "int", int.class, "long", long.class, "short", short.class,
+            "double", double.class, "float", float.class, "boolean", boolean.class);
+
+    private static final Map<String, Constructor<?>> PG_CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private RowCodec() {
+    }
+
+    /**
+     * 编码一行
+     *
+     * @throws java.nio.BufferOverflowException 缓冲区空间不足（调用方扩容后重试）
+     */
+    static void encode(Map<String, Object> row, String[] columnLabels, ByteBuffer out) {
+        for (String label : columnLabels) {
+            writeValue(row.get(label), out);
+        }
+    }
+
+    /**
+     * 从缓冲区当前位置解码一行
+     */
+    static Map<String, Object> decode(ByteBuffer in, String[] columnLabels) {
+        Map<String, Object> row = new LinkedHashMap<>(columnLabels.length * 4 / 3 + 1);
+        for (String label : columnLabels) {
+            row.put(label, readValue(in));
+        }
+        return row;
+    }
+
+    private static void writeValue(Object value, ByteBuffer out) {
+        if (value == null) {
+            out.put(NULL);
+        } else if (value instanceof String) {
+            out.put(STRING);
+            writeBytes(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        } else if (value instanceof Integer) {
+            out.put(INT);
+            writeVarLong(zigZag((Integer) value), out);
+        } else if (value instanceof Long) {
+            out.put(LONG);
+            writeVarLong(zigZag((Long) value), out);
+        } else if (value instanceof Short) {
+            out.put(SHORT);
+            out.putShort((Short) value);
+        } else if (value instanceof Double) {
+            out.put(DOUBLE);
+            out.putDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.put(FLOAT);
+            out.putFloat((Float) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            out.put(DECIMAL);
+            writeVarLong(zigZag(decimal.scale()), out);
+            writeBytes(decimal.unscaledValue().toByteArray(), out);
+        } else if (value instanceof BigInteger) {
+            out.put(BIG_INTEGER);
+            writeBytes(((BigInteger) value).toByteArray(), out);
+        } else if (value instanceof Boolean) {
+            out.put(BOOLEAN);
+            out.put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof java.sql.Timestamp) {
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            out.put(TIMESTAMP);
+            out.putLong(timestamp.getTime());
+            out.putInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.put(SQL_DATE);
+            out.putLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            out.put(SQL_TIME);
+            out.putLong(((java.sql.Time) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.put(BYTES);
+            writeBytes((byte[]) value, out);
+        } else if (value instanceof UUID) {
+            UUID uuid = (UUID) value;
+            out.put(UUID_VALUE);
+            out.putLong(uuid.getMostSignificantBits());
+            out.putLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof LocalDate) {
+            out.put(LOCAL_DATE);
+            writeVarLong(zigZag(((LocalDate) value).toEpochDay()), out);
+        } else if (value instanceof LocalTime) {
+            out.put(LOCAL_TIME);
+            writeVarLong(((LocalTime) value).toNanoOfDay(), out);
+        } else if (value instanceof LocalDateTime) {
+            out.put(LOCAL_DATE_TIME);
+            writeLocalDateTime((LocalDateTime) value, out);
+        } else if (value instanceof OffsetDateTime) {
+            OffsetDateTime dateTime = (OffsetDateTime) value;
+            out.put(OFFSET_DATE_TIME);
+            writeLocalDateTime(dateTime.toLocalDateTime(), out);
+            writeVarLong(zigZag(dateTime.getOffset().getTotalSeconds()), out);
+        } else if (value instanceof OffsetTime) {
+            OffsetTime time = (OffsetTime) value;
+            out.put(OFFSET_TIME);
+            writeVarLong(time.toLocalTime().toNanoOfDay(), out);
+            writeVarLong(zigZag(time.getOffset().getTotalSeconds()), out);
+        } else if (value instanceof ZonedDateTime) {
+            ZonedDateTime dateTime = (ZonedDateTime) value;
+            out.put(ZONED_DATE_TIME);
+            writeLocalDateTime(dateTime.toLocalDateTime(), out);
+            writeVarLong(zigZag(dateTime.getOffset().getTotalSeconds()), out);
+            writeString(dateTime.getZone().getId(), out);
+        } else if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            out.put(INSTANT);
+            writeVarLong(zigZag(instant.getEpochSecond()), out);
+            writeVarLong(instant.getNano(), out);
+        } else if (isPgObject(value.getClass())) {
+            out.put(PG_OBJECT);
+            writeString(value.getClass().getName(), out);
+            writeString(invokePgGetter(value, "getType"), out);
+            writeString(invokePgGetter(value, "getValue"), out);
+        } else if (value instanceof Object[] || isPrimitiveArray(value.getClass())) {
+            int length = Array.getLength(value);
+            out.put(ARRAY);
+            writeString(value.getClass().getComponentType().getName(), out);
+            writeVarLong(length, out);
+            for (int i = 0; i < length; i++) {
+                writeValue(Array.get(value, i), out);
+            }
+        } else {
+            out.put(OTHER);
+            writeBytes(value.toString().getBytes(StandardCharsets.UTF_8), out);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+            case OTHER:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case INT:
+                return (int) unZigZag(readVarLong(in));
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case SHORT:
+                return in.getShort();
+            case DOUBLE:
+                return in.getDouble();
+            case FLOAT:
+                return in.getFloat();
+            case DECIMAL:
+                int scale = (int) unZigZag(readVarLong(in));
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case BOOLEAN:
+                return in.get() != 0;
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(in.getLong());
+                timestamp.setNanos(in.getInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.getLong());
+            case SQL_TIME:
+                return new java.sql.Time(in.getLong());
+            case BYTES:
+                return readBytes(in);
+            case UUID_VALUE:
+                return new UUID(in.getLong(), in.getLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(readVarLong(in));
+            case LOCAL_DATE_TIME:
+                return readLocalDateTime(in);
+            case OFFSET_DATE_TIME:
+                return OffsetDateTime.of(readLocalDateTime(in), readOffset(in));
+            case OFFSET_TIME:
+                return OffsetTime.of(LocalTime.ofNanoOfDay(readVarLong(in)), readOffset(in));
+            case ZONED_DATE_TIME:
+                LocalDateTime local = readLocalDateTime(in);
+                ZoneOffset offset = readOffset(in);
+                return ZonedDateTime.ofLocal(local, ZoneId.of(readString(in)), offset);
+            case INSTANT:
+                return Instant.ofEpochSecond(unZigZag(readVarLong(in)), readVarLong(in));
+            case PG_OBJECT:
+                return readPgObject(in);
+            case ARRAY:
+                return readArray(in);
+            default:
+                throw new IllegalStateException("未知的值类型标记: " + type);
+        }
+    }
+
+    private static void writeLocalDateTime(LocalDateTime dateTime, ByteBuffer out) {
+        writeVarLong(zigZag(dateTime.toLocalDate().toEpochDay()), out);
+        writeVarLong(dateTime.toLocalTime().toNanoOfDay(), out);
+    }
+
+    private static LocalDateTime readLocalDateTime(ByteBuffer in) {
+        LocalDate date = LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+        return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong(in)));
+    }
+
+    private static ZoneOffset readOffset(ByteBuffer in) {
+        return ZoneOffset.ofTotalSeconds((int) unZigZag(readVarLong(in)));
+    }
+
+    /**
+     * 读取数组：元素逐个解码后按原元素类型重建，无法重建（如元素以字符串保存）时返回 Object[]
+     */
+    private static Object readArray(ByteBuffer in) {
+        String componentName = readString(in);
+        Object[] elements = new Object[(int) readVarLong(in)];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = readValue(in);
+        }
+        try {
+            Class<?> componentType = PRIMITIVE_COMPONENTS.containsKey(componentName)
+                    ? PRIMITIVE_COMPONENTS.get(componentName)
+                    : Class.forName(componentName, false, RowCodec.class.getClassLoader());
+            if (componentType == Object.class) {
+                return elements;
+            }
+            Object array = Array.newInstance(componentType, elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                Array.set(array, i, elements[i]);
+            }
+            return array;
+        } catch (ClassNotFoundException | IllegalArgumentException e) {
+            return elements;
+        }
+    }
+
+    private static boolean isPrimitiveArray(Class<?> type) {
+        Class<?> componentType = type.getComponentType();
+        return componentType != null && PRIMITIVE_COMPONENTS.get(componentType.getName()) == componentType;
+    }
+
+    /**
+     * 是否为PGobject或其子类（驱动只在运行时存在，按类名判断）
+     */
+    private static boolean isPgObject(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            if (PG_OBJECT_CLASS.equals(current.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String invokePgGetter(Object pgObject, String name) {
+        try {
+            return (String) pgObject.getClass().getMethod(name).invoke(pgObject);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("读取 " + pgObject.getClass().getName() + " 失败", e);
+        }
+    }
+
+    /**
+     * 按类名重建PGobject：先设置类型名，再由setValue解析文本值（子类在其中解析自身字段）
+     */
+    private static Object readPgObject(ByteBuffer in) {
+        String className = readString(in);
+        String type = readString(in);
+        String value = readString(in);
+        try {
+            Constructor<?> constructor = PG_CONSTRUCTORS.get(className);
+            if (constructor == null) {
+                constructor = Class.forName(className, true, RowCodec.class.getClassLoader()).getConstructor();
+                PG_CONSTRUCTORS.put(className, constructor);
+            }
+            Object pgObject = constructor.newInstance();
+            Class<?> pgClass = pgObject.getClass();
+            Method setType = pgClass.getMethod("setType", String.class);
+            Method setValue = pgClass.getMethod("setValue", String.class);
+            setType.invoke(pgObject, type);
+            setValue.invoke(pgObject, value);
+            return pgObject;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法重建 " + className + " 值", e);
+        }
+    }
+
+    /**
+     * 写入可为null的字符串（长度加1，0表示null）
+     */
+    private static void writeString(String value, ByteBuffer out) {
+        if (value == null) {
+            writeVarLong(0, out);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L, out);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(byte[] bytes, ByteBuffer out) {
+        writeVarLong(bytes.length, out);
+        out.put(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static void writeVarLong(long value, ByteBuffer out) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
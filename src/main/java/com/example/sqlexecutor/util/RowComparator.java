@@ -0,0 +1,87 @@
+package com.example.sqlexecutor.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+
+/**
+ * 按排序键比较数据行
+ *
+ * 与 PostgreSQL 的默认行为一致：升序时NULL排在最后，降序时排在最前。数值统一按大小比较（不同数据源上
+ * 同一列的类型可能不同），其余类型相同时按自然顺序比较，否则按文本比较；文本按字符编码顺序比较，与数据库
+ * 的排序规则可能不同。
+ */
+public final class RowComparator implements Comparator<Map<String, Object>> {
+
+    private final String[] columns;
+    private final boolean[] descending;
+
+    public RowComparator(List<MultiDatasourceQueryRequest.SortKey> sortKeys) {
+        this.columns = new String[sortKeys.size()];
+        this.descending = new boolean[sortKeys.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = sortKeys.get(i).getColumn();
+            descending[i] = sortKeys.get(i).isDescending();
+        }
+    }
+
+    @Override
+    public int compare(Map<String, Object> left, Map<String, Object> right) {
+        for (int i = 0; i < columns.length; i++) {
+            Object a = left.get(columns[i]);
+            Object b = right.get(columns[i]);
+            int result;
+            if (a == null || b == null) {
+                // NULL视为最大值
+                result = a == b ? 0 : (a == null ? 1 : -1);
+            } else {
+                result = compareValues(a, b);
+            }
+            if (result != 0) {
+                return descending[i] ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 比较两个非NULL的列值
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static int compareValues(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return toBigDecimal((Number) a).compareTo(toBigDecimal((Number) b));
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    /**
+     * 将数值转换为BigDecimal（非有限的浮点数按正负无穷处理为极大或极小值）
+     */
+    public static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || d == Double.POSITIVE_INFINITY) {
+                return BigDecimal.valueOf(Double.MAX_VALUE);
+            }
+            if (d == Double.NEGATIVE_INFINITY) {
+                return BigDecimal.valueOf(-Double.MAX_VALUE);
+            }
+            return BigDecimal.valueOf(d);
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+}
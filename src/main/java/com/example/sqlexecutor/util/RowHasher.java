@@ -0,0 +1,102 @@
+package com.example.sqlexecutor.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * 行哈希计算（非线程安全，每个线程各自创建）
+ *
+ * 各列值先规范化为与驱动返回类型无关的文本（数值去掉多余的零，时间统一为ISO格式，二进制为十六进制），
+ * 再取MD5的前64位作为行哈希，使 int4/int8、numeric(10,2)/numeric 等类型不同但值相同的列在不同数据源上
+ * 得到相同的哈希。
+ */
+public final class RowHasher {
+
+    private final MessageDigest md5;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public RowHasher() {
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持MD5", e);
+        }
+    }
+
+    /**
+     * 计算一组列值的64位哈希
+     */
+    public long hash(Object[] values) throws SQLException {
+        buffer.setLength(0);
+        for (Object value : values) {
+            if (value == null) {
+                buffer.append('\u0000');
+            } else {
+                buffer.append('\u0001').append(normalize(value));
+            }
+            buffer.append('\u001e');
+        }
+        byte[] digest = md5.digest(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        return hash;
+    }
+
+    /**
+     * 将列值规范化为文本
+     */
+    public static String normalize(Object value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return plain((BigDecimal) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return Double.isFinite(d) ? plain(BigDecimal.valueOf(d)) : String.valueOf(d);
+        }
+        if (value instanceof Number && !(value instanceof BigInteger)) {
+            return String.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof byte[]) {
+            return HexFormat.of().formatHex((byte[]) value);
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().toString();
+        }
+        if (value instanceof Array) {
+            value = ((Array) value).getArray();
+        }
+        if (value instanceof Object[]) {
+            return Arrays.deepToString((Object[]) value);
+        }
+        return value.toString();
+    }
+
+    private static String plain(BigDecimal value) {
+        return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 64位混合函数（SplitMix64的终结步骤），使相近的输入得到分布均匀的输出
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
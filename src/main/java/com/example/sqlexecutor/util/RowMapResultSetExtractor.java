@@ -0,0 +1,266 @@
+package com.example.sqlexecutor.util;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import com.example.sqlexecutor.dto.ApiResponse;
+import com.example.sqlexecutor.exception.ResultMemoryExceededException;
+import com.example.sqlexecutor.service.MemoryPolicy;
+import com.example.sqlexecutor.service.QueryContext;
+
+/**
+ * 结果集提取器
+ *
+ * 一次遍历将结果集映射为按列顺序排列的Map列表。列标签只在开始时读取一次，
+ * 并可按需从 {@link ResultSetMetaData} 采集列信息（即使结果为空也能拿到列定义）。
+ * 数据库数组在读取时转为Java数组，不再依赖连接，堆上和溢出到磁盘的行取值一致。
+ * 传入 {@link PhaseTimer} 时分别累计读取行（rs.next）和映射行的耗时；传入 {@link QueryContext} 时
+ * 按行估算堆占用并分块预留内存，超出预算时按策略截断结果、抛出异常，或把后续行写入 {@link ResultBuffer} 的溢出文件。
+ */
+public class RowMapResultSetExtractor implements ResultSetExtractor<List<Map<String, Object>>> {
+
+    /**
+     * 每次向查询上下文预留的最小字节数，避免逐行竞争全局计数
+     */
+    private static final long RESERVATION_CHUNK = 256 * 1024;
+
+    private final boolean collectColumns;
+
+    private final PhaseTimer phaseTimer;
+
+    private final QueryContext queryContext;
+
+    private long heapBytes;
+
+    private long reservedHeapBytes;
+
+    private long lastRowHeapBytes;
+
+    private ResultBuffer resultBuffer;
+
+    private boolean truncated;
+
+    private String truncationReason;
+
+    private boolean truncatedByGlobalBudget;
+
+    private List<ApiResponse.ColumnInfo> columns;
+
+    private long estimatedBytes;
+
+    public RowMapResultSetExtractor(boolean collectColumns) {
+        this(collectColumns, null, null);
+    }
+
+    public RowMapResultSetExtractor(boolean collectColumns, PhaseTimer phaseTimer, QueryContext queryContext) {
+        this.collectColumns = collectColumns;
+        this.phaseTimer = phaseTimer;
+        this.queryContext = queryContext;
+    }
+
+    @Override
+    public List<Map<String, Object>> extractData(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        String[] columnLabels = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+        }
+
+        if (collectColumns) {
+            columns = readColumns(metaData);
+        }
+
+        long rowOverhead = ResultSizeEstimator.estimateRowOverhead(columnLabels);
+
+        long heapRowOverhead = ResultSizeEstimator.estimateHeapRowOverhead(columnCount);
+
+        List<Map<String, Object>> rows;
+        if (queryContext != null && queryContext.getPolicy() == MemoryPolicy.SPILL) {
+            resultBuffer = queryContext.newResultBuffer(columnLabels);
+            rows = resultBuffer;
+        } else {
+            rows = new ArrayList<>();
+        }
+
+        if (phaseTimer == null) {
+            while (rs.next()) {
+                if (!addRow(rows, mapRow(rs, columnLabels, rowOverhead, heapRowOverhead))) {
+                    break;
+                }
+            }
+            return rows;
+        }
+
+        // 计时模式：每行两次打点，rs.next() 计入读取，其余计入映射
+        long fetchNanos = 0;
+        long mappingNanos = 0;
+        long checkpoint = System.nanoTime();
+        while (true) {
+            boolean hasNext = rs.next();
+            long fetched = System.nanoTime();
+            fetchNanos += fetched - checkpoint;
+            if (!hasNext) {
+                break;
+            }
+            if (!addRow(rows, mapRow(rs, columnLabels, rowOverhead, heapRowOverhead))) {
+                break;
+            }
+            checkpoint = System.nanoTime();
+            mappingNanos += checkpoint - fetched;
+        }
+        phaseTimer.addFetchNanos(fetchNanos);
+        phaseTimer.addMappingNanos(mappingNanos);
+        return rows;
+    }
+
+    private Map<String, Object> mapRow(ResultSet rs, String[] columnLabels, long rowOverhead, long heapRowOverhead)
+            throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>(columnLabels.length * 4 / 3 + 1);
+        long rowBytes = rowOverhead;
+        long rowHeapBytes = heapRowOverhead;
+        for (int i = 0; i < columnLabels.length; i++) {
+            Object value = rs.getObject(i + 1);
+            if (value instanceof Array) {
+                value = ((Array) value).getArray();
+            }
+            row.put(columnLabels[i], value);
+            rowBytes += ResultSizeEstimator.estimateValue(value);
+            rowHeapBytes += ResultSizeEstimator.estimateHeapValue(value);
+        }
+        estimatedBytes += rowBytes;
+        heapBytes += rowHeapBytes;
+        lastRowHeapBytes = rowHeapBytes;
+        return row;
+    }
+
+    /**
+     * 将已映射的行加入结果
+     *
+     * @return 可以继续读取时返回true；结果被截断时返回false（当前行不计入结果）
+     */
+    private boolean addRow(List<Map<String, Object>> rows, Map<String, Object> row) {
+        if (resultBuffer == null) {
+            if (!reserveHeap()) {
+                return false;
+            }
+            rows.add(row);
+            return true;
+        }
+
+        // 溢出模式：写磁盘之前照常预留内存，预算不足时此后的行改为写入磁盘
+        if (!resultBuffer.isSpilling() && !reserveHeap()) {
+            resultBuffer.startSpilling();
+        }
+        if (!resultBuffer.append(row, lastRowHeapBytes)) {
+            truncated = true;
+            truncationReason = "结果超出磁盘溢出上限";
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 为已映射的行预留内存
+     *
+     * @return 预算足够时返回true；按截断或溢出策略超出预算时返回false
+     * @throws ResultMemoryExceededException 按拒绝策略超出预算
+     */
+    private boolean reserveHeap() {
+        if (queryContext == null || heapBytes <= reservedHeapBytes) {
+            return true;
+        }
+        long chunk = Math.max(RESERVATION_CHUNK, heapBytes - reservedHeapBytes);
+        try {
+            queryContext.reserve(chunk);
+            reservedHeapBytes += chunk;
+            return true;
+        } catch (ResultMemoryExceededException e) {
+            if (queryContext.getPolicy() == MemoryPolicy.REJECT) {
+                throw e;
+            }
+            if (queryContext.getPolicy() == MemoryPolicy.SPILL) {
+                return false;
+            }
+            truncated = true;
+            truncationReason = e.getMessage();
+            truncatedByGlobalBudget = e.isGlobal();
+            return false;
+        }
+    }
+
+    /**
+     * 采集到的列信息（未开启采集时为null）
+     */
+    public List<ApiResponse.ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 估算的结果数据字节数
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * 写入磁盘的字节数（未溢出时为0）
+     */
+    public long getSpilledBytes() {
+        return resultBuffer != null ? resultBuffer.getSpilledBytes() : 0;
+    }
+
+    /**
+     * 结果是否因超出内存预算被截断
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 截断原因（未截断时为null）
+     */
+    public String getTruncationReason() {
+        return truncationReason;
+    }
+
+    /**
+     * 是否因全局预算不足而截断（否则为单请求预算不足）
+     */
+    public boolean isTruncatedByGlobalBudget() {
+        return truncatedByGlobalBudget;
+    }
+
+    /**
+     * 从结果集元数据读取列信息
+     */
+    public static List<ApiResponse.ColumnInfo> readColumns(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<ApiResponse.ColumnInfo> columnInfos = new ArrayList<>(columnCount);
+
+        for (int i = 1; i <= columnCount; i++) {
+            int precision = metaData.getPrecision(i);
+            int scale = metaData.getScale(i);
+            int displaySize = metaData.getColumnDisplaySize(i);
+
+            columnInfos.add(ApiResponse.ColumnInfo.builder()
+                    .name(metaData.getColumnLabel(i))
+                    .type(metaData.getColumnTypeName(i))
+                    .nullable(metaData.isNullable(i) != ResultSetMetaData.columnNoNulls)
+                    .length(displaySize > 0 && displaySize != Integer.MAX_VALUE ? displaySize : null)
+                    .precision(precision > 0 ? precision : null)
+                    .scale(precision > 0 ? scale : null)
+                    .build());
+        }
+        return columnInfos;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.sqlexecutor.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.Getter;
+
+/**
+ * SQL静态分析器
+ *
+ * 基于 {@link SqlLexer} 的一次扫描完成语句类型识别、语句计数、禁止关键字检测和常见注入模式检测。
+ * 字符串、美元引号字符串、引号标识符和注释中的内容不会被误判为关键字。
+ * 普通字符串中出现 \' 时视为注入风险：其结束位置取决于数据源的 standard_conforming_strings。
+ */
+public final class SqlAnalyzer {
+
+    /**
+     * 紧跟在字符串字面量之后即视为可疑的关键字（如 'x' OR 1=1）
+     */
+    private static final String[] INJECTION_KEYWORDS = {
+            "OR", "AND", "UNION", "SELECT", "INSERT", "UPDATE", "DELETE", "DROP", "CREATE", "ALTER"
+    };
+
+    private final String[] forbiddenKeywords;
+
+    public SqlAnalyzer(Collection<String> forbiddenKeywords) {
+        List<String> keywords = new ArrayList<>();
+        if (forbiddenKeywords != null) {
+            for (String keyword : forbiddenKeywords) {
+                if (keyword != null && !keyword.trim().isEmpty()) {
+                    keywords.add(keyword.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        this.forbiddenKeywords = keywords.toArray(new String[0]);
+    }
+
+    /**
+     * 分析SQL语句
+     */
+    public SqlAnalysis analyze(String sql) {
+        SqlAnalysis analysis = new SqlAnalysis();
+        SqlLexer lexer = new SqlLexer(sql);
+
+        int depth = 0;
+        boolean statementHasTokens = false;
+        boolean previousWasString = false;
+        // 用于识别 1=1 / 0=0：0 表示无匹配，1 表示已读到数字，2 表示已读到数字和等号
+        int tautologyState = 0;
+        char tautologyDigit = 0;
+
+        while (lexer.next()) {
+            if (!lexer.isTerminated()) {
+                analysis.unterminated = true;
+            }
+            if (lexer.hasBackslashQuote()) {
+                analysis.backslashQuote = true;
+            }
+            if (lexer.isComment()) {
+                analysis.containsComment = true;
+                continue;
+            }
+            if (!lexer.isSignificant()) {
+                continue;
+            }
+
+            SqlLexer.TokenType type = lexer.type();
+
+            if (lexer.isChar(';')) {
+                if (statementHasTokens) {
+                    analysis.statementCount++;
+                }
+                statementHasTokens = false;
+                depth = 0;
+                previousWasString = false;
+                tautologyState = 0;
+                continue;
+            }
+
+            if (!statementHasTokens) {
+                statementHasTokens = true;
+                if (analysis.statementType == null && type == SqlLexer.TokenType.WORD) {
+                    analysis.statementType = lexer.text().toUpperCase(Locale.ROOT);
+                }
+            }
+
+            if (type == SqlLexer.TokenType.WORD) {
+                if (previousWasString && matchesAny(lexer, INJECTION_KEYWORDS) != null) {
+                    analysis.suspiciousLiteral = true;
+                }
+                if (analysis.forbiddenKeyword == null) {
+                    analysis.forbiddenKeyword = matchesAny(lexer, forbiddenKeywords);
+                }
+                if (depth == 0 && lexer.wordEquals("LIMIT")) {
+                    analysis.topLevelLimit = true;
+                }
+            } else if (lexer.isChar('(')) {
+                depth++;
+            } else if (lexer.isChar(')')) {
+                depth = Math.max(0, depth - 1);
+            }
+
+            // 恒真条件检测
+            if (type == SqlLexer.TokenType.NUMBER && lexer.length() == 1
+                    && (lexer.firstChar() == '1' || lexer.firstChar() == '0')) {
+                if (tautologyState == 2 && lexer.firstChar() == tautologyDigit) {
+                    analysis.tautology = true;
+                }
+                tautologyState = 1;
+                tautologyDigit = lexer.firstChar();
+            } else if (tautologyState == 1 && lexer.isChar('=')) {
+                tautologyState = 2;
+            } else {
+                tautologyState = 0;
+            }
+
+            previousWasString = type == SqlLexer.TokenType.STRING;
+        }
+
+        if (statementHasTokens) {
+            analysis.statementCount++;
+        }
+        return analysis;
+    }
+
+    /**
+     * 去掉语句末尾的分号及其后的空白和注释，用于把查询嵌入子查询
+     *
+     * 按词法单元判断，字符串、引号标识符和注释中的分号不受影响；语句中间的分号原样保留。
+     */
+    public static String stripTerminator(String sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        int end = 0;
+        while (lexer.next()) {
+            if (lexer.isSignificant() && !lexer.isChar(';')) {
+                end = lexer.end();
+            }
+        }
+        return sql.substring(0, end);
+    }
+
+    private static String matchesAny(SqlLexer lexer, String[] keywords) {
+        for (String keyword : keywords) {
+            if (lexer.wordEquals(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * SQL分析结果
+     */
+    @Getter
+    public static class SqlAnalysis {
+
+        /**
+         * 语句类型（首个关键字的大写形式，如 SELECT、WITH、INSERT）
+         */
+        private String statementType;
+
+        /**
+         * 非空语句数量
+         */
+        private int statementCount;
+
+        /**
+         * 命中的第一个禁止关键字
+         */
+        private String forbiddenKeyword;
+
+        /**
+         * 是否包含注释
+         */
+        private boolean containsComment;
+
+        /**
+         * 是否存在未闭合的字符串、引号标识符或注释
+         */
+        private boolean unterminated;
+
+        /**
+         * 普通字符串中是否有 \'（其含义取决于数据源的 standard_conforming_strings，语句边界无法确定）
+         */
+        private boolean backslashQuote;
+
+        /**
+         * 字符串字面量后是否紧跟可疑关键字
+         */
+        private boolean suspiciousLiteral;
+
+        /**
+         * 是否包含 1=1 / 0=0 恒真条件
+         */
+        private boolean tautology;
+
+        /**
+         * 最外层是否包含LIMIT子句
+         */
+        private boolean topLevelLimit;
+
+        /**
+         * 是否包含潜在的SQL注入模式
+         */
+        public boolean hasInjectionRisk() {
+            return containsComment || unterminated || backslashQuote || statementCount > 1 || suspiciousLiteral
+                    || tautology;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.sqlexecutor.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * SQL指纹工具
+ *
+ * 将SQL归一化为去除字面量后的形式：字符串、数字和参数替换为 ?，IN列表折叠为 (?)，
+ * 注释去除，空白压缩，关键字和标识符转为小写。相同结构、不同参数的查询得到相同指纹。
+ */
+public final class SqlFingerprint {
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * 归一化SQL
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+
+        SqlLexer lexer = new SqlLexer(sql);
+        StringBuilder sb = new StringBuilder(Math.min(sql.length(), 4096));
+        // 最近输出的两个单元：用于把 (?, ?, ?) 折叠为 (?)
+        boolean lastWasPlaceholder = false;
+        int commaAfterPlaceholder = -1;
+
+        while (lexer.next()) {
+            if (!lexer.isSignificant()) {
+                continue;
+            }
+            if (lexer.isChar(';')) {
+                continue;
+            }
+
+            SqlLexer.TokenType type = lexer.type();
+            boolean literal = type == SqlLexer.TokenType.STRING || type == SqlLexer.TokenType.DOLLAR_STRING
+                    || type == SqlLexer.TokenType.NUMBER || type == SqlLexer.TokenType.PARAMETER;
+
+            if (literal && commaAfterPlaceholder >= 0) {
+                // 列表中后续的字面量：撤销已输出的逗号，不再追加
+                sb.setLength(commaAfterPlaceholder);
+                commaAfterPlaceholder = -1;
+                lastWasPlaceholder = true;
+                continue;
+            }
+
+            int tokenStart = sb.length();
+            if (sb.length() > 0 && needsSpace(sb, lexer)) {
+                sb.append(' ');
+            }
+
+            if (literal) {
+                sb.append('?');
+                lastWasPlaceholder = true;
+                commaAfterPlaceholder = -1;
+            } else if (lastWasPlaceholder && lexer.isChar(',')) {
+                commaAfterPlaceholder = tokenStart;
+                sb.append(',');
+                lastWasPlaceholder = false;
+            } else {
+                if (type == SqlLexer.TokenType.WORD) {
+                    sb.append(lexer.text().toLowerCase(Locale.ROOT));
+                } else {
+                    sb.append(lexer.text());
+                }
+                lastWasPlaceholder = false;
+                commaAfterPlaceholder = -1;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 计算归一化SQL的指纹ID（64位FNV-1a，16位十六进制）
+     */
+    public static String hash(String normalizedSql) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : normalizedSql.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * 统一的空白规则（与原始SQL中的空白无关）：单元之间以一个空格分隔，
+     * 但 ( 和 . 之后、) , . 之前不加空格，使 "a.b IN ( 1,2 )" 与 "a . b in (1, 2)" 结果一致
+     */
+    private static boolean needsSpace(StringBuilder sb, SqlLexer lexer) {
+        char previous = sb.charAt(sb.length() - 1);
+        if (previous == '(' || previous == '.') {
+            return false;
+        }
+        return !(lexer.isChar(')') || lexer.isChar(',') || lexer.isChar('.'));
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.sqlexecutor.util;
+
+/**
+ * SQL词法分析器（PostgreSQL方言）
+ *
+ * 游标式单遍扫描，逐个识别空白、注释、标识符、字符串、美元引号字符串、数字、参数和运算符。
+ * 扫描过程中不为每个词法单元分配对象，只记录当前单元的类型和起止位置。
+ */
+public final class SqlLexer {
+
+    /**
+     * 词法单元类型
+     */
+    public enum TokenType {
+        WHITESPACE,
+        LINE_COMMENT,
+        BLOCK_COMMENT,
+        WORD,
+        QUOTED_IDENTIFIER,
+        STRING,
+        DOLLAR_STRING,
+        NUMBER,
+        PARAMETER,
+        OPERATOR,
+        PUNCTUATION
+    }
+
+    private static final String OPERATOR_CHARS = "+-*/<>=~!@#%^&|`?";
+
+    /**
+     * ASCII字符分类表，避免对常见字符逐个调用 Character 的Unicode判断
+     */
+    private static final byte WHITESPACE = 1;
+    private static final byte IDENTIFIER_START = 2;
+    private static final byte IDENTIFIER_PART = 4;
+    private static final byte OPERATOR = 8;
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    static {
+        for (char c = 0; c < ASCII_CLASSES.length; c++) {
+            byte classes = 0;
+            if (Character.isWhitespace(c)) {
+                classes |= WHITESPACE;
+            }
+            if (Character.isLetter(c) || c == '_') {
+                classes |= IDENTIFIER_START;
+            }
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                classes |= IDENTIFIER_PART;
+            }
+            if (OPERATOR_CHARS.indexOf(c) >= 0) {
+                classes |= OPERATOR;
+            }
+            ASCII_CLASSES[c] = classes;
+        }
+    }
+
+    private final String sql;
+    private final char[] chars;
+    private final int length;
+
+    private int position;
+    private int start;
+    private TokenType type;
+    private boolean terminated;
+    private boolean backslashQuote;
+
+    public SqlLexer(String sql) {
+        this.sql = sql;
+        this.chars = sql.toCharArray();
+        this.length = sql.length();
+    }
+
+    /**
+     * 前进到下一个词法单元，没有更多单元时返回false
+     */
+    public boolean next() {
+        if (position >= length) {
+            type = null;
+            return false;
+        }
+
+        start = position;
+        terminated = true;
+        backslashQuote = false;
+        char c = chars[position];
+
+        if (isWhitespace(c)) {
+            scanWhitespace();
+        } else if (c == '-' && peek(1) == '-') {
+            scanLineComment();
+        } else if (c == '/' && peek(1) == '*') {
+            scanBlockComment();
+        } else if (c == '\'') {
+            scanString(position + 1, false);
+        } else if ((c == 'E' || c == 'e') && peek(1) == '\'') {
+            scanString(position + 2, true);
+        } else if ((c == 'B' || c == 'b' || c == 'X' || c == 'x' || c == 'N' || c == 'n') && peek(1) == '\'') {
+            scanString(position + 2, false);
+        } else if ((c == 'U' || c == 'u') && peek(1) == '&' && peek(2) == '\'') {
+            scanString(position + 3, false);
+        } else if ((c == 'U' || c == 'u') && peek(1) == '&' && peek(2) == '"') {
+            scanQuotedIdentifier(position + 3);
+        } else if (c == '"') {
+            scanQuotedIdentifier(position + 1);
+        } else if (c == '$') {
+            scanDollar();
+        } else if (isDigit(c) || (c == '.' && isDigit(peek(1)))) {
+            scanNumber();
+        } else if (isIdentifierStart(c)) {
+            scanWord();
+        } else if (c == ':' && peek(1) == ':') {
+            position += 2;
+            type = TokenType.OPERATOR;
+        } else if (isOperatorChar(c)) {
+            scanOperator();
+        } else {
+            position++;
+            type = TokenType.PUNCTUATION;
+        }
+        return true;
+    }
+
+    /**
+     * 当前词法单元类型
+     */
+    public TokenType type() {
+        return type;
+    }
+
+    /**
+     * 当前词法单元起始位置（包含）
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * 当前词法单元结束位置（不包含）
+     */
+    public int end() {
+        return position;
+    }
+
+    /**
+     * 当前词法单元长度
+     */
+    public int length() {
+        return position - start;
+    }
+
+    /**
+     * 当前词法单元文本
+     */
+    public String text() {
+        return sql.substring(start, position);
+    }
+
+    /**
+     * 当前词法单元的首字符
+     */
+    public char firstChar() {
+        return chars[start];
+    }
+
+    /**
+     * 字符串、引号标识符或注释是否正常闭合
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * 当前字符串（E''以外）中是否有紧跟在反斜杠之后的单引号
+     *
+     * 扫描按 standard_conforming_strings=on 处理，反斜杠是普通字符；该参数为off的数据源会把 \' 视为转义的引号，
+     * 字符串的结束位置与扫描结果不同（如 'x\''; DROP ... 在off时是两条语句）。
+     */
+    public boolean hasBackslashQuote() {
+        return backslashQuote;
+    }
+
+    /**
+     * 当前词法单元是否为有意义的单元（非空白、非注释）
+     */
+    public boolean isSignificant() {
+        return type != TokenType.WHITESPACE && type != TokenType.LINE_COMMENT && type != TokenType.BLOCK_COMMENT;
+    }
+
+    /**
+     * 当前词法单元是否为注释
+     */
+    public boolean isComment() {
+        return type == TokenType.LINE_COMMENT || type == TokenType.BLOCK_COMMENT;
+    }
+
+    /**
+     * 当前单词是否等于给定关键字（忽略大小写，不产生临时字符串）
+     */
+    public boolean wordEquals(String keyword) {
+        return type == TokenType.WORD
+                && keyword.length() == position - start
+                && sql.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
+    /**
+     * 当前单元是否为给定的单字符标点或运算符
+     */
+    public boolean isChar(char c) {
+        return position - start == 1 && chars[start] == c
+                && (type == TokenType.PUNCTUATION || type == TokenType.OPERATOR);
+    }
+
+    private char peek(int offset) {
+        int index = position + offset;
+        return index < length ? chars[index] : '\0';
+    }
+
+    private void scanWhitespace() {
+        while (position < length && isWhitespace(chars[position])) {
+            position++;
+        }
+        type = TokenType.WHITESPACE;
+    }
+
+    private void scanLineComment() {
+        int newline = sql.indexOf('\n', position + 2);
+        position = newline < 0 ? length : newline;
+        type = TokenType.LINE_COMMENT;
+    }
+
+    /**
+     * PostgreSQL块注释支持嵌套
+     */
+    private void scanBlockComment() {
+        int depth = 1;
+        position += 2;
+        while (position < length && depth > 0) {
+            char c = chars[position];
+            if (c == '/' && peek(1) == '*') {
+                depth++;
+                position += 2;
+            } else if (c == '*' && peek(1) == '/') {
+                depth--;
+                position += 2;
+            } else {
+                position++;
+            }
+        }
+        terminated = depth == 0;
+        type = TokenType.BLOCK_COMMENT;
+    }
+
+    /**
+     * 扫描单引号字符串，'' 表示转义的单引号；E'' 字符串额外支持反斜杠转义
+     */
+    private void scanString(int from, boolean backslashEscapes) {
+        position = from;
+        terminated = false;
+        while (position < length) {
+            char c = chars[position];
+            if (backslashEscapes && c == '\\') {
+                position += 2;
+            } else if (c == '\'') {
+                if (!backslashEscapes && position > from && chars[position - 1] == '\\') {
+                    backslashQuote = true;
+                }
+                if (peek(1) == '\'') {
+                    position += 2;
+                } else {
+                    position++;
+                    terminated = true;
+                    break;
+                }
+            } else {
+                position++;
+            }
+        }
+        if (position > length) {
+            position = length;
+        }
+        type = TokenType.STRING;
+    }
+
+    private void scanQuotedIdentifier(int from) {
+        position = from;
+        terminated = false;
+        while (position < length) {
+            char c = chars[position];
+            if (c == '"') {
+                if (peek(1) == '"') {
+                    position += 2;
+                } else {
+                    position++;
+                    terminated = true;
+                    break;
+                }
+            } else {
+                position++;
+            }
+        }
+        type = TokenType.QUOTED_IDENTIFIER;
+    }
+
+    /**
+     * 处理 $1 形式的参数和 $tag$...$tag$ 形式的美元引号字符串
+     */
+    private void scanDollar() {
+        if (isDigit(peek(1))) {
+            position++;
+            while (position < length && isDigit(chars[position])) {
+                position++;
+            }
+            type = TokenType.PARAMETER;
+            return;
+        }
+
+        int tagEnd = position + 1;
+        while (tagEnd < length && chars[tagEnd] != '$' && isIdentifierPart(chars[tagEnd])) {
+            tagEnd++;
+        }
+        if (tagEnd >= length || chars[tagEnd] != '$') {
+            // 不是合法的美元引号起始，按运算符处理
+            position++;
+            type = TokenType.OPERATOR;
+            return;
+        }
+
+        String tag = sql.substring(position, tagEnd + 1);
+        int close = sql.indexOf(tag, tagEnd + 1);
+        if (close < 0) {
+            position = length;
+            terminated = false;
+        } else {
+            position = close + tag.length();
+        }
+        type = TokenType.DOLLAR_STRING;
+    }
+
+    private void scanNumber() {
+        while (position < length && isDigit(chars[position])) {
+            position++;
+        }
+        if (position < length && chars[position] == '.' && peek(1) != '.') {
+            position++;
+            while (position < length && isDigit(chars[position])) {
+                position++;
+            }
+        }
+        if (position < length && (chars[position] == 'e' || chars[position] == 'E')) {
+            int exponent = position + 1;
+            if (exponent < length && (chars[exponent] == '+' || chars[exponent] == '-')) {
+                exponent++;
+            }
+            if (exponent < length && isDigit(chars[exponent])) {
+                position = exponent;
+                while (position < length && isDigit(chars[position])) {
+                    position++;
+                }
+            }
+        }
+        type = TokenType.NUMBER;
+    }
+
+    private void scanWord() {
+        position++;
+        while (position < length && isIdentifierPart(chars[position])) {
+            position++;
+        }
+        type = TokenType.WORD;
+    }
+
+    /**
+     * 连续的运算符字符组成一个运算符，遇到注释起始符时截断。
+     * 与PostgreSQL一致：不含 ~!@#%^&|`? 的多字符运算符不能以 + 或 - 结尾（如 =-1 拆分为 = 和 -1）
+     */
+    private void scanOperator() {
+        boolean special = false;
+        while (position < length && isOperatorChar(chars[position])) {
+            char c = chars[position];
+            if (position > start && ((c == '-' && peek(1) == '-') || (c == '/' && peek(1) == '*'))) {
+                break;
+            }
+            if ("~!@#%^&|`?".indexOf(c) >= 0) {
+                special = true;
+            }
+            position++;
+        }
+        if (!special) {
+            while (position - start > 1 && (chars[position - 1] == '+' || chars[position - 1] == '-')) {
+                position--;
+            }
+        }
+        type = TokenType.OPERATOR;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < 128 ? (ASCII_CLASSES[c] & WHITESPACE) != 0 : Character.isWhitespace(c);
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c < 128 && (ASCII_CLASSES[c] & OPERATOR) != 0;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return c < 128 ? (ASCII_CLASSES[c] & IDENTIFIER_START) != 0 : Character.isLetter(c);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c < 128 ? (ASCII_CLASSES[c] & IDENTIFIER_PART) != 0 : Character.isLetterOrDigit(c);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.sqlexecutor.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具
+ *
+ * 项目以Java 17编译，通过反射调用 {@link Executors} 的 newVirtualThreadPerTaskExecutor（Java 21+），
+ * 运行在较低版本JVM上时返回null，由调用方回退为平台线程池。
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     *
+     * @return 执行器；JVM不支持虚拟线程时返回null
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method method = findFactoryMethod();
+        if (method == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method findFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- ============================================
+-- 为已有的 datasource_config 表增加所属集群字段
+-- ============================================
+--
+-- 多数据源查询按主机（host:port）和集群限制同时执行的数据源数量，
+-- 上限见 application.yml 中 sql-executor.multi-datasource 的 max-concurrent-per-host / max-concurrent-per-cluster。
+-- 字段为空时只按主机限制
+--
+
+ALTER TABLE datasource_config ADD COLUMN IF NOT EXISTS cluster_name VARCHAR(100);
+
+COMMENT ON COLUMN datasource_config.cluster_name IS '所属集群（多数据源查询按集群限制并发）';
+
+-- 示例：同一集群的主库和只读副本
+-- UPDATE datasource_config SET cluster_name = 'pg-main' WHERE host IN ('192.168.1.6', '192.168.1.7');
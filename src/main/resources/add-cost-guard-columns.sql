@@ -0,0 +1,19 @@
+-- ============================================
+-- 为已有的 datasource_config 表增加查询代价守卫阈值字段
+-- ============================================
+--
+-- 字段为空时使用 application.yml 中 sql-executor.cost-guard 的默认值
+--
+
+ALTER TABLE datasource_config ADD COLUMN IF NOT EXISTS max_query_cost NUMERIC(20, 2);
+ALTER TABLE datasource_config ADD COLUMN IF NOT EXISTS max_estimated_rows BIGINT;
+ALTER TABLE datasource_config ADD COLUMN IF NOT EXISTS max_estimated_bytes BIGINT;
+ALTER TABLE datasource_config ADD COLUMN IF NOT EXISTS cost_guard_action VARCHAR(20);
+
+COMMENT ON COLUMN datasource_config.max_query_cost IS '最大估算查询代价（为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.max_estimated_rows IS '最大估算行数（为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.max_estimated_bytes IS '最大估算数据量（字节，为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.cost_guard_action IS '超过代价阈值时的动作 (ALLOW, QUEUE, REJECT)';
+
+-- 示例：数仓数据源上估算代价超过一千万的查询转入后台通道排队
+-- UPDATE datasource_config SET max_query_cost = 10000000, cost_guard_action = 'QUEUE' WHERE datasource_code = 'warehouse';
@@ -32,6 +32,11 @@ CREATE TABLE IF NOT EXISTS datasource_config (
     max_pool_size INTEGER DEFAULT 10,
     min_idle INTEGER DEFAULT 2,
     connection_timeout INTEGER DEFAULT 30000,
+    max_query_cost NUMERIC(20, 2),
+    max_estimated_rows BIGINT,
+    max_estimated_bytes BIGINT,
+    cost_guard_action VARCHAR(20),
+    cluster_name VARCHAR(100),
     description VARCHAR(500),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -119,6 +124,11 @@ COMMENT ON COLUMN datasource_config.is_enabled IS '是否启用';
 COMMENT ON COLUMN datasource_config.max_pool_size IS '最大连接池大小';
 COMMENT ON COLUMN datasource_config.min_idle IS '最小空闲连接数';
 COMMENT ON COLUMN datasource_config.connection_timeout IS '连接超时时间(毫秒)';
+COMMENT ON COLUMN datasource_config.max_query_cost IS '最大估算查询代价（为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.max_estimated_rows IS '最大估算行数（为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.max_estimated_bytes IS '最大估算数据量（字节，为空时使用全局默认值）';
+COMMENT ON COLUMN datasource_config.cost_guard_action IS '超过代价阈值时的动作 (ALLOW, QUEUE, REJECT)';
+COMMENT ON COLUMN datasource_config.cluster_name IS '所属集群（多数据源查询按集群限制并发）';
 COMMENT ON COLUMN datasource_config.description IS '数据源描述';
 COMMENT ON COLUMN datasource_config.created_at IS '创建时间';
 COMMENT ON COLUMN datasource_config.updated_at IS '更新时间';
@@ -0,0 +1,144 @@
+package com.example.sqlexecutor.benchmark;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.service.DatasourcePoolRegistry;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.example.sqlexecutor.util.VirtualThreads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 多数据源并行查询的整体耗时：固定大小平台线程池对比虚拟线程
+ *
+ * 每个数据源是一个经 {@link DatasourcePoolRegistry} 租用的H2内存库连接池，查询在持有连接期间等待
+ * latencyMillis 模拟数据库端耗时。平台线程模式与默认配置相同（thread-pool-size: 10）；
+ * JVM不支持虚拟线程（Java 21以下）时 virtual 模式与服务一样回退为平台线程池；per-task 模式为每个任务
+ * 一个平台线程，在这类JVM上作为“并发只受连接池容量限制”的参照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanoutBenchmark {
+
+    private static final int PLATFORM_THREADS = 10;
+
+    @Param({"10", "100", "500"})
+    private int datasources;
+
+    @Param({"platform", "virtual", "per-task"})
+    private String mode;
+
+    @Param({"20"})
+    private long latencyMillis;
+
+    private DatasourcePoolRegistry registry;
+
+    private List<DatasourceConfig> configs;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        registry = new DatasourcePoolRegistry(mock(PasswordEncryptor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(registry, "idleTimeout", 600000L);
+        ReflectionTestUtils.setField(registry, "maxLifetime", 1800000L);
+        ReflectionTestUtils.setField(registry, "evictAfter", 1800000L);
+        ReflectionTestUtils.setField(registry, "fetchSize", 1000);
+
+        configs = new ArrayList<>();
+        for (int i = 0; i < datasources; i++) {
+            configs.add(DatasourceConfig.builder()
+                    .datasourceCode("bench_" + i)
+                    .jdbcUrl("jdbc:h2:mem:bench_" + i + ";DB_CLOSE_DELAY=-1")
+                    .username("sa")
+                    .password("")
+                    .maxPoolSize(10)
+                    .minIdle(1)
+                    .build());
+        }
+
+        if ("virtual".equals(mode)) {
+            executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else if ("per-task".equals(mode)) {
+            executor = Executors.newCachedThreadPool();
+        }
+        if (executor == null) {
+            if ("virtual".equals(mode)) {
+                System.out.println("当前JVM不支持虚拟线程，virtual 模式回退为 " + PLATFORM_THREADS + " 个平台线程");
+            }
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+
+        // 预先建好所有连接池
+        configs.forEach(config -> registry.lease(config).close());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        registry.destroy();
+    }
+
+    @Benchmark
+    public int fanout() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(configs.size());
+        for (DatasourceConfig config : configs) {
+            futures.add(CompletableFuture.supplyAsync(() -> query(config), executor));
+        }
+        int total = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            total += future.join();
+        }
+        return total;
+    }
+
+    private int query(DatasourceConfig config) {
+        try (DatasourcePoolRegistry.Lease lease = registry.lease(config)) {
+            return lease.getJdbcTemplate().execute((ConnectionCallback<Integer>) connection -> {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return connection.isValid(1) ? 1 : 0;
+            });
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FanoutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
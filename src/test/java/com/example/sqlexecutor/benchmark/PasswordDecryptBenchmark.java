@@ -0,0 +1,102 @@
+package com.example.sqlexecutor.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.util.PasswordEncryptor;
+
+/**
+ * 密码解密基准：启动时派生密钥并按线程复用 Cipher，对比原先每次调用都派生密钥、创建 Cipher
+ *
+ * 两种实现解密同一个密文，结果一致。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordDecryptBenchmark {
+
+    private static final String SECRET_KEY = "MySecretKey123456MySecretKey123456";
+
+    private PasswordEncryptor encryptor;
+
+    private String encrypted;
+
+    @Setup
+    public void setup() {
+        encryptor = new PasswordEncryptor();
+        ReflectionTestUtils.setField(encryptor, "secretKeyString", SECRET_KEY);
+        encryptor.init();
+        encrypted = encryptor.encrypt("datasource-password");
+        if (!LegacyDecryptor.decrypt(encrypted).equals(encryptor.decrypt(encrypted))) {
+            throw new IllegalStateException("两种实现的解密结果不一致");
+        }
+    }
+
+    @Benchmark
+    public String legacyPerCall() {
+        return LegacyDecryptor.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String cachedKey() {
+        return encryptor.decrypt(encrypted);
+    }
+
+    /**
+     * 原先的解密实现：每次调用派生密钥、创建 Cipher，并拷贝出 IV 和密文
+     */
+    static final class LegacyDecryptor {
+
+        private static final int GCM_IV_LENGTH = 12;
+        private static final int GCM_TAG_LENGTH = 128;
+
+        static String decrypt(String encryptedText) {
+            try {
+                byte[] combined = Base64.getDecoder().decode(encryptedText);
+                byte[] iv = new byte[GCM_IV_LENGTH];
+                byte[] encryptedData = new byte[combined.length - GCM_IV_LENGTH];
+                System.arraycopy(combined, 0, iv, 0, GCM_IV_LENGTH);
+                System.arraycopy(combined, GCM_IV_LENGTH, encryptedData, 0, encryptedData.length);
+
+                MessageDigest sha = MessageDigest.getInstance("SHA-256");
+                byte[] key = sha.digest(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                        new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+                return new String(cipher.doFinal(encryptedData), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PasswordDecryptBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.sqlexecutor.benchmark;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+/**
+ * SQL验证基准：单遍词法分析（SqlAnalyzer）对比原先基于正则的验证
+ *
+ * 两种实现都对约 100KB 的查询做完整的操作类型判断和注入检查，查询本身不触发任何拒绝规则，
+ * 保证正则实现不会提前返回。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlValidationBenchmark {
+
+    private static final List<String> ALLOWED_OPERATIONS = List.of("SELECT", "INSERT", "UPDATE", "DELETE", "WITH");
+
+    /**
+     * in_list：长 IN 列表的字符串常量；predicates：大量数值比较条件
+     */
+    @Param({"in_list", "predicates"})
+    private String shape;
+
+    @Param({"102400"})
+    private int size;
+
+    private String sql;
+
+    private SqlAnalyzer analyzer;
+
+    @Setup
+    public void setup() {
+        sql = buildQuery(shape, size);
+        analyzer = new SqlAnalyzer(List.of(""));
+        if (!LegacyValidator.validate(sql).equals(analyze())) {
+            throw new IllegalStateException("两种实现对基准查询的判断不一致");
+        }
+    }
+
+    @Benchmark
+    public String legacyRegex() {
+        return LegacyValidator.validate(sql);
+    }
+
+    @Benchmark
+    public String lexer() {
+        return analyze();
+    }
+
+    /**
+     * 与 SqlExecutionService.validateSql 相同的判断顺序
+     */
+    private String analyze() {
+        SqlAnalyzer.SqlAnalysis analysis = analyzer.analyze(sql);
+        if (analysis.getForbiddenKeyword() != null) {
+            return "FORBIDDEN";
+        }
+        if (analysis.getStatementType() == null
+                || ALLOWED_OPERATIONS.stream().noneMatch(analysis.getStatementType()::equalsIgnoreCase)) {
+            return "NOT_ALLOWED";
+        }
+        if (analysis.hasInjectionRisk()) {
+            return "RISK";
+        }
+        return analysis.getStatementType();
+    }
+
+    static String buildQuery(String shape, int size) {
+        StringBuilder sb = new StringBuilder(size + 64);
+        if ("in_list".equals(shape)) {
+            sb.append("SELECT id, name, amount FROM orders WHERE status IN (");
+            for (int i = 0; sb.length() < size; i++) {
+                sb.append(i == 0 ? "" : ", ").append("'v").append(i).append('\'');
+            }
+            sb.append(") ORDER BY id;");
+        } else {
+            sb.append("SELECT id, name, amount FROM orders WHERE amount > 0");
+            for (int i = 0; sb.length() < size; i++) {
+                sb.append("\n  AND c").append(i).append(" >= ").append(i + 2);
+            }
+            sb.append(";");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 原先 SqlExecutionService 中的正则验证（validateSql、containsSqlInjectionPatterns、determineQueryType）
+     */
+    static final class LegacyValidator {
+
+        private static final Pattern SELECT_PATTERN = Pattern.compile("^\\s*SELECT", Pattern.CASE_INSENSITIVE);
+        private static final Pattern INSERT_PATTERN = Pattern.compile("^\\s*INSERT", Pattern.CASE_INSENSITIVE);
+        private static final Pattern UPDATE_PATTERN = Pattern.compile("^\\s*UPDATE", Pattern.CASE_INSENSITIVE);
+        private static final Pattern DELETE_PATTERN = Pattern.compile("^\\s*DELETE", Pattern.CASE_INSENSITIVE);
+        private static final Pattern WITH_PATTERN = Pattern.compile("^\\s*WITH", Pattern.CASE_INSENSITIVE);
+
+        private LegacyValidator() {
+        }
+
+        static String validate(String sql) {
+            String upperSql = sql.toUpperCase(Locale.ROOT).trim();
+            boolean isAllowed = false;
+            for (String allowed : ALLOWED_OPERATIONS) {
+                if (upperSql.startsWith(allowed)) {
+                    isAllowed = true;
+                    break;
+                }
+            }
+            if (!isAllowed) {
+                return "NOT_ALLOWED";
+            }
+            if (containsSqlInjectionPatterns(sql)) {
+                return "RISK";
+            }
+            return determineQueryType(sql);
+        }
+
+        private static String determineQueryType(String sql) {
+            if (SELECT_PATTERN.matcher(sql).find()) {
+                return "SELECT";
+            } else if (INSERT_PATTERN.matcher(sql).find()) {
+                return "INSERT";
+            } else if (UPDATE_PATTERN.matcher(sql).find()) {
+                return "UPDATE";
+            } else if (DELETE_PATTERN.matcher(sql).find()) {
+                return "DELETE";
+            } else if (WITH_PATTERN.matcher(sql).find()) {
+                return "WITH";
+            } else {
+                return "UNKNOWN";
+            }
+        }
+
+        private static boolean containsSqlInjectionPatterns(String sql) {
+            String lowerSql = sql.toLowerCase(Locale.ROOT);
+            String[] injectionPatterns = {"/\\*", "\\*/", "--"};
+            for (String pattern : injectionPatterns) {
+                if (lowerSql.matches(".*" + pattern + ".*")) {
+                    return true;
+                }
+            }
+
+            String trimmedSql = sql.trim();
+            if (trimmedSql.endsWith(";")) {
+                trimmedSql = trimmedSql.substring(0, trimmedSql.length() - 1);
+            }
+            if (trimmedSql.contains(";")) {
+                return true;
+            }
+
+            if (lowerSql.matches(".*'\\s*(or|and|union|select|insert|update|delete|drop|create|alter).*")) {
+                return true;
+            }
+            return lowerSql.matches(".*(1\\s*=\\s*1|0\\s*=\\s*0).*");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SqlValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
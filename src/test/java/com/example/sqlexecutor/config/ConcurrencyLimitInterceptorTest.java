@@ -0,0 +1,124 @@
+package com.example.sqlexecutor.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.sql.SQLTransientConnectionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import com.example.sqlexecutor.exception.ConnectionAdmissionException;
+import com.example.sqlexecutor.exception.SqlExecutionException;
+import com.example.sqlexecutor.service.QueryMetricsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.DispatcherType;
+
+class ConcurrencyLimitInterceptorTest {
+
+    private ConcurrencyLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new ConcurrencyLimitInterceptor(new ObjectMapper(), mock(QueryMetricsService.class));
+        ReflectionTestUtils.setField(interceptor, "enabled", true);
+        ReflectionTestUtils.setField(interceptor, "initialLimit", 1);
+        ReflectionTestUtils.setField(interceptor, "minLimit", 1);
+        ReflectionTestUtils.setField(interceptor, "maxLimit", 10);
+        ReflectionTestUtils.setField(interceptor, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(interceptor, "tolerance", 2.0);
+        ReflectionTestUtils.setField(interceptor, "windowSize", 10);
+        ReflectionTestUtils.setField(interceptor, "retryAfter", 1);
+        ReflectionTestUtils.setField(interceptor, "rejectStatus", 429);
+        interceptor.init();
+    }
+
+    private static MockHttpServletRequest post(String contextPath, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContextPath(contextPath);
+        return request;
+    }
+
+    @Test
+    void matchesPathWithinApplication() throws Exception {
+        MockHttpServletRequest first = post("/app", "/app/api/execute-sql");
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(post("/app", "/app/api/execute-sql"), rejected, null)).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        // 其他接口有各自的限制器，未受限的路径直接放行
+        assertThat(interceptor.preHandle(post("", "/api/datasource/multi-query"), new MockHttpServletResponse(),
+                null)).isTrue();
+        assertThat(interceptor.preHandle(post("", "/api/health"), new MockHttpServletResponse(), null)).isTrue();
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertThat(interceptor.preHandle(post("/app", "/app/api/execute-sql"), new MockHttpServletResponse(),
+                null)).isTrue();
+    }
+
+    @Test
+    void streamingEndpointsAreLimited() throws Exception {
+        assertThat(ConcurrencyLimitInterceptor.endpointName("/api/datasource/multi-query/stream"))
+                .isEqualTo("multi-query-stream");
+        assertThat(ConcurrencyLimitInterceptor.endpointName("/api/reactive/query")).isEqualTo("reactive-query");
+
+        for (String uri : new String[] { "/api/datasource/multi-query/stream", "/api/reactive/query" }) {
+            MockHttpServletRequest first = post("", uri);
+            assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+
+            // 异步分派沿用首次分派的许可
+            first.setDispatcherType(DispatcherType.ASYNC);
+            assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            assertThat(interceptor.preHandle(post("", uri), rejected, null)).isFalse();
+            assertThat(rejected.getStatus()).isEqualTo(429);
+
+            // 异步处理结束后释放许可
+            interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+            assertThat(interceptor.preHandle(post("", uri), new MockHttpServletResponse(), null)).isTrue();
+        }
+    }
+
+    @Test
+    void onlyOverloadSignalsCountAsDrops() {
+        MockHttpServletResponse ok = new MockHttpServletResponse();
+        MockHttpServletResponse serverError = new MockHttpServletResponse();
+        serverError.setStatus(500);
+        MockHttpServletResponse unavailable = new MockHttpServletResponse();
+        unavailable.setStatus(503);
+        MockHttpServletResponse tooMany = new MockHttpServletResponse();
+        tooMany.setStatus(429);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(request, ok, null)).isFalse();
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(request, serverError,
+                new SqlExecutionException("语法错误"))).isFalse();
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(request, unavailable, null)).isTrue();
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(request, tooMany, null)).isTrue();
+
+        // 由 @ExceptionHandler 处理的异常
+        MockHttpServletRequest badSql = new MockHttpServletRequest();
+        badSql.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE,
+                new BadSqlGrammarException("query", "SELEC 1", new java.sql.SQLException("syntax error")));
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(badSql, serverError, null)).isFalse();
+
+        MockHttpServletRequest poolTimeout = new MockHttpServletRequest();
+        poolTimeout.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new CannotGetJdbcConnectionException(
+                "Failed to obtain JDBC Connection", new SQLTransientConnectionException("timed out")));
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(poolTimeout, ok, null)).isTrue();
+
+        assertThat(ConcurrencyLimitInterceptor.isOverloaded(request, serverError,
+                new ConnectionAdmissionException("份额已用尽"))).isTrue();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sqlexecutor.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.sqlexecutor.exception.GlobalExceptionHandler;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.service.StreamingExportService;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+class ExcelExportControllerTest {
+
+    private static final String BODY = "{\"query\": \"SELECT 1\", \"database\": \"main\", \"filename\": \"report\"}";
+
+    private final StreamingExportService streamingExportService = mock(StreamingExportService.class);
+
+    private MockMvc mockMvc;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ExcelExportController(streamingExportService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private MvcResult startExport() throws Exception {
+        return mockMvc.perform(post("/api/export-excel").contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    @Test
+    void respondsWithFileAndTruncationHeaderAfterExportCompletes() throws Exception {
+        Path path = Files.write(tempDir.resolve("export.xlsx"), new byte[] {1, 2, 3});
+        CompletableFuture<StreamingExportService.ExportFile> export = new CompletableFuture<>();
+        when(streamingExportService.exportQuery(any(), anyString())).thenReturn(export);
+
+        MvcResult result = startExport();
+        // 文件生成之前不写出任何响应头
+        assertThat(result.getResponse().isCommitted()).isFalse();
+        assertThat(result.getResponse().getHeader("Content-Disposition")).isNull();
+
+        export.complete(new StreamingExportService.ExportFile(path, 3, 1048575, true));
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Result-Truncated", "true"))
+                .andExpect(header().longValue("Content-Length", 3))
+                .andExpect(header().string("Content-Disposition", "form-data; name=\"attachment\"; "
+                        + "filename=\"report.xlsx\""))
+                .andExpect(content().bytes(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    void queryFailureReturnsErrorResponse() throws Exception {
+        when(streamingExportService.exportQuery(any(), anyString())).thenReturn(
+                CompletableFuture.failedFuture(new DataAccessResourceFailureException("connection reset")));
+
+        MvcResult result = startExport();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist("Content-Disposition"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void validationFailureReturnsBadRequest() throws Exception {
+        when(streamingExportService.exportQuery(any(), anyString())).thenThrow(new InvalidSqlException("只读"));
+
+        MvcResult result = startExport();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("SQL验证失败: 只读"));
+    }
+
+    @Test
+    void zipExportRespondsAfterArchiveIsBuilt() throws Exception {
+        Path path = Files.write(tempDir.resolve("export.zip"), new byte[] {9, 8});
+        CompletableFuture<StreamingExportService.ExportFile> export = new CompletableFuture<>();
+        when(streamingExportService.exportMultiDatasourceQuery(anyString(), any(), any())).thenReturn(export);
+
+        MvcResult result = mockMvc.perform(post("/api/export-multi-datasource-excel")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\": \"SELECT 1\", \"datasourceCodes\": [\"a\"], \"filenamePrefix\": \"all\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(result.getResponse().isCommitted()).isFalse();
+
+        export.complete(new StreamingExportService.ExportFile(path, 2, 10, false));
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Result-Truncated"))
+                .andExpect(header().string("Content-Type", "application/zip"))
+                .andExpect(content().bytes(new byte[] {9, 8}));
+    }
+
+    @Test
+    void clientDisconnectOrTimeoutCancelsExport() throws Exception {
+        CompletableFuture<StreamingExportService.ExportFile> disconnected = new CompletableFuture<>();
+        CompletableFuture<StreamingExportService.ExportFile> timedOut = new CompletableFuture<>();
+
+        // 写出响应前客户端断开
+        when(streamingExportService.exportQuery(any(), anyString())).thenReturn(disconnected);
+        MockAsyncContext context = (MockAsyncContext) startExport().getRequest().getAsyncContext();
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onError(new AsyncEvent(context, new IOException("Broken pipe")));
+        }
+        assertThat(disconnected.isCancelled()).isTrue();
+
+        // 异步请求超时
+        when(streamingExportService.exportQuery(any(), anyString())).thenReturn(timedOut);
+        context = (MockAsyncContext) startExport().getRequest().getAsyncContext();
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+        assertThat(timedOut.isCancelled()).isTrue();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.exception.QueryCostExceededException;
+
+class CostGuardServiceTest {
+
+    private final ExecutionPlanService executionPlanService = mock(ExecutionPlanService.class);
+    private final QueryMetricsService queryMetricsService = mock(QueryMetricsService.class);
+    private final JdbcTemplate template = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:cost_guard"));
+
+    private CostGuardService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        service = new CostGuardService(executionPlanService, queryMetricsService);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "defaultMaxCost", 1000.0);
+        ReflectionTestUtils.setField(service, "defaultMaxRows", 0L);
+        ReflectionTestUtils.setField(service, "defaultMaxBytes", 0L);
+        ReflectionTestUtils.setField(service, "defaultAction", CostGuardAction.REJECT);
+        ReflectionTestUtils.setField(service, "explainTimeout", 5);
+
+        // 估算代价 5000，行数 1万，行宽 100 字节
+        when(executionPlanService.explain(any(), anyString(), eq(false), anyInt())).thenReturn(Map.of(
+                "summary", Map.of("totalCost", 5000.0, "estimatedRows", 10000.0, "estimatedWidth", 100)));
+    }
+
+    @Test
+    void rejectsOverDefaultCost() {
+        assertThatThrownBy(() -> service.admit(template, null, "main", "SELECT 1", WorkloadClass.INTERACTIVE, null))
+                .isInstanceOf(QueryCostExceededException.class)
+                .hasMessageContaining("估算代价")
+                .satisfies(e -> assertThat(((QueryCostExceededException) e).getPlanSummary())
+                        .containsEntry("totalCost", 5000.0));
+        verify(queryMetricsService).recordCostGuard("main", CostGuardAction.REJECT, true);
+    }
+
+    @Test
+    void datasourceThresholdsOverrideDefaults() {
+        DatasourceConfig config = DatasourceConfig.builder()
+                .maxQueryCost(10000.0)
+                .maxEstimatedBytes(500000L)
+                .costGuardAction("queue")
+                .build();
+
+        // 代价在数据源阈值内，估算数据量 1万 × 100 字节超过阈值，转入后台通道
+        assertThat(service.admit(template, config, "ds1", "SELECT 1", WorkloadClass.INTERACTIVE, null))
+                .isEqualTo(WorkloadClass.BACKGROUND);
+        verify(queryMetricsService).recordCostGuard("ds1", CostGuardAction.QUEUE, true);
+    }
+
+    @Test
+    void unknownActionFallsBackToDefault() {
+        DatasourceConfig config = DatasourceConfig.builder()
+                .datasourceCode("ds1")
+                .costGuardAction("qeueu")
+                .build();
+
+        // 动作拼写错误不影响查询，按默认动作（拒绝）处理
+        assertThatThrownBy(() -> service.admit(template, config, "ds1", "SELECT 1", WorkloadClass.INTERACTIVE,
+                null)).isInstanceOf(QueryCostExceededException.class);
+        verify(queryMetricsService).recordCostGuard("ds1", CostGuardAction.REJECT, true);
+    }
+
+    @Test
+    void allowsWithinThresholds() {
+        DatasourceConfig config = DatasourceConfig.builder().maxQueryCost(10000.0).build();
+
+        assertThat(service.admit(template, config, "ds1", "SELECT 1", WorkloadClass.EXPORT, null))
+                .isEqualTo(WorkloadClass.EXPORT);
+        verify(queryMetricsService).recordCostGuard("ds1", CostGuardAction.ALLOW, false);
+    }
+
+    @Test
+    void explainFailureLetsQueryThrough() throws SQLException {
+        when(executionPlanService.explain(any(), anyString(), eq(false), anyInt()))
+                .thenThrow(new SQLException("syntax error"));
+
+        assertThat(service.admit(template, null, "main", "SELEC 1", WorkloadClass.INTERACTIVE, null))
+                .isEqualTo(WorkloadClass.INTERACTIVE);
+        verify(queryMetricsService, never()).recordCostGuard(any(), any(), eq(true));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DatasourcePoolRegistryTest {
+
+    private DatasourcePoolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new DatasourcePoolRegistry(mock(PasswordEncryptor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(registry, "idleTimeout", 600000L);
+        ReflectionTestUtils.setField(registry, "maxLifetime", 1800000L);
+        ReflectionTestUtils.setField(registry, "evictAfter", 1800000L);
+        ReflectionTestUtils.setField(registry, "fetchSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    private static DatasourceConfig config(String code, LocalDateTime updatedAt) {
+        return DatasourceConfig.builder()
+                .datasourceCode(code)
+                .jdbcUrl("jdbc:h2:mem:" + code + ";DB_CLOSE_DELAY=-1")
+                .username("sa")
+                .password("")
+                .maxPoolSize(2)
+                .minIdle(0)
+                .updatedAt(updatedAt)
+                .build();
+    }
+
+    private static boolean isClosed(JdbcTemplate template) {
+        return ((HikariDataSource) template.getDataSource()).isClosed();
+    }
+
+    private static int selectOne(JdbcTemplate template) {
+        return template.queryForObject("SELECT 1", Integer.class);
+    }
+
+    @Test
+    void sameConfigSharesPool() {
+        LocalDateTime version = LocalDateTime.now();
+        try (DatasourcePoolRegistry.Lease first = registry.lease(config("same", version));
+                DatasourcePoolRegistry.Lease second = registry.lease(config("same", version))) {
+            assertThat(second.getJdbcTemplate()).isSameAs(first.getJdbcTemplate());
+            assertThat(registry.getPoolCount()).isEqualTo(1);
+            assertThat(registry.getTotalCapacity()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void replacedPoolStaysOpenUntilLastLeaseCloses() {
+        DatasourcePoolRegistry.Lease old = registry.lease(config("changed", LocalDateTime.now().minusDays(1)));
+        JdbcTemplate oldTemplate = old.getJdbcTemplate();
+
+        try (DatasourcePoolRegistry.Lease current = registry.lease(config("changed", LocalDateTime.now()))) {
+            assertThat(current.getJdbcTemplate()).isNotSameAs(oldTemplate);
+            assertThat(registry.getPoolCount()).isEqualTo(1);
+
+            // 配置变化后，进行中的查询仍可使用旧连接池
+            assertThat(isClosed(oldTemplate)).isFalse();
+            assertThat(selectOne(oldTemplate)).isEqualTo(1);
+
+            old.close();
+            assertThat(isClosed(oldTemplate)).isTrue();
+            assertThat(isClosed(current.getJdbcTemplate())).isFalse();
+        }
+    }
+
+    @Test
+    void idleEvictionSkipsLeasedPools() {
+        ReflectionTestUtils.setField(registry, "evictAfter", -60000L);
+        DatasourcePoolRegistry.Lease lease = registry.lease(config("idle", null));
+
+        registry.evictIdlePools();
+        assertThat(registry.getPoolCount()).isEqualTo(1);
+        assertThat(selectOne(lease.getJdbcTemplate())).isEqualTo(1);
+
+        lease.close();
+        registry.evictIdlePools();
+        assertThat(registry.getPoolCount()).isZero();
+        assertThat(isClosed(lease.getJdbcTemplate())).isTrue();
+    }
+
+    @Test
+    void sharedLeaseKeepsEvictedPoolOpen() {
+        DatasourcePoolRegistry.Lease lease = registry.lease(config("shared", null));
+        DatasourcePoolRegistry.Lease shared = lease.share();
+        lease.close();
+        lease.close();
+
+        registry.evict("shared");
+        assertThat(registry.getPoolCount()).isZero();
+        assertThat(selectOne(shared.getJdbcTemplate())).isEqualTo(1);
+
+        shared.close();
+        assertThat(isClosed(shared.getJdbcTemplate())).isTrue();
+        assertThatThrownBy(lease::share).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void evictWithoutLeasesClosesImmediately() {
+        JdbcTemplate template;
+        try (DatasourcePoolRegistry.Lease lease = registry.lease(config("evicted", null))) {
+            template = lease.getJdbcTemplate();
+        }
+        registry.evict("evicted");
+        assertThat(isClosed(template)).isTrue();
+    }
+}
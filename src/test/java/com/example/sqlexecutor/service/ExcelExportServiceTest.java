@@ -0,0 +1,79 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ExcelExportServiceTest {
+
+    private ExcelExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ExcelExportService();
+        ReflectionTestUtils.setField(service, "rowAccessWindow", 100);
+        ReflectionTestUtils.setField(service, "compressTempFiles", false);
+        ReflectionTestUtils.setField(service, "widthSampleRows", 200);
+    }
+
+    private static Sheet read(byte[] bytes) throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(bytes)).getSheetAt(0);
+    }
+
+    private byte[] write(String[] header, Object[]... rows) throws IOException {
+        try (ExcelExportService.SheetWriter writer = service.openSheetWriter("结果")) {
+            if (header != null) {
+                writer.writeHeader(header);
+            }
+            for (Object[] row : rows) {
+                writer.writeRow(row);
+            }
+            assertThat(writer.getRowCount()).isEqualTo(rows.length);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            writer.finish(output);
+            return output.toByteArray();
+        }
+    }
+
+    @Test
+    void headerWithoutRowsShowsNoDataNotice() throws IOException {
+        Sheet sheet = read(write(new String[] {"id", "name"}));
+
+        assertThat(sheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("name");
+        assertThat(sheet.getRow(1).getCell(0).getStringCellValue()).isEqualTo("无数据");
+    }
+
+    @Test
+    void emptySheetShowsNoDataNotice() throws IOException {
+        Sheet sheet = read(write(null));
+
+        assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("无数据");
+    }
+
+    @Test
+    void rowsAreWrittenBelowHeader() throws IOException {
+        Sheet sheet = read(write(new String[] {"id"}, new Object[] {1L}, new Object[] {2L}));
+
+        assertThat(sheet.getLastRowNum()).isEqualTo(2);
+        assertThat(sheet.getRow(2).getCell(0).getNumericCellValue()).isEqualTo(2.0);
+    }
+
+    @Test
+    void textWidthCountsCodePoints() {
+        assertThat(ExcelExportService.textWidth("abc")).isEqualTo(3);
+        assertThat(ExcelExportService.textWidth("数据")).isEqualTo(4);
+        // 辅助平面字符（扩展B汉字、表情）是一个码点、两个char，按两个字符宽度计算
+        assertThat(ExcelExportService.textWidth("𠮷")).isEqualTo(2);
+        assertThat(ExcelExportService.textWidth("😀a")).isEqualTo(3);
+        // 半角片假名
+        assertThat(ExcelExportService.textWidth("ｱｲ")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ExecutionPlanServiceTest {
+
+    private static final String PLAN = "[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Total Cost\": 12.5,"
+            + " \"Plan Rows\": 100, \"Plan Width\": 8, \"Actual Rows\": 40, \"Actual Loops\": 2,"
+            + " \"Actual Total Time\": 0.5, \"Plans\": [{\"Plan Rows\": 10, \"Actual Rows\": 3}]},"
+            + " \"Planning Time\": 0.1, \"Execution Time\": 0.7}]";
+
+    private final ExecutionPlanService service = new ExecutionPlanService(new ObjectMapper());
+
+    private Connection connection;
+    private Statement statement;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString(1)).thenReturn(PLAN);
+    }
+
+    @Test
+    void analyzeRunsInRolledBackReadOnlyTransaction() throws SQLException {
+        service.explain(connection, "SELECT * FROM t", true, 5);
+
+        InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(statement).execute("SET TRANSACTION READ ONLY");
+        order.verify(statement).executeQuery("EXPLAIN (FORMAT JSON, ANALYZE, BUFFERS) SELECT * FROM t");
+        order.verify(connection).rollback();
+        order.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    void planOnlyDoesNotTouchTransaction() throws SQLException {
+        service.explain(connection, "SELECT 1", false, 5);
+
+        verify(statement).executeQuery("EXPLAIN (FORMAT JSON) SELECT 1");
+        verify(statement, never()).execute(anyString());
+        verify(connection, never()).setAutoCommit(false);
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    void rollsBackWhenAnalyzeFails() throws SQLException {
+        when(statement.executeQuery(anyString())).thenThrow(new SQLException("cannot execute DELETE in a read-only"));
+
+        assertThatThrownBy(() -> service.explain(connection, "WITH d AS (DELETE FROM t) SELECT 1", true, 5))
+                .isInstanceOf(SQLException.class);
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void summarizesPlan() throws SQLException {
+        Map<String, Object> result = service.explain(connection, "SELECT 1", true, 0);
+
+        Map<String, Object> summary = (Map<String, Object>) result.get("summary");
+        assertThat(summary)
+                .containsEntry("nodeType", "Seq Scan")
+                .containsEntry("totalCost", 12.5)
+                .containsEntry("nodeCount", 2L)
+                .containsEntry("totalEstimatedRows", 110.0)
+                .containsEntry("actualRows", 80.0)
+                .containsEntry("totalActualRows", 83.0)
+                .containsEntry("executionTime", 0.7);
+        assertThat(result.get("plan")).isInstanceOf(Map.class);
+    }
+
+    @Test
+    void explainAnalyzeOnlyForQueries() {
+        ExecuteSqlRequest.QueryOptions options = new ExecuteSqlRequest.QueryOptions();
+        options.setExplainAnalyze(true);
+
+        SqlExecutionService.checkExplainAnalyze(options, true);
+        SqlExecutionService.checkExplainAnalyze(null, false);
+        assertThatThrownBy(() -> SqlExecutionService.checkExplainAnalyze(options, false))
+                .isInstanceOf(InvalidSqlException.class);
+    }
+}
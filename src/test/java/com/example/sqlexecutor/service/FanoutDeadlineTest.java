@@ -0,0 +1,66 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.sqlexecutor.exception.SqlExecutionException;
+
+class FanoutDeadlineTest {
+
+    @Test
+    void unboundedDeadlineNeverExpires() {
+        FanoutDeadline deadline = new FanoutDeadline(0);
+
+        assertThat(deadline.isBounded()).isFalse();
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(deadline.remainingMillis()).isEqualTo(Long.MAX_VALUE);
+        assertThat(deadline.statementTimeoutSeconds(30)).isEqualTo(30);
+        deadline.check();
+    }
+
+    @Test
+    void expiredDeadlineCancelsStatements() throws SQLException {
+        FanoutDeadline deadline = new FanoutDeadline(60000);
+        Statement running = mock(Statement.class);
+        Statement finished = mock(Statement.class);
+        deadline.register(running);
+        deadline.register(finished);
+        deadline.unregister(finished);
+
+        deadline.expire();
+
+        verify(running).cancel();
+        verify(finished, never()).cancel();
+        assertThat(deadline.remainingMillis()).isZero();
+        assertThatThrownBy(deadline::check).isInstanceOf(SqlExecutionException.class)
+                .hasMessageContaining("截止时间");
+    }
+
+    @Test
+    void cancelStopsUnboundedFanout() throws SQLException {
+        FanoutDeadline deadline = new FanoutDeadline(0);
+        Statement running = mock(Statement.class);
+        deadline.register(running);
+
+        deadline.cancel();
+
+        verify(running).cancel();
+        assertThat(deadline.isCancelled()).isTrue();
+        assertThat(deadline.isExpired()).isTrue();
+        assertThat(deadline.remainingMillis()).isZero();
+        assertThatThrownBy(deadline::check).hasMessageContaining("已取消");
+
+        // 取消后才登记的语句立即取消
+        Statement late = mock(Statement.class);
+        deadline.register(late);
+        verify(late).cancel();
+    }
+}
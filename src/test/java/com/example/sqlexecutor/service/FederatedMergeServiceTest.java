@@ -0,0 +1,169 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FederatedMergeServiceTest {
+
+    private static final String QUERY = "SELECT id AS \"id\", region AS \"region\" FROM t";
+
+    private final WorkloadManager workloadManager = mock(WorkloadManager.class);
+    private final CostGuardService costGuardService = mock(CostGuardService.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private DatasourcePoolRegistry registry;
+    private FederatedMergeService service;
+    private List<DatasourceConfig> configs;
+
+    @BeforeEach
+    void setUp() {
+        registry = new DatasourcePoolRegistry(mock(PasswordEncryptor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(registry, "idleTimeout", 600000L);
+        ReflectionTestUtils.setField(registry, "maxLifetime", 1800000L);
+        ReflectionTestUtils.setField(registry, "evictAfter", 1800000L);
+        ReflectionTestUtils.setField(registry, "fetchSize", 10);
+
+        service = new FederatedMergeService(mock(SqlExecutionService.class), registry, workloadManager,
+                costGuardService, mock(QueryStatisticsService.class), mock(QueryMetricsService.class));
+        ReflectionTestUtils.setField(service, "maxRows", 1000);
+        when(workloadManager.getExecutor(any())).thenReturn(executor);
+
+        // 奇数行在 a 上，偶数行在 b 上
+        configs = List.of(shard("a", 1), shard("b", 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        registry.destroy();
+    }
+
+    private DatasourceConfig shard(String code, int remainder) {
+        DatasourceConfig config = DatasourceConfig.builder()
+                .datasourceCode("merge_" + code)
+                .datasourceName(code)
+                .jdbcUrl("jdbc:h2:mem:merge_" + code + ";DB_CLOSE_DELAY=-1")
+                .username("sa")
+                .password("")
+                .maxPoolSize(2)
+                .minIdle(0)
+                .build();
+        try (DatasourcePoolRegistry.Lease lease = registry.lease(config)) {
+            lease.getJdbcTemplate().execute("DROP TABLE IF EXISTS t");
+            lease.getJdbcTemplate().execute("CREATE TABLE t AS SELECT x AS id, MOD(x, 3) AS region"
+                    + " FROM SYSTEM_RANGE(1, 100) WHERE MOD(x, 2) = " + remainder);
+        }
+        return config;
+    }
+
+    private MultiDatasourceQueryResponse.MergedResult merge(String query,
+            MultiDatasourceQueryRequest.MergeOptions merge) {
+        FederatedMergeService.Outcome outcome = service.execute(configs, query, new ExecuteSqlRequest.QueryOptions(),
+                merge, "SELECT", QuerySource.MULTI_QUERY, new FanoutDeadline(60000));
+        assertThat(outcome.getResults()).allMatch(MultiDatasourceQueryResponse.DatasourceQueryResult::isSuccess);
+        return outcome.getMerged();
+    }
+
+    private static List<Long> ids(MultiDatasourceQueryResponse.MergedResult merged) {
+        return merged.getData().stream()
+                .map(row -> ((Number) row.get("id")).longValue())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void orderByMergesShardsAndStopsAtLimit() {
+        MultiDatasourceQueryResponse.MergedResult merged = merge(QUERY, MultiDatasourceQueryRequest.MergeOptions
+                .builder()
+                .mode("order_by")
+                .orderBy(List.of(MultiDatasourceQueryRequest.SortKey.builder().column("id").descending(true).build()))
+                .limit(5)
+                .build());
+
+        assertThat(ids(merged)).containsExactly(100L, 99L, 98L, 97L, 96L);
+        assertThat(merged.isLimitReached()).isTrue();
+    }
+
+    @Test
+    void unionAllConcatenatesInRequestOrder() {
+        MultiDatasourceQueryResponse.MergedResult merged = merge(QUERY + " WHERE id <= 4",
+                MultiDatasourceQueryRequest.MergeOptions.builder().mode("UNION_ALL").build());
+
+        assertThat(ids(merged)).containsExactly(1L, 3L, 2L, 4L);
+        assertThat(merged.isLimitReached()).isFalse();
+    }
+
+    @Test
+    void aggregateMergesPartialGroups() {
+        MultiDatasourceQueryResponse.MergedResult merged = merge(
+                "SELECT region AS \"region\", count(*) AS \"cnt\" FROM t GROUP BY region",
+                MultiDatasourceQueryRequest.MergeOptions.builder()
+                        .mode("AGGREGATE")
+                        .groupBy(List.of("region"))
+                        .aggregates(List.of(MultiDatasourceQueryRequest.AggregateSpec.builder()
+                                .function("COUNT").column("cnt").build()))
+                        .orderBy(List.of(MultiDatasourceQueryRequest.SortKey.builder().column("region").build()))
+                        .build());
+
+        Map<Object, Object> counts = merged.getData().stream()
+                .collect(Collectors.toMap(row -> ((Number) row.get("region")).intValue(), row -> row.get("cnt")));
+        assertThat(counts).containsEntry(0, 33L).containsEntry(1, 34L).containsEntry(2, 33L);
+    }
+
+    @Test
+    void rejectsInvalidMergeOptions() {
+        assertThatThrownBy(() -> merge(QUERY, MultiDatasourceQueryRequest.MergeOptions.builder()
+                .mode("ORDER_BY").build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> merge(QUERY, MultiDatasourceQueryRequest.MergeOptions.builder()
+                .mode("JOIN").build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deadlineStopsMergeAndMarksUnfinishedShardsTimedOut() {
+        // b 打开游标前卡住（如等待连接），超过整体截止时间
+        when(costGuardService.admit(any(), any(), eq("merge_b"), anyString(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return WorkloadClass.INTERACTIVE;
+        });
+
+        long start = System.currentTimeMillis();
+        FederatedMergeService.Outcome outcome = service.execute(configs, QUERY + " WHERE id <= 4",
+                new ExecuteSqlRequest.QueryOptions(), MultiDatasourceQueryRequest.MergeOptions.builder()
+                        .mode("UNION_ALL").build(), "SELECT", QuerySource.MULTI_QUERY, new FanoutDeadline(300));
+
+        // 不等待 b 打开游标；到期后不再合并，尚未读完的 a 同样标记为超时
+        assertThat(System.currentTimeMillis() - start).isLessThan(1500);
+        assertThat(outcome.getMerged().getData()).isEmpty();
+        assertThat(outcome.getResults())
+                .extracting(MultiDatasourceQueryResponse.DatasourceQueryResult::getDatasourceCode,
+                        MultiDatasourceQueryResponse.DatasourceQueryResult::isSuccess,
+                        MultiDatasourceQueryResponse.DatasourceQueryResult::isTimedOut)
+                .containsExactly(tuple("merge_a", false, true), tuple("merge_b", false, true));
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.entity.DatasourceConfig;
+
+class HostAwareSchedulerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    private HostAwareScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new HostAwareScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxPerHost", 2);
+        ReflectionTestUtils.setField(scheduler, "maxPerCluster", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static DatasourceConfig config(String code, String host, String cluster) {
+        return DatasourceConfig.builder()
+                .datasourceCode(code)
+                .host(host)
+                .port(5432)
+                .clusterName(cluster)
+                .build();
+    }
+
+    /**
+     * 提交一批任务，记录同时执行的最大任务数
+     */
+    private int maxConcurrency(List<DatasourceConfig> configs) {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (DatasourceConfig config : configs) {
+            futures.add(scheduler.submit(config, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return running.decrementAndGet();
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return peak.get();
+    }
+
+    @Test
+    void resolvesHostKey() {
+        assertThat(HostAwareScheduler.hostKey(config("a", " DB1.example.com ", null)))
+                .isEqualTo("db1.example.com:5432");
+        assertThat(HostAwareScheduler.hostKey(DatasourceConfig.builder()
+                .jdbcUrl("jdbc:postgresql://DB2:5433/app?ssl=true").build())).isEqualTo("db2:5433");
+        assertThat(HostAwareScheduler.hostKey(DatasourceConfig.builder()
+                .datasourceCode("h2").jdbcUrl("jdbc:h2:mem:test").build())).isEqualTo("datasource:h2");
+    }
+
+    @Test
+    void limitsConcurrencyPerHost() {
+        List<DatasourceConfig> configs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            configs.add(config("same_" + i, "db1", null));
+        }
+        assertThat(maxConcurrency(configs)).isEqualTo(2);
+    }
+
+    @Test
+    void limitsConcurrencyPerCluster() {
+        List<DatasourceConfig> configs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            configs.add(config("node_" + i, "node" + i, "cluster1"));
+        }
+        assertThat(maxConcurrency(configs)).isEqualTo(3);
+    }
+
+    @Test
+    void otherHostsDoNotWait() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit(config("busy_" + i, "busy", null), () -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }, executor);
+        }
+
+        assertThat(scheduler.submit(config("idle", "idle", null), () -> "done", executor)
+                .orTimeout(1, TimeUnit.SECONDS).join()).isEqualTo("done");
+        release.countDown();
+    }
+
+    @Test
+    void completedPendingTaskIsSkipped() {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit(config("busy_" + i, "busy", null), () -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }, executor);
+        }
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> waiting = scheduler.submit(config("busy_2", "busy", null), () -> ran.getAndSet(true),
+                executor);
+        CompletableFuture<Boolean> next = scheduler.submit(config("busy_3", "busy", null), () -> true, executor);
+
+        // 等待期间被取消（如到达截止时间），派发时跳过
+        waiting.cancel(false);
+        release.countDown();
+
+        assertThat(next.orTimeout(5, TimeUnit.SECONDS).join()).isTrue();
+        assertThat(ran).isFalse();
+    }
+}
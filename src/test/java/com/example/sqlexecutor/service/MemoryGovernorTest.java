@@ -0,0 +1,112 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.exception.ResultMemoryExceededException;
+import com.example.sqlexecutor.util.RowMapResultSetExtractor;
+
+class MemoryGovernorTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    private static final String WIDE_ROWS = "SELECT REPEAT('x', 10000) AS v FROM SYSTEM_RANGE(1, 1000)";
+
+    private MemoryGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        governor = new MemoryGovernor(mock(QueryMetricsService.class));
+        ReflectionTestUtils.setField(governor, "enabled", true);
+        ReflectionTestUtils.setField(governor, "globalBudgetMb", 3L);
+        ReflectionTestUtils.setField(governor, "requestBudgetMb", 2L);
+        ReflectionTestUtils.setField(governor, "policy", MemoryPolicy.TRUNCATE);
+        governor.init();
+    }
+
+    private static RowMapResultSetExtractor extract(QueryContext context, List<Map<String, Object>> sink)
+            throws SQLException {
+        RowMapResultSetExtractor extractor = new RowMapResultSetExtractor(false, null, context);
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:memory_governor");
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(WIDE_ROWS)) {
+            sink.addAll(extractor.extractData(rs));
+        }
+        return extractor;
+    }
+
+    @Test
+    void requestBudgetIsNotGlobal() {
+        try (QueryContext context = governor.newContext()) {
+            context.reserve(MB);
+            assertThatThrownBy(() -> context.reserve(2 * MB))
+                    .isInstanceOfSatisfying(ResultMemoryExceededException.class,
+                            e -> assertThat(e.isGlobal()).isFalse());
+            assertThat(governor.getReservedBytes()).isEqualTo(MB);
+        }
+        assertThat(governor.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void globalBudgetIsSharedAcrossRequests() {
+        QueryContext first = governor.newContext();
+        first.reserve(2 * MB);
+
+        try (QueryContext second = governor.newContext()) {
+            assertThatThrownBy(() -> second.reserve(2 * MB))
+                    .isInstanceOfSatisfying(ResultMemoryExceededException.class,
+                            e -> assertThat(e.isGlobal()).isTrue());
+
+            // 归还后其他请求可以继续预留
+            first.close();
+            first.close();
+            second.reserve(2 * MB);
+            assertThat(governor.getReservedBytes()).isEqualTo(2 * MB);
+        }
+    }
+
+    @Test
+    void truncatePolicyStopsReadingAtBudget() throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (QueryContext context = governor.newContext()) {
+            RowMapResultSetExtractor extractor = extract(context, rows);
+
+            assertThat(extractor.isTruncated()).isTrue();
+            assertThat(extractor.isTruncatedByGlobalBudget()).isFalse();
+            assertThat(rows).isNotEmpty().hasSizeLessThan(1000);
+            assertThat(context.getReservedBytes()).isLessThanOrEqualTo(2 * MB);
+        }
+    }
+
+    @Test
+    void rejectPolicyFailsQuery() {
+        ReflectionTestUtils.setField(governor, "policy", MemoryPolicy.REJECT);
+
+        try (QueryContext context = governor.newContext()) {
+            assertThatThrownBy(() -> extract(context, new ArrayList<>()))
+                    .isInstanceOf(ResultMemoryExceededException.class);
+        }
+        assertThat(governor.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void disabledGovernorHasNoContext() {
+        ReflectionTestUtils.setField(governor, "enabled", false);
+
+        assertThat(governor.newContext()).isNull();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+import com.example.sqlexecutor.dto.MultiDatasourceStreamEvent;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+
+class MultiDatasourceQueryServiceTest {
+
+    private final SqlExecutionService sqlExecutionService = mock(SqlExecutionService.class);
+    private final DatasourceService datasourceService = mock(DatasourceService.class);
+    private final WorkloadManager workloadManager = mock(WorkloadManager.class);
+    private final QueryStatisticsService queryStatisticsService = mock(QueryStatisticsService.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private DatasourcePoolRegistry registry;
+    private MultiDatasourceQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new DatasourcePoolRegistry(mock(PasswordEncryptor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(registry, "idleTimeout", 600000L);
+        ReflectionTestUtils.setField(registry, "maxLifetime", 1800000L);
+        ReflectionTestUtils.setField(registry, "evictAfter", 1800000L);
+        ReflectionTestUtils.setField(registry, "fetchSize", 100);
+
+        HostAwareScheduler scheduler = new HostAwareScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxPerHost", 8);
+        ReflectionTestUtils.setField(scheduler, "maxPerCluster", 16);
+
+        service = new MultiDatasourceQueryService(datasourceService, sqlExecutionService, registry,
+                queryStatisticsService, mock(QueryMetricsService.class), workloadManager,
+                mock(CostGuardService.class), mock(RowCountService.class), mock(ResultCompareService.class),
+                mock(FederatedMergeService.class), scheduler);
+        ReflectionTestUtils.setField(service, "streamWindow", 64);
+        ReflectionTestUtils.setField(service, "defaultDeadline", 60000L);
+
+        SqlAnalyzer.SqlAnalysis analysis = mock(SqlAnalyzer.SqlAnalysis.class);
+        when(analysis.getStatementType()).thenReturn("SELECT");
+        when(sqlExecutionService.validateSql(anyString())).thenReturn(analysis);
+        when(workloadManager.getExecutor(any())).thenReturn(executor);
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                "a", datasource("a"), "b", datasource("b")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        registry.destroy();
+    }
+
+    private static DatasourceConfig datasource(String code) {
+        return DatasourceConfig.builder()
+                .datasourceCode(code)
+                .datasourceName(code)
+                .jdbcUrl("jdbc:h2:mem:multi_" + code + ";DB_CLOSE_DELAY=-1")
+                .username("sa")
+                .password("")
+                .maxPoolSize(2)
+                .minIdle(0)
+                .build();
+    }
+
+    private static MultiDatasourceQueryRequest request(Integer deadline) {
+        MultiDatasourceQueryRequest request = new MultiDatasourceQueryRequest();
+        request.setDatasourceCodes(List.of("a", "b"));
+        request.setQuery("SELECT 1");
+        request.setDeadline(deadline);
+        return request;
+    }
+
+    private static QueryResult emptyResult() {
+        return QueryResult.builder().rows(List.of()).build();
+    }
+
+    @Test
+    void cancellingStreamCancelsRunningStatements() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch cancelled = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            FanoutDeadline deadline = invocation.getArgument(6);
+            Statement statement = mock(Statement.class);
+            doAnswer(cancel -> {
+                cancelled.countDown();
+                return null;
+            }).when(statement).cancel();
+            deadline.register(statement);
+            started.countDown();
+            // 模拟执行中的语句，直到被取消
+            cancelled.await(5, TimeUnit.SECONDS);
+            deadline.unregister(statement);
+            return emptyResult();
+        }).when(sqlExecutionService).query(any(), anyString(), any(), anyBoolean(), any(), any(), any());
+
+        Disposable subscription = service.streamMultiDatasourceQuery(request(0)).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        subscription.dispose();
+
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void deadlineStartsOnSubscribe() throws Exception {
+        when(sqlExecutionService.query(any(), anyString(), any(), anyBoolean(), any(), any(), any()))
+                .thenReturn(emptyResult());
+
+        var events = service.streamMultiDatasourceQuery(request(200));
+        // 订阅前经过的时间不计入截止时间
+        Thread.sleep(300);
+        List<MultiDatasourceStreamEvent> received = events.collectList().block();
+
+        assertThat(received).hasSize(3);
+        assertThat(received.get(2).getSummary().getResults()).isNull();
+        assertThat(received.subList(0, 2)).allSatisfy(event -> {
+            assertThat(event.getResult().isSuccess()).isTrue();
+            assertThat(event.getResult().isTimedOut()).isFalse();
+        });
+    }
+
+    private JdbcTemplate template(String code) {
+        try (DatasourcePoolRegistry.Lease lease = registry.lease(datasource(code))) {
+            return lease.getJdbcTemplate();
+        }
+    }
+
+    @Test
+    void deadlineReturnsPartialResults() throws Exception {
+        JdbcTemplate slow = template("b");
+        CountDownLatch cancelled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) != slow) {
+                return emptyResult();
+            }
+            FanoutDeadline deadline = invocation.getArgument(6);
+            Statement statement = mock(Statement.class);
+            doAnswer(cancel -> {
+                cancelled.countDown();
+                return null;
+            }).when(statement).cancel();
+            deadline.register(statement);
+            cancelled.await(5, TimeUnit.SECONDS);
+            deadline.unregister(statement);
+            throw new IllegalStateException("语句已取消");
+        }).when(sqlExecutionService).query(any(), anyString(), any(), anyBoolean(), any(), any(), any());
+
+        MultiDatasourceQueryResponse response = service.executeMultiDatasourceQuery(request(200));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.isDeadlineExceeded()).isTrue();
+        assertThat(response.getResults().get(0).isSuccess()).isTrue();
+        assertThat(response.getResults().get(1).isTimedOut()).isTrue();
+        assertThat(response.getTotalExecutionTime()).isLessThan(5000);
+        // 到期时取消仍在执行的语句
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void slowestDatasourcesAreSubmittedFirst() {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            ReflectionTestUtils.setField(service, "latencyOrdering", true);
+            when(workloadManager.getExecutor(any())).thenReturn(single);
+            when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                    "a", datasource("a"), "b", datasource("b"), "c", datasource("c")));
+            // c 没有历史记录，视为最慢
+            when(queryStatisticsService.predictMillis(anyString(), any())).thenReturn(Map.of("a", 10L, "b", 500L));
+            Map<JdbcTemplate, String> codes = Map.of(template("a"), "a", template("b"), "b", template("c"), "c");
+            List<String> executed = new CopyOnWriteArrayList<>();
+            when(sqlExecutionService.query(any(), anyString(), any(), anyBoolean(), any(), any(), any()))
+                    .thenAnswer(invocation -> {
+                        executed.add(codes.get(invocation.getArgument(0)));
+                        return emptyResult();
+                    });
+
+            MultiDatasourceQueryRequest request = request(0);
+            request.setDatasourceCodes(List.of("a", "b", "c"));
+            MultiDatasourceQueryResponse response = service.executeMultiDatasourceQuery(request);
+
+            assertThat(executed).containsExactly("c", "b", "a");
+            // 结果仍按请求顺序返回
+            assertThat(response.getResults())
+                    .extracting(MultiDatasourceQueryResponse.DatasourceQueryResult::getDatasourceCode)
+                    .containsExactly("a", "b", "c");
+        } finally {
+            single.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryMetricsServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final QueryMetricsService service = new QueryMetricsService(registry);
+
+    @Test
+    void recordsQueryDurationRowsAndBytes() {
+        service.recordQuery(QuerySource.QUERY, "ds1", "SELECT", 120, 10, 2048, true);
+        service.recordQuery(QuerySource.QUERY, "ds1", "SELECT", 80, 5, 1024, true);
+
+        Timer timer = registry.get("sqlexecutor.query.duration")
+                .tags("endpoint", "query", "datasource", "ds1", "query.type", "SELECT", "outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(200);
+        assertThat(registry.get("sqlexecutor.query.rows").summary().totalAmount()).isEqualTo(15);
+        assertThat(registry.get("sqlexecutor.query.response.bytes").summary().totalAmount()).isEqualTo(3072);
+    }
+
+    @Test
+    void failedQueryRecordsOnlyDuration() {
+        service.recordQuery(QuerySource.MULTI_QUERY, "ds2", null, 50, 0, 0, false);
+
+        assertThat(registry.get("sqlexecutor.query.duration")
+                .tags("endpoint", "multi-query", "query.type", "UNKNOWN", "outcome", "error")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.find("sqlexecutor.query.rows").summary()).isNull();
+    }
+
+    @Test
+    void recordsFanoutFailures() {
+        service.recordFanout(QuerySource.MULTI_QUERY, 5, 0, 300);
+        service.recordFanout(QuerySource.MULTI_QUERY, 3, 2, 100);
+
+        assertThat(registry.get("sqlexecutor.fanout.duration").timer().count()).isEqualTo(2);
+        assertThat(registry.get("sqlexecutor.fanout.datasources").summary().totalAmount()).isEqualTo(8);
+        assertThat(registry.get("sqlexecutor.fanout.failures").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void recordsExportPhases() {
+        service.recordExport("zip", 4096, 500);
+        service.recordExportEntry(TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2),
+                TimeUnit.MILLISECONDS.toNanos(3), TimeUnit.MILLISECONDS.toNanos(4));
+
+        assertThat(registry.get("sqlexecutor.export.file.size").tag("format", "zip").summary().totalAmount())
+                .isEqualTo(4096);
+        assertThat(registry.get("sqlexecutor.export.entry.duration").tag("phase", "zip").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4);
+        assertThat(registry.get("sqlexecutor.export.entry.duration").timers()).hasSize(4);
+    }
+}
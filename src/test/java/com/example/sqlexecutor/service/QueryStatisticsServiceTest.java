@@ -0,0 +1,95 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.QueryStatistics;
+
+class QueryStatisticsServiceTest {
+
+    private QueryStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QueryStatisticsService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "slowQueryThreshold", 60000L);
+        ReflectionTestUtils.setField(service, "sampleSize", 16);
+        ReflectionTestUtils.setField(service, "maxFingerprints", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 100);
+        ReflectionTestUtils.setField(service, "latencySmoothing", 0.5);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    /**
+     * 统计在后台线程中更新，等待队列处理完
+     */
+    private void awaitBookkeeping() throws InterruptedException {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service,
+                "bookkeepingExecutor");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getCompletedTaskCount() < executor.getTaskCount() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void groupsByFingerprintAndDatasource() throws InterruptedException {
+        service.record(QuerySource.QUERY, "ds1", "SELECT * FROM t WHERE id = 1", 10, 1, 100, true);
+        service.record(QuerySource.EXPORT, "ds1", "select * from t where id = 2", 30, 1, 100, true);
+        service.record(QuerySource.QUERY, "ds2", "SELECT * FROM t WHERE id = 3", 5, 0, 0, false);
+        awaitBookkeeping();
+
+        assertThat(service.getFingerprintCount()).isEqualTo(2);
+        List<QueryStatistics> top = service.getTopStatistics(10, "totalTime");
+        assertThat(top).hasSize(2);
+        QueryStatistics first = top.get(0);
+        assertThat(first.getDatasourceCode()).isEqualTo("ds1");
+        assertThat(first.getCount()).isEqualTo(2);
+        assertThat(first.getTotalTime()).isEqualTo(40);
+        assertThat(first.getSources()).containsExactlyInAnyOrder("query", "export");
+        assertThat(top.get(1).getErrorCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFingerprint() throws InterruptedException {
+        service.record(QuerySource.QUERY, "ds1", "SELECT a FROM t", 1, 1, 1, true);
+        awaitBookkeeping();
+        Thread.sleep(5);
+        service.record(QuerySource.QUERY, "ds1", "SELECT b FROM t", 1, 1, 1, true);
+        awaitBookkeeping();
+        Thread.sleep(5);
+        service.record(QuerySource.QUERY, "ds1", "SELECT c FROM t", 1, 1, 1, true);
+        awaitBookkeeping();
+
+        assertThat(service.getFingerprintCount()).isEqualTo(2);
+        assertThat(service.getTopStatistics(10, "count"))
+                .extracting(QueryStatistics::getFingerprint)
+                .noneMatch(fingerprint -> fingerprint.contains("select a"));
+    }
+
+    @Test
+    void predictsOnlyForDatasourcesWithHistory() throws InterruptedException {
+        service.record(QuerySource.MULTI_QUERY, "ds1", "SELECT * FROM t WHERE id = 1", 100, 1, 1, true);
+        service.record(QuerySource.MULTI_QUERY, "ds1", "SELECT * FROM t WHERE id = 2", 200, 1, 1, true);
+        awaitBookkeeping();
+
+        Map<String, Long> predictions = service.predictMillis("SELECT * FROM t WHERE id = 9", List.of("ds1", "ds2"));
+        assertThat(predictions).containsOnlyKeys("ds1");
+        assertThat(predictions.get("ds1")).isBetween(100L, 200L);
+    }
+}
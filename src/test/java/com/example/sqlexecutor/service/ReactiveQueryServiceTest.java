@@ -0,0 +1,215 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.DatasourceRowEvent;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.exception.InvalidSqlException;
+import com.example.sqlexecutor.util.PasswordEncryptor;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+class ReactiveQueryServiceTest {
+
+    private final SqlExecutionService sqlExecutionService = mock(SqlExecutionService.class);
+    private final DatasourceService datasourceService = mock(DatasourceService.class);
+    private final QueryMetricsService queryMetricsService = mock(QueryMetricsService.class);
+    private final SqlAnalyzer.SqlAnalysis analysis = mock(SqlAnalyzer.SqlAnalysis.class);
+
+    private ReactiveQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReactiveQueryService(datasourceService, sqlExecutionService, mock(PasswordEncryptor.class),
+                mock(QueryStatisticsService.class), queryMetricsService);
+        ReflectionTestUtils.setField(service, "defaultTimeout", 10000);
+        ReflectionTestUtils.setField(service, "maxRows", 100);
+        ReflectionTestUtils.setField(service, "fetchSize", 10);
+        ReflectionTestUtils.setField(service, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(service, "maxIdleTime", 60000L);
+        ReflectionTestUtils.setField(service, "evictAfter", 1800000L);
+
+        when(analysis.getStatementType()).thenReturn("SELECT");
+        when(sqlExecutionService.validateSql(anyString())).thenReturn(analysis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private static MultiDatasourceQueryRequest request(String... datasourceCodes) {
+        return MultiDatasourceQueryRequest.builder()
+                .query("SELECT 1")
+                .datasourceCodes(List.of(datasourceCodes))
+                .build();
+    }
+
+    private static DatasourceConfig datasource(String code, String dbType, int port) {
+        return DatasourceConfig.builder()
+                .datasourceCode(code)
+                .datasourceName(code)
+                .dbType(dbType)
+                .host("127.0.0.1")
+                .port(port)
+                .databaseName("postgres")
+                .username("postgres")
+                .password("")
+                .maxPoolSize(2)
+                .connectionTimeout(2000)
+                .build();
+    }
+
+    @Test
+    void rejectsNonQueryStatementsBeforeSubscribe() {
+        when(analysis.getStatementType()).thenReturn("UPDATE");
+
+        assertThatThrownBy(() -> service.streamQuery(request("a")))
+                .isInstanceOf(InvalidSqlException.class);
+        verify(datasourceService, never()).getDatasourcesByCodes(any());
+    }
+
+    @Test
+    void rejectsMissingDatasources() {
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of());
+
+        assertThatThrownBy(() -> service.streamQuery(request("missing")))
+                .isInstanceOf(InvalidSqlException.class)
+                .hasMessageContaining("missing");
+    }
+
+    @Test
+    void failedDatasourceEmitsErrorEventWithoutStoppingOthers() {
+        // mysql 不受支持，创建连接池即失败；端口1上没有数据库，获取连接失败
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                "mysql", datasource("mysql", "mysql", 3306),
+                "closed", datasource("closed", "postgresql", 1)));
+
+        List<DatasourceRowEvent> events = service.streamQuery(request("mysql", "closed"))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertThat(events)
+                .extracting(DatasourceRowEvent::getType, DatasourceRowEvent::getDatasourceCode)
+                .containsExactlyInAnyOrder(tuple("error", "mysql"), tuple("error", "closed"));
+        verify(queryMetricsService).recordQuery(eq(QuerySource.REACTIVE), eq("mysql"), eq("SELECT"), anyLong(),
+                eq(0L), eq(0L), eq(false));
+    }
+
+    @Test
+    void slowSubscriberWithinDeadlineReadsAllRows() throws Exception {
+        // 客户端每读一行停顿150ms，相邻两行的间隔超过100ms，但整体在截止时间内
+        List<Integer> received = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        BaseSubscriber<Integer> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                received.add(value);
+                try {
+                    Thread.sleep(150);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                request(1);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                errors.add(throwable);
+            }
+        };
+
+        ReactiveQueryService.withDeadline(Flux.range(1, 5), Duration.ofSeconds(5)).subscribe(slowSubscriber);
+
+        assertThat(received).containsExactly(1, 2, 3, 4, 5);
+        assertThat(errors).isEmpty();
+        assertThat(slowSubscriber.isDisposed()).isTrue();
+    }
+
+    @Test
+    void deadlineCancelsQueryThatKeepsEmittingRows() {
+        // 持续输出数据行的查询：相邻两行间隔很短，到截止时间后仍被取消
+        List<Long> received = new ArrayList<>();
+        Flux<Long> rows = ReactiveQueryService.withDeadline(Flux.interval(Duration.ofMillis(10)),
+                Duration.ofMillis(300));
+
+        assertThatThrownBy(() -> rows.doOnNext(received::add).blockLast(Duration.ofSeconds(10)))
+                .hasCauseInstanceOf(TimeoutException.class)
+                .hasMessageContaining("300ms");
+        assertThat(received).isNotEmpty();
+    }
+
+    @Test
+    void endpointFallsBackToJdbcUrl() {
+        DatasourceConfig config = DatasourceConfig.builder()
+                .datasourceCode("url_only")
+                .jdbcUrl("jdbc:postgresql://db.internal:6543/orders?ssl=true")
+                .build();
+
+        ReactiveQueryService.Endpoint endpoint = ReactiveQueryService.endpoint(config);
+
+        assertThat(endpoint.host).isEqualTo("db.internal");
+        assertThat(endpoint.port).isEqualTo(6543);
+        assertThat(endpoint.database).isEqualTo("orders");
+
+        // 显式配置的字段优先于JDBC URL
+        config.setHost("10.0.0.5");
+        config.setPort(5433);
+        config.setDatabaseName("reports");
+        endpoint = ReactiveQueryService.endpoint(config);
+        assertThat(endpoint.host).isEqualTo("10.0.0.5");
+        assertThat(endpoint.port).isEqualTo(5433);
+        assertThat(endpoint.database).isEqualTo("reports");
+
+        assertThatThrownBy(() -> ReactiveQueryService.endpoint(DatasourceConfig.builder()
+                .datasourceCode("no_host")
+                .build()))
+                .isInstanceOf(InvalidSqlException.class);
+    }
+
+    @Test
+    void idlePoolIsEvictedAfterQueriesFinish() {
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                "closed", datasource("closed", "postgresql", 1)));
+        service.streamQuery(request("closed")).collectList().block(Duration.ofSeconds(30));
+        assertThat(service.getPoolCount()).isEqualTo(1);
+
+        // 未超过空闲时间时保留
+        service.evictIdlePools();
+        assertThat(service.getPoolCount()).isEqualTo(1);
+
+        ReflectionTestUtils.setField(service, "evictAfter", -1L);
+        service.evictIdlePools();
+        assertThat(service.getPoolCount()).isZero();
+    }
+}
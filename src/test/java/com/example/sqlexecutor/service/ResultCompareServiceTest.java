@@ -0,0 +1,106 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+import com.example.sqlexecutor.dto.MultiDatasourceQueryResponse;
+
+class ResultCompareServiceTest {
+
+    private final ResultCompareService service = new ResultCompareService();
+
+    private JdbcTemplate reference;
+    private JdbcTemplate other;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "defaultBlockSize", 100);
+        ReflectionTestUtils.setField(service, "minBlockSize", 10);
+        ReflectionTestUtils.setField(service, "defaultDiffRanges", 10);
+        ReflectionTestUtils.setField(service, "maxDiffRanges", 100);
+
+        reference = table("compare_reference", "ORDER BY id");
+        // 行顺序不同
+        other = table("compare_other", "ORDER BY id DESC");
+    }
+
+    private static JdbcTemplate table(String name, String order) {
+        JdbcTemplate template = new JdbcTemplate(
+                new SingleConnectionDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", true));
+        template.execute("DROP TABLE IF EXISTS t");
+        template.execute("CREATE TABLE t AS SELECT x AS id, CAST(x * 1.5 AS DECIMAL(10, 2)) AS amount"
+                + " FROM SYSTEM_RANGE(1, 2000) " + order);
+        return template;
+    }
+
+    private static MultiDatasourceQueryRequest.CompareOptions keyedOn(String... keyColumns) {
+        return MultiDatasourceQueryRequest.CompareOptions.builder()
+                .keyColumns(List.of(keyColumns))
+                .build();
+    }
+
+    private MultiDatasourceQueryResponse.DatasourceDifference compare(
+            MultiDatasourceQueryRequest.CompareOptions options) {
+        Map<String, ResultCompareService.Digest> digests = Map.of(
+                "ref", service.digest(reference, "SELECT * FROM t", options, 30, null, null),
+                "other", service.digest(other, "SELECT * FROM t", options, 30, null, null));
+        MultiDatasourceQueryResponse.Comparison comparison = service.compare(List.of("ref", "other"), digests,
+                options);
+        assertThat(comparison.getReferenceDatasource()).isEqualTo("ref");
+        return comparison.getDifferences().get(0);
+    }
+
+    @Test
+    void identicalRowsInDifferentOrderMatch() {
+        MultiDatasourceQueryResponse.DatasourceDifference difference = compare(
+                MultiDatasourceQueryRequest.CompareOptions.builder().build());
+
+        assertThat(difference.isIdentical()).isTrue();
+        assertThat(difference.getRanges()).isEmpty();
+    }
+
+    @Test
+    void keyedCompareReportsOnlyChangedRanges() {
+        other.update("UPDATE t SET amount = 0 WHERE id = 1500");
+        other.update("DELETE FROM t WHERE id = 20");
+
+        MultiDatasourceQueryResponse.DatasourceDifference difference = compare(keyedOn("ID"));
+
+        assertThat(difference.isIdentical()).isFalse();
+        assertThat(difference.isChecksumMatch()).isFalse();
+        assertThat(difference.getRowCountDifference()).isEqualTo(-1);
+        assertThat(difference.getRanges()).hasSize(2);
+        assertThat(difference.getRanges()).anySatisfy(range -> {
+            assertThat(Long.parseLong(range.getFromKey().get(0))).isLessThanOrEqualTo(20);
+            assertThat(range.getRows()).isEqualTo(range.getReferenceRows() - 1);
+        });
+        assertThat(difference.getRanges()).anySatisfy(range -> {
+            assertThat(Long.parseLong(range.getFromKey().get(0))).isLessThanOrEqualTo(1500);
+            assertThat(range.getRows()).isEqualTo(range.getReferenceRows());
+        });
+    }
+
+    @Test
+    void digestExposesBlocksOnlyWhenKeyed() {
+        ResultCompareService.Digest unkeyed = service.digest(reference, "SELECT * FROM t",
+                MultiDatasourceQueryRequest.CompareOptions.builder().build(), 30, null, null);
+        ResultCompareService.Digest keyed = service.digest(reference, "SELECT * FROM t", keyedOn("ID"), 30, null,
+                null);
+
+        assertThat(unkeyed.getRowCount()).isEqualTo(2000);
+        assertThat(unkeyed.getBlockCount()).isNull();
+        assertThat(unkeyed.getMerkleRoot()).isNull();
+        assertThat(keyed.getChecksum()).isEqualTo(unkeyed.getChecksum());
+        assertThat(keyed.getBlockCount()).isGreaterThan(1);
+        assertThat(keyed.getMerkleRoot()).hasSize(32);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.RowCountStatus;
+
+class RowCountServiceTest {
+
+    private ExecutorService executor;
+    private WorkloadManager workloadManager;
+    private RowCountService service;
+    private JdbcTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        workloadManager = mock(WorkloadManager.class);
+        when(workloadManager.getExecutor(any())).thenReturn(executor);
+
+        service = new RowCountService(mock(ExecutionPlanService.class), workloadManager);
+        ReflectionTestUtils.setField(service, "budget", 60000L);
+        ReflectionTestUtils.setField(service, "maxTasks", 100);
+
+        template = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:row_count;DB_CLOSE_DELAY=-1", "sa", ""));
+        template.execute("CREATE TABLE IF NOT EXISTS t (id INT)");
+        template.execute("DELETE FROM t");
+        template.execute("INSERT INTO t VALUES (1), (2), (3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private RowCountStatus await(String token) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        RowCountStatus status = service.getStatus(token);
+        while ("RUNNING".equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = service.getStatus(token);
+        }
+        return status;
+    }
+
+    @Test
+    void countsQueriesEndingWithCommentsOrSemicolons() throws InterruptedException {
+        String[] queries = {
+            "SELECT * FROM t -- 全部行",
+            "SELECT * FROM t; -- trailing\n ;",
+            "SELECT id, ';' AS s FROM t WHERE id > 0 /* ; */;",
+        };
+        for (String query : queries) {
+            RowCountStatus status = await(service.startExactCount(template, "primary", 10, query));
+            assertThat(status.getStatus()).as(query).isEqualTo("DONE");
+            assertThat(status.getCount()).as(query).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void budgetExcludesQueueWait() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "budget", 300L);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        String token = service.startExactCount(template, "primary", 10, "SELECT * FROM t");
+        // 排队时间超过预算，开始执行后仍有完整预算
+        Thread.sleep(500);
+        release.countDown();
+
+        RowCountStatus status = await(token);
+        assertThat(status.getStatus()).isEqualTo("DONE");
+        assertThat(status.getCount()).isEqualTo(3L);
+    }
+
+    @Test
+    void cancelBeforeRunReleasesTask() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        String token = service.startExactCount(template, "primary", 10, "SELECT * FROM t");
+
+        assertThat(service.cancel(token)).isTrue();
+        release.countDown();
+        assertThat(await(token).getStatus()).isEqualTo("CANCELLED");
+        assertThat(service.cancel("missing")).isFalse();
+    }
+
+    @Test
+    void cancelAfterTaskStartedFinishesAsCancelled() throws InterruptedException {
+        // 任务已被线程池取出、无法撤下时取消：执行时发现已取消，直接结束为CANCELLED
+        ManualExecutor manual = new ManualExecutor();
+        when(workloadManager.getExecutor(any())).thenReturn(manual);
+        String token = service.startExactCount(template, "primary", 10, "SELECT * FROM t");
+
+        assertThat(service.cancel(token)).isTrue();
+        assertThat(service.getStatus(token).getStatus()).isEqualTo("RUNNING");
+        manual.runAll();
+
+        assertThat(await(token).getStatus()).isEqualTo("CANCELLED");
+    }
+
+    @Test
+    void taskLimitCountsOnlyRunningTasks() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "maxTasks", 1);
+        service.completedCount("primary", 3);
+        String finished = service.startExactCount(template, "primary", 10, "SELECT * FROM t");
+        assertThat(finished).isNotNull();
+        assertThat(await(finished).getStatus()).isEqualTo("DONE");
+
+        // 已结束的任务不占名额，进行中的任务占满后拒绝
+        ManualExecutor manual = new ManualExecutor();
+        when(workloadManager.getExecutor(any())).thenReturn(manual);
+        assertThat(service.startExactCount(template, "primary", 10, "SELECT * FROM t")).isNotNull();
+        assertThat(service.startExactCount(template, "primary", 10, "SELECT * FROM t")).isNull();
+        manual.runAll();
+    }
+
+    /**
+     * 手动执行任务的线程池，已提交的任务无法取消（模拟任务已被工作线程取出）
+     */
+    private static final class ManualExecutor extends AbstractExecutorService {
+
+        private final List<Runnable> queued = new ArrayList<>();
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return newTaskFor(Executors.callable(runnable, value));
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new FutureTask<>(callable) {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        void runAll() {
+            queued.forEach(Runnable::run);
+            queued.clear();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.CatalogColumn;
+import com.example.sqlexecutor.dto.CatalogTable;
+
+class SchemaCatalogServiceTest {
+
+    private static final String PRIMARY = SqlExecutionService.PRIMARY_DATASOURCE;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final DatasourceService datasourceService = mock(DatasourceService.class);
+    private final WorkloadManager workloadManager = mock(WorkloadManager.class);
+
+    /**
+     * 模拟的系统表：oid → pg_class 中的行，以及各表的列
+     */
+    private final Map<Long, Map<String, Object>> tables = new LinkedHashMap<>();
+    private final List<Map<String, Object>> columns = new ArrayList<>();
+
+    /**
+     * 执行过的目录查询（TABLES、COLUMNS、INDEXES、VERSIONS），按 oid 过滤时附带过滤条件
+     */
+    private final List<String> queries = new ArrayList<>();
+
+    private SchemaCatalogService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        service = new SchemaCatalogService(jdbcTemplate, datasourceService, mock(DatasourcePoolRegistry.class),
+                workloadManager);
+        ReflectionTestUtils.setField(service, "primaryPoolSize", 10);
+        ReflectionTestUtils.setField(service, "ttl", 3600000L);
+        ReflectionTestUtils.setField(service, "checkInterval", 0L);
+        ReflectionTestUtils.setField(service, "incrementalMaxTables", 500);
+        ReflectionTestUtils.setField(service, "queryTimeout", 60);
+        ReflectionTestUtils.setField(service, "maxResults", 500);
+
+        // 后台刷新在调用线程上立即执行
+        ExecutorService background = mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(background).execute(any());
+        when(workloadManager.getExecutor(WorkloadClass.BACKGROUND)).thenReturn(background);
+
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation ->
+                statement(invocation.getArgument(0)));
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any())).thenAnswer(invocation ->
+                invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+
+        table(1, "orders", "100/1", 10);
+        table(2, "users", "200/1", 20);
+        column(1, "id", 1);
+        column(2, "name", 1);
+    }
+
+    private void table(long oid, String name, String version, double reltuples) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("oid", oid);
+        row.put("nspname", "public");
+        row.put("relname", name);
+        row.put("relkind", "r");
+        row.put("reltuples", reltuples);
+        row.put("version", version);
+        row.put("owner", oid);
+        tables.put(oid, row);
+    }
+
+    private void column(long attrelid, String name, int attnum) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("attrelid", attrelid);
+        row.put("attname", name);
+        row.put("data_type", "text");
+        row.put("attnotnull", false);
+        row.put("attnum", attnum);
+        columns.add(row);
+    }
+
+    private PreparedStatement statement(String sql) throws SQLException {
+        String kind = sql.contains("AS owner") ? "VERSIONS"
+                : sql.startsWith("SELECT a.attrelid") ? "COLUMNS"
+                : sql.startsWith("SELECT i.indrelid") ? "INDEXES"
+                : "TABLES";
+        String[] filter = new String[1];
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(invocation -> {
+            filter[0] = invocation.getArgument(1);
+            return null;
+        }).when(statement).setString(anyInt(), anyString());
+        when(statement.executeQuery()).thenAnswer(invocation -> {
+            queries.add(filter[0] != null ? kind + filter[0] : kind);
+            Set<Long> oids = filter[0] != null
+                    ? Arrays.stream(filter[0].replaceAll("[{}]", "").split(","))
+                            .map(Long::valueOf)
+                            .collect(Collectors.toSet())
+                    : null;
+            List<Map<String, Object>> rows = new ArrayList<>();
+            if (!"INDEXES".equals(kind)) {
+                for (Map<String, Object> row : "COLUMNS".equals(kind) ? columns : tables.values()) {
+                    Object oid = "COLUMNS".equals(kind) ? row.get("attrelid") : row.get("oid");
+                    if (oids == null || oids.contains(oid)) {
+                        rows.add(row);
+                    }
+                }
+            }
+            return resultSet(rows);
+        });
+        return statement;
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++index[0] < rows.size());
+        when(rs.getString(anyString())).thenAnswer(invocation ->
+                (String) rows.get(index[0]).get(invocation.<String>getArgument(0)));
+        when(rs.getLong(anyString())).thenAnswer(invocation ->
+                ((Number) rows.get(index[0]).get(invocation.<String>getArgument(0))).longValue());
+        when(rs.getInt(anyString())).thenAnswer(invocation ->
+                ((Number) rows.get(index[0]).get(invocation.<String>getArgument(0))).intValue());
+        when(rs.getDouble(anyString())).thenAnswer(invocation ->
+                ((Number) rows.get(index[0]).get(invocation.<String>getArgument(0))).doubleValue());
+        when(rs.getBoolean(anyString())).thenAnswer(invocation ->
+                (Boolean) rows.get(index[0]).get(invocation.<String>getArgument(0)));
+        return rs;
+    }
+
+    private List<String> columnNames(String table) {
+        return service.getTable(PRIMARY, "public", table).getColumns().stream()
+                .map(CatalogColumn::getName)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void reloadsOnlyTablesWhoseVersionChanged() {
+        assertThat(service.searchTables(PRIMARY, "", null, 10)).extracting(CatalogTable::getName)
+                .containsExactly("orders", "users");
+        assertThat(queries).containsExactly("TABLES", "COLUMNS", "INDEXES");
+        queries.clear();
+
+        // 重命名列只改写 pg_attribute，表的版本随之变化
+        columns.get(1).put("attname", "username");
+        tables.get(2L).put("version", "200/2");
+        // 当前访问返回旧快照并在后台检查，下一次访问看到刷新后的快照
+        service.getSummary(PRIMARY);
+        assertThat(columnNames("users")).containsExactly("username");
+        assertThat(queries).startsWith("VERSIONS", "TABLES{2}", "COLUMNS{2}", "INDEXES{2}");
+        queries.clear();
+
+        // 删除的表从目录中移除
+        tables.remove(1L);
+        service.getSummary(PRIMARY);
+        assertThat(service.getTable(PRIMARY, "public", "orders")).isNull();
+        assertThat(columnNames("users")).containsExactly("username");
+        assertThat(queries).doesNotContain("TABLES");
+    }
+
+    @Test
+    void reloadsEverythingAfterTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "ttl", 0L);
+        assertThat(service.getTable(PRIMARY, "public", "orders").getEstimatedRows()).isEqualTo(10);
+        queries.clear();
+
+        // 估算行数变化不改变版本，只在超过TTL后整体重新加载时刷新
+        tables.get(1L).put("reltuples", 500.0);
+        Thread.sleep(5);
+        service.getSummary(PRIMARY);
+
+        assertThat(service.getTable(PRIMARY, "public", "orders").getEstimatedRows()).isEqualTo(500);
+        assertThat(queries).startsWith("TABLES", "COLUMNS", "INDEXES").doesNotContain("VERSIONS");
+    }
+
+    @Test
+    void unknownDatasourceLeavesNoCatalogEntry() {
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of());
+
+        assertThatThrownBy(() -> service.searchTables("missing", "", null, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing");
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "catalogs")).isEmpty();
+    }
+}
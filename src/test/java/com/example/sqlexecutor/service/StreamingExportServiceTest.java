@@ -0,0 +1,209 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.dto.ExecuteSqlRequest;
+import com.example.sqlexecutor.entity.DatasourceConfig;
+import com.example.sqlexecutor.util.SqlAnalyzer;
+
+class StreamingExportServiceTest {
+
+    private final SqlExecutionService sqlExecutionService = mock(SqlExecutionService.class);
+    private final DatasourceService datasourceService = mock(DatasourceService.class);
+    private final DatasourcePoolRegistry datasourcePoolRegistry = mock(DatasourcePoolRegistry.class);
+    private final WorkloadManager workloadManager = mock(WorkloadManager.class);
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "workload-export-test"));
+
+    private StreamingExportService service;
+
+    @BeforeEach
+    void setUp() {
+        ExcelExportService excelExportService = new ExcelExportService();
+        ReflectionTestUtils.setField(excelExportService, "rowAccessWindow", 100);
+        ReflectionTestUtils.setField(excelExportService, "compressTempFiles", false);
+        ReflectionTestUtils.setField(excelExportService, "widthSampleRows", 200);
+        HostAwareScheduler scheduler = new HostAwareScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxPerHost", 8);
+        ReflectionTestUtils.setField(scheduler, "maxPerCluster", 16);
+        service = new StreamingExportService(sqlExecutionService, excelExportService, datasourceService,
+                datasourcePoolRegistry, mock(CostGuardService.class), workloadManager,
+                mock(QueryStatisticsService.class), mock(QueryMetricsService.class), scheduler);
+        ReflectionTestUtils.setField(service, "parallelism", 4);
+
+        SqlAnalyzer.SqlAnalysis analysis = mock(SqlAnalyzer.SqlAnalysis.class);
+        when(analysis.getStatementType()).thenReturn("SELECT");
+        when(sqlExecutionService.validateSql(anyString())).thenReturn(analysis);
+        when(sqlExecutionService.applyRowLimit(anyString(), any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0));
+        when(sqlExecutionService.admitPrimary(anyString(), any())).thenReturn(WorkloadClass.EXPORT);
+        when(workloadManager.getExecutor(WorkloadClass.EXPORT)).thenReturn(exportExecutor);
+        when(datasourcePoolRegistry.lease(any())).thenReturn(mock(DatasourcePoolRegistry.Lease.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportExecutor.shutdownNow();
+    }
+
+    private static ExecuteSqlRequest request() {
+        return new ExecuteSqlRequest("SELECT id, name FROM t", "main", new ExecuteSqlRequest.QueryOptions());
+    }
+
+    @Test
+    void writesWorkbookOnExportExecutorBeforeCompleting() throws Exception {
+        AtomicReference<String> queryThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            queryThread.set(Thread.currentThread().getName());
+            SqlExecutionService.RowHandler handler = invocation.getArgument(3);
+            handler.columns(new String[] {"id", "name"});
+            handler.row(new Object[] {1L, "a"});
+            handler.row(new Object[] {2L, "b"});
+            return 2L;
+        }).when(sqlExecutionService).streamPrimary(anyString(), any(), any(), any());
+
+        try (StreamingExportService.ExportFile file = service.exportQuery(request(), "结果").join()) {
+            assertThat(queryThread.get()).isEqualTo("workload-export-test");
+            assertThat(file.getRows()).isEqualTo(2);
+            assertThat(file.isTruncated()).isFalse();
+            assertThat(file.getSize()).isEqualTo(Files.size(file.getPath()));
+            try (InputStream in = Files.newInputStream(file.getPath());
+                    XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+                Sheet sheet = workbook.getSheetAt(0);
+                assertThat(sheet.getRow(2).getCell(1).getStringCellValue()).isEqualTo("b");
+            }
+            file.close();
+            assertThat(file.getPath()).doesNotExist();
+        }
+    }
+
+    @Test
+    void queryFailureCompletesExceptionallyWithoutFile() {
+        doAnswer(invocation -> {
+            SqlExecutionService.RowHandler handler = invocation.getArgument(3);
+            handler.columns(new String[] {"id"});
+            throw new DataAccessResourceFailureException("connection reset");
+        }).when(sqlExecutionService).streamPrimary(anyString(), any(), any(), any());
+
+        assertThatThrownBy(() -> service.exportQuery(request(), "结果").join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    private static DatasourceConfig datasource(String code) {
+        return DatasourceConfig.builder()
+                .datasourceCode(code)
+                .datasourceName("库" + code)
+                .host("db-" + code)
+                .build();
+    }
+
+    @Test
+    void assemblesZipOnSingleExportThreadWithoutWaiting() throws Exception {
+        // 导出线程池只有一个线程、并行度为4：写出ZIP的线程若阻塞等待工作簿，导出永远无法完成
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                "a", datasource("a"), "b", datasource("b"), "c", datasource("c")));
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new DataAccessResourceFailureException("connection reset");
+            }
+            SqlExecutionService.RowHandler handler = invocation.getArgument(3);
+            handler.columns(new String[] {"id"});
+            handler.row(new Object[] {1L});
+            return 1L;
+        }).when(sqlExecutionService).streamRows(any(), anyString(), any(), any());
+
+        List<String> names = new ArrayList<>();
+        try (StreamingExportService.ExportFile file = service.exportMultiDatasourceQuery("SELECT id FROM t",
+                List.of("a", "b", "c"), new ExecuteSqlRequest.QueryOptions()).get(10, TimeUnit.SECONDS)) {
+            assertThat(file.getRows()).isEqualTo(2);
+            assertThat(file.getSize()).isEqualTo(Files.size(file.getPath()));
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(file.getPath()))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    names.add(entry.getName());
+                }
+            }
+        }
+        assertThat(names).hasSize(3).filteredOn(name -> name.endsWith("_错误.xlsx")).hasSize(1);
+    }
+
+    private static Set<Path> zipTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("sql-executor-export-") && name.endsWith(".zip");
+            }).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    void cancelledZipExportStartsNoNewQueriesAndDeletesTempFile() throws Exception {
+        ReflectionTestUtils.setField(service, "parallelism", 1);
+        when(datasourceService.getDatasourcesByCodes(any())).thenReturn(Map.of(
+                "a", datasource("a"), "b", datasource("b"), "c", datasource("c")));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            SqlExecutionService.RowHandler handler = invocation.getArgument(3);
+            handler.columns(new String[] {"id"});
+            handler.row(new Object[] {1L});
+            return 1L;
+        }).when(sqlExecutionService).streamRows(any(), anyString(), any(), any());
+
+        Set<Path> before = zipTempFiles();
+        CompletableFuture<StreamingExportService.ExportFile> export = service.exportMultiDatasourceQuery(
+                "SELECT id FROM t", List.of("a", "b", "c"), new ExecuteSqlRequest.QueryOptions());
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // 客户端断开：取消后ZIP临时文件立即删除，进行中的数据源结束后不再提交其他数据源
+        assertThat(export.cancel(false)).isTrue();
+        assertThat(zipTempFiles()).isEqualTo(before);
+        release.countDown();
+        exportExecutor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(zipTempFiles()).isEqualTo(before);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.sqlexecutor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.sqlexecutor.exception.ConnectionAdmissionException;
+
+class WorkloadManagerTest {
+
+    private static final int POOL_SIZE = 10;
+
+    private WorkloadManager workloadManager;
+
+    private final List<WorkloadManager.ConnectionPermit> permits = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        workloadManager = new WorkloadManager(mock(QueryMetricsService.class));
+        ReflectionTestUtils.setField(workloadManager, "exportConnectionShare", 0.3);
+        ReflectionTestUtils.setField(workloadManager, "backgroundConnectionShare", 0.2);
+        ReflectionTestUtils.setField(workloadManager, "interactiveReservedShare", 0.2);
+        ReflectionTestUtils.setField(workloadManager, "admissionTimeout", 50L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        permits.forEach(WorkloadManager.ConnectionPermit::close);
+    }
+
+    private void acquire(WorkloadClass workloadClass, int count) {
+        for (int i = 0; i < count; i++) {
+            permits.add(workloadManager.acquireConnection(workloadClass, "ds", POOL_SIZE));
+        }
+    }
+
+    @Test
+    void capsExportAndBackgroundOnly() {
+        assertThat(workloadManager.connectionPermits(WorkloadClass.EXPORT, POOL_SIZE)).isEqualTo(3);
+        assertThat(workloadManager.connectionPermits(WorkloadClass.BACKGROUND, POOL_SIZE)).isEqualTo(2);
+        assertThat(workloadManager.connectionPermits(WorkloadClass.INTERACTIVE, POOL_SIZE)).isEqualTo(POOL_SIZE);
+        assertThat(workloadManager.sharedConnectionLimit(POOL_SIZE)).isEqualTo(8);
+
+        // 连接池很小时导出和后台任务仍至少有一个连接
+        assertThat(workloadManager.connectionPermits(WorkloadClass.EXPORT, 2)).isEqualTo(1);
+        assertThat(workloadManager.connectionPermits(WorkloadClass.BACKGROUND, 2)).isEqualTo(1);
+        assertThat(workloadManager.sharedConnectionLimit(1)).isEqualTo(1);
+    }
+
+    @Test
+    void interactiveUsesWholeIdlePool() {
+        acquire(WorkloadClass.INTERACTIVE, POOL_SIZE);
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.INTERACTIVE, "ds", POOL_SIZE))
+                .isInstanceOf(ConnectionAdmissionException.class);
+        // 连接池已满，导出也不能再占用
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.EXPORT, "ds", POOL_SIZE))
+                .isInstanceOf(ConnectionAdmissionException.class);
+    }
+
+    @Test
+    void exportAndBackgroundNeverTakeInteractiveFloor() {
+        ReflectionTestUtils.setField(workloadManager, "exportConnectionShare", 0.6);
+        ReflectionTestUtils.setField(workloadManager, "backgroundConnectionShare", 0.6);
+
+        acquire(WorkloadClass.EXPORT, 6);
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.EXPORT, "ds", POOL_SIZE))
+                .isInstanceOf(ConnectionAdmissionException.class);
+        acquire(WorkloadClass.BACKGROUND, 2);
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.BACKGROUND, "ds", POOL_SIZE))
+                .isInstanceOf(ConnectionAdmissionException.class);
+
+        // 保底的2个连接仍可供交互式查询使用
+        acquire(WorkloadClass.INTERACTIVE, 2);
+    }
+
+    @Test
+    void releasedConnectionGoesToInteractiveFirst() throws Exception {
+        ReflectionTestUtils.setField(workloadManager, "admissionTimeout", 5000L);
+        acquire(WorkloadClass.BACKGROUND, 1);
+        acquire(WorkloadClass.INTERACTIVE, POOL_SIZE - 1);
+
+        ExecutorService waiters = Executors.newFixedThreadPool(2);
+        try {
+            Future<WorkloadManager.ConnectionPermit> background = waiters.submit(() ->
+                    workloadManager.acquireConnection(WorkloadClass.BACKGROUND, "ds", POOL_SIZE));
+            Thread.sleep(100);
+            Future<WorkloadManager.ConnectionPermit> interactive = waiters.submit(() ->
+                    workloadManager.acquireConnection(WorkloadClass.INTERACTIVE, "ds", POOL_SIZE));
+            Thread.sleep(100);
+
+            // 先等待的后台任务让位于交互式查询
+            permits.remove(permits.size() - 1).close();
+            permits.add(interactive.get(5, TimeUnit.SECONDS));
+            assertThat(background.isDone()).isFalse();
+
+            permits.remove(permits.size() - 1).close();
+            permits.add(background.get(5, TimeUnit.SECONDS));
+        } finally {
+            waiters.shutdownNow();
+        }
+    }
+
+    @Test
+    void sharesArePerDatasource() {
+        acquire(WorkloadClass.INTERACTIVE, POOL_SIZE);
+        try (WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(WorkloadClass.INTERACTIVE,
+                "other", POOL_SIZE)) {
+            assertThat(permit).isNotNull();
+        }
+    }
+
+    @Test
+    void closingPermitReturnsItOnce() {
+        acquire(WorkloadClass.BACKGROUND, 1);
+        WorkloadManager.ConnectionPermit permit = workloadManager.acquireConnection(WorkloadClass.BACKGROUND, "ds",
+                POOL_SIZE);
+        permit.close();
+        permit.close();
+
+        acquire(WorkloadClass.BACKGROUND, 1);
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.BACKGROUND, "ds", POOL_SIZE))
+                .isInstanceOf(ConnectionAdmissionException.class);
+    }
+
+    @Test
+    void waitIsBoundedByDeadline() {
+        ReflectionTestUtils.setField(workloadManager, "admissionTimeout", 60000L);
+        acquire(WorkloadClass.INTERACTIVE, POOL_SIZE);
+
+        FanoutDeadline deadline = new FanoutDeadline(20);
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> workloadManager.acquireConnection(WorkloadClass.INTERACTIVE, "ds", POOL_SIZE,
+                deadline))
+                .isInstanceOf(ConnectionAdmissionException.class)
+                .hasMessageContaining("截止时间");
+        assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 以 concurrency 的并发完成一个窗口的请求
+     */
+    private static void window(AdaptiveConcurrencyLimiter limiter, int concurrency, int samples, long latencyNanos) {
+        for (int i = 0; i < samples; i++) {
+            for (int j = 0; j < concurrency; j++) {
+                limiter.tryAcquire();
+            }
+            limiter.release(latencyNanos, false);
+            for (int j = 1; j < concurrency; j++) {
+                limiter.release(latencyNanos, false);
+            }
+        }
+    }
+
+    @Test
+    void rejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 2, 1, 10, 0.9, 2.0, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+        limiter.release(MS, false);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsWhileLatencyStaysNearBaseline() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 10, 1, 100, 0.9, 2.0, 10);
+        for (int i = 0; i < 20; i++) {
+            window(limiter, limiter.getLimit(), 1, 50 * MS);
+        }
+        assertThat(limiter.getBaselineLatencyMillis()).isEqualTo(50.0);
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAboveBaseline() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 40, 1, 100, 0.9, 2.0, 10);
+        window(limiter, 40, 1, 20 * MS);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            window(limiter, limiter.getLimit(), 1, 200 * MS);
+        }
+        assertThat(limiter.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    void slowButStableLatencyIsNotOverload() {
+        // 基线本身很高（慢查询）时不会因为绝对耗时而缩减
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 20, 1, 100, 0.9, 2.0, 10);
+        for (int i = 0; i < 10; i++) {
+            window(limiter, limiter.getLimit(), 1, 30_000 * MS);
+        }
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void overloadBacksOffImmediately() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 20, 2, 100, 0.5, 2.0, 10);
+        limiter.tryAcquire();
+        limiter.release(MS, true);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(MS, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void idleLimiterDoesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("t", 20, 1, 100, 0.9, 2.0, 5);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(10 * MS, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+}
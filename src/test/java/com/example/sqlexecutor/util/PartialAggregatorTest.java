@@ -0,0 +1,73 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+
+class PartialAggregatorTest {
+
+    private static MultiDatasourceQueryRequest.AggregateSpec spec(String function, String column, String alias) {
+        return MultiDatasourceQueryRequest.AggregateSpec.builder()
+                .function(function)
+                .column(column)
+                .alias(alias)
+                .build();
+    }
+
+    private static Map<String, Object> row(Object region, Object count, Object sum, Object min, Object max) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("region", region);
+        row.put("cnt", count);
+        row.put("total", sum);
+        row.put("lo", min);
+        row.put("hi", max);
+        return row;
+    }
+
+    @Test
+    void mergesPartialAggregatesAcrossTypes() throws SQLException {
+        MultiDatasourceQueryRequest.AggregateSpec avg = spec("avg", "total", "mean");
+        avg.setCountColumn("cnt");
+        PartialAggregator aggregator = new PartialAggregator(List.of("region"), List.of(
+                spec("COUNT", "cnt", null), spec("sum", "total", null), spec("MIN", "lo", null),
+                spec("max", "hi", null), avg));
+
+        // 不同数据源上分组列类型不同（int4 与 int8）
+        aggregator.add(row(1, 2L, new BigDecimal("10.5"), 3, 8));
+        aggregator.add(row(2, 1L, 4, 1, 1));
+        aggregator.add(row(1L, 3L, 9.5d, 2L, 5L));
+        aggregator.add(row(null, 1L, 1, null, null));
+
+        List<Map<String, Object>> result = aggregator.result();
+        assertThat(result).hasSize(3);
+        Map<String, Object> first = result.get(0);
+        assertThat(first.get("region")).isEqualTo(1);
+        assertThat(first.get("cnt")).isEqualTo(5L);
+        assertThat((BigDecimal) first.get("total")).isEqualByComparingTo("20");
+        assertThat(first.get("lo")).isEqualTo(2L);
+        assertThat(first.get("hi")).isEqualTo(8);
+        assertThat((BigDecimal) first.get("mean")).isEqualByComparingTo("4");
+        assertThat(result.get(2).get("region")).isNull();
+        assertThat(result.get(2).get("lo")).isNull();
+    }
+
+    @Test
+    void validatesSpecs() {
+        assertThatThrownBy(() -> new PartialAggregator(null, List.of(spec("AVG", "total", null))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("countColumn");
+        assertThatThrownBy(() -> new PartialAggregator(null, List.of(spec("MEDIAN", "total", null))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PartialAggregator(null, List.of(spec("SUM", " ", null))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
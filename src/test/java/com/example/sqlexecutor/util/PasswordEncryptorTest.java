@@ -0,0 +1,65 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PasswordEncryptorTest {
+
+    private PasswordEncryptor encryptor;
+
+    @BeforeEach
+    void setUp() {
+        encryptor = new PasswordEncryptor();
+        ReflectionTestUtils.setField(encryptor, "secretKeyString", "MySecretKey123456MySecretKey123456");
+        encryptor.init();
+    }
+
+    @Test
+    void roundTripsWithRandomIv() {
+        String first = encryptor.encrypt("p@ss 密码");
+        String second = encryptor.encrypt("p@ss 密码");
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(encryptor.decrypt(first)).isEqualTo("p@ss 密码");
+        assertThat(encryptor.decrypt(second)).isEqualTo("p@ss 密码");
+        assertThat(encryptor.isEncrypted(first)).isTrue();
+        assertThat(encryptor.isEncrypted("plain-password")).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedCiphertext() {
+        byte[] combined = Base64.getDecoder().decode(encryptor.encrypt("secret"));
+        combined[combined.length - 1] ^= 1;
+        String tampered = Base64.getEncoder().encodeToString(combined);
+
+        assertThatThrownBy(() -> encryptor.decrypt(tampered)).hasMessageContaining("密码解密失败");
+    }
+
+    @Test
+    void decryptsConcurrently() throws Exception {
+        String encrypted = encryptor.encrypt("concurrent");
+        Thread[] threads = new Thread[4];
+        boolean[] ok = new boolean[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                boolean allMatch = true;
+                for (int j = 0; j < 200; j++) {
+                    allMatch &= "concurrent".equals(encryptor.decrypt(encrypted));
+                }
+                ok[index] = allMatch;
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ok).containsOnly(true);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.sqlexecutor.dto.QueryTimings;
+
+class PhaseTimerTest {
+
+    @Test
+    void unrecordedOptionalPhasesAreNull() {
+        QueryTimings timings = new PhaseTimer().finish(0);
+
+        assertThat(timings.getValidation()).isNull();
+        assertThat(timings.getQueueWait()).isNull();
+        assertThat(timings.getConnectionAcquire()).isNull();
+        assertThat(timings.getExplain()).isNull();
+        assertThat(timings.getExecution()).isZero();
+        assertThat(timings.getRowsPerSecond()).isNull();
+        assertThat(timings.getSerialization()).isNull();
+    }
+
+    @Test
+    void accumulatesPhasesInMillis() {
+        PhaseTimer timer = new PhaseTimer();
+        timer.setValidationNanos(TimeUnit.MICROSECONDS.toNanos(1500));
+        timer.addExplainNanos(TimeUnit.MILLISECONDS.toNanos(2));
+        timer.addExplainNanos(TimeUnit.MILLISECONDS.toNanos(3));
+        timer.addExecutionNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        timer.addFetchNanos(TimeUnit.MILLISECONDS.toNanos(300));
+        timer.addMappingNanos(TimeUnit.MILLISECONDS.toNanos(100));
+
+        QueryTimings timings = timer.finish(1000);
+
+        assertThat(timings.getValidation()).isEqualTo(1.5);
+        assertThat(timings.getExplain()).isEqualTo(5.0);
+        assertThat(timings.getExecution()).isEqualTo(100.0);
+        assertThat(timings.getFetch()).isEqualTo(300.0);
+        assertThat(timings.getMapping()).isEqualTo(100.0);
+        // 1000行 / 0.5秒
+        assertThat(timings.getRowsPerSecond()).isEqualTo(2000.0);
+        assertThat(timings.getTotal()).isNotNull();
+    }
+
+    @Test
+    void extractorRecordsFetchAndMapping() throws SQLException {
+        PhaseTimer timer = new PhaseTimer();
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:phase_timer");
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT x FROM SYSTEM_RANGE(1, 100)")) {
+            List<Map<String, Object>> rows = new RowMapResultSetExtractor(true, timer, null).extractData(rs);
+            assertThat(rows).hasSize(100);
+        }
+
+        QueryTimings timings = timer.finish(100);
+        assertThat(timings.getFetch()).isNotNull();
+        assertThat(timings.getMapping()).isNotNull();
+        assertThat(timings.getRowsPerSecond()).isPositive();
+    }
+
+    @Test
+    void serializationMeasuredFromMark() {
+        QueryTimings timings = new PhaseTimer().finish(0);
+        timings.markSerializationStart();
+
+        assertThat(timings.getSerialization()).isNotNull().isGreaterThanOrEqualTo(0.0);
+    }
+}
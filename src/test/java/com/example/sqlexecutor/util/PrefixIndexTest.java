@@ -0,0 +1,42 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTest {
+
+    private static final List<String> NAMES = List.of("orders", "Order_Items", "customers", "order_items",
+            "ORDERS_ARCHIVE", "products", "orders");
+
+    private final PrefixIndex<String> index = PrefixIndex.of(NAMES, Function.identity());
+
+    @Test
+    void matchesPrefixIgnoringCase() {
+        assertThat(index.search("ORDER", null, 10))
+                .containsExactly("Order_Items", "order_items", "orders", "orders", "ORDERS_ARCHIVE");
+        assertThat(index.search("cust", null, 10)).containsExactly("customers");
+        assertThat(index.search("x", null, 10)).isEmpty();
+        assertThat(index.search("productsx", null, 10)).isEmpty();
+    }
+
+    @Test
+    void exactKeyReturnsAllDuplicatesInOriginalOrder() {
+        List<Integer> positions = List.of(0, 1, 2, 3, 4, 5, 6);
+        PrefixIndex<Integer> byPosition = PrefixIndex.of(positions, NAMES::get);
+
+        assertThat(byPosition.search("orders", null, 10)).containsExactly(0, 6, 4);
+        assertThat(byPosition.search("order_items", null, 10)).containsExactly(1, 3);
+    }
+
+    @Test
+    void appliesFilterAndLimit() {
+        assertThat(index.search("order", name -> !name.contains("_"), 10)).containsExactly("orders", "orders");
+        assertThat(index.search("order", null, 2)).hasSize(2);
+        assertThat(index.search("", null, 3)).containsExactly("customers", "Order_Items", "order_items");
+        assertThat(index.search(null, null, 100)).hasSize(NAMES.size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PreviewRewriterTest {
+
+    @Test
+    void rewritesSimpleSelect() {
+        String sql = "SELECT * FROM public.orders";
+        PreviewRewriter.SimpleSelect select = PreviewRewriter.parse(sql);
+
+        assertThat(select).isNotNull();
+        assertThat(select.getTable()).isEqualTo("public.orders");
+        assertThat(PreviewRewriter.rewrite(sql, select, "SYSTEM", 1.5, 100))
+                .isEqualTo("SELECT * FROM public.orders TABLESAMPLE SYSTEM (1.500000) LIMIT 100");
+    }
+
+    @Test
+    void insertsAfterAlias() {
+        String sql = "select o.id, o.\"Name\" as n from \"Orders\" as o;";
+        PreviewRewriter.SimpleSelect select = PreviewRewriter.parse(sql);
+
+        assertThat(select.getTable()).isEqualTo("\"Orders\"");
+        assertThat(PreviewRewriter.rewrite(sql, select, "BERNOULLI", 10, 50))
+                .isEqualTo("select o.id, o.\"Name\" as n from \"Orders\" as o"
+                        + " TABLESAMPLE BERNOULLI (10.000000) LIMIT 50");
+    }
+
+    @Test
+    void rejectsQueriesWithOtherClauses() {
+        assertThat(PreviewRewriter.parse("SELECT * FROM t WHERE id = 1")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM t ORDER BY id")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM t LIMIT 10")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM a JOIN b ON a.id = b.id")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM a, b")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM t AS")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT * FROM t; DELETE FROM t")).isNull();
+    }
+
+    @Test
+    void rejectsNonTrivialColumns() {
+        assertThat(PreviewRewriter.parse("SELECT count(*) FROM t")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT DISTINCT a FROM t")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT a + 1 FROM t")).isNull();
+        assertThat(PreviewRewriter.parse("SELECT FROM t")).isNull();
+        assertThat(PreviewRewriter.parse("WITH x AS (SELECT 1) SELECT * FROM x")).isNull();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultBufferTest {
+
+    private static final String[] LABELS = {"id", "name", "day"};
+
+    @TempDir
+    Path directory;
+
+    private static Map<String, Object> row(int id, String name) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("name", name);
+        row.put("day", LocalDate.of(2024, 1, 1).plusDays(id));
+        return row;
+    }
+
+    private long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void spilledRowsReadBackEqualToHeapRows() throws IOException {
+        List<Map<String, Object>> expected = new ArrayList<>();
+        try (ResultBuffer buffer = new ResultBuffer(LABELS, directory, 1000, 1 << 20, 4096)) {
+            for (int i = 0; i < 500; i++) {
+                // 偶尔有超过写缓冲区的大行
+                Map<String, Object> row = row(i, i % 97 == 0 ? "x".repeat(10000) : "name-" + i);
+                expected.add(row);
+                assertThat(buffer.append(row, 100)).isTrue();
+            }
+            assertThat(buffer.isSpilling()).isTrue();
+            assertThat(buffer.getSpilledRowCount()).isEqualTo(490);
+            assertThat(spillFiles()).isEqualTo(1);
+
+            assertThat(buffer).containsExactlyElementsOf(expected);
+            assertThat(buffer.get(499)).isEqualTo(expected.get(499));
+            assertThat(buffer.subList(200, 203)).containsExactlyElementsOf(expected.subList(200, 203));
+        }
+        assertThat(spillFiles()).isZero();
+    }
+
+    @Test
+    void stopsAtDiskLimit() {
+        try (ResultBuffer buffer = new ResultBuffer(LABELS, directory, 0, 100, 4096)) {
+            int accepted = 0;
+            while (buffer.append(row(accepted, "name"), 100)) {
+                accepted++;
+            }
+            assertThat(accepted).isPositive();
+            assertThat(buffer.getSpilledBytes()).isLessThanOrEqualTo(100);
+            assertThat(buffer).hasSize(accepted);
+        }
+    }
+
+    @Test
+    void readsAfterCloseFail() throws IOException {
+        ResultBuffer buffer = new ResultBuffer(LABELS, directory, 0, 1 << 20, 4096);
+        buffer.append(row(1, "a"), 100);
+        assertThat(buffer.get(0)).isEqualTo(row(1, "a"));
+
+        buffer.close();
+        buffer.close();
+        assertThat(spillFiles()).isZero();
+        assertThatThrownBy(() -> buffer.get(0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> buffer.append(row(2, "b"), 100)).isInstanceOf(IllegalStateException.class);
+    }
+}
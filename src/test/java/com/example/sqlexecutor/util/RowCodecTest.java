@@ -0,0 +1,107 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.geometric.PGpoint;
+import org.postgresql.util.PGInterval;
+import org.postgresql.util.PGobject;
+
+class RowCodecTest {
+
+    private static Object roundTrip(Object value) {
+        String[] labels = {"v"};
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("v", value);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        RowCodec.encode(row, labels, buffer);
+        buffer.flip();
+        Map<String, Object> decoded = RowCodec.decode(buffer, labels);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return decoded.get("v");
+    }
+
+    @Test
+    void jdbcTypes() {
+        Timestamp timestamp = Timestamp.valueOf("2024-02-29 12:34:56.123456789");
+        Object[] values = {null, "中文 text", 42, -7L, (short) 3, 1.5d, 2.5f, new BigDecimal("-123.4500"),
+            new BigInteger("123456789012345678901234567890"), true, timestamp, java.sql.Date.valueOf("2024-01-02"),
+            java.sql.Time.valueOf("10:11:12"), new byte[] {1, 2, 3}, UUID.randomUUID()};
+        for (Object value : values) {
+            Object decoded = roundTrip(value);
+            if (value instanceof byte[]) {
+                assertThat((byte[]) decoded).containsExactly((byte[]) value);
+            } else {
+                assertThat(decoded).isEqualTo(value);
+            }
+        }
+        assertThat(((Timestamp) roundTrip(timestamp)).getNanos()).isEqualTo(123456789);
+    }
+
+    @Test
+    void javaTimeTypes() {
+        LocalDateTime local = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999);
+        Object[] values = {LocalDate.of(-44, 3, 15), LocalTime.of(23, 0, 0, 1), local,
+            OffsetDateTime.of(local, ZoneOffset.ofHoursMinutes(-9, -30)),
+            OffsetTime.of(LocalTime.NOON, ZoneOffset.ofHours(8)),
+            ZonedDateTime.of(LocalDateTime.of(2023, 11, 5, 1, 30), ZoneId.of("America/New_York"))
+                    .withLaterOffsetAtOverlap(),
+            Instant.ofEpochSecond(-1, 5)};
+        for (Object value : values) {
+            assertThat(roundTrip(value)).isEqualTo(value).hasSameClassAs(value);
+        }
+    }
+
+    @Test
+    void pgObjects() throws Exception {
+        PGobject json = new PGobject();
+        json.setType("jsonb");
+        json.setValue("{\"a\": [1, 2]}");
+        PGobject nullValue = new PGobject();
+        nullValue.setType("json");
+        PGInterval interval = new PGInterval("1 year 2 mons 3 days 04:05:06.5");
+        PGpoint point = new PGpoint(1.5, -2);
+
+        for (Object value : new Object[] {json, nullValue, interval, point}) {
+            assertThat(roundTrip(value)).isEqualTo(value).hasSameClassAs(value);
+        }
+    }
+
+    @Test
+    void arrays() {
+        Integer[] integers = {1, null, 3};
+        String[][] nested = {{"a", "b"}, {null, "d"}};
+        Timestamp[] timestamps = {Timestamp.valueOf("2024-01-01 00:00:00.5")};
+
+        assertThat((Object[]) roundTrip(integers)).isInstanceOf(Integer[].class).containsExactly(1, null, 3);
+        Object decodedNested = roundTrip(nested);
+        assertThat(decodedNested).isInstanceOf(String[][].class);
+        assertThat(Arrays.deepEquals((Object[]) decodedNested, nested)).isTrue();
+        assertThat((Object[]) roundTrip(timestamps)).isInstanceOf(Timestamp[].class).containsExactly((Object[]) timestamps);
+        assertThat((int[]) roundTrip(new int[] {4, 5})).containsExactly(4, 5);
+        assertThat((Object[]) roundTrip(new Object[] {1L, "x"})).containsExactly(1L, "x");
+    }
+
+    @Test
+    void unknownTypesFallBackToString() {
+        assertThat(roundTrip(new StringBuilder("sb"))).isEqualTo("sb");
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.sqlexecutor.dto.MultiDatasourceQueryRequest;
+
+class RowComparatorTest {
+
+    private static MultiDatasourceQueryRequest.SortKey key(String column, boolean descending) {
+        return MultiDatasourceQueryRequest.SortKey.builder()
+                .column(column)
+                .descending(descending)
+                .build();
+    }
+
+    private static Map<String, Object> row(Object value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("v", value);
+        return row;
+    }
+
+    private static List<Object> sorted(boolean descending, Object... values) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Arrays.stream(values).forEach(value -> rows.add(row(value)));
+        rows.sort(new RowComparator(List.of(key("v", descending))));
+        List<Object> result = new ArrayList<>();
+        rows.forEach(row -> result.add(row.get("v")));
+        return result;
+    }
+
+    @Test
+    void nullsLastAscendingFirstDescending() {
+        assertThat(sorted(false, 3, null, 1)).containsExactly(1, 3, null);
+        assertThat(sorted(true, 3, null, 1)).containsExactly(null, 3, 1);
+    }
+
+    @Test
+    void comparesNumbersByValueAcrossTypes() {
+        assertThat(sorted(false, 10L, new BigDecimal("2.5"), 3, 1.0d)).containsExactly(1.0d, new BigDecimal("2.5"),
+                3, 10L);
+        assertThat(RowComparator.compareValues(Double.NaN, Long.MAX_VALUE)).isPositive();
+        assertThat(RowComparator.compareValues(Double.NEGATIVE_INFINITY, Long.MIN_VALUE)).isNegative();
+    }
+
+    @Test
+    void laterKeysBreakTies() {
+        Map<String, Object> first = new HashMap<>(Map.of("a", 1, "b", "x"));
+        Map<String, Object> second = new HashMap<>(Map.of("a", 1, "b", "y"));
+        RowComparator comparator = new RowComparator(List.of(key("a", false), key("b", true)));
+
+        assertThat(comparator.compare(first, second)).isPositive();
+        assertThat(RowComparator.compareValues("b", "a")).isPositive();
+    }
+}
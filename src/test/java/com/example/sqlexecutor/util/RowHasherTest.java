@@ -0,0 +1,40 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class RowHasherTest {
+
+    private final RowHasher hasher = new RowHasher();
+
+    @Test
+    void equalValuesOfDifferentTypesHashEqual() throws SQLException {
+        long reference = hasher.hash(new Object[] {1, new BigDecimal("2.50"), "a"});
+
+        assertThat(hasher.hash(new Object[] {1L, new BigDecimal("2.5"), "a"})).isEqualTo(reference);
+        assertThat(hasher.hash(new Object[] {(short) 1, 2.5d, "a"})).isEqualTo(reference);
+    }
+
+    @Test
+    void nullDiffersFromEmptyAndColumnBoundariesCount() throws SQLException {
+        assertThat(hasher.hash(new Object[] {null})).isNotEqualTo(hasher.hash(new Object[] {""}));
+        assertThat(hasher.hash(new Object[] {"ab", "c"})).isNotEqualTo(hasher.hash(new Object[] {"a", "bc"}));
+    }
+
+    @Test
+    void normalizesTemporalAndBinaryValues() throws SQLException {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+        assertThat(RowHasher.normalize(Timestamp.valueOf(time))).isEqualTo(time.toString());
+        assertThat(RowHasher.normalize(java.sql.Date.valueOf("2024-01-02"))).isEqualTo("2024-01-02");
+        assertThat(RowHasher.normalize(new byte[] {0x0a, (byte) 0xff})).isEqualTo("0aff");
+        assertThat(RowHasher.normalize(BigDecimal.ZERO.setScale(3))).isEqualTo("0");
+        assertThat(RowHasher.normalize(new BigDecimal("1E+3"))).isEqualTo("1000");
+    }
+}
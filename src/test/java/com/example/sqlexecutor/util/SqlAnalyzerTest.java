@@ -0,0 +1,94 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SqlAnalyzerTest {
+
+    private final SqlAnalyzer analyzer = new SqlAnalyzer(List.of("drop", " truncate "));
+
+    @Test
+    void statementType() {
+        assertThat(analyzer.analyze("  select 1").getStatementType()).isEqualTo("SELECT");
+        assertThat(analyzer.analyze("/* c */ WITH x AS (SELECT 1) SELECT * FROM x").getStatementType())
+                .isEqualTo("WITH");
+        assertThat(analyzer.analyze("-- c\nupdate t set a = 1").getStatementType()).isEqualTo("UPDATE");
+    }
+
+    @Test
+    void trailingSemicolonIsOneStatement() {
+        SqlAnalyzer.SqlAnalysis analysis = analyzer.analyze("SELECT 1;  ");
+        assertThat(analysis.getStatementCount()).isEqualTo(1);
+        assertThat(analysis.hasInjectionRisk()).isFalse();
+    }
+
+    @Test
+    void multipleStatementsAreRejected() {
+        SqlAnalyzer.SqlAnalysis analysis = analyzer.analyze("SELECT 1; SELECT 2");
+        assertThat(analysis.getStatementCount()).isEqualTo(2);
+        assertThat(analysis.hasInjectionRisk()).isTrue();
+    }
+
+    @Test
+    void semicolonsInsideLiteralsAreNotStatements() {
+        assertThat(analyzer.analyze("SELECT ';', $$;$$, \";\" FROM t").getStatementCount()).isEqualTo(1);
+        assertThat(analyzer.analyze("SELECT ';', $$;$$, \";\" FROM t").hasInjectionRisk()).isFalse();
+    }
+
+    @Test
+    void backslashQuoteIsRejected() {
+        // standard_conforming_strings=off 时为三条语句
+        SqlAnalyzer.SqlAnalysis analysis = analyzer.analyze("SELECT 'x\\''; DROP TABLE t; SELECT '''");
+        assertThat(analysis.getStatementCount()).isEqualTo(1);
+        assertThat(analysis.isBackslashQuote()).isTrue();
+        assertThat(analysis.hasInjectionRisk()).isTrue();
+
+        assertThat(analyzer.analyze("SELECT E'it\\'s'").hasInjectionRisk()).isFalse();
+        assertThat(analyzer.analyze("SELECT 'C:\\temp'").hasInjectionRisk()).isFalse();
+    }
+
+    @Test
+    void commentsAndUnterminatedLiteralsAreRisky() {
+        assertThat(analyzer.analyze("SELECT 1 -- x").hasInjectionRisk()).isTrue();
+        assertThat(analyzer.analyze("SELECT 1 /* x */").hasInjectionRisk()).isTrue();
+        assertThat(analyzer.analyze("SELECT 'abc").hasInjectionRisk()).isTrue();
+        assertThat(analyzer.analyze("SELECT \"abc").hasInjectionRisk()).isTrue();
+    }
+
+    @Test
+    void suspiciousLiteralAndTautology() {
+        assertThat(analyzer.analyze("SELECT * FROM t WHERE a = 'x' OR b = 2").isSuspiciousLiteral()).isTrue();
+        assertThat(analyzer.analyze("SELECT * FROM t WHERE a = 2 OR 1 = 1").isTautology()).isTrue();
+        assertThat(analyzer.analyze("SELECT * FROM t WHERE a = 1 AND b = 10").isTautology()).isFalse();
+        assertThat(analyzer.analyze("SELECT 'or 1=1' FROM t").hasInjectionRisk()).isFalse();
+    }
+
+    @Test
+    void forbiddenKeywordsMatchWholeTokens() {
+        assertThat(analyzer.analyze("DROP TABLE t").getForbiddenKeyword()).isEqualTo("DROP");
+        assertThat(analyzer.analyze("SELECT 1; truncate t").getForbiddenKeyword()).isEqualTo("TRUNCATE");
+        assertThat(analyzer.analyze("SELECT dropped, 'drop' FROM \"drop\"").getForbiddenKeyword()).isNull();
+    }
+
+    @Test
+    void topLevelLimit() {
+        assertThat(analyzer.analyze("SELECT * FROM t LIMIT 10").isTopLevelLimit()).isTrue();
+        assertThat(analyzer.analyze("SELECT * FROM (SELECT * FROM t LIMIT 1) s").isTopLevelLimit()).isFalse();
+        assertThat(analyzer.analyze("SELECT limit_value FROM t").isTopLevelLimit()).isFalse();
+    }
+
+    @Test
+    void stripTerminatorUsesTokens() {
+        assertThat(SqlAnalyzer.stripTerminator("SELECT 1;")).isEqualTo("SELECT 1");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT 1 ; ;\n")).isEqualTo("SELECT 1");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT 1 -- note;\n;")).isEqualTo("SELECT 1");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT 1; /* ; */")).isEqualTo("SELECT 1");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT ';'")).isEqualTo("SELECT ';'");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT \"a;\" FROM t;")).isEqualTo("SELECT \"a;\" FROM t");
+        assertThat(SqlAnalyzer.stripTerminator("SELECT $$;$$;")).isEqualTo("SELECT $$;$$");
+        assertThat(SqlAnalyzer.stripTerminator(";")).isEmpty();
+    }
+}
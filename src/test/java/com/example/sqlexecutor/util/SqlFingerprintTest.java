@@ -0,0 +1,36 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SqlFingerprintTest {
+
+    @Test
+    void replacesLiteralsWithPlaceholders() {
+        assertThat(SqlFingerprint.normalize("SELECT * FROM t WHERE id = 42 AND name = 'abc'"))
+                .isEqualTo(SqlFingerprint.normalize("select *  from T where ID = 7 and NAME = 'xyz';"));
+    }
+
+    @Test
+    void collapsesInLists() {
+        assertThat(SqlFingerprint.normalize("SELECT 1 FROM t WHERE id IN (1, 2, 3)"))
+                .isEqualTo(SqlFingerprint.normalize("SELECT 1 FROM t WHERE id IN (5)"))
+                .contains("(?)");
+    }
+
+    @Test
+    void ignoresCommentsAndWhitespace() {
+        assertThat(SqlFingerprint.normalize("SELECT a -- 注释\nFROM t /* 块注释 */ WHERE b = $1"))
+                .isEqualTo(SqlFingerprint.normalize("SELECT a FROM t WHERE b = $2"));
+    }
+
+    @Test
+    void differentStructureDifferentHash() {
+        String first = SqlFingerprint.hash(SqlFingerprint.normalize("SELECT a FROM t WHERE b = 1"));
+        String second = SqlFingerprint.hash(SqlFingerprint.normalize("SELECT a FROM t WHERE c = 1"));
+
+        assertThat(first).hasSize(16).isNotEqualTo(second);
+        assertThat(SqlFingerprint.hash(SqlFingerprint.normalize("SELECT a FROM t WHERE b = 2"))).isEqualTo(first);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.sqlexecutor.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SqlLexerTest {
+
+    /**
+     * 有意义的词法单元，格式为 类型:文本
+     */
+    private static List<String> tokens(String sql) {
+        List<String> tokens = new ArrayList<>();
+        SqlLexer lexer = new SqlLexer(sql);
+        while (lexer.next()) {
+            if (lexer.isSignificant()) {
+                tokens.add(lexer.type() + ":" + lexer.text());
+            }
+        }
+        return tokens;
+    }
+
+    private static SqlLexer first(String sql, SqlLexer.TokenType type) {
+        SqlLexer lexer = new SqlLexer(sql);
+        while (lexer.next()) {
+            if (lexer.type() == type) {
+                return lexer;
+            }
+        }
+        throw new AssertionError("没有 " + type + " 单元: " + sql);
+    }
+
+    @Test
+    void splitsSimpleSelect() {
+        assertThat(tokens("SELECT a, b FROM t WHERE id = $1"))
+                .containsExactly("WORD:SELECT", "WORD:a", "PUNCTUATION:,", "WORD:b", "WORD:FROM", "WORD:t",
+                        "WORD:WHERE", "WORD:id", "OPERATOR:=", "PARAMETER:$1");
+    }
+
+    @Test
+    void doubledQuoteStaysInsideString() {
+        assertThat(tokens("SELECT 'it''s; DROP' AS x"))
+                .containsExactly("WORD:SELECT", "STRING:'it''s; DROP'", "WORD:AS", "WORD:x");
+    }
+
+    @Test
+    void escapeStringHonoursBackslash() {
+        assertThat(tokens("SELECT E'a\\'b;c' FROM t"))
+                .containsExactly("WORD:SELECT", "STRING:E'a\\'b;c'", "WORD:FROM", "WORD:t");
+    }
+
+    @Test
+    void prefixedStrings() {
+        assertThat(tokens("SELECT B'101', X'ff', N'n', U&'\\0041'"))
+                .containsExactly("WORD:SELECT", "STRING:B'101'", "PUNCTUATION:,", "STRING:X'ff'", "PUNCTUATION:,",
+                        "STRING:N'n'", "PUNCTUATION:,", "STRING:U&'\\0041'");
+    }
+
+    @Test
+    void dollarQuotedStringWithTag() {
+        assertThat(tokens("SELECT $fn$ a; 'b' $$ c $fn$, $$x$$"))
+                .containsExactly("WORD:SELECT", "DOLLAR_STRING:$fn$ a; 'b' $$ c $fn$", "PUNCTUATION:,",
+                        "DOLLAR_STRING:$$x$$");
+    }
+
+    @Test
+    void quotedIdentifier() {
+        assertThat(tokens("SELECT \"a \"\"b\"\"\" FROM \"T\""))
+                .containsExactly("WORD:SELECT", "QUOTED_IDENTIFIER:\"a \"\"b\"\"\"", "WORD:FROM",
+                        "QUOTED_IDENTIFIER:\"T\"");
+    }
+
+    @Test
+    void comments() {
+        SqlLexer lexer = first("SELECT 1 -- tail ; x\nFROM t", SqlLexer.TokenType.LINE_COMMENT);
+        assertThat(lexer.text()).isEqualTo("-- tail ; x");
+
+        lexer = first("SELECT /* a /* nested */ b */ 1", SqlLexer.TokenType.BLOCK_COMMENT);
+        assertThat(lexer.text()).isEqualTo("/* a /* nested */ b */");
+        assertThat(lexer.isTerminated()).isTrue();
+
+        lexer = first("SELECT /* open", SqlLexer.TokenType.BLOCK_COMMENT);
+        assertThat(lexer.isTerminated()).isFalse();
+    }
+
+    @Test
+    void unterminatedString() {
+        SqlLexer lexer = first("SELECT 'abc", SqlLexer.TokenType.STRING);
+        assertThat(lexer.isTerminated()).isFalse();
+        assertThat(lexer.end()).isEqualTo("SELECT 'abc".length());
+    }
+
+    @Test
+    void numbers() {
+        assertThat(tokens("SELECT 1, 2.5, .5, 1e10, 3E-2, t.a"))
+                .containsExactly("WORD:SELECT", "NUMBER:1", "PUNCTUATION:,", "NUMBER:2.5", "PUNCTUATION:,",
+                        "NUMBER:.5", "PUNCTUATION:,", "NUMBER:1e10", "PUNCTUATION:,", "NUMBER:3E-2",
+                        "PUNCTUATION:,", "WORD:t", "PUNCTUATION:.", "WORD:a");
+    }
+
+    @Test
+    void operators() {
+        assertThat(tokens("a::int >= b AND c=-1 AND d @> e AND f--x"))
+                .containsExactly("WORD:a", "OPERATOR:::", "WORD:int", "OPERATOR:>=", "WORD:b", "WORD:AND",
+                        "WORD:c", "OPERATOR:=", "OPERATOR:-", "NUMBER:1", "WORD:AND", "WORD:d", "OPERATOR:@>",
+                        "WORD:e", "WORD:AND", "WORD:f");
+    }
+
+    @Test
+    void backslashQuoteInPlainString() {
+        assertThat(first("SELECT 'x\\''; DROP TABLE t; SELECT '''", SqlLexer.TokenType.STRING)
+                .hasBackslashQuote()).isTrue();
+        assertThat(first("SELECT 'a\\\\''b'", SqlLexer.TokenType.STRING).hasBackslashQuote()).isTrue();
+        assertThat(first("SELECT N'x\\'", SqlLexer.TokenType.STRING).hasBackslashQuote()).isTrue();
+        assertThat(first("SELECT 'C:\\path'", SqlLexer.TokenType.STRING).hasBackslashQuote()).isFalse();
+        assertThat(first("SELECT E'x\\''", SqlLexer.TokenType.STRING).hasBackslashQuote()).isFalse();
+    }
+
+    @Test
+    void wordEqualsIgnoresCase() {
+        SqlLexer lexer = first("select Limit", SqlLexer.TokenType.WORD);
+        assertThat(lexer.wordEquals("SELECT")).isTrue();
+        assertThat(lexer.wordEquals("SEL")).isFalse();
+    }
+}